@@ -0,0 +1,57 @@
+package com.songge.demo.benchmark;
+
+import org.openjdk.jol.info.GraphLayout;
+
+import java.lang.management.BufferPoolMXBean;
+import java.lang.management.ManagementFactory;
+import java.util.Map;
+
+/**
+ * <p>
+ *   每个元素的内存占用：堆内部分使用JOL统计容器引用的全部对象（HashMap包含key/value对象），堆外部分统计direct buffer pool的增量
+ *   java -cp benchmarks.jar com.songge.demo.benchmark.Footprint [size]
+ * <p/>
+ */
+public class Footprint {
+
+    public static void main(String[] args) throws Exception {
+
+        int size = args.length > 0 ? Integer.parseInt(args[0]) : 100000;
+
+        String[] keys = KeySet.keys("random", size, 1);
+
+        System.out.println(String.format("%-20s %-8s %12s %12s %12s", "impl", "value", "heap B/e", "offheap B/e", "total B/e"));
+
+        for(String impl : new String[]{"LightMap", "LightMap-offheap", "ConcurrentLightMap", "HashMap", "ConcurrentHashMap"}) {
+            for(String valueType : new String[]{"String", "Integer", "Long"}) {
+
+                Object[] values = KeySet.values(valueType, size);
+
+                long directBefore = directMemoryUsed();
+                Map<String, Object> map = Maps.create(impl, valueType, 16, 0.8);
+
+                for(int i = 0; i < size; i++) {
+                    map.put(keys[i], values[i]);
+                }
+
+                double heap = (double) GraphLayout.parseInstance(map).totalSize() / size;
+                double offHeap = (double) (directMemoryUsed() - directBefore) / size;
+
+                System.out.println(String.format("%-20s %-8s %12.1f %12.1f %12.1f", impl, valueType, heap, offHeap, heap + offHeap));
+
+                Maps.close(map);
+            }
+        }
+    }
+
+    private static long directMemoryUsed() {
+
+        for(BufferPoolMXBean pool : ManagementFactory.getPlatformMXBeans(BufferPoolMXBean.class)) {
+            if("direct".equals(pool.getName())) {
+                return pool.getMemoryUsed();
+            }
+        }
+
+        return 0;
+    }
+}
@@ -0,0 +1,139 @@
+package com.songge.demo.benchmark;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.songge.demo.LightMap;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * <p>
+ *   get/containsKey基准测试，查找序列按命中率预先生成
+ *   java -jar benchmarks.jar GetBenchmark -prof gc
+ * <p/>
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class GetBenchmark {
+
+    // 查找序列长度
+    private static final int LOOKUPS = 1 << 16;
+
+    @Param({"LightMap", "LightMap-offheap", "FrozenLightMap", "ConcurrentLightMap", "HashMap", "ConcurrentHashMap"})
+    String impl;
+
+    @Param({"String", "Integer", "Long"})
+    String valueType;
+
+    @Param({"random", "sequential"})
+    String keyShape;
+
+    @Param({"1.0", "0.5", "0.0"})
+    double hitRatio;
+
+    @Param({"100000"})
+    int size;
+
+    @Param({"0.8"})
+    double loadFactor;
+
+    private Map<String, Object> map;
+
+    private String[] lookups;
+
+    private int index;
+
+    // getAll每次查找的key数
+    private static final int BATCH = 16;
+
+    private List<String>[] batches;
+
+    @Setup
+    @SuppressWarnings("unchecked")
+    public void setup() {
+
+        String[] keys = KeySet.keys(keyShape, size, 1);
+        String[] misses = KeySet.keys(keyShape, size, 2);
+        Object[] values = KeySet.values(valueType, size);
+
+        // FrozenLightMap由填充完成的LightMap构建
+        boolean frozen = "FrozenLightMap".equals(impl);
+
+        map = Maps.create(frozen ? "LightMap" : impl, valueType, 16, loadFactor);
+        for(int i = 0; i < size; i++) {
+            map.put(keys[i], values[i]);
+        }
+
+        if(frozen) {
+            LightMap<String, Object> source = (LightMap<String, Object>) map;
+            map = source.freeze();
+            source.close();
+        }
+
+        lookups = KeySet.lookups(keys, misses, hitRatio, LOOKUPS);
+
+        batches = new List[LOOKUPS / BATCH];
+        for(int i = 0; i < batches.length; i++) {
+            batches[i] = Arrays.asList(Arrays.copyOfRange(lookups, i * BATCH, (i + 1) * BATCH));
+        }
+    }
+
+    @TearDown
+    public void tearDown() throws IOException {
+
+        Maps.close(map);
+    }
+
+    @Benchmark
+    public Object get() {
+
+        return map.get(lookups[index++ & (LOOKUPS - 1)]);
+    }
+
+    @Benchmark
+    public boolean containsKey() {
+
+        return map.containsKey(lookups[index++ & (LOOKUPS - 1)]);
+    }
+
+    /**
+     * 多key查询，LightMap使用getAll批量查找，其他实现逐个get
+     */
+    @Benchmark
+    @OperationsPerInvocation(BATCH)
+    @SuppressWarnings("unchecked")
+    public void getAll(Blackhole blackhole) {
+
+        List<String> batch = batches[index++ & (batches.length - 1)];
+
+        if(map instanceof LightMap) {
+            ((LightMap<String, Object>) map).getAll(batch, (key, value) -> blackhole.consume(value));
+            return;
+        }
+
+        for(String key : batch) {
+            blackhole.consume(map.get(key));
+        }
+    }
+}
@@ -0,0 +1,120 @@
+package com.songge.demo.benchmark;
+
+import java.util.Random;
+
+/**
+ * <p>
+ *   预先生成的key/value，基准测试的计时区间内不再生成字符串
+ * <p/>
+ */
+final class KeySet {
+
+    // key长度，与LightMap的keyLength一致
+    static final int KEY_LENGTH = 20;
+
+    private static final String CHARS = "abcdefghijklmnopqrstuvwxyzABCDEFGHIJKLMNOPQRSTUVWXYZ0123456789";
+
+    private KeySet() {
+    }
+
+    /**
+     * 生成互不相同的key
+     * @param shape random：随机字母数字；sequential：固定前缀加数字后缀
+     * @param count key个数
+     * @param seed 随机种子，相同参数生成相同的key
+     */
+    static String[] keys(String shape, int count, long seed) {
+
+        String[] keys = new String[count];
+
+        if("sequential".equals(shape)) {
+
+            for(int i = 0; i < count; i++) {
+                keys[i] = String.format("user:%015d", seed * count + i);
+            }
+
+            return keys;
+        }
+
+        Random random = new Random(seed);
+        char[] chars = new char[KEY_LENGTH];
+
+        for(int i = 0; i < count; i++) {
+
+            for(int j = 0; j < KEY_LENGTH; j++) {
+                chars[j] = CHARS.charAt(random.nextInt(CHARS.length()));
+            }
+
+            keys[i] = new String(chars);
+        }
+
+        return keys;
+    }
+
+    /**
+     * 生成指定类型的value
+     * @param valueType String/Integer/Long
+     * @param count value个数
+     */
+    static Object[] values(String valueType, int count) {
+
+        // String类型的value与key同样为20个随机字母数字，正好填满LightMap的valueLength
+        if("String".equals(valueType)) {
+            return keys("random", count, -count);
+        }
+
+        Object[] values = new Object[count];
+        Random random = new Random(count);
+
+        for(int i = 0; i < count; i++) {
+
+            switch(valueType) {
+                case "Integer":
+                    values[i] = random.nextInt();
+                    break;
+                case "Long":
+                    values[i] = random.nextLong();
+                    break;
+                default:
+                    throw new IllegalArgumentException("不支持的value类型：" + valueType);
+            }
+        }
+
+        return values;
+    }
+
+    /**
+     * 按命中率混合已放入容器的key与不存在的key，生成查找序列
+     * @param hits 已放入容器的key
+     * @param misses 不存在于容器中的key
+     * @param hitRatio 命中率
+     * @param length 查找序列长度，必须为2的幂
+     */
+    static String[] lookups(String[] hits, String[] misses, double hitRatio, int length) {
+
+        String[] lookups = new String[length];
+        Random random = new Random(length);
+
+        for(int i = 0; i < length; i++) {
+            lookups[i] = random.nextDouble() < hitRatio ? hits[random.nextInt(hits.length)] : misses[random.nextInt(misses.length)];
+        }
+
+        return lookups;
+    }
+
+    /**
+     * @param valueType String/Integer/Long
+     * @return LightMap中value的长度
+     */
+    static int valueLength(String valueType) {
+
+        switch(valueType) {
+            case "Integer":
+                return 4;
+            case "Long":
+                return 8;
+            default:
+                return 20;
+        }
+    }
+}
@@ -0,0 +1,80 @@
+package com.songge.demo.benchmark;
+
+import com.songge.demo.LightMap;
+import com.songge.demo.LightStorage;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * <p>
+ *   扩容因子扫描：容器大小固定，元素数恰好填到loadFactor，测量不同负载下的查找耗时
+ *   java -jar benchmarks.jar LoadFactorBenchmark
+ * <p/>
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class LoadFactorBenchmark {
+
+    private static final int MAX_SIZE = 1 << 17;
+
+    private static final int LOOKUPS = 1 << 16;
+
+    @Param({"0.5", "0.7", "0.8", "0.9", "0.95"})
+    double loadFactor;
+
+    @Param({"1.0", "0.0"})
+    double hitRatio;
+
+    @Param({"HEAP", "OFF_HEAP"})
+    LightStorage storage;
+
+    private LightMap<String, Long> map;
+
+    private String[] lookups;
+
+    private int index;
+
+    @Setup
+    public void setup() {
+
+        int size = (int) (MAX_SIZE * loadFactor) - 1;
+
+        String[] keys = KeySet.keys("random", size, 1);
+        String[] misses = KeySet.keys("random", size, 2);
+
+        map = new LightMap<>(KeySet.KEY_LENGTH, 8, MAX_SIZE, loadFactor, storage);
+        for(int i = 0; i < size; i++) {
+            map.put(keys[i], (long) i);
+        }
+
+        lookups = KeySet.lookups(keys, misses, hitRatio, LOOKUPS);
+    }
+
+    @TearDown
+    public void tearDown() {
+
+        map.close();
+    }
+
+    @Benchmark
+    public Long get() {
+
+        return map.get(lookups[index++ & (LOOKUPS - 1)]);
+    }
+}
@@ -0,0 +1,58 @@
+package com.songge.demo.benchmark;
+
+import com.songge.demo.ConcurrentLightMap;
+import com.songge.demo.LightMap;
+import com.songge.demo.LightStorage;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * <p>
+ *   按名称创建被测容器，HashMap/ConcurrentHashMap作为对照组
+ * <p/>
+ */
+final class Maps {
+
+    private Maps() {
+    }
+
+    /**
+     * @param impl LightMap / LightMap-offheap / ConcurrentLightMap / HashMap / ConcurrentHashMap
+     * @param valueType String/Integer/Long
+     * @param maxSize 初始容量
+     * @param loadFactor 扩容因子
+     */
+    static Map<String, Object> create(String impl, String valueType, int maxSize, double loadFactor) {
+
+        int valueLength = KeySet.valueLength(valueType);
+
+        switch(impl) {
+            case "LightMap":
+                return new LightMap<>(KeySet.KEY_LENGTH, valueLength, maxSize, loadFactor, LightStorage.HEAP);
+            case "LightMap-offheap":
+                return new LightMap<>(KeySet.KEY_LENGTH, valueLength, maxSize, loadFactor, LightStorage.OFF_HEAP);
+            case "ConcurrentLightMap":
+                return new ConcurrentLightMap<>(KeySet.KEY_LENGTH, valueLength);
+            case "HashMap":
+                return new HashMap<>(maxSize, (float) loadFactor);
+            case "ConcurrentHashMap":
+                return new ConcurrentHashMap<>(maxSize, (float) loadFactor);
+            default:
+                throw new IllegalArgumentException("不支持的容器：" + impl);
+        }
+    }
+
+    /**
+     * 释放堆外存储
+     */
+    static void close(Map<String, Object> map) throws IOException {
+
+        if(map instanceof Closeable) {
+            ((Closeable) map).close();
+        }
+    }
+}
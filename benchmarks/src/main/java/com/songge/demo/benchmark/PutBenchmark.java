@@ -0,0 +1,130 @@
+package com.songge.demo.benchmark;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * <p>
+ *   put基准测试：overwrite为已存在key的替换（稳定状态，-prof gc应接近0分配），fill为从空容器开始插入全部key（包含扩容）
+ *   java -jar benchmarks.jar PutBenchmark -prof gc
+ * <p/>
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class PutBenchmark {
+
+    private static final int SIZE = 100000;
+
+    @Param({"LightMap", "LightMap-offheap", "ConcurrentLightMap", "HashMap", "ConcurrentHashMap"})
+    String impl;
+
+    @Param({"String", "Integer", "Long"})
+    String valueType;
+
+    @Param({"random", "sequential"})
+    String keyShape;
+
+    @Param({"0.8"})
+    double loadFactor;
+
+    private String[] keys;
+
+    private Object[] values;
+
+    // putAll的数据源
+    private Map<String, Object> source;
+
+    private Map<String, Object> map;
+
+    private int index;
+
+    @Setup(Level.Trial)
+    public void setup() {
+
+        keys = KeySet.keys(keyShape, SIZE, 1);
+        values = KeySet.values(valueType, SIZE);
+
+        source = new HashMap<>();
+        for(int i = 0; i < SIZE; i++) {
+            source.put(keys[i], values[i]);
+        }
+    }
+
+    @Setup(Level.Iteration)
+    public void fillMap() {
+
+        map = Maps.create(impl, valueType, 16, loadFactor);
+        for(int i = 0; i < SIZE; i++) {
+            map.put(keys[i], values[i]);
+        }
+    }
+
+    @TearDown(Level.Iteration)
+    public void tearDown() throws IOException {
+
+        Maps.close(map);
+    }
+
+    @Benchmark
+    public Object overwrite() {
+
+        int i = index++ % SIZE;
+        if(index == SIZE) {
+            index = 0;
+        }
+
+        return map.put(keys[i], values[SIZE - 1 - i]);
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(SIZE)
+    public Map<String, Object> fill() throws IOException {
+
+        Map<String, Object> map = Maps.create(impl, valueType, 16, loadFactor);
+
+        for(int i = 0; i < SIZE; i++) {
+            map.put(keys[i], values[i]);
+        }
+
+        Maps.close(map);
+
+        return map;
+    }
+
+    /**
+     * 与fill相同的数据量，putAll预先扩容，不经过逐次翻倍rehash
+     */
+    @Benchmark
+    @OperationsPerInvocation(SIZE)
+    public Map<String, Object> putAll() throws IOException {
+
+        Map<String, Object> map = Maps.create(impl, valueType, 16, loadFactor);
+
+        map.putAll(source);
+
+        Maps.close(map);
+
+        return map;
+    }
+}
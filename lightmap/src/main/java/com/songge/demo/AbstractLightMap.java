@@ -0,0 +1,2711 @@
+package com.songge.demo;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * <p>
+ *   LightMap系列容器的公共存储结构，节点以定长格式连续存放在NodeStorage中：
+ *   key长度(1) + key + value长度(1) + value + hashCode(4)
+ *   ARENA布局时节点只保存记录地址，key/value按实际长度存放在LightArena中，见{@link LightLayout}
+ *   冲突使用Robin Hood线性探测解决，删除时后续节点前移（backward-shift），不需要链表指针和删除标记
+ *   容器大小固定为2的幂，hashcode由LightHasher加随机种子计算，取低位作为节点位置
+ *   开启过期时间后节点在hashCode之前多4字节的过期时间，见{@link #setExpireAfterWrite(long, TimeUnit)}
+ * <p/>
+ *
+ * @author SongGe
+ * @version V1.0
+ * date 2018/7/26 14:57
+ */
+abstract class AbstractLightMap implements Closeable {
+
+    // 线程私有的编码缓冲区，key/value编码时复用，稳定状态下get/put不再分配byte[]
+    private static final ThreadLocal<byte[]> SCRATCH = ThreadLocal.withInitial(() -> new byte[64]);
+
+    // 节点存储结构
+    NodeStorage nodes;
+
+    // 节点存储方式（堆内/堆外）
+    final LightStorage storage;
+
+    // 扩容因子
+    double capacity = 0.8;
+
+    // 容器中maxSize，始终为2的幂
+    int maxSize = 16;
+
+    // 容器中数据个数
+    int count = 0;
+
+    // 结构修改次数（新增、删除、扩容、收缩），LightCursor据此检测遍历过程中的并发修改
+    int modCount;
+
+    // key的数据长度
+    int keyLength;
+
+    // value的数据长度
+    int valueLength;
+
+    // node节点长度（FIXED布局：key + value + 2[key长度标识，value长度标识] + 4[hashCode]，ARENA布局：13，数值key布局：key + value + 4[hashCode]）
+    int nodeLength;
+
+    // 数值key布局（LightLongKeyMap/LightIntKeyMap）：key/value长度固定，节点中不保存长度标识
+    // 空节点按hashCode为0判断，数值key的hashcode不会为0，见numericHash
+    boolean numericKey;
+
+    // 非ARENA布局时value在节点中的起始位置
+    int valuePosition;
+
+    // ARENA布局时存放key/value记录，FIXED布局时为null
+    LightArena arena;
+
+    // 通过open(Path)打开时的文件路径，flush时写回
+    private Path path;
+
+    // nodeOf返回值中标记节点位于渐进式rehash的旧容器中
+    static final long OLD_TABLE = 1L << 62;
+
+    // 渐进式rehash每次put/remove迁移的旧容器节点数，0表示一次性rehash
+    private int migrateStep;
+
+    // 渐进式rehash中的旧容器，迁移完成后为null
+    NodeStorage oldNodes;
+
+    // 旧容器的maxSize
+    private int oldSize;
+
+    // 删除后元素数低于maxSize * compactRatio时自动收缩容器，0表示不自动收缩
+    private double compactRatio;
+
+    // key的hash算法
+    private LightHasher hasher = LightHashers.WYHASH;
+
+    // hash种子，每个容器实例随机生成，相同的key在不同容器中分布不同
+    long seed = ThreadLocalRandom.current().nextLong();
+
+    // 旧容器开始迁移的位置（簇的起始位置），迁移从这里环形进行
+    private int migrateStart;
+
+    // 旧容器已迁移的节点数，从migrateStart开始的这些节点已在新容器中，查找时忽略
+    int migrateIndex;
+
+    // 原容器节点数达到该值时扩容使用ForkJoinPool并行放置节点
+    static int parallelThreshold = 1 << 17;
+
+    // 容器最大节点数
+    static final int MAX_TABLE_SIZE = 1 << 30;
+
+    // 并行扩容每个任务处理的最少节点数
+    private static final int PARALLEL_RANGE = 1 << 14;
+
+    // 并行扩容支持的最大扩容倍数，倍数过大时原容器很小，串行即可
+    private static final int PARALLEL_MAX_FACTOR = 16;
+
+    // 开启统计时记录rehash和查找耗时，默认为null，关闭时热路径只多一次null判断
+    private LightMapStats.Recorder recorder;
+
+    // 缓存模式的CLOCK淘汰状态，null表示非缓存模式（容器按需扩容）
+    LightClock clock;
+
+    // put时使用setExpireAfterWrite设置的存活时间
+    static final int DEFAULT_TTL = -1;
+
+    // 每次put顺带清理的节点数
+    private static final int EXPIRE_STEP = 8;
+
+    // 是否开启过期时间，开启后节点[nodeLength - 8, nodeLength - 4)为过期时间：相对expiryEpoch的秒数，0表示不过期
+    boolean expiring;
+
+    // 过期时间的基准（毫秒）
+    private long expiryEpoch;
+
+    // put未指定存活时间时使用的秒数，0表示不过期
+    private int defaultTtl;
+
+    // 增量清理过期节点的位置
+    private int sweepIndex;
+
+    // snapshot()创建的只读快照，修改时抛出UnsupportedOperationException
+    private boolean readOnly;
+
+    /**
+     * 构造方法
+     * @param keyLength key长度
+     * @param valueLength value长度
+     * @param maxSize maxSize，向上取整为2的幂
+     * @param capacity 扩充因子
+     * @param storage 节点存储方式
+     */
+    AbstractLightMap(int keyLength, int valueLength, int maxSize, double capacity, LightStorage storage) {
+
+        this(keyLength, valueLength, maxSize, capacity, storage, LightLayout.FIXED);
+    }
+
+    /**
+     * 构造方法
+     * @param keyLength key最大长度
+     * @param valueLength value最大长度
+     * @param maxSize maxSize，向上取整为2的幂
+     * @param capacity 扩充因子
+     * @param storage 节点存储方式
+     * @param layout 节点布局
+     */
+    AbstractLightMap(int keyLength, int valueLength, int maxSize, double capacity, LightStorage storage, LightLayout layout) {
+
+        this(keyLength, valueLength, maxSize, capacity, storage, layout, false);
+    }
+
+    /**
+     * 构造方法
+     * @param keyLength key最大长度
+     * @param valueLength value最大长度
+     * @param maxSize maxSize，向上取整为2的幂
+     * @param capacity 扩充因子
+     * @param storage 节点存储方式
+     * @param layout 节点布局
+     * @param numericKey 是否使用数值key布局，key/value按keyLength/valueLength定长存放，只能与FIXED布局同时使用
+     */
+    AbstractLightMap(int keyLength, int valueLength, int maxSize, double capacity, LightStorage storage, LightLayout layout, boolean numericKey) {
+
+        // valueLength为0时只保存key（LightSet）
+        if(keyLength <= 0 || keyLength > layout.maxLength() || valueLength < 0 || valueLength > layout.maxLength()) {
+            throw new IllegalArgumentException(layout + "布局的keyLength需要在[1, " + layout.maxLength() + "]之间，valueLength需要在[0, " + layout.maxLength() + "]之间：" + keyLength + "/" + valueLength);
+        }
+
+        if(numericKey && layout != LightLayout.FIXED) {
+            throw new IllegalArgumentException("数值key布局只能与FIXED布局同时使用");
+        }
+
+        this.maxSize = tableSizeFor(maxSize);
+        this.capacity = capacity;
+        this.keyLength = keyLength;
+        this.valueLength = valueLength;
+        this.numericKey = numericKey;
+        this.nodeLength = numericKey ? keyLength + valueLength + 4 : layout.nodeLength(this.keyLength, this.valueLength);
+        this.valuePosition = numericKey ? keyLength : keyLength + 2;
+        this.storage = storage;
+
+        nodes = storage.allocate((long) this.maxSize * nodeLength);
+
+        if(layout == LightLayout.ARENA) {
+            arena = new LightArena(storage);
+        }
+    }
+
+    /**
+     * 构造方法，使用内存映射的LightMap文件作为节点存储结构，扩容后的新容器使用堆外存储
+     * @param file 已打开的LightMap文件
+     * @param path 文件路径
+     */
+    AbstractLightMap(LightMapFile file, Path path) {
+
+        this.maxSize = file.maxSize;
+        this.capacity = file.capacity;
+        this.keyLength = file.keyLength;
+        this.valueLength = file.valueLength;
+        this.numericKey = file.numericKey();
+        this.nodeLength = file.nodeLength();
+        this.valuePosition = numericKey ? keyLength : keyLength + 2;
+        this.storage = LightStorage.OFF_HEAP;
+        this.nodes = file.nodes;
+        this.count = file.count;
+        this.hasher = file.hasher;
+        this.seed = file.seed;
+        this.path = path;
+
+        // 旧版本文件中hashCode为0的元素改为1后不在初始位置上，全部重新放置
+        if(file.rehash) {
+            retable(maxSize, true, "upgrade");
+        }
+    }
+
+    /**
+     * 构造方法，创建source当前内容的只读快照
+     * 节点存储结构和arena通过NodeStorage.share()共享，堆内存储只复制块的引用，之后任意一边写入某块时才复制该块
+     * 快照之后不会再被修改，可以交给其他线程读取或写出文件
+     * @param source 原容器，渐进式rehash中先完成迁移
+     */
+    AbstractLightMap(AbstractLightMap source) {
+
+        source.completeRehash();
+
+        this.storage = source.storage;
+        this.capacity = source.capacity;
+        this.maxSize = source.maxSize;
+        this.count = source.count;
+        this.keyLength = source.keyLength;
+        this.valueLength = source.valueLength;
+        this.nodeLength = source.nodeLength;
+        this.numericKey = source.numericKey;
+        this.valuePosition = source.valuePosition;
+        this.hasher = source.hasher;
+        this.seed = source.seed;
+        this.expiring = source.expiring;
+        this.expiryEpoch = source.expiryEpoch;
+        this.defaultTtl = source.defaultTtl;
+        this.nodes = source.nodes.share();
+        this.arena = source.arena == null ? null : source.arena.share();
+        this.readOnly = true;
+    }
+
+    /**
+     * 只读快照不允许修改
+     */
+    private void checkWritable() {
+
+        if(readOnly) {
+            throw new UnsupportedOperationException("快照是只读的");
+        }
+    }
+
+    /**
+     * @param size 期望的容器大小
+     * @return 不小于size的2的幂，最小为2
+     */
+    static int tableSizeFor(int size) {
+
+        if(size <= 2) {
+            return 2;
+        }
+
+        int tableSize = Integer.highestOneBit(size - 1) << 1;
+
+        if(tableSize <= 0) {
+            throw new IllegalArgumentException("maxSize过大：" + size);
+        }
+
+        return tableSize;
+    }
+
+    /**
+     * @return value数据类型标识（1：String 2：Integer 3：Long 4：LightSet 5：LightLongKeyMap 6：LightIntKeyMap），写入文件头
+     */
+    abstract int valueType();
+
+    /**
+     * 将缓冲区中已编码的key/value放入容器
+     * @param scratch 编码缓冲区，key位于[0, keyLen)，value位于[keyLength, keyLength + valueLen)
+     * @param keyLen key长度
+     * @param valueLen value长度
+     * @return key不存在并新增节点时返回true
+     */
+    boolean putEncoded(byte[] scratch, int keyLen, int valueLen) {
+
+        return putEncoded(scratch, 0, keyLen, scratch, keyLength, valueLen, DEFAULT_TTL);
+    }
+
+    /**
+     * 将缓冲区中已编码的key/value放入容器
+     * @param scratch 编码缓冲区，key位于[0, keyLen)，value位于[keyLength, keyLength + valueLen)
+     * @param keyLen key长度
+     * @param valueLen value长度
+     * @param ttl 存活秒数，0表示不过期，DEFAULT_TTL表示使用setExpireAfterWrite设置的时间
+     * @return key不存在并新增节点时返回true
+     */
+    boolean putEncoded(byte[] scratch, int keyLen, int valueLen, int ttl) {
+
+        return putEncoded(scratch, 0, keyLen, scratch, keyLength, valueLen, ttl);
+    }
+
+    /**
+     * 将已编码的key/value放入容器，key直接与节点中的字节比较，不需要先复制到编码缓冲区
+     * @param key key所在数组
+     * @param keyOffset key在数组中的起始位置
+     * @param keyLen key长度，不超过keyLength
+     * @param value value所在数组
+     * @param valueOffset value在数组中的起始位置
+     * @param valueLen value长度，不超过valueLength
+     * @return key不存在并新增节点时返回true
+     */
+    boolean putEncoded(byte[] key, int keyOffset, int keyLen, byte[] value, int valueOffset, int valueLen) {
+
+        return putEncoded(key, keyOffset, keyLen, value, valueOffset, valueLen, DEFAULT_TTL);
+    }
+
+    /**
+     * 将已编码的key/value放入容器，key已存在时同时替换过期时间
+     * @param key key所在数组
+     * @param keyOffset key在数组中的起始位置
+     * @param keyLen key长度，不超过keyLength
+     * @param value value所在数组
+     * @param valueOffset value在数组中的起始位置
+     * @param valueLen value长度，不超过valueLength
+     * @param ttl 存活秒数，0表示不过期，DEFAULT_TTL表示使用setExpireAfterWrite设置的时间
+     * @return key不存在并新增节点时返回true
+     */
+    boolean putEncoded(byte[] key, int keyOffset, int keyLen, byte[] value, int valueOffset, int valueLen, int ttl) {
+
+        return putEncoded(key, keyOffset, keyLen, value, valueOffset, valueLen, ttl, hash(key, keyOffset, keyLen));
+    }
+
+    /**
+     * 按已计算的hashcode放入已编码的key/value，hash算法和种子相同的容器之间复制节点时不需要重新计算
+     * @param key key所在数组
+     * @param keyOffset key在数组中的起始位置
+     * @param keyLen key长度，不超过keyLength
+     * @param value value所在数组
+     * @param valueOffset value在数组中的起始位置
+     * @param valueLen value长度，不超过valueLength
+     * @param ttl 存活秒数，0表示不过期，DEFAULT_TTL表示使用setExpireAfterWrite设置的时间
+     * @param hashCode key的hashcode
+     * @return key不存在并新增节点时返回true
+     */
+    boolean putEncoded(byte[] key, int keyOffset, int keyLen, byte[] value, int valueOffset, int valueLen, int ttl, int hashCode) {
+
+        return insert(key, keyOffset, keyLen, value, valueOffset, valueLen, ttl, hashCode, true) < 0;
+    }
+
+    /**
+     * key不存在时放入缓冲区中已编码的key/value，key已存在时不修改，返回已有节点供调用方原地更新value，只探测一次
+     * @param scratch 编码缓冲区，key位于[0, keyLen)，value位于[keyLength, keyLength + valueLen)
+     * @param keyLen key长度
+     * @param valueLen value长度
+     * @param ttl 存活秒数，0表示不过期，DEFAULT_TTL表示使用setExpireAfterWrite设置的时间
+     * @return key已存在时返回节点起始位置（与nodeOf相同），放入新节点时返回-1
+     */
+    long putIfAbsentEncoded(byte[] scratch, int keyLen, int valueLen, int ttl) {
+
+        return insert(scratch, 0, keyLen, scratch, keyLength, valueLen, ttl, hash(scratch, 0, keyLen), false);
+    }
+
+    /**
+     * 放入已编码的key/value，已过期的节点视为不存在，直接覆盖
+     * @param replace key已存在时是否替换value和过期时间
+     * @return key已存在时返回节点起始位置（与nodeOf相同），key不存在时返回-1
+     */
+    private long insert(byte[] key, int keyOffset, int keyLen, byte[] value, int valueOffset, int valueLen, int ttl, int hashCode, boolean replace) {
+
+        checkWritable();
+
+        // arena中失效的记录过多时先整理，之后的节点位置不再变化
+        if(arena != null && arena.garbage() > arena.live() && arena.garbage() >= LightArena.MIN_CHUNK) {
+            compactArena();
+        }
+
+        // count数量过大直接进行rehash，容器中至少保留一个空节点，保证探测一定能结束
+        if(count > maxSize * capacity || count >= maxSize - 1) {
+            resize();
+        }
+
+        if(oldNodes != null) {
+            migrate(migrateStep);
+        }
+
+        int expiry = 0;
+
+        if(expiring) {
+
+            expiry = expiryOf(ttl == DEFAULT_TTL ? defaultTtl : ttl);
+
+            // 顺带清理少量过期节点，清理在查找插入位置之前进行，不影响之后的节点位置
+            if(oldNodes == null) {
+                sweep(EXPIRE_STEP);
+            }
+        }
+
+        // 迁移全部完成时旧容器已被释放
+        if(oldNodes != null) {
+
+            // key位于旧容器未迁移的部分时直接替换value，之后随迁移进入新容器
+            int oldIndex = indexOf(oldNodes, hashCode, key, keyOffset, keyLen);
+            if(oldIndex >= 0 && !migrated(oldIndex)) {
+
+                long node = (long) oldIndex * nodeLength;
+                boolean live = !(expiring && expired(oldNodes, node));
+
+                if(replace || !live) {
+
+                    writeValue(oldNodes, node, value, valueOffset, valueLen);
+
+                    if(expiring) {
+                        oldNodes.putInt(node + nodeLength - 8, expiry);
+                    }
+                }
+
+                return live ? node | OLD_TABLE : -1;
+            }
+        }
+
+        int index = slotFor(nodes, maxSize, hashCode, key, keyOffset, keyLen);
+
+        if(index < 0) {
+
+            // 缓存模式下元素数达到上限时先淘汰一个节点，淘汰后节点前移，重新查找插入位置
+            if(clock != null && count >= clock.limit) {
+                evict();
+                index = slotFor(nodes, maxSize, hashCode, key, keyOffset, keyLen);
+            }
+
+            // key不存在，在探测停止的位置插入，原节点及其之后的节点依次后移
+            index = ~index;
+            shiftForward(nodes, maxSize, index);
+
+            long node = (long) index * nodeLength;
+            writeNode(nodes, node, key, keyOffset, keyLen, value, valueOffset, valueLen);
+            nodes.putInt(node + nodeLength - 4, hashCode);
+
+            if(expiring) {
+                nodes.putInt(node + nodeLength - 8, expiry);
+            }
+
+            if(clock != null) {
+                clock.clear(index);
+            }
+
+            // 容器中元素个数+1
+            count++;
+            modCount++;
+
+            return -1;
+        }
+
+        long node = (long) index * nodeLength;
+        boolean live = !(expiring && expired(nodes, node));
+
+        // 替换value
+        if(replace || !live) {
+
+            writeValue(nodes, node, value, valueOffset, valueLen);
+
+            if(expiring) {
+                nodes.putInt(node + nodeLength - 8, expiry);
+            }
+        }
+
+        if(clock != null) {
+            clock.access(index);
+        }
+
+        return live ? node : -1;
+    }
+
+    /**
+     * 缓存模式下按CLOCK淘汰一个节点：指针环形扫描，访问位已置位的节点清除后跳过，淘汰第一个未置位的节点
+     * 最多扫描两圈，淘汰后下一个节点前移到指针位置，指针不前进
+     */
+    private void evict() {
+
+        for(;;) {
+
+            int index = clock.hand();
+            long node = (long) index * nodeLength;
+
+            // 已过期的节点直接淘汰
+            if(occupied(nodes, node) && (expired(nodes, node) || !clock.testAndClear(index))) {
+
+                removeNode(node, false);
+                clock.evictions++;
+
+                return;
+            }
+
+            clock.advance(maxSize);
+        }
+    }
+
+    /**
+     * 写入新节点的key/value（不包括hashCode）
+     * @param target 节点所在的存储结构
+     * @param node 节点位置
+     * @param key key所在数组
+     * @param keyOffset key在数组中的起始位置
+     * @param keyLen key长度
+     * @param value value所在数组
+     * @param valueOffset value在数组中的起始位置
+     * @param valueLen value长度
+     */
+    private void writeNode(NodeStorage target, long node, byte[] key, int keyOffset, int keyLen, byte[] value, int valueOffset, int valueLen) {
+
+        if(numericKey) {
+
+            target.putBytes(node, key, keyOffset, keyLen);
+            target.putBytes(node + valuePosition, value, valueOffset, valueLen);
+
+            return;
+        }
+
+        if(arena == null) {
+
+            target.put(node, (byte) (keyLen & 0xff));
+            target.putBytes(node + 1, key, keyOffset, keyLen);
+            target.put(node + keyLength + 1, (byte) (valueLen & 0xff));
+            target.putBytes(node + keyLength + 2, value, valueOffset, valueLen);
+
+            return;
+        }
+
+        long address = arena.allocate(4 + keyLen + valueLen);
+        NodeStorage record = arena.chunk(address);
+        long offset = LightArena.offset(address);
+
+        putShort(record, offset, keyLen);
+        putShort(record, offset + 2, valueLen);
+        record.putBytes(offset + 4, key, keyOffset, keyLen);
+        record.putBytes(offset + 4 + keyLen, value, valueOffset, valueLen);
+
+        target.put(node, (byte) 1);
+        target.putLong(node + 1, address);
+    }
+
+    /**
+     * 设置已有节点的value，ARENA布局时新value比原记录长则追加新记录，原记录作废
+     * @param target 节点所在的存储结构
+     * @param node 节点位置
+     * @param src value所在数组
+     * @param srcOffset value在数组中的起始位置
+     * @param valueLen value长度
+     */
+    void writeValue(NodeStorage target, long node, byte[] src, int srcOffset, int valueLen) {
+
+        checkWritable();
+
+        if(numericKey) {
+
+            target.putBytes(node + valuePosition, src, srcOffset, valueLen);
+
+            return;
+        }
+
+        if(arena == null) {
+
+            target.put(node + keyLength + 1, (byte) (valueLen & 0xff));
+            target.putBytes(node + keyLength + 2, src, srcOffset, valueLen);
+
+            return;
+        }
+
+        long address = target.getLong(node + 1);
+        NodeStorage record = arena.chunk(address);
+        long offset = LightArena.offset(address);
+
+        int keyLen = getShort(record, offset);
+        int oldLen = getShort(record, offset + 2);
+
+        if(valueLen <= oldLen) {
+
+            putShort(record, offset + 2, valueLen);
+            record.putBytes(offset + 4 + keyLen, src, srcOffset, valueLen);
+            arena.release(oldLen - valueLen);
+
+            return;
+        }
+
+        long newAddress = arena.allocate(4 + keyLen + valueLen);
+        NodeStorage newRecord = arena.chunk(newAddress);
+        long newOffset = LightArena.offset(newAddress);
+
+        putShort(newRecord, newOffset, keyLen);
+        putShort(newRecord, newOffset + 2, valueLen);
+        for(int i = 0; i < keyLen; i++) {
+            newRecord.put(newOffset + 4 + i, record.get(offset + 4 + i));
+        }
+        newRecord.putBytes(newOffset + 4 + keyLen, src, srcOffset, valueLen);
+
+        target.putLong(node + 1, newAddress);
+        arena.release(4 + keyLen + oldLen);
+    }
+
+    /**
+     * @param target 节点所在的存储结构
+     * @param node 节点位置
+     * @return 节点key的长度
+     */
+    int keyLengthOf(NodeStorage target, long node) {
+
+        if(numericKey) {
+            return keyLength;
+        }
+
+        if(arena == null) {
+            return target.get(node) & 0xff;
+        }
+
+        long address = target.getLong(node + 1);
+
+        return getShort(arena.chunk(address), LightArena.offset(address));
+    }
+
+    /**
+     * 读取节点的key
+     * @param target 节点所在的存储结构
+     * @param node 节点位置
+     * @param dst 目标数组
+     * @param dstOffset 写入起始位置
+     * @return key长度
+     */
+    int readKey(NodeStorage target, long node, byte[] dst, int dstOffset) {
+
+        if(numericKey) {
+
+            target.getBytes(node, dst, dstOffset, keyLength);
+
+            return keyLength;
+        }
+
+        if(arena == null) {
+
+            int keyLen = target.get(node) & 0xff;
+            target.getBytes(node + 1, dst, dstOffset, keyLen);
+
+            return keyLen;
+        }
+
+        long address = target.getLong(node + 1);
+        NodeStorage record = arena.chunk(address);
+        long offset = LightArena.offset(address);
+
+        int keyLen = getShort(record, offset);
+        record.getBytes(offset + 4, dst, dstOffset, keyLen);
+
+        return keyLen;
+    }
+
+    /**
+     * @param target 节点所在的存储结构
+     * @param node 节点位置
+     * @return 节点value的长度
+     */
+    int valueLengthOf(NodeStorage target, long node) {
+
+        if(numericKey) {
+            return valueLength;
+        }
+
+        if(arena == null) {
+            return target.get(node + keyLength + 1) & 0xff;
+        }
+
+        long address = target.getLong(node + 1);
+
+        return getShort(arena.chunk(address), LightArena.offset(address) + 2);
+    }
+
+    /**
+     * 读取节点的value
+     * @param target 节点所在的存储结构
+     * @param node 节点位置
+     * @param dst 目标数组
+     * @param dstOffset 写入起始位置
+     * @return value长度
+     */
+    int readValue(NodeStorage target, long node, byte[] dst, int dstOffset) {
+
+        if(numericKey) {
+
+            target.getBytes(node + valuePosition, dst, dstOffset, valueLength);
+
+            return valueLength;
+        }
+
+        if(arena == null) {
+
+            int valueLen = target.get(node + keyLength + 1) & 0xff;
+            target.getBytes(node + keyLength + 2, dst, dstOffset, valueLen);
+
+            return valueLen;
+        }
+
+        long address = target.getLong(node + 1);
+        NodeStorage record = arena.chunk(address);
+        long offset = LightArena.offset(address);
+
+        int valueLen = getShort(record, offset + 2);
+        record.getBytes(offset + 4 + getShort(record, offset), dst, dstOffset, valueLen);
+
+        return valueLen;
+    }
+
+    /**
+     * @return 节点value按int读取
+     */
+    int readIntValue(NodeStorage target, long node) {
+
+        if(arena == null) {
+            return target.getInt(node + valuePosition);
+        }
+
+        long address = target.getLong(node + 1);
+        NodeStorage record = arena.chunk(address);
+        long offset = LightArena.offset(address);
+
+        return record.getInt(offset + 4 + getShort(record, offset));
+    }
+
+    /**
+     * 原地写入int类型的value，节点value长度已为4
+     */
+    void writeIntValue(NodeStorage target, long node, int value) {
+
+        checkWritable();
+
+        if(arena == null) {
+            target.putInt(node + valuePosition, value);
+            return;
+        }
+
+        long address = target.getLong(node + 1);
+        NodeStorage record = arena.chunk(address);
+        long offset = LightArena.offset(address);
+
+        record.putInt(offset + 4 + getShort(record, offset), value);
+    }
+
+    /**
+     * @return 节点value按long读取
+     */
+    long readLongValue(NodeStorage target, long node) {
+
+        if(arena == null) {
+            return target.getLong(node + valuePosition);
+        }
+
+        long address = target.getLong(node + 1);
+        NodeStorage record = arena.chunk(address);
+        long offset = LightArena.offset(address);
+
+        return record.getLong(offset + 4 + getShort(record, offset));
+    }
+
+    /**
+     * 原地写入long类型的value，节点value长度已为8
+     */
+    void writeLongValue(NodeStorage target, long node, long value) {
+
+        checkWritable();
+
+        if(arena == null) {
+            target.putLong(node + valuePosition, value);
+            return;
+        }
+
+        long address = target.getLong(node + 1);
+        NodeStorage record = arena.chunk(address);
+        long offset = LightArena.offset(address);
+
+        record.putLong(offset + 4 + getShort(record, offset), value);
+    }
+
+    /**
+     * 数值value的容器（LightIntMap/LightLongMap等）共用的读写，value长度为4时只使用低32位
+     * @return value按value长度截断后的值，int按符号扩展为long
+     */
+    long narrow(long value) {
+
+        return valueLength == 8 ? value : (int) value;
+    }
+
+    /**
+     * 将数值按value长度写入编码缓冲区
+     */
+    void writeNumber(byte[] dst, int offset, long value) {
+
+        if(valueLength == 8) {
+            writeLong(dst, offset, value);
+        } else {
+            writeInt(dst, offset, (int) value);
+        }
+    }
+
+    /**
+     * @return 节点value按value长度读取的数值
+     */
+    long readNumberValue(NodeStorage target, long node) {
+
+        return valueLength == 8 ? readLongValue(target, node) : readIntValue(target, node);
+    }
+
+    /**
+     * 原地写入数值value
+     */
+    void writeNumberValue(NodeStorage target, long node, long value) {
+
+        if(valueLength == 8) {
+            writeLongValue(target, node, value);
+        } else {
+            writeIntValue(target, node, (int) value);
+        }
+    }
+
+    /**
+     * 添加数值value的元素
+     * @param ttl 存活秒数，0表示不过期，DEFAULT_TTL表示使用默认存活时间
+     */
+    void putNumber(CharSequence key, long value, int ttl) {
+
+        byte[] scratch = scratch();
+
+        int keyLen = encodeKey(key, scratch);
+
+        writeNumber(scratch, keyLength, value);
+
+        putEncoded(scratch, keyLen, valueLength, ttl);
+    }
+
+    /**
+     * 添加数值value的元素，key为UTF-8编码的字节
+     */
+    void putNumber(byte[] key, int offset, int length, long value) {
+
+        checkKeyLength(length);
+
+        byte[] scratch = scratch();
+
+        writeNumber(scratch, keyLength, value);
+
+        putEncoded(key, offset, length, scratch, keyLength, valueLength);
+    }
+
+    /**
+     * key的value加上delta，见{@link #addEncoded(byte[], int, long)}
+     */
+    long addNumber(CharSequence key, long delta) {
+
+        byte[] scratch = scratch();
+
+        return addEncoded(scratch, encodeKey(key, scratch), delta);
+    }
+
+    /**
+     * 缓冲区中已编码key的value加上delta，只探测一次，在节点中原地修改value，不改变过期时间
+     * key不存在（或已过期）时放入delta，过期时间按setExpireAfterWrite设置
+     * @param scratch 编码缓冲区，key位于[0, keyLen)，[keyLength, keyLength + valueLength)被delta覆盖
+     * @param keyLen key长度
+     * @param delta 增量
+     * @return 相加后按value长度截断的值
+     */
+    long addEncoded(byte[] scratch, int keyLen, long delta) {
+
+        writeNumber(scratch, keyLength, delta);
+
+        long node = putIfAbsentEncoded(scratch, keyLen, valueLength, DEFAULT_TTL);
+
+        if(node < 0) {
+            return narrow(delta);
+        }
+
+        NodeStorage target = tableOf(node);
+        node = offsetOf(node);
+
+        long value = narrow(readNumberValue(target, node) + delta);
+        writeNumberValue(target, node, value);
+
+        return value;
+    }
+
+    /**
+     * key不存在（或已过期）时添加数值value的元素，已存在时不修改，只探测一次
+     * @return 添加返回true，key已存在返回false
+     */
+    boolean putNumberIfAbsent(CharSequence key, long value) {
+
+        byte[] scratch = scratch();
+
+        int keyLen = encodeKey(key, scratch);
+
+        writeNumber(scratch, keyLength, value);
+
+        return putIfAbsentEncoded(scratch, keyLen, valueLength, DEFAULT_TTL) < 0;
+    }
+
+    /**
+     * @param node nodeOf返回的节点位置
+     * @param defaultValue 节点不存在时的返回值
+     * @return 节点的数值value
+     */
+    long numberAt(long node, long defaultValue) {
+
+        if(node < 0) {
+            return defaultValue;
+        }
+
+        return readNumberValue(tableOf(node), offsetOf(node));
+    }
+
+    /**
+     * 数值key容器的hashcode，key按keyLength（4或8）字节小端读取后与种子整数混合，不按字节计算，setHasher只更换种子
+     * hashCode为0表示空节点，混合结果为0时改为1
+     */
+    int numericHash(byte[] array, int offset) {
+
+        long key = keyLength == 8 ? readLong(array, offset) : readInt(array, offset);
+        int hashCode = LightHashers.mixKey(key, seed);
+
+        return hashCode == 0 ? 1 : hashCode;
+    }
+
+    /**
+     * 将数值key按keyLength写入编码缓冲区的开头
+     * @return key长度
+     */
+    private int encodeKey(long key, byte[] dst) {
+
+        if(keyLength == 8) {
+            writeLong(dst, 0, key);
+        } else {
+            writeInt(dst, 0, (int) key);
+        }
+
+        return keyLength;
+    }
+
+    /**
+     * 添加数值key、数值value的元素
+     * @param ttl 存活秒数，0表示不过期，DEFAULT_TTL表示使用默认存活时间
+     */
+    void putNumber(long key, long value, int ttl) {
+
+        byte[] scratch = scratch();
+
+        int keyLen = encodeKey(key, scratch);
+
+        writeNumber(scratch, keyLength, value);
+
+        putEncoded(scratch, keyLen, valueLength, ttl);
+    }
+
+    /**
+     * 数值key的value加上delta，见{@link #addEncoded(byte[], int, long)}
+     */
+    long addNumber(long key, long delta) {
+
+        byte[] scratch = scratch();
+
+        return addEncoded(scratch, encodeKey(key, scratch), delta);
+    }
+
+    /**
+     * 数值key不存在（或已过期）时添加元素，已存在时不修改，只探测一次
+     * @return 添加返回true，key已存在返回false
+     */
+    boolean putNumberIfAbsent(long key, long value) {
+
+        byte[] scratch = scratch();
+
+        int keyLen = encodeKey(key, scratch);
+
+        writeNumber(scratch, keyLength, value);
+
+        return putIfAbsentEncoded(scratch, keyLen, valueLength, DEFAULT_TTL) < 0;
+    }
+
+    /**
+     * @return 数值key所在的节点位置，与nodeOf(CharSequence)相同
+     */
+    long nodeOf(long key) {
+
+        byte[] scratch = scratch();
+
+        return nodeOf(scratch, 0, encodeKey(key, scratch));
+    }
+
+    /**
+     * 删除nodeOf返回的节点
+     * @param node 节点位置，小于0表示key不存在
+     * @return 存在并删除返回true，不存在返回false
+     */
+    boolean removeIfPresent(long node) {
+
+        if(node < 0) {
+            return false;
+        }
+
+        removeNode(node);
+
+        return true;
+    }
+
+    /**
+     * 比较节点中的value与指定区间的字节是否相同
+     */
+    boolean sameValue(NodeStorage target, long node, byte[] value, int valueOffset, int valueLen) {
+
+        if(numericKey) {
+            return valueLen == valueLength && target.matches(node + valuePosition, value, valueOffset, valueLen);
+        }
+
+        if(arena == null) {
+            return (target.get(node + keyLength + 1) & 0xff) == valueLen && target.matches(node + keyLength + 2, value, valueOffset, valueLen);
+        }
+
+        long address = target.getLong(node + 1);
+        NodeStorage record = arena.chunk(address);
+        long offset = LightArena.offset(address);
+
+        return getShort(record, offset + 2) == valueLen && record.matches(offset + 4 + getShort(record, offset), value, valueOffset, valueLen);
+    }
+
+    /**
+     * 在指定的map容器中为key寻找节点位置（Robin Hood探测）
+     * 同一簇内的节点按初始位置有序排列，遇到离初始位置比当前探测距离更近的节点时，key一定不在其后
+     * @param target 指定的map容器
+     * @param targetSize 指定map容器的size
+     * @param hashCode key的hashcode
+     * @param key key所在数组，为null时表示key一定不在容器中（rehash迁移），不进行key比较
+     * @param keyOffset key在数组中的起始位置
+     * @param keyLen key长度
+     * @return key已存在时返回其节点位置，否则返回~插入位置
+     */
+    private int slotFor(NodeStorage target, int targetSize, int hashCode, byte[] key, int keyOffset, int keyLen) {
+
+        // 获取数组中的位置
+        int index = indexFor(hashCode, targetSize);
+
+        for(int distance = 0;; distance++) {
+
+            long node = (long) index * nodeLength;
+
+            if(!occupied(target, node)) {
+                return ~index;
+            }
+
+            int nodeHash = target.getInt(node + nodeLength - 4);
+
+            if(key != null && nodeHash == hashCode && sameKey(target, node, key, keyOffset, keyLen)) {
+                return index;
+            }
+
+            // 该节点比当前key更“富有”（离初始位置更近），由当前key占据此位置
+            if(distanceOf(nodeHash, index, targetSize) < distance) {
+                return ~index;
+            }
+
+            index = index + 1 == targetSize ? 0 : index + 1;
+        }
+    }
+
+    /**
+     * 将index开始到下一个空节点之前的节点依次后移一位，空出index位置
+     * @param target 指定的map容器
+     * @param targetSize 指定map容器的size
+     * @param index 需要空出的节点位置
+     */
+    private void shiftForward(NodeStorage target, int targetSize, int index) {
+
+        int empty = index;
+        while(occupied(target, (long) empty * nodeLength)) {
+            empty = empty + 1 == targetSize ? 0 : empty + 1;
+        }
+
+        if(clock != null && target == nodes) {
+            clock.shiftForward(index, empty, targetSize);
+        }
+
+        // 从空节点往回逐个移动，每个节点离初始位置的距离+1，簇内顺序不变
+        while(empty != index) {
+
+            int prev = empty == 0 ? targetSize - 1 : empty - 1;
+            target.copy((long) prev * nodeLength, (long) empty * nodeLength, nodeLength);
+
+            if(clock != null && target == nodes) {
+                clock.move(prev, empty);
+            }
+
+            empty = prev;
+        }
+    }
+
+    /**
+     * 删除指定位置的节点，之后不在初始位置的节点依次前移一位（backward-shift），不留下删除标记
+     * @param target 指定的map容器
+     * @param targetSize 指定map容器的size
+     * @param index 删除的节点位置
+     */
+    private void shiftBackward(NodeStorage target, int targetSize, int index) {
+
+        int removed = index;
+
+        for(;;) {
+
+            int next = index + 1 == targetSize ? 0 : index + 1;
+            long nextNode = (long) next * nodeLength;
+
+            // 下一个节点为空或位于自己的初始位置时，簇在此结束
+            if(!occupied(target, nextNode) || distanceOf(target.getInt(nextNode + nodeLength - 4), next, targetSize) == 0) {
+                break;
+            }
+
+            target.copy(nextNode, (long) index * nodeLength, nodeLength);
+
+            if(clock != null && target == nodes) {
+                clock.move(next, index);
+            }
+
+            index = next;
+        }
+
+        vacate(target, (long) index * nodeLength);
+
+        if(clock != null && target == nodes) {
+            clock.clear(index);
+            clock.shiftBackward(removed, index, targetSize);
+        }
+    }
+
+    /**
+     * @param target 节点所在的存储结构
+     * @param node 节点位置
+     * @return 节点中是否存放着元素，ARENA布局按首字节（使用标识）判断，FIXED布局和数值key布局按hashCode判断
+     *         FIXED布局的key长度可以为0，不能用key长度标识判断
+     */
+    boolean occupied(NodeStorage target, long node) {
+
+        return arena != null ? target.get(node) != 0 : target.getInt(node + nodeLength - 4) != 0;
+    }
+
+    /**
+     * 将节点标记为空，节点其余内容不需要清零
+     */
+    private void vacate(NodeStorage target, long node) {
+
+        if(arena != null) {
+            target.put(node, (byte) 0);
+        } else {
+            target.putInt(node + nodeLength - 4, 0);
+        }
+    }
+
+    /**
+     * 计算节点离其初始位置的探测距离
+     * @param hashCode 节点中保存的hashcode
+     * @param index 节点位置
+     * @param targetSize 容器size
+     */
+    private static int distanceOf(int hashCode, int index, int targetSize) {
+
+        int distance = index - indexFor(hashCode, targetSize);
+
+        return distance < 0 ? distance + targetSize : distance;
+    }
+
+    /**
+     * 元素数超过扩容因子时扩容，渐进式rehash时只分配新容器，元素在之后的put/remove中逐步迁移
+     */
+    private void resize() {
+
+        modCount++;
+
+        if(migrateStep <= 0) {
+            rehash();
+            return;
+        }
+
+        LightMapStats.Recorder recorder = this.recorder;
+        long start = recorder != null ? System.nanoTime() : 0;
+
+        // 上一次迁移尚未完成时先全部迁移
+        completeRehash();
+
+        oldNodes = nodes;
+        oldSize = maxSize;
+        migrateStart = clusterStart(oldNodes, oldSize);
+        migrateIndex = 0;
+
+        maxSize = doubledSize();
+        nodes = storage.allocate((long) maxSize * nodeLength);
+
+        // 迁移分散在之后的put/remove中，这里只记录阻塞的部分
+        if(recorder != null) {
+            recorder.rehash(start, "incremental", oldSize, maxSize, count);
+        }
+    }
+
+    /**
+     * 寻找一个簇的起始位置（空节点或位于初始位置的节点）
+     * 渐进式rehash从这里开始环形迁移，旧容器删除节点前移时不会把已迁移的节点移入未迁移的部分
+     */
+    int clusterStart(NodeStorage target, int targetSize) {
+
+        for(int i = 0; i < targetSize; i++) {
+
+            long node = (long) i * nodeLength;
+
+            if(!occupied(target, node) || distanceOf(target.getInt(node + nodeLength - 4), i, targetSize) == 0) {
+                return i;
+            }
+        }
+
+        return 0;
+    }
+
+    /**
+     * @param index 旧容器中的节点位置
+     * @return 节点是否已迁移到新容器
+     */
+    private boolean migrated(int index) {
+
+        int offset = index - migrateStart;
+        if(offset < 0) {
+            offset += oldSize;
+        }
+
+        return offset < migrateIndex;
+    }
+
+    /**
+     * 从旧容器迁移指定数量的节点到新容器，全部迁移完成后释放旧容器
+     * 旧容器中未迁移的key一定不在新容器中，放入新容器时不需要比较key
+     * @param slots 迁移的节点数
+     */
+    private void migrate(int slots) {
+
+        // 编码缓冲区的后半部分用于迁移，前半部分可能保存着正在put的key/value
+        byte[] buffer = scratch();
+        int bufferOffset = keyLength + valueLength;
+        int length = nodeLength - 4;
+
+        for(; slots > 0 && migrateIndex < oldSize; slots--, migrateIndex++) {
+
+            int oldIndex = migrateStart + migrateIndex;
+            if(oldIndex >= oldSize) {
+                oldIndex -= oldSize;
+            }
+
+            long node = (long) oldIndex * nodeLength;
+
+            if(!occupied(oldNodes, node)) {
+                continue;
+            }
+
+            int hashCode = oldNodes.getInt(node + nodeLength - 4);
+            int index = ~slotFor(nodes, maxSize, hashCode, null, 0, 0);
+            shiftForward(nodes, maxSize, index);
+
+            long newNode = (long) index * nodeLength;
+            oldNodes.getBytes(node, buffer, bufferOffset, length);
+            nodes.putBytes(newNode, buffer, bufferOffset, length);
+            nodes.putInt(newNode + nodeLength - 4, hashCode);
+        }
+
+        if(migrateIndex >= oldSize) {
+            oldNodes.close();
+            oldNodes = null;
+        }
+    }
+
+    /**
+     * 立即完成正在进行的渐进式rehash
+     */
+    void completeRehash() {
+
+        if(oldNodes != null) {
+            migrate(Integer.MAX_VALUE);
+        }
+    }
+
+    /**
+     * 开启渐进式rehash，扩容时新旧容器同时存在，每次put/remove只迁移固定数量的节点，单次操作的耗时有上限
+     * @param migrateStep 每次put/remove迁移的旧容器节点数，0表示关闭（扩容时一次性rehash）
+     */
+    public void setIncrementalRehash(int migrateStep) {
+
+        checkWritable();
+
+        if(migrateStep <= 0) {
+            completeRehash();
+        }
+
+        this.migrateStep = Math.max(migrateStep, 0);
+    }
+
+    /**
+     * 容器扩容并重新设置元素
+     */
+    private void rehash() {
+
+        retable(doubledSize(), false, "grow");
+    }
+
+    /**
+     * 节点位置为int，容器最多2^30个节点；节点存储结构按long寻址，总字节数不受此限制
+     * @return 扩容后的maxSize
+     */
+    private int doubledSize() {
+
+        if(maxSize >= MAX_TABLE_SIZE) {
+            throw new IllegalStateException("容器节点数已达上限：" + maxSize);
+        }
+
+        return maxSize * 2;
+    }
+
+    /**
+     * 按指定大小重新放置全部节点，开启统计时记录耗时
+     * @param newSize 新容器size
+     * @param rehashKeys 是否按当前hash算法重新计算hashcode
+     * @param cause 原因，记录在JFR事件中
+     */
+    private void retable(int newSize, boolean rehashKeys, String cause) {
+
+        LightMapStats.Recorder recorder = this.recorder;
+        long start = recorder != null ? System.nanoTime() : 0;
+
+        int oldSize = this.maxSize;
+        NodeStorage newNodes = transfer(newSize, rehashKeys);
+
+        // 替换容器，旧容器不再使用，堆外内存立即释放
+        NodeStorage oldNodes = nodes;
+        nodes = newNodes;
+        this.maxSize = newSize;
+        oldNodes.close();
+
+        if(clock != null) {
+            clock.reset(newSize);
+        }
+
+        if(recorder != null) {
+            recorder.rehash(start, cause, oldSize, newSize, count);
+        }
+    }
+
+    /**
+     * 将原容器中的元素拷贝进指定大小的新容器
+     * @param newSize 新容器size
+     * @param rehashKeys 是否按当前hash算法重新计算hashcode，false时沿用节点中保存的值
+     * @return 新容器
+     */
+    private NodeStorage transfer(int newSize, boolean rehashKeys) {
+
+        NodeStorage newNodes = storage.allocate((long) newSize * nodeLength);
+
+        // hashCode之前的节点内容（FIXED布局为key/value，ARENA布局为记录地址）
+        byte[] buffer = new byte[nodeLength - 4];
+        byte[] key = rehashKeys ? new byte[keyLength] : null;
+
+        // 分段追加不需要探测和移动节点，单线程时也比逐个放置快
+        if(!rehashKeys && newSize > maxSize && newSize / maxSize <= PARALLEL_MAX_FACTOR && maxSize >= parallelThreshold) {
+
+            // 无法在并行阶段放置的节点最后串行放入
+            for(int i : parallelTransfer(newNodes, newSize)) {
+
+                long node = (long) i * nodeLength;
+                place(newNodes, newSize, node, nodes.getInt(node + nodeLength - 4), buffer);
+            }
+
+            return newNodes;
+        }
+
+        // 循环将原容器中的元素设置进新容器
+        for(int i = 0; i < this.maxSize; i++) {
+
+            long node = (long) i * nodeLength;
+
+            // 判断key是否存在
+            if(occupied(nodes, node)) {
+
+                int hashCode = rehashKeys ? hash(key, 0, readKey(nodes, node, key, 0)) : nodes.getInt(node + nodeLength - 4);
+                place(newNodes, newSize, node, hashCode, buffer);
+            }
+        }
+
+        return newNodes;
+    }
+
+    /**
+     * 将原容器中的节点按Robin Hood探测放入新容器
+     * @param newNodes 新容器
+     * @param newSize 新容器size
+     * @param node 节点在原容器中的位置
+     * @param hashCode 节点的hashcode
+     * @param buffer 复制节点使用的缓冲区
+     */
+    private void place(NodeStorage newNodes, int newSize, long node, int hashCode, byte[] buffer) {
+
+        nodes.getBytes(node, buffer, 0, buffer.length);
+
+        int index = ~slotFor(newNodes, newSize, hashCode, null, 0, 0);
+        shiftForward(newNodes, newSize, index);
+
+        long newNode = (long) index * nodeLength;
+        newNodes.putBytes(newNode, buffer, 0, buffer.length);
+        newNodes.putInt(newNode + nodeLength - 4, hashCode);
+    }
+
+    /**
+     * 将原容器按节点位置分段，在ForkJoinPool中并行放入扩容后的新容器
+     * 新容器大小为原容器的factor倍，初始位置为h的节点在新容器中的初始位置为h + j * maxSize（0 <= j < factor），
+     * 原容器[lo, hi)段中初始位置也在[lo, hi)的节点只会进入新容器的[lo + j * maxSize, hi + j * maxSize)区域，各段写入的区域互不重叠
+     * 同一簇内节点按初始位置有序，按原位置顺序遍历时每个区域内的初始位置递增，节点直接追加到区域中已放置节点之后，不需要移动其他节点
+     * 跨越段起始位置的节点（初始位置在前一段或环绕到容器开头）以及追加时超出区域末尾的节点留给调用方串行放入
+     * @param newNodes 新容器
+     * @param newSize 新容器size
+     * @return 需要串行放入的节点在原容器中的位置
+     */
+    private int[] parallelTransfer(NodeStorage newNodes, int newSize) {
+
+        int ranges = Math.max(1, Math.min(ForkJoinPool.getCommonPoolParallelism() * 4, maxSize / PARALLEL_RANGE));
+
+        List<TransferRange> tasks = new ArrayList<>(ranges);
+        for(int i = 0; i < ranges; i++) {
+            tasks.add(new TransferRange(newNodes, newSize, (int) ((long) maxSize * i / ranges), (int) ((long) maxSize * (i + 1) / ranges)));
+        }
+
+        ForkJoinTask.invokeAll(tasks);
+
+        int total = 0;
+        for(TransferRange task : tasks) {
+            total += task.overflowCount;
+        }
+
+        int[] overflow = new int[total];
+        int pos = 0;
+        for(TransferRange task : tasks) {
+            System.arraycopy(task.overflow, 0, overflow, pos, task.overflowCount);
+            pos += task.overflowCount;
+        }
+
+        return overflow;
+    }
+
+    /**
+     * 并行扩容中处理原容器[lo, hi)段的任务
+     */
+    private final class TransferRange extends RecursiveAction {
+
+        private static final long serialVersionUID = 1L;
+
+        private final transient NodeStorage newNodes;
+
+        private final int newSize;
+
+        private final int lo;
+
+        private final int hi;
+
+        // 需要串行放入的节点位置
+        private int[] overflow = new int[16];
+
+        private int overflowCount;
+
+        TransferRange(NodeStorage newNodes, int newSize, int lo, int hi) {
+
+            this.newNodes = newNodes;
+            this.newSize = newSize;
+            this.lo = lo;
+            this.hi = hi;
+        }
+
+        @Override
+        protected void compute() {
+
+            int oldSize = maxSize;
+            int shift = Integer.numberOfTrailingZeros(oldSize);
+
+            // 每个区域中下一个可追加的位置
+            int[] next = new int[newSize / oldSize];
+            for(int j = 0; j < next.length; j++) {
+                next[j] = lo + j * oldSize;
+            }
+
+            byte[] buffer = new byte[nodeLength];
+
+            for(int i = lo; i < hi; i++) {
+
+                long node = (long) i * nodeLength;
+
+                if(!occupied(nodes, node)) {
+                    continue;
+                }
+
+                int hashCode = nodes.getInt(node + nodeLength - 4);
+                int home = indexFor(hashCode, oldSize);
+
+                // 初始位置不在本段，或者节点从容器末尾环绕而来
+                if(home < lo || home > i) {
+                    defer(i);
+                    continue;
+                }
+
+                int newHome = indexFor(hashCode, newSize);
+                int region = newHome >>> shift;
+                int target = Math.max(newHome, next[region]);
+
+                if(target >= hi + region * oldSize) {
+                    defer(i);
+                    continue;
+                }
+
+                nodes.getBytes(node, buffer, 0, nodeLength);
+                newNodes.putBytes((long) target * nodeLength, buffer, 0, nodeLength);
+                next[region] = target + 1;
+            }
+        }
+
+        private void defer(int index) {
+
+            if(overflowCount == overflow.length) {
+                overflow = Arrays.copyOf(overflow, overflowCount * 2);
+            }
+
+            overflow[overflowCount++] = index;
+        }
+    }
+
+    /**
+     * 查找key所在节点在存储结构中的起始位置
+     * @param key key
+     * @return 节点起始位置，不存在时返回-1
+     */
+    long nodeOf(CharSequence key) {
+
+        byte[] scratch = scratch();
+
+        int keyLen = encode(key, scratch, 0, keyLength);
+
+        // key长度超出限制时不可能存在于容器中
+        if(keyLen < 0) {
+            return -1;
+        }
+
+        return nodeOf(scratch, 0, keyLen);
+    }
+
+    /**
+     * 查找已编码的key所在节点，直接与节点中的字节比较，不复制key
+     * @param key key所在数组
+     * @param keyOffset key在数组中的起始位置
+     * @param keyLen key长度
+     * @return 节点起始位置，不存在时返回-1
+     */
+    long nodeOf(byte[] key, int keyOffset, int keyLen) {
+
+        LightMapStats.Recorder recorder = this.recorder;
+        long node;
+
+        if(recorder == null) {
+            node = lookup(key, keyOffset, keyLen);
+        } else {
+            long start = System.nanoTime();
+            node = lookup(key, keyOffset, keyLen);
+            recorder.lookup(start, keyLen, maxSize, node >= 0);
+        }
+
+        // 缓存模式不使用渐进式rehash，节点一定在nodes中
+        LightClock clock = this.clock;
+        if(clock != null) {
+            clock.access(node < 0 ? -1 : (int) (node / nodeLength));
+        }
+
+        return node;
+    }
+
+    /**
+     * 查找key所在节点，不计入统计和缓存访问
+     * ConcurrentLightMap的乐观读使用：读取期间可能有写线程修改容器，确认读取有效后再调用recordLookup补记，重试时不会重复计数
+     * @param key key
+     * @return 节点起始位置，不存在时返回-1
+     */
+    long peek(CharSequence key) {
+
+        byte[] scratch = scratch();
+
+        int keyLen = encode(key, scratch, 0, keyLength);
+
+        return keyLen < 0 ? -1 : lookup(scratch, 0, keyLen);
+    }
+
+    /**
+     * @return 开启统计时返回System.nanoTime()作为peek的开始时间，否则返回0
+     */
+    long lookupStart() {
+
+        return recorder != null ? System.nanoTime() : 0;
+    }
+
+    /**
+     * 补记一次peek的查找统计，缓存模式的访问位需要在锁内置位，不在这里处理
+     * @param start lookupStart()的返回值
+     * @param key 查找的key
+     * @param found 是否找到
+     */
+    void recordLookup(long start, CharSequence key, boolean found) {
+
+        LightMapStats.Recorder recorder = this.recorder;
+
+        if(recorder != null) {
+            recorder.lookup(start, encode(key, scratch(), 0, keyLength), maxSize, found);
+        }
+    }
+
+    private long lookup(byte[] key, int keyOffset, int keyLen) {
+
+        if(keyLen > keyLength) {
+            return -1;
+        }
+
+        return lookup(key, keyOffset, keyLen, hash(key, keyOffset, keyLen));
+    }
+
+    /**
+     * 按已计算的hashcode查找key所在节点，不计入统计和缓存访问
+     * @param key key所在数组
+     * @param keyOffset key在数组中的起始位置
+     * @param keyLen key长度
+     * @param hashCode key的hashcode
+     * @return 节点起始位置，不存在时返回-1
+     */
+    long lookup(byte[] key, int keyOffset, int keyLen, int hashCode) {
+
+        int index = indexOf(nodes, hashCode, key, keyOffset, keyLen);
+
+        if(index >= 0) {
+
+            // 过期节点视为不存在，留给之后的put/expire清理，查找不修改存储结构
+            long node = (long) index * nodeLength;
+
+            return expiring && expired(nodes, node) ? -1 : node;
+        }
+
+        // 渐进式rehash中继续查找旧容器未迁移的部分
+        NodeStorage oldNodes = this.oldNodes;
+
+        if(oldNodes != null) {
+
+            index = indexOf(oldNodes, hashCode, key, keyOffset, keyLen);
+
+            if(index >= 0 && !migrated(index) && !(expiring && expired(oldNodes, (long) index * nodeLength))) {
+                return (long) index * nodeLength | OLD_TABLE;
+            }
+        }
+
+        return -1;
+    }
+
+    /**
+     * 收集全部未过期节点的位置，渐进式rehash中包括旧容器未迁移的部分，不迁移也不删除节点
+     * @return 节点位置，旧容器中的节点带有OLD_TABLE标记，通过tableOf/offsetOf读取
+     */
+    long[] liveNodes() {
+
+        long[] live = new long[count];
+        int found = 0;
+
+        for(int i = 0; i < maxSize && found < count; i++) {
+
+            long node = (long) i * nodeLength;
+
+            if(occupied(nodes, node) && !(expiring && expired(nodes, node))) {
+                live[found++] = node;
+            }
+        }
+
+        NodeStorage oldNodes = this.oldNodes;
+
+        if(oldNodes != null) {
+
+            for(int i = 0; i < oldSize && found < count; i++) {
+
+                long node = (long) i * nodeLength;
+
+                if(occupied(oldNodes, node) && !migrated(i) && !(expiring && expired(oldNodes, node))) {
+                    live[found++] = node | OLD_TABLE;
+                }
+            }
+        }
+
+        return found == count ? live : Arrays.copyOf(live, found);
+    }
+
+    /**
+     * 查找ByteBuffer中[position, limit)的key所在节点，不改变position
+     * 堆内ByteBuffer直接使用底层数组，堆外ByteBuffer复制到编码缓冲区
+     * @param key key
+     * @return 节点起始位置，不存在时返回-1
+     */
+    long nodeOf(ByteBuffer key) {
+
+        int keyLen = key.remaining();
+
+        if(key.hasArray()) {
+            return nodeOf(key.array(), key.arrayOffset() + key.position(), keyLen);
+        }
+
+        if(keyLen > keyLength) {
+            return -1;
+        }
+
+        byte[] scratch = scratch();
+        for(int i = 0, position = key.position(); i < keyLen; i++) {
+            scratch[i] = key.get(position + i);
+        }
+
+        return nodeOf(scratch, 0, keyLen);
+    }
+
+    /**
+     * 批量查找一组key的节点位置，结果与逐个调用nodeOf相同
+     * 第一遍编码全部key、计算hashcode并读取各自的初始节点，这些读取互不依赖，CPU可以同时等待多个缓存未命中（相当于预取）
+     * 初始节点为空的key直接判定不存在，第二遍再逐个探测比较key，此时初始节点大多已在缓存中
+     * @param batch 批量查找缓冲区，keys[0, size)为需要查找的key，结果写入nodes[0, size)
+     */
+    void nodesOf(LookupBatch batch) {
+
+        byte[] buffer = batch.buffer;
+
+        for(int i = 0; i < batch.size; i++) {
+
+            int keyOffset = i * keyLength;
+            int keyLen = encode(batch.keys[i], buffer, keyOffset, keyLength);
+            batch.lengths[i] = keyLen;
+
+            if(keyLen < 0) {
+                batch.nodes[i] = -1;
+                continue;
+            }
+
+            int hashCode = hash(buffer, keyOffset, keyLen);
+            batch.hashes[i] = hashCode;
+
+            // 渐进式rehash中初始节点为空时仍需查找旧容器
+            batch.nodes[i] = !occupied(nodes, (long) indexFor(hashCode, maxSize) * nodeLength) && oldNodes == null ? -1 : 0;
+        }
+
+        for(int i = 0; i < batch.size; i++) {
+
+            if(batch.nodes[i] < 0) {
+                continue;
+            }
+
+            int keyOffset = i * keyLength;
+            int keyLen = batch.lengths[i];
+            int hashCode = batch.hashes[i];
+
+            int index = indexOf(nodes, hashCode, buffer, keyOffset, keyLen);
+
+            if(index >= 0) {
+                batch.nodes[i] = expiring && expired(nodes, (long) index * nodeLength) ? -1 : (long) index * nodeLength;
+                continue;
+            }
+
+            batch.nodes[i] = -1;
+
+            NodeStorage oldNodes = this.oldNodes;
+
+            if(oldNodes != null) {
+
+                index = indexOf(oldNodes, hashCode, buffer, keyOffset, keyLen);
+
+                if(index >= 0 && !migrated(index) && !(expiring && expired(oldNodes, (long) index * nodeLength))) {
+                    batch.nodes[i] = (long) index * nodeLength | OLD_TABLE;
+                }
+            }
+        }
+
+        LightClock clock = this.clock;
+        if(clock != null) {
+            for(int i = 0; i < batch.size; i++) {
+                clock.access(batch.nodes[i] < 0 ? -1 : (int) (batch.nodes[i] / nodeLength));
+            }
+        }
+    }
+
+    /**
+     * 批量查找的缓冲区，一次最多查找SIZE个key
+     */
+    static final class LookupBatch {
+
+        static final int SIZE = 16;
+
+        final String[] keys = new String[SIZE];
+
+        // 编码后的key长度，超出keyLength时为-1
+        final int[] lengths = new int[SIZE];
+
+        final int[] hashes = new int[SIZE];
+
+        // 查找结果，nodeOf格式
+        final long[] nodes = new long[SIZE];
+
+        // key编码缓冲区，第i个key位于[i * keyLength, (i + 1) * keyLength)
+        final byte[] buffer;
+
+        int size;
+
+        LookupBatch(int keyLength) {
+
+            this.buffer = new byte[SIZE * keyLength];
+        }
+    }
+
+    /**
+     * @param node nodeOf返回的节点位置
+     * @return 节点所在的存储结构
+     */
+    NodeStorage tableOf(long node) {
+
+        return (node & OLD_TABLE) == 0 ? nodes : oldNodes;
+    }
+
+    /**
+     * @param node nodeOf返回的节点位置
+     * @return 节点在所在存储结构中的起始位置
+     */
+    static long offsetOf(long node) {
+
+        return node & ~OLD_TABLE;
+    }
+
+    /**
+     * 删除nodeOf返回的节点，渐进式rehash时同时推进迁移
+     * @param node 节点位置
+     */
+    void removeNode(long node) {
+
+        removeNode(node, true);
+    }
+
+    /**
+     * 删除nodeOf返回的节点
+     * @param node 节点位置
+     * @param compact 是否允许按compactRatio自动收缩，LightCursor遍历中删除时不能替换容器
+     */
+    void removeNode(long node, boolean compact) {
+
+        checkWritable();
+
+        if(arena != null) {
+            NodeStorage target = tableOf(node);
+            long offset = offsetOf(node);
+            arena.release(4 + keyLengthOf(target, offset) + valueLengthOf(target, offset));
+        }
+
+        if((node & OLD_TABLE) == 0) {
+            shiftBackward(nodes, maxSize, (int) (node / nodeLength));
+        } else {
+            shiftBackward(oldNodes, oldSize, (int) (offsetOf(node) / nodeLength));
+        }
+
+        count--;
+        modCount++;
+
+        if(oldNodes != null) {
+            migrate(migrateStep);
+        } else if(compact && clock == null && count < maxSize * compactRatio) {
+            compact();
+        } else if(compact && arena != null && arena.garbage() > arena.live() && arena.garbage() >= LightArena.MIN_CHUNK) {
+            compactArena();
+        }
+    }
+
+    /**
+     * 按当前元素数收缩容器，大量删除后释放空置节点占用的内存
+     * 删除时后续节点已经前移，容器中没有删除标记，收缩只需要按更小的size重新放置节点
+     * ARENA布局时同时回收被覆盖的value和已删除的记录
+     */
+    public void compact() {
+
+        checkWritable();
+
+        completeRehash();
+
+        if(arena != null && arena.garbage() > 0) {
+            compactArena();
+        }
+
+        // 缓存模式的容器大小由字节上限决定
+        if(clock != null) {
+            return;
+        }
+
+        int newSize = sizeFor(count);
+
+        if(newSize >= maxSize) {
+            return;
+        }
+
+        modCount++;
+
+        retable(newSize, false, "compact");
+    }
+
+    /**
+     * 预先扩容到能容纳指定元素数的大小，批量放入前调用，避免放入过程中逐次翻倍rehash
+     * @param expectedSize 预计的元素总数
+     */
+    public void ensureCapacity(int expectedSize) {
+
+        checkWritable();
+
+        completeRehash();
+
+        if(clock != null) {
+            return;
+        }
+
+        int newSize = sizeFor(Math.max(expectedSize, count));
+
+        if(newSize <= maxSize) {
+            return;
+        }
+
+        modCount++;
+
+        retable(newSize, false, "ensureCapacity");
+    }
+
+    /**
+     * @param elements 元素数
+     * @return 负载不超过扩容因子，并且至少保留一个空节点的容器大小
+     */
+    private int sizeFor(int elements) {
+
+        return Math.max(tableSizeFor((int) Math.min(elements / capacity + 1, Integer.MAX_VALUE)), tableSizeFor(elements + 2));
+    }
+
+    /**
+     * 将arena中仍被引用的记录按节点顺序复制到新的arena，旧arena整体释放
+     * 只修改节点中的记录地址，节点位置不变，LightCursor遍历中也可以进行
+     */
+    private void compactArena() {
+
+        completeRehash();
+
+        LightArena newArena = new LightArena(storage);
+        byte[] buffer = new byte[4 + keyLength + valueLength];
+
+        for(int i = 0; i < maxSize; i++) {
+
+            long node = (long) i * nodeLength;
+
+            if(!occupied(nodes, node)) {
+                continue;
+            }
+
+            long address = nodes.getLong(node + 1);
+            NodeStorage record = arena.chunk(address);
+            long offset = LightArena.offset(address);
+
+            int length = 4 + getShort(record, offset) + getShort(record, offset + 2);
+            record.getBytes(offset, buffer, 0, length);
+
+            long newAddress = newArena.allocate(length);
+            newArena.chunk(newAddress).putBytes(LightArena.offset(newAddress), buffer, 0, length);
+            nodes.putLong(node + 1, newAddress);
+        }
+
+        arena.close();
+        arena = newArena;
+    }
+
+    /**
+     * 设置自动收缩的阈值，删除后元素数低于maxSize * compactRatio时调用compact()
+     * 阈值需要小于扩容因子的一半，否则扩容后立即满足收缩条件，容器会反复扩容收缩
+     * @param compactRatio 收缩阈值，0表示不自动收缩
+     */
+    public void setCompactRatio(double compactRatio) {
+
+        checkWritable();
+
+        if(compactRatio < 0 || compactRatio >= capacity / 2) {
+            throw new IllegalArgumentException("compactRatio需要在[0, capacity / 2)之间：" + compactRatio);
+        }
+
+        this.compactRatio = compactRatio;
+    }
+
+    /**
+     * 开启缓存模式：节点存储结构固定为不超过maxBytes的最大2的幂个节点，不再扩容
+     * 元素数达到上限（maxSize * capacity）后放入新key时按CLOCK淘汰一个较久未访问的key，每个节点只额外占用1个访问位
+     * ARENA布局时上限只包括节点存储结构，不包括arena中的key/value记录
+     * 当前元素超过上限时立即淘汰，命中/未命中/淘汰次数见stats()
+     * @param maxBytes 节点存储结构的字节上限，0表示关闭缓存模式（之后按需扩容）
+     */
+    public void setMaxBytes(long maxBytes) {
+
+        checkWritable();
+
+        completeRehash();
+
+        if(maxBytes <= 0) {
+            clock = null;
+            return;
+        }
+
+        long slots = maxBytes / nodeLength;
+
+        if(slots < 4) {
+            throw new IllegalArgumentException("maxBytes至少需要容纳4个节点（" + 4 * nodeLength + "字节）：" + maxBytes);
+        }
+
+        int tableSize = Integer.highestOneBit((int) Math.min(slots, 1 << 30));
+
+        // 与扩容条件相同：不超过扩容因子，并且至少保留一个空节点
+        int limit = (int) Math.min((long) (tableSize * capacity), tableSize - 2);
+
+        if(limit <= 0) {
+            throw new IllegalArgumentException("maxBytes过小，按扩容因子" + capacity + "无法容纳元素：" + maxBytes);
+        }
+
+        clock = new LightClock(maxSize, limit);
+
+        while(count > limit) {
+            evict();
+        }
+
+        modCount++;
+
+        if(tableSize != maxSize) {
+            retable(tableSize, false, "setMaxBytes");
+        }
+    }
+
+    /**
+     * 设置put未指定存活时间时的默认存活时间，首次调用时开启过期时间（已有元素不过期）
+     * 过期时间保存在节点中（4字节，相对开启时刻的秒数），秒级精度，不需要额外的时间戳容器
+     * 过期的元素在get/containsKey/遍历中视为不存在，由之后的put（每次清理少量节点）或expire(int)回收
+     * 回收前size()仍包括过期的元素
+     * @param duration 存活时间，0表示不过期
+     * @param unit 时间单位
+     */
+    public void setExpireAfterWrite(long duration, TimeUnit unit) {
+
+        checkWritable();
+
+        defaultTtl = ttlOf(duration, unit);
+    }
+
+    /**
+     * 换算为存活秒数（向上取整），需要时开启过期时间
+     * @param duration 存活时间，不大于0表示不过期
+     * @param unit 时间单位
+     * @return 存活秒数，0表示不过期
+     */
+    int ttlOf(long duration, TimeUnit unit) {
+
+        Objects.requireNonNull(unit, "unit");
+
+        if(!expiring) {
+            enableExpiry();
+        }
+
+        if(duration <= 0) {
+            return 0;
+        }
+
+        // toMillis超出long范围时返回Long.MAX_VALUE，先除再进位，避免加法溢出为负数
+        long millis = unit.toMillis(duration);
+        long seconds = millis / 1000 + (millis % 1000 == 0 ? 0 : 1);
+
+        // 距离过期时间基准的秒数不超过int范围
+        return (int) Math.min(Math.max(seconds, 1), Integer.MAX_VALUE / 2);
+    }
+
+    /**
+     * 开启过期时间：节点长度+4，已有节点复制到新的存储结构，过期时间为0（不过期）
+     */
+    private void enableExpiry() {
+
+        completeRehash();
+
+        int newLength = nodeLength + 4;
+        NodeStorage newNodes = storage.allocate((long) maxSize * newLength);
+        byte[] buffer = new byte[nodeLength - 4];
+
+        for(int i = 0; i < maxSize; i++) {
+
+            long node = (long) i * nodeLength;
+
+            if(!occupied(nodes, node)) {
+                continue;
+            }
+
+            long newNode = (long) i * newLength;
+            nodes.getBytes(node, buffer, 0, buffer.length);
+            newNodes.putBytes(newNode, buffer, 0, buffer.length);
+            newNodes.putInt(newNode + newLength - 8, 0);
+            newNodes.putInt(newNode + newLength - 4, nodes.getInt(node + nodeLength - 4));
+        }
+
+        NodeStorage oldNodes = nodes;
+        nodes = newNodes;
+        nodeLength = newLength;
+        oldNodes.close();
+
+        expiryEpoch = System.currentTimeMillis();
+        expiring = true;
+        modCount++;
+    }
+
+    /**
+     * @return 当前时刻相对过期时间基准的秒数，从1开始
+     */
+    private int now() {
+
+        return (int) ((System.currentTimeMillis() - expiryEpoch) / 1000) + 1;
+    }
+
+    /**
+     * @param ttl 存活秒数，0表示不过期
+     * @return 写入节点的过期时间
+     */
+    private int expiryOf(int ttl) {
+
+        return ttl == 0 ? 0 : now() + ttl;
+    }
+
+    /**
+     * @param target 节点所在的存储结构
+     * @param node 节点位置
+     * @return 节点是否已过期，未开启过期时间时返回false
+     */
+    boolean expired(NodeStorage target, long node) {
+
+        if(!expiring) {
+            return false;
+        }
+
+        int expiry = target.getInt(node + nodeLength - 8);
+
+        return expiry != 0 && expiry <= now();
+    }
+
+    /**
+     * 从上次清理的位置开始检查slots个节点位置，删除其中已过期的节点，适合定时任务中分批调用，单次耗时有上限
+     * 未开启过期时间时返回0
+     * @param slots 检查的节点数
+     * @return 删除的元素个数
+     */
+    public int expire(int slots) {
+
+        if(!expiring) {
+            return 0;
+        }
+
+        checkWritable();
+
+        completeRehash();
+
+        return sweep(Math.min(slots, maxSize));
+    }
+
+    /**
+     * 删除全部已过期的节点
+     */
+    void purgeExpired() {
+
+        if(!expiring) {
+            return;
+        }
+
+        checkWritable();
+
+        completeRehash();
+
+        // 删除时节点前移，环形末尾的节点可能移到已检查的位置，直到一整圈没有删除为止
+        while(sweep(maxSize) > 0) {
+        }
+    }
+
+    /**
+     * 环形检查节点位置并删除已过期的节点，删除后下一个节点前移到当前位置，重新检查该位置
+     * 删除不计入检查的节点数，每个节点最多被删除一次，耗时不超过slots + 删除的元素个数
+     * @param slots 检查的节点位置数
+     * @return 删除的元素个数
+     */
+    private int sweep(int slots) {
+
+        int now = now();
+        int removed = 0;
+
+        for(int i = 0; i < slots;) {
+
+            if(sweepIndex >= maxSize) {
+                sweepIndex = 0;
+            }
+
+            long node = (long) sweepIndex * nodeLength;
+
+            if(occupied(nodes, node)) {
+
+                int expiry = nodes.getInt(node + nodeLength - 8);
+
+                if(expiry != 0 && expiry <= now) {
+                    removeNode(node, false);
+                    removed++;
+                    continue;
+                }
+            }
+
+            sweepIndex++;
+            i++;
+        }
+
+        return removed;
+    }
+
+    /**
+     * 按已计算的hashcode查找key所在的节点位置，查找过程直接与存储结构中的字节比较，不产生临时对象
+     * @param nodes 存储结构
+     * @param hashCode key的hashcode
+     * @param key key所在数组
+     * @param keyOffset key在数组中的起始位置
+     * @param keyLen key长度
+     * @return 节点位置，不存在时返回-1
+     */
+    private int indexOf(NodeStorage nodes, int hashCode, byte[] key, int keyOffset, int keyLen) {
+
+        // 容器大小由传入的存储结构计算，并发乐观读时rehash替换容器不会影响本次查找
+        int maxSize = (int) (nodes.size() / nodeLength);
+
+        // 获取数组中的位置
+        int index = indexFor(hashCode, maxSize);
+
+        // 探测距离不会超过容器大小，并发乐观读读到不一致的数据时也能结束
+        for(int distance = 0; distance < maxSize; distance++) {
+
+            long node = (long) index * nodeLength;
+
+            if (!occupied(nodes, node)) {
+                return -1;
+            }
+
+            int nodeHash = nodes.getInt(node + nodeLength - 4);
+
+            if (nodeHash == hashCode && sameKey(nodes, node, key, keyOffset, keyLen)) {
+                return index;
+            }
+
+            // 簇内节点按初始位置有序，之后不可能再出现该key
+            if(distanceOf(nodeHash, index, maxSize) < distance) {
+                return -1;
+            }
+
+            index = index + 1 == maxSize ? 0 : index + 1;
+        }
+
+        return -1;
+    }
+
+    public int size() {
+
+        return count;
+
+    }
+
+    public boolean isEmpty() {
+
+        return count == 0;
+
+    }
+
+    /**
+     * 创建遍历全部节点的游标，遍历时直接读取存储结构，不为每个元素创建对象
+     * @return 游标
+     */
+    public LightCursor cursor() {
+
+        return new LightCursor(this);
+    }
+
+    public void clear() {
+
+        checkWritable();
+
+        nodes.close();
+
+        if(oldNodes != null) {
+            oldNodes.close();
+            oldNodes = null;
+        }
+
+        if(arena != null) {
+            arena.close();
+            arena = new LightArena(storage);
+        }
+
+        // 缓存模式保持字节上限对应的容器大小
+        if(clock == null) {
+            maxSize = 16;
+        } else {
+            clock.reset(maxSize);
+        }
+
+        count = 0;
+        modCount++;
+        nodes = storage.allocate((long) maxSize * nodeLength);
+    }
+
+    /**
+     * 将容器按LightMap文件格式写入指定文件，之后可以通过open(Path)内存映射打开
+     * @param path 文件路径
+     */
+    public void snapshot(Path path) throws IOException {
+
+        completeRehash();
+
+        LightMapFile.write(path, this, valueType());
+    }
+
+    /**
+     * 将容器写回open(Path)时的文件
+     */
+    public void flush() throws IOException {
+
+        if(path == null) {
+            throw new IllegalStateException("容器不是通过open(Path)打开的，请使用snapshot(Path)。");
+        }
+
+        snapshot(path);
+    }
+
+    /**
+     * 释放节点存储结构，堆外存储时立即归还内存，关闭后容器不能再使用
+     */
+    @Override
+    public void close() {
+
+        if(nodes != null) {
+            nodes.close();
+            nodes = null;
+            count = 0;
+        }
+
+        if(oldNodes != null) {
+            oldNodes.close();
+            oldNodes = null;
+        }
+
+        if(arena != null) {
+            arena.close();
+        }
+    }
+
+    /**
+     * 取得当前线程的编码缓冲区，容量不足时扩容
+     * @return 能容纳一组key + value和一个节点的缓冲区
+     */
+    byte[] scratch() {
+
+        // 前半部分存放正在put/get的key/value，后半部分供渐进式rehash迁移节点使用
+        return scratch(keyLength + valueLength + nodeLength);
+    }
+
+    /**
+     * 取得当前线程的编码缓冲区，容量不足时扩容
+     * @param length 需要的最小长度
+     * @return 缓冲区
+     */
+    static byte[] scratch(int length) {
+
+        byte[] scratch = SCRATCH.get();
+
+        if(scratch.length < length) {
+            scratch = new byte[length];
+            SCRATCH.set(scratch);
+        }
+
+        return scratch;
+    }
+
+    /**
+     * 将key按UTF-8编码写入dst的起始位置
+     * @param key key
+     * @param dst 目标数组
+     * @return 编码后的长度
+     * @throws IllegalArgumentException 编码后超过keyLength
+     */
+    int encodeKey(CharSequence key, byte[] dst) {
+
+        int keyLen = encode(key, dst, 0, keyLength);
+
+        if(keyLen < 0) {
+            throw new IllegalArgumentException("key长度超过" + keyLength + "：" + key);
+        }
+
+        return keyLen;
+    }
+
+    /**
+     * 检查已编码key的长度，只在异常信息中使用长度，不为key创建String
+     * 长度为0的空key是合法的key，节点按hashCode判断是否为空，不受key长度影响
+     * @param length key长度
+     * @throws IllegalArgumentException 超过keyLength
+     */
+    void checkKeyLength(int length) {
+
+        if(length > keyLength) {
+            throw new IllegalArgumentException("key长度超过" + keyLength + "：" + length);
+        }
+    }
+
+    /**
+     * 将字符串按UTF-8编码写入目标数组，等价于getBytes(UTF_8)但不产生临时对象
+     * @param str 字符串
+     * @param dst 目标数组
+     * @param offset 写入起始位置
+     * @param limit 最大可写入长度
+     * @return 编码后的长度，超出limit时返回-1
+     */
+    static int encode(CharSequence str, byte[] dst, int offset, int limit) {
+
+        int pos = offset;
+        int end = offset + limit;
+
+        for(int i = 0, length = str.length(); i < length; i++) {
+
+            char c = str.charAt(i);
+
+            if(c < 0x80) {
+
+                if(pos >= end) {
+                    return -1;
+                }
+                dst[pos++] = (byte) c;
+
+            } else if(c < 0x800) {
+
+                if(pos + 2 > end) {
+                    return -1;
+                }
+                dst[pos++] = (byte) (0xc0 | c >> 6);
+                dst[pos++] = (byte) (0x80 | c & 0x3f);
+
+            } else if(Character.isHighSurrogate(c) && i + 1 < length && Character.isLowSurrogate(str.charAt(i + 1))) {
+
+                int codePoint = Character.toCodePoint(c, str.charAt(++i));
+
+                if(pos + 4 > end) {
+                    return -1;
+                }
+                dst[pos++] = (byte) (0xf0 | codePoint >> 18);
+                dst[pos++] = (byte) (0x80 | codePoint >> 12 & 0x3f);
+                dst[pos++] = (byte) (0x80 | codePoint >> 6 & 0x3f);
+                dst[pos++] = (byte) (0x80 | codePoint & 0x3f);
+
+            } else if(Character.isSurrogate(c)) {
+
+                // 不成对的代理字符与String.getBytes保持一致，编码为'?'
+                if(pos >= end) {
+                    return -1;
+                }
+                dst[pos++] = '?';
+
+            } else {
+
+                if(pos + 3 > end) {
+                    return -1;
+                }
+                dst[pos++] = (byte) (0xe0 | c >> 12);
+                dst[pos++] = (byte) (0x80 | c >> 6 & 0x3f);
+                dst[pos++] = (byte) (0x80 | c & 0x3f);
+            }
+        }
+
+        return pos - offset;
+    }
+
+    /**
+     * 使用容器的hash算法和种子计算数组指定区间的hashcode
+     * hashCode为0表示空节点，hash算法的结果为0时改为1
+     */
+    int hash(byte[] array, int offset, int length) {
+
+        int hashCode = hasher.hash(array, offset, length, seed);
+
+        return hashCode == 0 ? 1 : hashCode;
+    }
+
+    /**
+     * 根据hashcode计算数组中的位置，容器大小为2的幂，取低位即可
+     */
+    private static int indexFor(int hashCode, int targetSize) {
+
+        return hashCode & (targetSize - 1);
+    }
+
+    /**
+     * @return key的hash算法
+     */
+    LightHasher hasher() {
+
+        return hasher;
+    }
+
+    /**
+     * 使用与other相同的hash算法和种子，之后两个容器中相同key的hashcode相同，只能在空容器上调用
+     * @param other 容器
+     */
+    void shareHash(AbstractLightMap other) {
+
+        if(count != 0) {
+            throw new IllegalStateException("只能在空容器上设置hash种子");
+        }
+
+        this.hasher = other.hasher;
+        this.seed = other.seed;
+    }
+
+    /**
+     * @param other 容器
+     * @return 两个容器的hash算法和种子是否相同，相同时节点中保存的hashcode可以直接使用
+     */
+    boolean sameHash(AbstractLightMap other) {
+
+        return hasher == other.hasher && seed == other.seed;
+    }
+
+    /**
+     * 替换key的hash算法并重新生成种子，已有节点按新算法重新计算hashcode并放置
+     * @param hasher hash算法
+     */
+    public void setHasher(LightHasher hasher) {
+
+        checkWritable();
+
+        Objects.requireNonNull(hasher, "hasher");
+
+        completeRehash();
+
+        this.hasher = hasher;
+        this.seed = ThreadLocalRandom.current().nextLong();
+        modCount++;
+
+        retable(maxSize, true, "setHasher");
+    }
+
+    /**
+     * 比较节点中的key与指定区间的字节是否相同
+     */
+    private boolean sameKey(NodeStorage target, long node, byte[] key, int keyOffset, int keyLen) {
+
+        // 数值key按long/int整体比较
+        if(numericKey) {
+            return keyLength == 8 ? target.getLong(node) == readLong(key, keyOffset) : target.getInt(node) == readInt(key, keyOffset);
+        }
+
+        if(arena == null) {
+
+            // 8字节key按long整体比较
+            if(keyLen == 8) {
+                return target.get(node) == 8 && target.getLong(node + 1) == readLong(key, keyOffset);
+            }
+
+            return (target.get(node) & 0xff) == keyLen && target.matches(node + 1, key, keyOffset, keyLen);
+        }
+
+        long address = target.getLong(node + 1);
+        NodeStorage record = arena.chunk(address);
+        long offset = LightArena.offset(address);
+
+        return getShort(record, offset) == keyLen && record.matches(offset + 4, key, keyOffset, keyLen);
+    }
+
+    /**
+     * arena记录中的长度标识，2字节小端
+     */
+    private static int getShort(NodeStorage record, long offset) {
+
+        return (record.get(offset) & 0xff) | (record.get(offset + 1) & 0xff) << 8;
+    }
+
+    private static void putShort(NodeStorage record, long offset, int value) {
+
+        record.put(offset, (byte) (value & 0xff));
+        record.put(offset + 1, (byte) (value >> 8 & 0xff));
+    }
+
+    static int readInt(byte[] array, int offset) {
+
+        return (array[offset] & 0xff) |
+                ((array[offset + 1] & 0xff) << 8) |
+                ((array[offset + 2] & 0xff) << 16) |
+                ((array[offset + 3] & 0xff) << 24);
+    }
+
+    static void writeInt(byte[] array, int offset, int value) {
+
+        array[offset] = (byte) (value & 0xff);
+        array[offset + 1] = (byte) (value >> 8 & 0xff);
+        array[offset + 2] = (byte) (value >> 16 & 0xff);
+        array[offset + 3] = (byte) (value >> 24 & 0xff);
+    }
+
+    static long readLong(byte[] array, int offset) {
+
+        return (readInt(array, offset) & 0xffffffffL) | ((long) readInt(array, offset + 4) << 32);
+    }
+
+    static void writeLong(byte[] array, int offset, long value) {
+
+        writeInt(array, offset, (int) value);
+        writeInt(array, offset + 4, (int) (value >> 32));
+    }
+
+    /**
+     * 开启或关闭运行统计：rehash次数和耗时、查找次数和慢查找，JFR可用时同时提交LightMap Rehash/Slow Lookup事件
+     * 关闭时不计时，热路径只多一次null判断；重新开启时计数从0开始
+     * @param enabled 是否开启
+     */
+    public void setStatsEnabled(boolean enabled) {
+
+        setStatsEnabled(enabled, LightMapStats.Recorder.DEFAULT_SLOW_LOOKUP_NANOS);
+    }
+
+    /**
+     * 开启或关闭运行统计
+     * @param enabled 是否开启
+     * @param slowLookupNanos 查找耗时达到该值（纳秒）时记为慢查找
+     */
+    public void setStatsEnabled(boolean enabled, long slowLookupNanos) {
+
+        this.recorder = enabled ? new LightMapStats.Recorder(slowLookupNanos) : null;
+    }
+
+    /**
+     * 扫描存储结构生成运行状态快照，耗时与容器大小成正比，不适合在热路径中调用
+     * 渐进式rehash中先完成迁移
+     * @return 统计快照
+     */
+    public LightMapStats stats() {
+
+        completeRehash();
+
+        int empty = 0;
+        long totalDistance = 0;
+        int maxDistance = 0;
+        long[] histogram = new long[LightMapStats.HISTOGRAM_SIZE];
+
+        for(int i = 0; i < maxSize; i++) {
+
+            long node = (long) i * nodeLength;
+
+            if(!occupied(nodes, node)) {
+                empty++;
+                continue;
+            }
+
+            int distance = distanceOf(nodes.getInt(node + nodeLength - 4), i, maxSize);
+            totalDistance += distance;
+            maxDistance = Math.max(maxDistance, distance);
+            histogram[Math.min(distance, histogram.length - 1)]++;
+        }
+
+        long memory = (long) maxSize * nodeLength;
+        long garbage = 0;
+
+        if(arena != null) {
+            memory += arena.capacity();
+            garbage = arena.garbage();
+        }
+
+        return new LightMapStats(count, maxSize, empty, histogram, totalDistance, maxDistance, memory, garbage, recorder, clock);
+    }
+
+    /**
+     * 测试类，打印存储结构中空置的元素个数
+     */
+    void printFreeDataCount() {
+
+        System.out.println(stats());
+    }
+}
@@ -0,0 +1,265 @@
+package com.songge.demo;
+
+import java.io.IOException;
+import java.lang.reflect.Field;
+import java.lang.reflect.Method;
+import java.nio.Buffer;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.WritableByteChannel;
+
+/**
+ * <p>
+ *   ByteBuffer存储结构（DirectByteBuffer或MappedByteBuffer），按固定大小分页以突破单个ByteBuffer 2GB的限制
+ *   跨页的多字节数据逐字节读写，页内读写直接使用ByteBuffer的绝对位置方法
+ *   clear/limit等方法通过Buffer调用：jdk9以上编译时ByteBuffer的重写方法返回ByteBuffer，jdk8运行时没有这些方法
+ * <p/>
+ */
+class BufferNodeStorage extends NodeStorage {
+
+    // 每页1GB
+    static final int PAGE_SHIFT = 30;
+
+    private static final long PAGE_MASK = (1L << PAGE_SHIFT) - 1;
+
+    // 释放DirectByteBuffer的方法（JDK9以上：Unsafe.invokeCleaner，JDK8：DirectBuffer.cleaner().clean()）
+    private static final Object UNSAFE;
+    private static final Method INVOKE_CLEANER;
+
+    static {
+
+        Object unsafe = null;
+        Method invokeCleaner = null;
+
+        try {
+            Class<?> unsafeClass = Class.forName("sun.misc.Unsafe");
+            Field field = unsafeClass.getDeclaredField("theUnsafe");
+            field.setAccessible(true);
+            unsafe = field.get(null);
+            invokeCleaner = unsafeClass.getMethod("invokeCleaner", ByteBuffer.class);
+        } catch (ReflectiveOperationException | RuntimeException e) {
+            // JDK8没有invokeCleaner，释放时使用cleaner()
+        }
+
+        UNSAFE = unsafe;
+        INVOKE_CLEANER = invokeCleaner;
+    }
+
+    final ByteBuffer[] pages;
+
+    private final long size;
+
+    /**
+     * 分配堆外存储结构，DirectByteBuffer分配后内容为0
+     * @param size 字节数
+     */
+    BufferNodeStorage(long size) {
+
+        this.size = size;
+        this.pages = new ByteBuffer[(int) ((size + PAGE_MASK) >>> PAGE_SHIFT)];
+
+        for(int i = 0; i < pages.length; i++) {
+            long pageSize = Math.min(size - ((long) i << PAGE_SHIFT), 1L << PAGE_SHIFT);
+            pages[i] = ByteBuffer.allocateDirect((int) pageSize).order(ByteOrder.LITTLE_ENDIAN);
+        }
+    }
+
+    /**
+     * 使用已有的分页构造存储结构，除最后一页外每页大小必须为1 << PAGE_SHIFT
+     */
+    BufferNodeStorage(ByteBuffer[] pages, long size) {
+
+        this.size = size;
+        this.pages = pages;
+
+        for(ByteBuffer page : pages) {
+            page.order(ByteOrder.LITTLE_ENDIAN);
+        }
+    }
+
+    @Override
+    long size() {
+        return size;
+    }
+
+    @Override
+    byte get(long offset) {
+        return pages[(int) (offset >>> PAGE_SHIFT)].get((int) (offset & PAGE_MASK));
+    }
+
+    @Override
+    void put(long offset, byte value) {
+        pages[(int) (offset >>> PAGE_SHIFT)].put((int) (offset & PAGE_MASK), value);
+    }
+
+    @Override
+    int getInt(long offset) {
+
+        ByteBuffer page = pages[(int) (offset >>> PAGE_SHIFT)];
+        int pos = (int) (offset & PAGE_MASK);
+
+        if(pos + 4 <= page.capacity()) {
+            return page.getInt(pos);
+        }
+
+        return (get(offset) & 0xff) |
+                ((get(offset + 1) & 0xff) << 8) |
+                ((get(offset + 2) & 0xff) << 16) |
+                ((get(offset + 3) & 0xff) << 24);
+    }
+
+    @Override
+    void putInt(long offset, int value) {
+
+        ByteBuffer page = pages[(int) (offset >>> PAGE_SHIFT)];
+        int pos = (int) (offset & PAGE_MASK);
+
+        if(pos + 4 <= page.capacity()) {
+            page.putInt(pos, value);
+            return;
+        }
+
+        put(offset, (byte) value);
+        put(offset + 1, (byte) (value >> 8));
+        put(offset + 2, (byte) (value >> 16));
+        put(offset + 3, (byte) (value >> 24));
+    }
+
+    @Override
+    long getLong(long offset) {
+
+        ByteBuffer page = pages[(int) (offset >>> PAGE_SHIFT)];
+        int pos = (int) (offset & PAGE_MASK);
+
+        if(pos + 8 <= page.capacity()) {
+            return page.getLong(pos);
+        }
+
+        return (getInt(offset) & 0xffffffffL) | ((long) getInt(offset + 4) << 32);
+    }
+
+    @Override
+    void putLong(long offset, long value) {
+
+        ByteBuffer page = pages[(int) (offset >>> PAGE_SHIFT)];
+        int pos = (int) (offset & PAGE_MASK);
+
+        if(pos + 8 <= page.capacity()) {
+            page.putLong(pos, value);
+            return;
+        }
+
+        putInt(offset, (int) value);
+        putInt(offset + 4, (int) (value >> 32));
+    }
+
+    @Override
+    void getBytes(long offset, byte[] dst, int dstOffset, int length) {
+
+        for(int i = 0; i < length; i++) {
+            dst[dstOffset + i] = get(offset + i);
+        }
+    }
+
+    @Override
+    void putBytes(long offset, byte[] src, int srcOffset, int length) {
+
+        for(int i = 0; i < length; i++) {
+            put(offset + i, src[srcOffset + i]);
+        }
+    }
+
+    @Override
+    void copy(long srcOffset, long dstOffset, int length) {
+
+        // 目标区间在源区间之后时从尾部开始拷贝，避免覆盖尚未拷贝的数据
+        if(dstOffset > srcOffset) {
+            for(int i = length - 1; i >= 0; i--) {
+                put(dstOffset + i, get(srcOffset + i));
+            }
+        } else {
+            for(int i = 0; i < length; i++) {
+                put(dstOffset + i, get(srcOffset + i));
+            }
+        }
+    }
+
+    @Override
+    boolean matches(long offset, byte[] src, int srcOffset, int length) {
+
+        for(int i = 0; i < length; i++) {
+            if(get(offset + i) != src[srcOffset + i]) {
+                return false;
+            }
+        }
+
+        return true;
+    }
+
+    /**
+     * DirectByteBuffer不能按页共享，快照复制全部内容到新的堆外存储
+     */
+    @Override
+    NodeStorage share() {
+
+        BufferNodeStorage copy = new BufferNodeStorage(size);
+
+        for(int i = 0; i < pages.length; i++) {
+
+            ByteBuffer target = copy.pages[i].duplicate();
+            ByteBuffer buffer = pages[i].duplicate();
+            ((Buffer) buffer).clear();
+            ((Buffer) buffer).limit(target.capacity());
+
+            target.put(buffer);
+        }
+
+        return copy;
+    }
+
+    @Override
+    void writeTo(WritableByteChannel channel) throws IOException {
+
+        for(ByteBuffer page : pages) {
+
+            ByteBuffer buffer = page.duplicate();
+            ((Buffer) buffer).clear();
+
+            while(buffer.hasRemaining()) {
+                channel.write(buffer);
+            }
+        }
+    }
+
+    /**
+     * 立即释放DirectByteBuffer占用的内存或解除文件映射，不等待GC
+     */
+    @Override
+    public void close() {
+
+        for(int i = 0; i < pages.length; i++) {
+            free(pages[i]);
+            pages[i] = null;
+        }
+    }
+
+    static void free(ByteBuffer buffer) {
+
+        if(buffer == null || !buffer.isDirect()) {
+            return;
+        }
+
+        try {
+            if(INVOKE_CLEANER != null) {
+                INVOKE_CLEANER.invoke(UNSAFE, buffer);
+            } else {
+                Method cleanerMethod = buffer.getClass().getMethod("cleaner");
+                cleanerMethod.setAccessible(true);
+                Object cleaner = cleanerMethod.invoke(buffer);
+                cleaner.getClass().getMethod("clean").invoke(cleaner);
+            }
+        } catch (ReflectiveOperationException | RuntimeException e) {
+            // 无法主动释放时交给GC回收
+        }
+    }
+}
@@ -0,0 +1,889 @@
+package com.songge.demo;
+
+import java.util.*;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.StampedLock;
+import java.util.function.BiConsumer;
+import java.util.function.BiFunction;
+import java.util.function.Function;
+
+/**
+ * <p>
+ *   线程安全的低内存消耗Map容器
+ *   容器按key的hashcode拆分为多个Segment，每个Segment持有独立的LightMap和StampedLock：
+ *   读操作使用乐观读，不阻塞也不被阻塞（缓存模式下需要置位访问位，改为加读锁）；写操作只锁定所在Segment，扩容也只在Segment内部进行
+ * <p/>
+ */
+public class ConcurrentLightMap<K,V> implements Map<K,V> {
+
+    // 默认Segment数
+    private static final int DEFAULT_CONCURRENCY_LEVEL = 16;
+
+    private final Segment<K,V>[] segments;
+
+    // 选择Segment时hashcode右移位数，使用高位避免与Segment内部的取模位置相关
+    private final int segmentShift;
+
+    /**
+     * 构造方法
+     * @param keyLength key长度
+     * @param valueLength value长度
+     */
+    public ConcurrentLightMap(int keyLength, int valueLength) {
+
+        this(keyLength, valueLength, DEFAULT_CONCURRENCY_LEVEL);
+
+    }
+
+    /**
+     * 构造方法
+     * @param keyLength key长度
+     * @param valueLength value长度
+     * @param concurrencyLevel 并发度，向上取整为2的幂作为Segment数
+     */
+    public ConcurrentLightMap(int keyLength, int valueLength, int concurrencyLevel) {
+
+        this(keyLength, valueLength, concurrencyLevel, 16);
+
+    }
+
+    /**
+     * 构造方法
+     * @param keyLength key长度
+     * @param valueLength value长度
+     * @param concurrencyLevel 并发度，向上取整为2的幂作为Segment数
+     * @param segmentSize 每个Segment的初始maxSize
+     */
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    public ConcurrentLightMap(int keyLength, int valueLength, int concurrencyLevel, int segmentSize) {
+
+        int shift = 0;
+        while((1 << shift) < concurrencyLevel) {
+            shift++;
+        }
+
+        this.segmentShift = 32 - shift;
+        this.segments = new Segment[1 << shift];
+
+        for(int i = 0; i < segments.length; i++) {
+            segments[i] = new Segment<>(new LightMap<>(keyLength, valueLength, segmentSize));
+        }
+    }
+
+    /**
+     * 构造方法，使用已创建的Segment
+     */
+    private ConcurrentLightMap(Segment<K,V>[] segments, int segmentShift) {
+
+        this.segments = segments;
+        this.segmentShift = segmentShift;
+    }
+
+    /**
+     * 根据key的内容选择Segment，String的hashCode有缓存，选择Segment不需要编码key
+     * 其他CharSequence按与String.hashCode()相同的公式计算，与内容相同的String进入同一个Segment
+     */
+    private Segment<K,V> segmentFor(CharSequence key) {
+
+        if(segmentShift == 32) {
+            return segments[0];
+        }
+
+        // 乘法散列后取高位
+        return segments[(contentHash(key) * 0x9E3779B9) >>> segmentShift];
+    }
+
+    /**
+     * @return 按字符内容计算的hashcode，与String.hashCode()相同，不使用CharSequence实现类的hashCode()
+     */
+    private static int contentHash(CharSequence key) {
+
+        if(key instanceof String) {
+            return key.hashCode();
+        }
+
+        int hashCode = 0;
+        for(int i = 0; i < key.length(); i++) {
+            hashCode = 31 * hashCode + key.charAt(i);
+        }
+
+        return hashCode;
+    }
+
+    /**
+     * 写入只接受String类型的key，读取和删除接受任意CharSequence，按内容匹配
+     * @throws ClassCastException key不是String
+     */
+    private static void checkKey(Object key) {
+
+        if(!(key instanceof String)) {
+            throw new ClassCastException("key需要是String：" + (key == null ? null : key.getClass().getName()));
+        }
+    }
+
+    @Override
+    public V put(K key, V value) {
+
+        checkKey(key);
+
+        Segment<K,V> segment = segmentFor((String) key);
+
+        long stamp = segment.writeLock();
+        try {
+            return segment.map.put(key, value);
+        } finally {
+            segment.unlockWrite(stamp);
+        }
+    }
+
+    /**
+     * 添加元素，到期后视为不存在，见{@link LightMap#put(Object, Object, long, TimeUnit)}
+     * @param key key
+     * @param value value
+     * @param duration 存活时间，0表示不过期
+     * @param unit 时间单位
+     * @return null
+     */
+    public V put(K key, V value, long duration, TimeUnit unit) {
+
+        checkKey(key);
+
+        Segment<K,V> segment = segmentFor((String) key);
+
+        long stamp = segment.writeLock();
+        try {
+            return segment.map.put(key, value, duration, unit);
+        } finally {
+            segment.unlockWrite(stamp);
+        }
+    }
+
+    /**
+     * key不存在时添加元素，检查和添加在同一次Segment写锁内完成
+     * @param key key
+     * @param value value
+     * @return key已存在时返回原value，不修改；添加时返回null
+     */
+    @Override
+    public V putIfAbsent(K key, V value) {
+
+        checkKey(key);
+
+        Segment<K,V> segment = segmentFor((String) key);
+
+        long stamp = segment.writeLock();
+        try {
+            return segment.map.putIfAbsent(key, value);
+        } finally {
+            segment.unlockWrite(stamp);
+        }
+    }
+
+    /**
+     * key存在时直接返回value（乐观读，不加锁），不存在时加写锁再次检查后计算并放入，同一个key只计算一次
+     * @param key key
+     * @param mappingFunction 计算value，执行期间持有Segment的写锁，不能访问本容器
+     * @return 已有或新放入的value
+     */
+    @Override
+    public V computeIfAbsent(K key, Function<? super K, ? extends V> mappingFunction) {
+
+        Objects.requireNonNull(mappingFunction);
+
+        checkKey(key);
+
+        V value = get(key);
+        if(value != null) {
+            return value;
+        }
+
+        Segment<K,V> segment = segmentFor((String) key);
+
+        long stamp = segment.writeLock();
+        try {
+            return segment.map.computeIfAbsent(key, mappingFunction);
+        } finally {
+            segment.unlockWrite(stamp);
+        }
+    }
+
+    /**
+     * 在Segment写锁内计算新value并替换，见{@link LightMap#compute(Object, BiFunction)}
+     * @param key key
+     * @param remappingFunction 根据原value（不存在时为null）计算新value，返回null时删除key，执行期间持有Segment的写锁，不能访问本容器
+     * @return 新value
+     */
+    @Override
+    public V compute(K key, BiFunction<? super K, ? super V, ? extends V> remappingFunction) {
+
+        Objects.requireNonNull(remappingFunction);
+
+        checkKey(key);
+
+        Segment<K,V> segment = segmentFor((String) key);
+
+        long stamp = segment.writeLock();
+        try {
+            return segment.map.compute(key, remappingFunction);
+        } finally {
+            segment.unlockWrite(stamp);
+        }
+    }
+
+    /**
+     * 在Segment写锁内合并value，见{@link LightMap#merge(Object, Object, BiFunction)}，计数器可以使用merge(key, 1L, Long::sum)
+     * @param key key
+     * @param value key不存在时放入的value
+     * @param remappingFunction 根据原value和value计算新value，返回null时删除key，执行期间持有Segment的写锁，不能访问本容器
+     * @return 新value
+     */
+    @Override
+    public V merge(K key, V value, BiFunction<? super V, ? super V, ? extends V> remappingFunction) {
+
+        Objects.requireNonNull(value);
+        Objects.requireNonNull(remappingFunction);
+
+        checkKey(key);
+
+        Segment<K,V> segment = segmentFor((String) key);
+
+        long stamp = segment.writeLock();
+        try {
+            return segment.map.merge(key, value, remappingFunction);
+        } finally {
+            segment.unlockWrite(stamp);
+        }
+    }
+
+    @Override
+    public V get(Object key) {
+
+        if(!(key instanceof CharSequence)) {
+            return null;
+        }
+
+        Segment<K,V> segment = segmentFor((CharSequence) key);
+        LightMap<K,V> map = segment.map;
+
+        // 乐观读：读取期间Segment未被修改时直接返回，确认有效后才计入统计
+        // 缓存模式下查找需要置位访问位，只在读锁内进行，不与写线程的淘汰和节点移动交错
+        long stamp = segment.tryOptimisticRead();
+        if(stamp != 0 && map.clock == null) {
+            try {
+                long start = map.lookupStart();
+                long node = map.peek((CharSequence) key);
+                V value = node < 0 ? null : map.readValue(node);
+                if(segment.validate(stamp)) {
+                    map.recordLookup(start, (CharSequence) key, node >= 0);
+                    return value;
+                }
+            } catch (RuntimeException e) {
+                // 读取期间发生rehash时可能读到不一致的数据，改为加读锁重试
+            }
+        }
+
+        stamp = segment.readLock();
+        try {
+            return segment.map.get(key);
+        } finally {
+            segment.unlockRead(stamp);
+        }
+    }
+
+    @Override
+    public boolean containsKey(Object key) {
+
+        if(!(key instanceof CharSequence)) {
+            return false;
+        }
+
+        Segment<K,V> segment = segmentFor((CharSequence) key);
+        LightMap<K,V> map = segment.map;
+
+        long stamp = segment.tryOptimisticRead();
+        if(stamp != 0 && map.clock == null) {
+            try {
+                long start = map.lookupStart();
+                boolean contains = map.peek((CharSequence) key) >= 0;
+                if(segment.validate(stamp)) {
+                    map.recordLookup(start, (CharSequence) key, contains);
+                    return contains;
+                }
+            } catch (RuntimeException e) {
+                // 读取期间发生rehash时可能读到不一致的数据，改为加读锁重试
+            }
+        }
+
+        stamp = segment.readLock();
+        try {
+            return segment.map.containsKey(key);
+        } finally {
+            segment.unlockRead(stamp);
+        }
+    }
+
+    @Override
+    public boolean containsValue(Object value) {
+
+        for(Segment<K,V> segment : segments) {
+
+            long stamp = segment.readLock();
+            try {
+                if(segment.map.containsValue(value)) {
+                    return true;
+                }
+            } finally {
+                segment.unlockRead(stamp);
+            }
+        }
+
+        return false;
+    }
+
+    @Override
+    public V remove(Object key) {
+
+        // 与containsKey一致，非CharSequence的key（包括null）不可能存在于容器中
+        if(!(key instanceof CharSequence)) {
+            return null;
+        }
+
+        Segment<K,V> segment = segmentFor((CharSequence) key);
+
+        long stamp = segment.writeLock();
+        try {
+            return segment.map.remove(key);
+        } finally {
+            segment.unlockWrite(stamp);
+        }
+    }
+
+    /**
+     * 各Segment元素数之和，并发修改时为近似值
+     */
+    @Override
+    public int size() {
+
+        int size = 0;
+
+        for(Segment<K,V> segment : segments) {
+            size += segment.map.size();
+        }
+
+        return size;
+    }
+
+    @Override
+    public boolean isEmpty() {
+
+        for(Segment<K,V> segment : segments) {
+            if(!segment.map.isEmpty()) {
+                return false;
+            }
+        }
+
+        return true;
+    }
+
+    @Override
+    public void clear() {
+
+        for(Segment<K,V> segment : segments) {
+
+            long stamp = segment.writeLock();
+            try {
+                segment.map.clear();
+            } finally {
+                segment.unlockWrite(stamp);
+            }
+        }
+    }
+
+    /**
+     * 各Segment逐个加写锁收缩容器，见{@link LightMap#compact()}
+     */
+    public void compact() {
+
+        for(Segment<K,V> segment : segments) {
+
+            long stamp = segment.writeLock();
+            try {
+                segment.map.compact();
+            } finally {
+                segment.unlockWrite(stamp);
+            }
+        }
+    }
+
+    /**
+     * 创建当前内容的只读快照，见{@link LightMap#snapshot()}
+     * 先按顺序锁定全部Segment再逐个创建快照，各Segment的内容属于同一时刻，创建期间写操作等待
+     * 修改快照时抛出UnsupportedOperationException
+     * @return 只读快照
+     */
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    public ConcurrentLightMap<K,V> snapshot() {
+
+        Segment<K,V>[] copies = new Segment[segments.length];
+        long[] stamps = new long[segments.length];
+
+        int locked = 0;
+        try {
+
+            for(; locked < segments.length; locked++) {
+                stamps[locked] = segments[locked].writeLock();
+            }
+
+            for(int i = 0; i < segments.length; i++) {
+                copies[i] = new Segment<>(segments[i].map.snapshot());
+            }
+        } finally {
+
+            for(int i = 0; i < locked; i++) {
+                segments[i].unlockWrite(stamps[i]);
+            }
+        }
+
+        return new ConcurrentLightMap<>(copies, segmentShift);
+    }
+
+    /**
+     * 各Segment开启或关闭运行统计，见{@link LightMap#setStatsEnabled(boolean, long)}
+     * @param enabled 是否开启
+     * @param slowLookupNanos 查找耗时达到该值（纳秒）时记为慢查找
+     */
+    public void setStatsEnabled(boolean enabled, long slowLookupNanos) {
+
+        for(Segment<K,V> segment : segments) {
+
+            long stamp = segment.writeLock();
+            try {
+                segment.map.setStatsEnabled(enabled, slowLookupNanos);
+            } finally {
+                segment.unlockWrite(stamp);
+            }
+        }
+    }
+
+    /**
+     * 开启缓存模式，字节上限平均分配给各Segment，见{@link LightMap#setMaxBytes(long)}
+     * 淘汰在各Segment内部进行，被淘汰的不一定是整个容器中最久未访问的key
+     * @param maxBytes 所有Segment节点存储结构的字节上限，0表示关闭缓存模式
+     */
+    public void setMaxBytes(long maxBytes) {
+
+        for(Segment<K,V> segment : segments) {
+
+            long stamp = segment.writeLock();
+            try {
+                segment.map.setMaxBytes(maxBytes / segments.length);
+            } finally {
+                segment.unlockWrite(stamp);
+            }
+        }
+    }
+
+    /**
+     * 各Segment设置默认存活时间，见{@link LightMap#setExpireAfterWrite(long, TimeUnit)}
+     * @param duration 存活时间，0表示不过期
+     * @param unit 时间单位
+     */
+    public void setExpireAfterWrite(long duration, TimeUnit unit) {
+
+        for(Segment<K,V> segment : segments) {
+
+            long stamp = segment.writeLock();
+            try {
+                segment.map.setExpireAfterWrite(duration, unit);
+            } finally {
+                segment.unlockWrite(stamp);
+            }
+        }
+    }
+
+    /**
+     * 各Segment逐个加写锁清理过期元素，每个Segment最多检查slots个节点，加锁时间有上限，适合定时任务中调用
+     * @param slots 每个Segment检查的节点数
+     * @return 删除的元素个数
+     */
+    public int expire(int slots) {
+
+        int removed = 0;
+
+        for(Segment<K,V> segment : segments) {
+
+            long stamp = segment.writeLock();
+            try {
+                removed += segment.map.expire(slots);
+            } finally {
+                segment.unlockWrite(stamp);
+            }
+        }
+
+        return removed;
+    }
+
+    /**
+     * 各Segment逐个加写锁生成统计快照并汇总，不是整个容器的同一时刻快照
+     * @return 统计快照
+     */
+    public LightMapStats stats() {
+
+        LightMapStats stats = null;
+
+        for(Segment<K,V> segment : segments) {
+
+            // 渐进式rehash中stats()会完成迁移，需要写锁
+            long stamp = segment.writeLock();
+            try {
+                stats = LightMapStats.merge(stats, segment.map.stats());
+            } finally {
+                segment.unlockWrite(stamp);
+            }
+        }
+
+        return stats;
+    }
+
+    /**
+     * 批量放入，各Segment先按平均分到的元素数一次性扩容
+     * @param m 放入的元素
+     */
+    @Override
+    public void putAll(Map<? extends K, ? extends V> m) {
+
+        int expected = m.size() / segments.length + 1;
+
+        for(Segment<K,V> segment : segments) {
+
+            long stamp = segment.writeLock();
+            try {
+                segment.map.ensureCapacity((int) Math.min((long) segment.map.size() + expected, Integer.MAX_VALUE));
+            } finally {
+                segment.unlockWrite(stamp);
+            }
+        }
+
+        for(Entry<? extends K, ? extends V> entry : m.entrySet()) {
+            put(entry.getKey(), entry.getValue());
+        }
+    }
+
+    /**
+     * 各Segment逐个加读锁遍历，不复制元素，遍历结果不是整个容器的同一时刻快照
+     * @param action 对每个key/value执行的操作，执行期间持有Segment的读锁，不能修改本容器
+     */
+    @Override
+    public void forEach(BiConsumer<? super K, ? super V> action) {
+
+        Objects.requireNonNull(action);
+
+        for(Segment<K,V> segment : segments) {
+
+            long stamp = segment.readLock();
+            try {
+                segment.map.forEach(action);
+            } finally {
+                segment.unlockRead(stamp);
+            }
+        }
+    }
+
+    /**
+     * 所在Segment加写锁，value相同时删除，检查和删除之间不会被其他线程修改
+     */
+    @Override
+    public boolean remove(Object key, Object value) {
+
+        if(!(key instanceof CharSequence) || value == null) {
+            return false;
+        }
+
+        Segment<K,V> segment = segmentFor((CharSequence) key);
+
+        long stamp = segment.writeLock();
+        try {
+            return segment.map.remove(key, value);
+        } finally {
+            segment.unlockWrite(stamp);
+        }
+    }
+
+    /**
+     * key的视图，读写直接作用于本容器，遍历方式见{@link SegmentIterator}
+     */
+    @Override
+    public Set<K> keySet() {
+
+        return new AbstractSet<K>() {
+
+            @Override
+            public Iterator<K> iterator() {
+
+                return new SegmentIterator<K>() {
+                    @Override
+                    K map(Entry<K, V> entry) {
+                        return entry.getKey();
+                    }
+                };
+            }
+
+            @Override
+            public int size() {
+
+                return ConcurrentLightMap.this.size();
+            }
+
+            @Override
+            public boolean contains(Object o) {
+
+                return containsKey(o);
+            }
+
+            @Override
+            public boolean remove(Object o) {
+
+                return ConcurrentLightMap.this.remove(o) != null;
+            }
+
+            @Override
+            public void clear() {
+
+                ConcurrentLightMap.this.clear();
+            }
+        };
+    }
+
+    /**
+     * value的视图，读写直接作用于本容器，遍历方式见{@link SegmentIterator}
+     */
+    @Override
+    public Collection<V> values() {
+
+        return new AbstractCollection<V>() {
+
+            @Override
+            public Iterator<V> iterator() {
+
+                return new SegmentIterator<V>() {
+                    @Override
+                    V map(Entry<K, V> entry) {
+                        return entry.getValue();
+                    }
+                };
+            }
+
+            @Override
+            public int size() {
+
+                return ConcurrentLightMap.this.size();
+            }
+
+            @Override
+            public boolean contains(Object o) {
+
+                return containsValue(o);
+            }
+
+            @Override
+            public void clear() {
+
+                ConcurrentLightMap.this.clear();
+            }
+        };
+    }
+
+    /**
+     * 元素的视图，读写直接作用于本容器，Entry.setValue写回本容器，遍历方式见{@link SegmentIterator}
+     */
+    @Override
+    public Set<Entry<K, V>> entrySet() {
+
+        return new AbstractSet<Entry<K, V>>() {
+
+            @Override
+            public Iterator<Entry<K, V>> iterator() {
+
+                return new SegmentIterator<Entry<K, V>>() {
+                    @Override
+                    Entry<K, V> map(Entry<K, V> entry) {
+                        return entry;
+                    }
+                };
+            }
+
+            @Override
+            public int size() {
+
+                return ConcurrentLightMap.this.size();
+            }
+
+            @Override
+            public boolean contains(Object o) {
+
+                if(!(o instanceof Entry)) {
+                    return false;
+                }
+
+                Entry<?, ?> entry = (Entry<?, ?>) o;
+                V value = get(entry.getKey());
+
+                return value != null && value.equals(entry.getValue());
+            }
+
+            @Override
+            public boolean remove(Object o) {
+
+                if(!(o instanceof Entry)) {
+                    return false;
+                }
+
+                Entry<?, ?> entry = (Entry<?, ?>) o;
+
+                return ConcurrentLightMap.this.remove(entry.getKey(), entry.getValue());
+            }
+
+            @Override
+            public void clear() {
+
+                ConcurrentLightMap.this.clear();
+            }
+        };
+    }
+
+    /**
+     * 视图的迭代器，按Segment顺序遍历：进入一个Segment时加写锁创建快照（只复制存储结构中块的引用，见{@link LightMap#snapshot()}），
+     * 之后在快照上用游标遍历，不持有锁，也不为每个元素创建Entry、key和value，key/value在调用getKey/getValue时才解码
+     * 遍历期间其他线程的修改不会抛出ConcurrentModificationException，每个Segment按进入时的内容遍历，尚未遍历到的Segment中的修改可以被看到
+     * remove删除当前key，与其他线程的写操作相同，只锁定所在Segment
+     */
+    private abstract class SegmentIterator<T> implements Iterator<T> {
+
+        // 下一个进入的Segment
+        private int segmentIndex;
+
+        // 当前Segment快照的迭代器，快照使用堆内存储，不需要close
+        private Iterator<Entry<K, V>> entries = Collections.emptyIterator();
+
+        private final SegmentEntry entry = new SegmentEntry();
+
+        private boolean removable;
+
+        /**
+         * @return 迭代器返回的元素
+         */
+        abstract T map(Entry<K, V> entry);
+
+        @Override
+        public boolean hasNext() {
+
+            while(!entries.hasNext() && segmentIndex < segments.length) {
+
+                Segment<K,V> segment = segments[segmentIndex++];
+                LightMap<K,V> snapshot;
+
+                // 创建快照会完成渐进式rehash并标记共享的块，需要写锁
+                long stamp = segment.writeLock();
+                try {
+                    snapshot = segment.map.snapshot();
+                } finally {
+                    segment.unlockWrite(stamp);
+                }
+
+                entries = snapshot.entrySet().iterator();
+            }
+
+            return entries.hasNext();
+        }
+
+        @Override
+        public T next() {
+
+            if(!hasNext()) {
+                throw new NoSuchElementException();
+            }
+
+            // 快照迭代器返回的Entry同样是复用的，切换Segment后仍指向上一个快照中的元素，remove时可以读取key
+            entry.current = entries.next();
+            removable = true;
+
+            return map(entry);
+        }
+
+        @Override
+        public void remove() {
+
+            if(!removable) {
+                throw new IllegalStateException();
+            }
+
+            ConcurrentLightMap.this.remove(entry.getKey());
+            removable = false;
+        }
+    }
+
+    /**
+     * 迭代器返回的Entry，同一个迭代器复用同一个对象（flyweight），只在下一次next()之前有效，需要保存时请复制key和value
+     * 读取快照中的当前元素，setValue写入本容器
+     */
+    private final class SegmentEntry implements Entry<K, V> {
+
+        // 快照迭代器的当前元素
+        private Entry<K, V> current;
+
+        @Override
+        public K getKey() {
+            return current.getKey();
+        }
+
+        @Override
+        public V getValue() {
+            return current.getValue();
+        }
+
+        @Override
+        public V setValue(V value) {
+
+            V oldValue = current.getValue();
+            put(current.getKey(), value);
+
+            return oldValue;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+
+            if(!(o instanceof Entry)) {
+                return false;
+            }
+
+            Entry<?, ?> entry = (Entry<?, ?>) o;
+
+            return getKey().equals(entry.getKey()) && getValue().equals(entry.getValue());
+        }
+
+        @Override
+        public int hashCode() {
+            return getKey().hashCode() ^ getValue().hashCode();
+        }
+
+        @Override
+        public String toString() {
+            return getKey() + "=" + getValue();
+        }
+    }
+
+    /**
+     * Segment，继承StampedLock减少一层对象引用
+     */
+    static final class Segment<K,V> extends StampedLock {
+
+        private static final long serialVersionUID = 1L;
+
+        final transient LightMap<K,V> map;
+
+        Segment(LightMap<K,V> map) {
+            this.map = map;
+        }
+    }
+}
@@ -0,0 +1,493 @@
+package com.songge.demo;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.Set;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.function.BiConsumer;
+
+/**
+ * <p>
+ *   只读的LightMap，由{@link LightMap#freeze()}创建，使用最小完美hash（CHD：hash and displace）定位节点
+ *   n个元素恰好占用n个节点，没有空节点和探测，每次查找只访问一个节点，key不存在时由节点中的key比较排除
+ *   key按两个种子计算64位指纹，先按高位分桶，每个桶保存一个位移值d，节点位置 = mix(指纹 + d) % n
+ *   构建时按桶从大到小依次寻找使桶内key全部落在空节点上的d，平均每个key约占用1字节位移表
+ *   节点格式与LightMap的FIXED布局相同，snapshot写出的文件可以被其他进程通过open内存映射共享
+ * <p/>
+ */
+public final class FrozenLightMap<K,V> extends AbstractMap<K,V> implements Closeable {
+
+    // 每个桶平均的key数，越大位移表越小，构建越慢
+    private static final int BUCKET_SIZE = 4;
+
+    // 指纹重复等原因构建失败时更换种子重试的次数
+    private static final int MAX_ATTEMPTS = 8;
+
+    private final int keyLength;
+
+    private final int valueLength;
+
+    private final int nodeLength;
+
+    // value数据类型标识（1：String 2：Integer 3：Long）
+    private final int type;
+
+    private final int count;
+
+    private final int buckets;
+
+    private final LightHasher hasher;
+
+    private final long seed;
+
+    // 节点存储结构，count个节点连续存放
+    private NodeStorage nodes;
+
+    // 每个桶的位移值
+    private NodeStorage displacements;
+
+    private FrozenLightMap(int keyLength, int valueLength, int type, int count, int buckets, LightHasher hasher, long seed,
+                           NodeStorage nodes, NodeStorage displacements) {
+
+        this.keyLength = keyLength;
+        this.valueLength = valueLength;
+        this.nodeLength = LightLayout.FIXED.nodeLength(keyLength, valueLength);
+        this.type = type;
+        this.count = count;
+        this.buckets = buckets;
+        this.hasher = hasher;
+        this.seed = seed;
+        this.nodes = nodes;
+        this.displacements = displacements;
+    }
+
+    /**
+     * 由容器当前的内容构建只读容器，使用与原容器相同的存储方式和hash算法
+     * @param map 原容器
+     * @param type value数据类型标识
+     * @return 只读容器
+     */
+    static <K,V> FrozenLightMap<K,V> build(AbstractLightMap map, int type) {
+
+        if(map.keyLength > LightLayout.FIXED.maxLength() || map.valueLength > LightLayout.FIXED.maxLength()) {
+            throw new IllegalStateException("keyLength/valueLength超过" + LightLayout.FIXED.maxLength() + "的容器不能freeze");
+        }
+
+        // 原容器中的节点位置，只读取不修改原容器：渐进式rehash中同时读取新旧容器，冻结后不再过期，已过期的元素直接跳过
+        long[] sources = map.liveNodes();
+        int n = sources.length;
+
+        int buckets = Math.max(1, (n + BUCKET_SIZE - 1) / BUCKET_SIZE);
+        LightHasher hasher = map.hasher();
+        byte[] buffer = new byte[map.keyLength + map.valueLength];
+
+        int[] hashA = new int[n];
+        int[] hashB = new int[n];
+        int[] slots = new int[n];
+
+        long seed = map.seed;
+
+        for(int attempt = 1;; attempt++) {
+
+            long secondSeed = secondSeed(seed);
+
+            for(int i = 0; i < n; i++) {
+
+                int keyLen = map.readKey(map.tableOf(sources[i]), AbstractLightMap.offsetOf(sources[i]), buffer, 0);
+                hashA[i] = hasher.hash(buffer, 0, keyLen, seed);
+                hashB[i] = hasher.hash(buffer, 0, keyLen, secondSeed);
+            }
+
+            int[] displacement = place(hashA, hashB, n, buckets, slots);
+
+            if(displacement != null) {
+
+                NodeStorage nodes = map.storage.allocate((long) n * LightLayout.FIXED.nodeLength(map.keyLength, map.valueLength));
+                NodeStorage displacements = map.storage.allocate((long) buckets * 4);
+
+                for(int i = 0; i < buckets; i++) {
+                    displacements.putInt((long) i * 4, displacement[i]);
+                }
+
+                FrozenLightMap<K,V> frozen = new FrozenLightMap<>(map.keyLength, map.valueLength, type, n, buckets, hasher, seed, nodes, displacements);
+
+                for(int i = 0; i < n; i++) {
+
+                    long node = (long) slots[i] * frozen.nodeLength;
+
+                    NodeStorage table = map.tableOf(sources[i]);
+                    long source = AbstractLightMap.offsetOf(sources[i]);
+
+                    int keyLen = map.readKey(table, source, buffer, 0);
+                    int valueLen = map.readValue(table, source, buffer, map.keyLength);
+
+                    nodes.put(node, (byte) keyLen);
+                    nodes.putBytes(node + 1, buffer, 0, keyLen);
+                    nodes.put(node + map.keyLength + 1, (byte) valueLen);
+                    nodes.putBytes(node + map.keyLength + 2, buffer, map.keyLength, valueLen);
+                    nodes.putInt(node + frozen.nodeLength - 4, hashA[i]);
+                }
+
+                return frozen;
+            }
+
+            if(attempt >= MAX_ATTEMPTS) {
+                throw new IllegalStateException("完美hash构建失败，容器中可能存在指纹相同的key");
+            }
+
+            seed = ThreadLocalRandom.current().nextLong();
+        }
+    }
+
+    /**
+     * 为每个桶寻找位移值，使全部key落在互不相同的节点上
+     * @param hashA 第一个指纹，高位决定桶
+     * @param hashB 第二个指纹
+     * @param n key个数，同时也是节点数
+     * @param buckets 桶数
+     * @param slots 每个key的节点位置
+     * @return 每个桶的位移值，失败时返回null
+     */
+    private static int[] place(int[] hashA, int[] hashB, int n, int buckets, int[] slots) {
+
+        // 按桶分组，members[start[b], start[b + 1])为桶b中的key
+        int[] start = new int[buckets + 1];
+        for(int i = 0; i < n; i++) {
+            start[bucketOf(hashA[i], buckets) + 1]++;
+        }
+
+        int maxBucket = 0;
+        for(int b = 0; b < buckets; b++) {
+            maxBucket = Math.max(maxBucket, start[b + 1]);
+            start[b + 1] += start[b];
+        }
+
+        int[] members = new int[n];
+        int[] fill = new int[buckets];
+        for(int i = 0; i < n; i++) {
+            int b = bucketOf(hashA[i], buckets);
+            members[start[b] + fill[b]++] = i;
+        }
+
+        // 桶按大小降序排列，大桶在节点空闲较多时先放置
+        int[] sizeStart = new int[maxBucket + 2];
+        for(int b = 0; b < buckets; b++) {
+            sizeStart[maxBucket - (start[b + 1] - start[b]) + 1]++;
+        }
+        for(int i = 0; i <= maxBucket; i++) {
+            sizeStart[i + 1] += sizeStart[i];
+        }
+
+        int[] order = new int[buckets];
+        for(int b = 0; b < buckets; b++) {
+            order[sizeStart[maxBucket - (start[b + 1] - start[b])]++] = b;
+        }
+
+        long[] taken = new long[(n + 63) >>> 6];
+        int[] displacement = new int[buckets];
+        int[] candidate = new int[maxBucket];
+
+        // 最后几个单key桶的空节点很少，尝试次数与n成正比
+        long maxDisplacement = Math.min((long) n * 32 + 1024, Integer.MAX_VALUE);
+
+        for(int b : order) {
+
+            int from = start[b];
+            int size = start[b + 1] - from;
+
+            if(size == 0) {
+                break;
+            }
+
+            search:
+            for(int d = 0;; d++) {
+
+                if(d >= maxDisplacement) {
+                    return null;
+                }
+
+                for(int k = 0; k < size; k++) {
+
+                    int member = members[from + k];
+                    int slot = slotOf(hashA[member], hashB[member], d, n);
+
+                    if((taken[slot >>> 6] & 1L << slot) != 0) {
+                        continue search;
+                    }
+
+                    for(int j = 0; j < k; j++) {
+                        if(candidate[j] == slot) {
+                            continue search;
+                        }
+                    }
+
+                    candidate[k] = slot;
+                }
+
+                for(int k = 0; k < size; k++) {
+                    taken[candidate[k] >>> 6] |= 1L << candidate[k];
+                    slots[members[from + k]] = candidate[k];
+                }
+
+                displacement[b] = d;
+                break;
+            }
+        }
+
+        return displacement;
+    }
+
+    /**
+     * @return 第一个指纹所在的桶
+     */
+    private static int bucketOf(int hashA, int buckets) {
+
+        return (int) (((hashA & 0xffffffffL) * buckets) >>> 32);
+    }
+
+    /**
+     * 指纹加位移后混合（murmur3 fmix64），高32位按n缩放为节点位置
+     */
+    private static int slotOf(int hashA, int hashB, int displacement, int n) {
+
+        long x = ((long) hashA << 32 | (hashB & 0xffffffffL)) + displacement * 0x9E3779B97F4A7C15L;
+
+        x = (x ^ x >>> 33) * 0xff51afd7ed558ccdL;
+        x = (x ^ x >>> 33) * 0xc4ceb9fe1a85ec53L;
+        x ^= x >>> 33;
+
+        return (int) (((x >>> 32) * n) >>> 32);
+    }
+
+    /**
+     * @return 计算第二个指纹使用的种子
+     */
+    private static long secondSeed(long seed) {
+
+        return Long.rotateLeft(seed, 32) ^ 0x9E3779B97F4A7C15L;
+    }
+
+    /**
+     * 内存映射打开snapshot写出的FrozenLightMap文件，多个进程可以同时映射同一个文件
+     * @param path 文件路径
+     * @return 只读容器，使用完毕后需要调用close解除映射
+     */
+    public static <K,V> FrozenLightMap<K,V> open(Path path) throws IOException {
+
+        LightMapFile file = LightMapFile.open(path, true);
+
+        return new FrozenLightMap<>(file.keyLength, file.valueLength, file.type, file.count, file.buckets, file.hasher, file.seed,
+                file.nodes, file.displacements);
+    }
+
+    /**
+     * 将容器按LightMap文件格式写入指定文件，之后可以通过open(Path)内存映射打开
+     * @param path 文件路径
+     */
+    public void snapshot(Path path) throws IOException {
+
+        LightMapFile file = new LightMapFile();
+        file.keyLength = keyLength;
+        file.valueLength = valueLength;
+        file.maxSize = count;
+        file.count = count;
+        file.type = type;
+        file.seed = seed;
+        file.capacity = 1.0;
+        file.hasher = hasher;
+        file.buckets = buckets;
+        file.nodes = nodes;
+        file.displacements = displacements;
+
+        LightMapFile.write(path, file);
+    }
+
+    /**
+     * 查找key所在的节点，只访问一个节点
+     * @param key key
+     * @return 节点位置，不存在时返回-1
+     */
+    private long nodeOf(Object key) {
+
+        if(!(key instanceof CharSequence)) {
+            return -1;
+        }
+
+        byte[] scratch = AbstractLightMap.scratch(keyLength + valueLength);
+
+        int keyLen = AbstractLightMap.encode((CharSequence) key, scratch, 0, keyLength);
+
+        if(keyLen < 0) {
+            return -1;
+        }
+
+        return nodeOf(scratch, 0, keyLen);
+    }
+
+    /**
+     * 查找UTF-8编码的key所在的节点，只访问一个节点
+     * @param key key所在数组
+     * @param keyOffset key在数组中的起始位置
+     * @param keyLen key长度
+     * @return 节点位置，不存在时返回-1
+     */
+    private long nodeOf(byte[] key, int keyOffset, int keyLen) {
+
+        if(keyLen > keyLength || count == 0) {
+            return -1;
+        }
+
+        int hashA = hasher.hash(key, keyOffset, keyLen, seed);
+        int hashB = hasher.hash(key, keyOffset, keyLen, secondSeed(seed));
+        int displacement = displacements.getInt((long) bucketOf(hashA, buckets) * 4);
+
+        long node = (long) slotOf(hashA, hashB, displacement, count) * nodeLength;
+
+        if(nodes.getInt(node + nodeLength - 4) == hashA && (nodes.get(node) & 0xff) == keyLen && nodes.matches(node + 1, key, keyOffset, keyLen)) {
+            return node;
+        }
+
+        return -1;
+    }
+
+    @Override
+    public V get(Object key) {
+
+        long node = nodeOf(key);
+
+        return node < 0 ? null : readValue(node);
+    }
+
+    /**
+     * 取得元素，key为UTF-8编码的字节
+     * @param key key所在数组
+     * @param offset key在数组中的起始位置
+     * @param length key长度
+     * @return value，不存在时返回null
+     */
+    public V get(byte[] key, int offset, int length) {
+
+        long node = nodeOf(key, offset, length);
+
+        return node < 0 ? null : readValue(node);
+    }
+
+    @Override
+    public boolean containsKey(Object key) {
+
+        return nodeOf(key) >= 0;
+    }
+
+    @Override
+    public int size() {
+
+        return count;
+    }
+
+    @Override
+    public void forEach(BiConsumer<? super K, ? super V> action) {
+
+        for(int i = 0; i < count; i++) {
+
+            long node = (long) i * nodeLength;
+            action.accept(readKey(node), readValue(node));
+        }
+    }
+
+    /**
+     * 按节点顺序遍历的只读视图，每个元素创建一个不可修改的Entry
+     */
+    @Override
+    public Set<Entry<K, V>> entrySet() {
+
+        return new AbstractSet<Entry<K, V>>() {
+
+            @Override
+            public Iterator<Entry<K, V>> iterator() {
+
+                return new Iterator<Entry<K, V>>() {
+
+                    private int index;
+
+                    @Override
+                    public boolean hasNext() {
+                        return index < count;
+                    }
+
+                    @Override
+                    public Entry<K, V> next() {
+
+                        if(index >= count) {
+                            throw new NoSuchElementException();
+                        }
+
+                        long node = (long) index++ * nodeLength;
+
+                        return new SimpleImmutableEntry<>(readKey(node), readValue(node));
+                    }
+                };
+            }
+
+            @Override
+            public int size() {
+                return count;
+            }
+        };
+    }
+
+    @SuppressWarnings("unchecked")
+    private K readKey(long node) {
+
+        byte[] scratch = AbstractLightMap.scratch(keyLength + valueLength);
+        int keyLen = nodes.get(node) & 0xff;
+        nodes.getBytes(node + 1, scratch, 0, keyLen);
+
+        return (K) new String(scratch, 0, keyLen, StandardCharsets.UTF_8);
+    }
+
+    @SuppressWarnings("unchecked")
+    private V readValue(long node) {
+
+        long valueOffset = node + keyLength + 2;
+
+        if(type == 1) {
+
+            // value类型为String时
+            byte[] scratch = AbstractLightMap.scratch(keyLength + valueLength);
+            int valueLen = nodes.get(node + keyLength + 1) & 0xff;
+            nodes.getBytes(valueOffset, scratch, keyLength, valueLen);
+
+            return (V) new String(scratch, keyLength, valueLen, StandardCharsets.UTF_8);
+        } else if(type == 2) {
+
+            // value类型为Integer时
+            return (V) Integer.valueOf(nodes.getInt(valueOffset));
+        } else if(type == 3) {
+
+            // value类型为Long时
+            return (V) Long.valueOf(nodes.getLong(valueOffset));
+        }
+
+        return null;
+    }
+
+    /**
+     * 释放存储结构，堆外存储或内存映射时立即归还内存，关闭后容器不能再使用
+     */
+    @Override
+    public void close() {
+
+        if(nodes != null) {
+            nodes.close();
+            displacements.close();
+            nodes = null;
+            displacements = null;
+        }
+    }
+}
@@ -0,0 +1,260 @@
+package com.songge.demo;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.WritableByteChannel;
+import java.util.Arrays;
+
+/**
+ * <p>
+ *   堆内存储结构，节点按固定大小分块存放在byte数组中，按long偏移量寻址，总大小不受单个数组2GB的限制
+ *   小于一块时只有一个按实际大小分配的数组；扩容时分配多个64KB的数组，不需要一整块连续的大数组，也不会成为G1的大对象
+ *   跨块的多字节数据逐字节读写，块内读写直接访问数组
+ *   块同时是快照的写时复制单位：share()之后两边共享全部块，任意一边第一次写入某块时先复制该块
+ * <p/>
+ */
+final class HeapNodeStorage extends NodeStorage {
+
+    // 每块64KB
+    static final int CHUNK_SHIFT = 16;
+
+    private static final int CHUNK_MASK = (1 << CHUNK_SHIFT) - 1;
+
+    private final byte[][] chunks;
+
+    private final long size;
+
+    // 与快照共享的块，写入前先复制，null表示从未共享
+    private boolean[] shared;
+
+    HeapNodeStorage(long size) {
+
+        long chunkCount = (size + CHUNK_MASK) >>> CHUNK_SHIFT;
+
+        if(chunkCount > Integer.MAX_VALUE - 8) {
+            throw new IllegalStateException("堆内存储结构过大：" + size);
+        }
+
+        this.size = size;
+        this.chunks = new byte[(int) Math.max(chunkCount, 1)][];
+
+        for(int i = 0; i < chunks.length; i++) {
+            chunks[i] = new byte[(int) Math.min(size - ((long) i << CHUNK_SHIFT), 1 << CHUNK_SHIFT)];
+        }
+    }
+
+    /**
+     * 共享全部块的存储结构，见{@link #share()}
+     */
+    private HeapNodeStorage(byte[][] chunks, long size) {
+
+        this.chunks = chunks;
+        this.size = size;
+        this.shared = new boolean[chunks.length];
+
+        Arrays.fill(shared, true);
+    }
+
+    /**
+     * 只复制块的引用，之后两边写入时各自复制被写入的块
+     */
+    @Override
+    NodeStorage share() {
+
+        if(shared == null) {
+            shared = new boolean[chunks.length];
+        }
+
+        Arrays.fill(shared, true);
+
+        return new HeapNodeStorage(chunks.clone(), size);
+    }
+
+    /**
+     * @return offset所在的块，与快照共享时先复制
+     */
+    private byte[] writable(long offset) {
+
+        int index = (int) (offset >>> CHUNK_SHIFT);
+
+        if(shared != null && shared[index]) {
+            chunks[index] = chunks[index].clone();
+            shared[index] = false;
+        }
+
+        return chunks[index];
+    }
+
+    @Override
+    long size() {
+        return size;
+    }
+
+    @Override
+    byte get(long offset) {
+        return chunks[(int) (offset >>> CHUNK_SHIFT)][(int) offset & CHUNK_MASK];
+    }
+
+    @Override
+    void put(long offset, byte value) {
+        writable(offset)[(int) offset & CHUNK_MASK] = value;
+    }
+
+    @Override
+    int getInt(long offset) {
+
+        byte[] chunk = chunks[(int) (offset >>> CHUNK_SHIFT)];
+        int pos = (int) offset & CHUNK_MASK;
+
+        if(pos + 4 <= chunk.length) {
+            return AbstractLightMap.readInt(chunk, pos);
+        }
+
+        return (get(offset) & 0xff) |
+                ((get(offset + 1) & 0xff) << 8) |
+                ((get(offset + 2) & 0xff) << 16) |
+                ((get(offset + 3) & 0xff) << 24);
+    }
+
+    @Override
+    void putInt(long offset, int value) {
+
+        byte[] chunk = writable(offset);
+        int pos = (int) offset & CHUNK_MASK;
+
+        if(pos + 4 <= chunk.length) {
+            AbstractLightMap.writeInt(chunk, pos, value);
+            return;
+        }
+
+        put(offset, (byte) value);
+        put(offset + 1, (byte) (value >> 8));
+        put(offset + 2, (byte) (value >> 16));
+        put(offset + 3, (byte) (value >> 24));
+    }
+
+    @Override
+    long getLong(long offset) {
+
+        byte[] chunk = chunks[(int) (offset >>> CHUNK_SHIFT)];
+        int pos = (int) offset & CHUNK_MASK;
+
+        if(pos + 8 <= chunk.length) {
+            return AbstractLightMap.readLong(chunk, pos);
+        }
+
+        return (getInt(offset) & 0xffffffffL) | ((long) getInt(offset + 4) << 32);
+    }
+
+    @Override
+    void putLong(long offset, long value) {
+
+        byte[] chunk = writable(offset);
+        int pos = (int) offset & CHUNK_MASK;
+
+        if(pos + 8 <= chunk.length) {
+            AbstractLightMap.writeLong(chunk, pos, value);
+            return;
+        }
+
+        putInt(offset, (int) value);
+        putInt(offset + 4, (int) (value >> 32));
+    }
+
+    @Override
+    void getBytes(long offset, byte[] dst, int dstOffset, int length) {
+
+        byte[] chunk = chunks[(int) (offset >>> CHUNK_SHIFT)];
+        int pos = (int) offset & CHUNK_MASK;
+
+        if(pos + length <= chunk.length) {
+            System.arraycopy(chunk, pos, dst, dstOffset, length);
+            return;
+        }
+
+        for(int i = 0; i < length; i++) {
+            dst[dstOffset + i] = get(offset + i);
+        }
+    }
+
+    @Override
+    void putBytes(long offset, byte[] src, int srcOffset, int length) {
+
+        byte[] chunk = writable(offset);
+        int pos = (int) offset & CHUNK_MASK;
+
+        if(pos + length <= chunk.length) {
+            System.arraycopy(src, srcOffset, chunk, pos, length);
+            return;
+        }
+
+        for(int i = 0; i < length; i++) {
+            put(offset + i, src[srcOffset + i]);
+        }
+    }
+
+    @Override
+    void copy(long srcOffset, long dstOffset, int length) {
+
+        // 先取得可写的目标块，源区间与目标区间在同一块时读取复制后的块
+        byte[] dst = writable(dstOffset);
+        byte[] src = chunks[(int) (srcOffset >>> CHUNK_SHIFT)];
+        int srcPos = (int) srcOffset & CHUNK_MASK;
+        int dstPos = (int) dstOffset & CHUNK_MASK;
+
+        if(srcPos + length <= src.length && dstPos + length <= dst.length) {
+            System.arraycopy(src, srcPos, dst, dstPos, length);
+            return;
+        }
+
+        // 目标区间在源区间之后时从尾部开始拷贝，避免覆盖尚未拷贝的数据
+        if(dstOffset > srcOffset) {
+            for(int i = length - 1; i >= 0; i--) {
+                put(dstOffset + i, get(srcOffset + i));
+            }
+        } else {
+            for(int i = 0; i < length; i++) {
+                put(dstOffset + i, get(srcOffset + i));
+            }
+        }
+    }
+
+    @Override
+    boolean matches(long offset, byte[] src, int srcOffset, int length) {
+
+        byte[] chunk = chunks[(int) (offset >>> CHUNK_SHIFT)];
+        int pos = (int) offset & CHUNK_MASK;
+
+        if(pos + length <= chunk.length) {
+
+            for(int i = 0; i < length; i++) {
+                if(chunk[pos + i] != src[srcOffset + i]) {
+                    return false;
+                }
+            }
+
+            return true;
+        }
+
+        for(int i = 0; i < length; i++) {
+            if(get(offset + i) != src[srcOffset + i]) {
+                return false;
+            }
+        }
+
+        return true;
+    }
+
+    @Override
+    void writeTo(WritableByteChannel channel) throws IOException {
+
+        for(byte[] chunk : chunks) {
+
+            ByteBuffer buffer = ByteBuffer.wrap(chunk);
+
+            while(buffer.hasRemaining()) {
+                channel.write(buffer);
+            }
+        }
+    }
+}
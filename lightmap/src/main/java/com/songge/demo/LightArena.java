@@ -0,0 +1,164 @@
+package com.songge.demo;
+
+import java.io.Closeable;
+import java.util.Arrays;
+
+/**
+ * <p>
+ *   ARENA布局中存放key/value记录的追加式存储，按chunk分配，chunk大小从4KB开始翻倍，最大16MB
+ *   记录地址 = chunk序号 << 32 | chunk内偏移，记录不跨chunk
+ *   覆盖和删除只记录失效的字节数，空间由AbstractLightMap重建arena时回收
+ * <p/>
+ */
+final class LightArena implements Closeable {
+
+    static final int MIN_CHUNK = 1 << 12;
+
+    private static final int MAX_CHUNK = 1 << 24;
+
+    private final LightStorage storage;
+
+    private NodeStorage[] chunks = new NodeStorage[4];
+
+    private int chunkCount;
+
+    // 最后一个chunk已使用的字节数
+    private int position;
+
+    // 已分配的字节数（包括chunk尾部放不下记录而跳过的部分）
+    private long allocated;
+
+    // 仍被节点引用的字节数
+    private long live;
+
+    LightArena(LightStorage storage) {
+
+        this.storage = storage;
+    }
+
+    /**
+     * 创建记录内容相同的arena供只读快照使用，每个chunk通过NodeStorage.share()共享
+     * @return arena
+     */
+    LightArena share() {
+
+        LightArena copy = new LightArena(storage);
+
+        copy.chunks = new NodeStorage[Math.max(chunkCount, 4)];
+        for(int i = 0; i < chunkCount; i++) {
+            copy.chunks[i] = chunks[i].share();
+        }
+
+        copy.chunkCount = chunkCount;
+        copy.position = position;
+        copy.allocated = allocated;
+        copy.live = live;
+
+        return copy;
+    }
+
+    /**
+     * 分配指定长度的记录
+     * @param length 记录长度
+     * @return 记录地址
+     */
+    long allocate(int length) {
+
+        NodeStorage chunk = chunkCount == 0 ? null : chunks[chunkCount - 1];
+
+        if(chunk == null || position + length > chunk.size()) {
+
+            long size = chunk == null ? MIN_CHUNK : Math.min(chunk.size() * 2, MAX_CHUNK);
+            while(size < length) {
+                size = size * 2;
+            }
+
+            // 当前chunk尾部剩余的空间不再使用
+            if(chunk != null) {
+                allocated += chunk.size() - position;
+            }
+
+            if(chunkCount == chunks.length) {
+                chunks = Arrays.copyOf(chunks, chunkCount * 2);
+            }
+
+            chunks[chunkCount++] = storage.allocate(size);
+            position = 0;
+        }
+
+        long address = (long) (chunkCount - 1) << 32 | position;
+
+        position += length;
+        allocated += length;
+        live += length;
+
+        return address;
+    }
+
+    /**
+     * 标记指定字节数的记录内容不再被引用
+     */
+    void release(int length) {
+
+        live -= length;
+    }
+
+    /**
+     * @param address 记录地址
+     * @return 记录所在的chunk
+     */
+    NodeStorage chunk(long address) {
+
+        return chunks[(int) (address >>> 32)];
+    }
+
+    /**
+     * @param address 记录地址
+     * @return 记录在chunk中的偏移
+     */
+    static long offset(long address) {
+
+        return address & 0xffffffffL;
+    }
+
+    /**
+     * @return 仍被引用的字节数
+     */
+    long live() {
+
+        return live;
+    }
+
+    /**
+     * @return 不再被引用的字节数
+     */
+    long garbage() {
+
+        return allocated - live;
+    }
+
+    /**
+     * @return 全部chunk占用的字节数
+     */
+    long capacity() {
+
+        long capacity = 0;
+
+        for(int i = 0; i < chunkCount; i++) {
+            capacity += chunks[i].size();
+        }
+
+        return capacity;
+    }
+
+    @Override
+    public void close() {
+
+        for(int i = 0; i < chunkCount; i++) {
+            chunks[i].close();
+            chunks[i] = null;
+        }
+
+        chunkCount = 0;
+    }
+}
@@ -0,0 +1,168 @@
+package com.songge.demo;
+
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * <p>
+ *   缓存模式的CLOCK淘汰状态：每个节点一个访问位，保存在独立的位图中
+ *   节点前移/后移时访问位随节点移动，指针跨过移动的区间时也随之调整，仍指向原来的节点；查找命中时置位，淘汰时指针环形扫描，清除已置位的节点，淘汰第一个未置位的节点
+ *   新放入的节点访问位为0，只被访问一次的key在下一轮扫描中即被淘汰，不会挤掉常用的key
+ * <p/>
+ */
+final class LightClock {
+
+    // 最多保存的元素个数
+    final int limit;
+
+    // 访问位，容器大小变化时重新分配
+    private long[] referenced;
+
+    // 淘汰指针（节点位置）
+    private int hand;
+
+    // 命中和未命中可能被ConcurrentLightMap的多个读线程同时累加
+    final LongAdder hits = new LongAdder();
+
+    final LongAdder misses = new LongAdder();
+
+    long evictions;
+
+    /**
+     * @param tableSize 容器maxSize
+     * @param limit 最多保存的元素个数
+     */
+    LightClock(int tableSize, int limit) {
+
+        this.limit = limit;
+        this.referenced = new long[(tableSize + 63) >>> 6];
+    }
+
+    /**
+     * 容器重新放置节点后访问位全部清零
+     * @param tableSize 新的容器maxSize
+     */
+    void reset(int tableSize) {
+
+        referenced = new long[(tableSize + 63) >>> 6];
+        hand = 0;
+    }
+
+    /**
+     * 记录一次查找
+     * ConcurrentLightMap中调用方持有Segment的读锁，写线程（淘汰、节点移动）不会同时修改位图
+     * 多个读线程置位同一个long时的读-改-写不是原子操作，可能丢失其他读线程刚置位的访问位，
+     * 结果只是该节点在下一轮扫描中被视为未访问而提前淘汰，不影响容器内容，因此不使用CAS
+     * @param index 命中的节点位置，未命中时为-1
+     */
+    void access(int index) {
+
+        if(index < 0) {
+            misses.increment();
+            return;
+        }
+
+        hits.increment();
+
+        long[] referenced = this.referenced;
+        long mask = 1L << index;
+
+        // 已置位时不再写入，热点key不会反复写同一个缓存行
+        if((referenced[index >>> 6] & mask) == 0) {
+            referenced[index >>> 6] |= mask;
+        }
+    }
+
+    /**
+     * 节点从from移动到to，访问位随之移动
+     */
+    void move(int from, int to) {
+
+        long[] referenced = this.referenced;
+
+        if((referenced[from >>> 6] & 1L << from) != 0) {
+            referenced[to >>> 6] |= 1L << to;
+        } else {
+            referenced[to >>> 6] &= ~(1L << to);
+        }
+    }
+
+    /**
+     * 插入时[from, to)的节点后移一位，新节点放在from
+     * 指针位于[from, to]时随节点前进一位：已扫描过的节点不会被移到指针处再次检查，新节点位于指针之后，一整圈后才被检查
+     * @param from 新节点的位置
+     * @param to 原来的空节点位置
+     * @param tableSize 容器maxSize
+     */
+    void shiftForward(int from, int to, int tableSize) {
+
+        if(within(hand, from, to, tableSize)) {
+            advance(tableSize);
+        }
+    }
+
+    /**
+     * 删除from的节点后(from, to]的节点前移一位
+     * 指针位于(from, to]时随节点后退一位，仍指向原来的节点；指针位于from时指向前移到该位置的下一个节点
+     * @param from 删除的节点位置
+     * @param to 簇中最后一个前移的节点原来的位置，没有节点前移时等于from
+     * @param tableSize 容器maxSize
+     */
+    void shiftBackward(int from, int to, int tableSize) {
+
+        if(hand != from && within(hand, from, to, tableSize)) {
+            hand = hand == 0 ? tableSize - 1 : hand - 1;
+        }
+    }
+
+    /**
+     * @return index是否位于环形区间[from, to]中
+     */
+    private static boolean within(int index, int from, int to, int tableSize) {
+
+        int offset = index - from;
+        int length = to - from;
+
+        return (offset < 0 ? offset + tableSize : offset) <= (length < 0 ? length + tableSize : length);
+    }
+
+    /**
+     * 清除指定节点的访问位（新放入或被删除的节点）
+     */
+    void clear(int index) {
+
+        referenced[index >>> 6] &= ~(1L << index);
+    }
+
+    /**
+     * 清除指定节点的访问位
+     * @return 清除前是否已置位
+     */
+    boolean testAndClear(int index) {
+
+        long mask = 1L << index;
+        boolean set = (referenced[index >>> 6] & mask) != 0;
+
+        if(set) {
+            referenced[index >>> 6] &= ~mask;
+        }
+
+        return set;
+    }
+
+    /**
+     * @return 当前淘汰指针
+     */
+    int hand() {
+
+        return hand;
+    }
+
+    /**
+     * 淘汰指针前进一个节点
+     * @param tableSize 容器maxSize
+     */
+    void advance(int tableSize) {
+
+        hand = hand + 1 == tableSize ? 0 : hand + 1;
+    }
+}
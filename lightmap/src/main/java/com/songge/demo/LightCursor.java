@@ -0,0 +1,226 @@
+package com.songge.demo;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ConcurrentModificationException;
+import java.util.NoSuchElementException;
+
+/**
+ * <p>
+ *   遍历容器节点的游标，直接读取存储结构，除key()/valueString()外不产生临时对象
+ *   从一个簇的起始位置开始环形遍历，remove()时后续节点前移到当前位置，不会重复或遗漏节点
+ *   遍历过程中只能通过游标删除，其他结构修改会导致ConcurrentModificationException
+ * <p/>
+ */
+public final class LightCursor {
+
+    private final AbstractLightMap map;
+
+    private final NodeStorage nodes;
+
+    private final int maxSize;
+
+    // 开始遍历的节点位置
+    private final int start;
+
+    // 已经过的节点数（相对start）
+    private int position;
+
+    // 当前节点的相对位置，没有当前节点时为-1
+    private int current = -1;
+
+    // hasNext找到的下一个节点的相对位置，-1表示尚未查找
+    private int found = -1;
+
+    private int expectedModCount;
+
+    // 复用的key/value缓冲区
+    private final byte[] keyBuffer;
+    private final byte[] valueBuffer;
+
+    LightCursor(AbstractLightMap map) {
+
+        // 渐进式rehash中先完成迁移，只遍历一个存储结构
+        map.completeRehash();
+
+        this.map = map;
+        this.nodes = map.nodes;
+        this.maxSize = map.maxSize;
+        this.start = map.clusterStart(nodes, maxSize);
+        this.expectedModCount = map.modCount;
+        this.keyBuffer = new byte[map.keyLength];
+        this.valueBuffer = new byte[map.valueLength];
+    }
+
+    /**
+     * @return 是否还有下一个节点，不移动游标
+     */
+    public boolean hasNext() {
+
+        checkModCount();
+
+        if(found < 0) {
+
+            // 跳过空节点和已过期的节点
+            found = position;
+            while(found < maxSize && (!map.occupied(nodes, nodeAt(found)) || map.expired(nodes, nodeAt(found)))) {
+                found++;
+            }
+        }
+
+        return found < maxSize;
+    }
+
+    /**
+     * 移动到下一个节点
+     * @return 没有更多节点时返回false
+     */
+    public boolean next() {
+
+        if(!hasNext()) {
+            current = -1;
+            return false;
+        }
+
+        current = found;
+        position = found + 1;
+        found = -1;
+
+        return true;
+    }
+
+    /**
+     * 删除当前节点，之后的节点前移到当前位置，下一次next()重新检查该位置
+     */
+    public void remove() {
+
+        long node = node();
+
+        map.removeNode(node, false);
+
+        position = current;
+        current = -1;
+        found = -1;
+        expectedModCount = map.modCount;
+    }
+
+    /**
+     * @return 当前key的UTF-8编码长度
+     */
+    public int keyLength() {
+
+        return map.keyLengthOf(nodes, node());
+    }
+
+    /**
+     * 当前key的UTF-8编码，返回的数组由游标复用，[0, keyLength())有效，下一次调用时被覆盖
+     * @return key字节
+     */
+    public byte[] keyBytes() {
+
+        map.readKey(nodes, node(), keyBuffer, 0);
+
+        return keyBuffer;
+    }
+
+    /**
+     * @return 当前key，每次调用创建新的String
+     */
+    public String key() {
+
+        int length = keyLength();
+
+        return new String(keyBytes(), 0, length, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * @return 当前key按long读取（LightLongKeyMap）
+     */
+    public long keyLong() {
+
+        return AbstractLightMap.readLong(keyBytes(), 0);
+    }
+
+    /**
+     * @return 当前key按int读取（LightIntKeyMap）
+     */
+    public int keyInt() {
+
+        return AbstractLightMap.readInt(keyBytes(), 0);
+    }
+
+    /**
+     * @return 当前value的编码长度
+     */
+    public int valueLength() {
+
+        return map.valueLengthOf(nodes, node());
+    }
+
+    /**
+     * 当前value的编码，返回的数组由游标复用，[0, valueLength())有效，下一次调用时被覆盖
+     * @return value字节
+     */
+    public byte[] valueBytes() {
+
+        map.readValue(nodes, node(), valueBuffer, 0);
+
+        return valueBuffer;
+    }
+
+    /**
+     * @return 当前value按String解码，每次调用创建新的String
+     */
+    public String valueString() {
+
+        int length = valueLength();
+
+        return new String(valueBytes(), 0, length, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * @return 当前value按int读取（LightIntMap、Integer类型的LightMap）
+     */
+    public int valueInt() {
+
+        return map.readIntValue(nodes, node());
+    }
+
+    /**
+     * @return 当前value按long读取（LightLongMap、Long类型的LightMap）
+     */
+    public long valueLong() {
+
+        return map.readLongValue(nodes, node());
+    }
+
+    /**
+     * @return 当前节点在存储结构中的起始位置
+     */
+    long node() {
+
+        checkModCount();
+
+        if(current < 0) {
+            throw new NoSuchElementException("游标没有指向节点，请先调用next()");
+        }
+
+        return nodeAt(current);
+    }
+
+    private long nodeAt(int relative) {
+
+        int index = start + relative;
+        if(index >= maxSize) {
+            index -= maxSize;
+        }
+
+        return (long) index * map.nodeLength;
+    }
+
+    private void checkModCount() {
+
+        if(map.modCount != expectedModCount) {
+            throw new ConcurrentModificationException();
+        }
+    }
+}
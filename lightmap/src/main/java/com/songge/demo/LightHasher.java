@@ -0,0 +1,21 @@
+package com.songge.demo;
+
+/**
+ * <p>
+ *   key的hash算法，输入为key的UTF-8编码字节
+ *   容器使用结果的低位选择节点位置（容器大小为2的幂），实现需要保证低位分布均匀
+ *   内置实现见{@link LightHashers}
+ * <p/>
+ */
+public interface LightHasher {
+
+    /**
+     * 计算指定区间的hashcode
+     * @param key key所在数组
+     * @param offset key在数组中的起始位置
+     * @param length key长度
+     * @param seed 容器的随机种子，每个容器实例不同，用于抵御构造碰撞的攻击
+     * @return hashcode
+     */
+    int hash(byte[] key, int offset, int length, long seed);
+}
@@ -0,0 +1,233 @@
+package com.songge.demo;
+
+/**
+ * <p>
+ *   内置的hash算法，64位混合后折叠为32位
+ *   写入LightMap文件时记录算法标识，open时据此恢复
+ * <p/>
+ */
+public enum LightHashers implements LightHasher {
+
+    /**
+     * wyhash风格：每次读取16字节，通过128位乘法混合，短key只需要两次乘法，默认算法
+     */
+    WYHASH {
+
+        @Override
+        public int hash(byte[] key, int offset, int length, long seed) {
+
+            seed ^= mix(seed ^ WY0, WY1);
+
+            long a;
+            long b;
+
+            if(length <= 16) {
+
+                if(length >= 4) {
+
+                    // 4~16字节：首尾各取两个int，中间部分可以重叠
+                    int shift = (length >> 3) << 2;
+                    a = (readUnsignedInt(key, offset) << 32) | readUnsignedInt(key, offset + shift);
+                    b = (readUnsignedInt(key, offset + length - 4) << 32) | readUnsignedInt(key, offset + length - 4 - shift);
+
+                } else if(length > 0) {
+
+                    a = ((key[offset] & 0xffL) << 16) | ((key[offset + (length >> 1)] & 0xffL) << 8) | (key[offset + length - 1] & 0xffL);
+                    b = 0;
+
+                } else {
+
+                    a = 0;
+                    b = 0;
+                }
+
+            } else {
+
+                int pos = offset;
+                int remain = length;
+
+                while(remain > 16) {
+                    seed = mix(AbstractLightMap.readLong(key, pos) ^ WY1, AbstractLightMap.readLong(key, pos + 8) ^ seed);
+                    pos += 16;
+                    remain -= 16;
+                }
+
+                // 最后16字节（可能与之前的数据重叠）
+                a = AbstractLightMap.readLong(key, pos + remain - 16);
+                b = AbstractLightMap.readLong(key, pos + remain - 8);
+            }
+
+            a ^= WY1;
+            b ^= seed;
+
+            long low = a * b;
+            long high = multiplyHigh(a, b);
+
+            return fold(mix(low ^ WY0 ^ length, high ^ WY1));
+        }
+    },
+
+    /**
+     * xxHash64：每次读取32字节分4路累加，长key吞吐量更高
+     */
+    XXHASH {
+
+        @Override
+        public int hash(byte[] key, int offset, int length, long seed) {
+
+            int pos = offset;
+            int end = offset + length;
+            long hash;
+
+            if(length >= 32) {
+
+                long v1 = seed + XX1 + XX2;
+                long v2 = seed + XX2;
+                long v3 = seed;
+                long v4 = seed - XX1;
+
+                for(; pos + 32 <= end; pos += 32) {
+                    v1 = round(v1, AbstractLightMap.readLong(key, pos));
+                    v2 = round(v2, AbstractLightMap.readLong(key, pos + 8));
+                    v3 = round(v3, AbstractLightMap.readLong(key, pos + 16));
+                    v4 = round(v4, AbstractLightMap.readLong(key, pos + 24));
+                }
+
+                hash = Long.rotateLeft(v1, 1) + Long.rotateLeft(v2, 7) + Long.rotateLeft(v3, 12) + Long.rotateLeft(v4, 18);
+                hash = merge(hash, v1);
+                hash = merge(hash, v2);
+                hash = merge(hash, v3);
+                hash = merge(hash, v4);
+
+            } else {
+
+                hash = seed + XX5;
+            }
+
+            hash += length;
+
+            for(; pos + 8 <= end; pos += 8) {
+                hash ^= round(0, AbstractLightMap.readLong(key, pos));
+                hash = Long.rotateLeft(hash, 27) * XX1 + XX4;
+            }
+
+            if(pos + 4 <= end) {
+                hash ^= readUnsignedInt(key, pos) * XX1;
+                hash = Long.rotateLeft(hash, 23) * XX2 + XX3;
+                pos += 4;
+            }
+
+            for(; pos < end; pos++) {
+                hash ^= (key[pos] & 0xffL) * XX5;
+                hash = Long.rotateLeft(hash, 11) * XX1;
+            }
+
+            // avalanche
+            hash ^= hash >>> 33;
+            hash *= XX2;
+            hash ^= hash >>> 29;
+            hash *= XX3;
+            hash ^= hash >>> 32;
+
+            return fold(hash);
+        }
+    };
+
+    // wyhash常量
+    private static final long WY0 = 0xa0761d6478bd642fL;
+    private static final long WY1 = 0xe7037ed1a0b428dbL;
+
+    // xxHash64常量
+    private static final long XX1 = 0x9E3779B185EBCA87L;
+    private static final long XX2 = 0xC2B2AE3D27D4EB4FL;
+    private static final long XX3 = 0x165667B19E3779F9L;
+    private static final long XX4 = 0x85EBCA77C2B2AE63L;
+    private static final long XX5 = 0x27D4EB2F165667C5L;
+
+    /**
+     * 128位乘积的高64位与低64位异或
+     */
+    private static long mix(long a, long b) {
+
+        return a * b ^ multiplyHigh(a, b);
+    }
+
+    /**
+     * 无符号128位乘积的高64位（jdk8没有Math.multiplyHigh）
+     */
+    private static long multiplyHigh(long x, long y) {
+
+        long x1 = x >>> 32;
+        long x2 = x & 0xffffffffL;
+        long y1 = y >>> 32;
+        long y2 = y & 0xffffffffL;
+
+        long z2 = x2 * y2;
+        long t = x1 * y2 + (z2 >>> 32);
+        long z1 = (t & 0xffffffffL) + x2 * y1;
+
+        return x1 * y1 + (t >>> 32) + (z1 >>> 32);
+    }
+
+    private static long round(long acc, long input) {
+
+        acc += input * XX2;
+        acc = Long.rotateLeft(acc, 31);
+
+        return acc * XX1;
+    }
+
+    private static long merge(long hash, long value) {
+
+        hash ^= round(0, value);
+
+        return hash * XX1 + XX4;
+    }
+
+    private static long readUnsignedInt(byte[] array, int offset) {
+
+        return AbstractLightMap.readInt(array, offset) & 0xffffffffL;
+    }
+
+    /**
+     * 64位结果折叠为32位，高位信息同时进入低位
+     */
+    private static int fold(long hash) {
+
+        return (int) (hash ^ hash >>> 32);
+    }
+
+    /**
+     * 整数key的hash：与种子异或后经过murmur3的64位finalizer混合，两次乘法即可使每一位影响全部低位
+     * LightLongKeyMap/LightIntKeyMap使用，不需要把key当作字节数组处理
+     * @param key key
+     * @param seed 容器的随机种子
+     * @return hashcode
+     */
+    static int mixKey(long key, long seed) {
+
+        long hash = key ^ seed;
+
+        hash = (hash ^ hash >>> 33) * 0xff51afd7ed558ccdL;
+        hash = (hash ^ hash >>> 33) * 0xc4ceb9fe1a85ec53L;
+
+        return fold(hash ^ hash >>> 33);
+    }
+
+    /**
+     * @return 写入LightMap文件的算法标识，0表示自定义算法
+     */
+    static int idOf(LightHasher hasher) {
+
+        return hasher instanceof LightHashers ? ((LightHashers) hasher).ordinal() + 1 : 0;
+    }
+
+    /**
+     * @param id 文件中的算法标识
+     * @return 内置算法，自定义算法时返回null
+     */
+    static LightHasher of(int id) {
+
+        return id > 0 && id <= values().length ? values()[id - 1] : null;
+    }
+}
@@ -0,0 +1,208 @@
+package com.songge.demo;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.Objects;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * <p>
+ *   key和value都固定为int的低内存消耗容器，key不转换为String，以4字节原样保存在节点中
+ *   节点为 key(4) + value(4) + hashCode(4) 共12字节，key/value长度固定，不保存长度标识，开启过期时间后增加4字节
+ *   hashcode由key与种子经过整数混合得到（{@link LightHashers#mixKey(long, long)}），不按字节计算，setHasher只更换种子
+ * <p/>
+ */
+public class LightIntKeyMap extends AbstractLightMap {
+
+    /**
+     * 构造方法
+     */
+    public LightIntKeyMap() {
+
+        super(4, 4, 16, 0.8, LightStorage.HEAP, LightLayout.FIXED, true);
+
+    }
+
+    /**
+     * 构造方法
+     * @param maxSize maxSize
+     */
+    public LightIntKeyMap(int maxSize) {
+
+        super(4, 4, maxSize, 0.8, LightStorage.HEAP, LightLayout.FIXED, true);
+
+    }
+
+    /**
+     * 构造方法
+     * @param maxSize maxSize
+     * @param capacity 扩充因子
+     */
+    public LightIntKeyMap(int maxSize, double capacity) {
+
+        super(4, 4, maxSize, capacity, LightStorage.HEAP, LightLayout.FIXED, true);
+    }
+
+    /**
+     * 构造方法
+     * @param maxSize maxSize
+     * @param capacity 扩充因子
+     * @param storage 节点存储方式，堆外存储使用完毕后需要调用close释放
+     */
+    public LightIntKeyMap(int maxSize, double capacity, LightStorage storage) {
+
+        super(4, 4, maxSize, capacity, storage, LightLayout.FIXED, true);
+    }
+
+    /**
+     * 构造方法，使用内存映射的LightMap文件
+     */
+    private LightIntKeyMap(LightMapFile file, Path path) {
+
+        super(file, path);
+    }
+
+    /**
+     * 内存映射打开snapshot/flush写出的LightIntKeyMap文件，映射为私有模式，修改不会写回文件，需要持久化时调用flush
+     * @param path 文件路径
+     * @return 容器，使用完毕后需要调用close解除映射
+     */
+    public static LightIntKeyMap open(Path path) throws IOException {
+
+        LightMapFile file = LightMapFile.open(path);
+
+        if(file.type != 6 || file.keyLength != 4 || file.valueLength != 4) {
+            file.nodes.close();
+            throw new IOException("文件不是LightIntKeyMap：" + path);
+        }
+
+        return new LightIntKeyMap(file, path);
+    }
+
+    @Override
+    int valueType() {
+
+        return 6;
+
+    }
+
+    /**
+     * key以4字节小端保存，直接按int混合
+     */
+    @Override
+    int hash(byte[] array, int offset, int length) {
+
+        return numericHash(array, offset);
+    }
+
+    /**
+     * 添加元素
+     * @param key key
+     * @param value value
+     */
+    public void putInt(int key, int value) {
+
+        putNumber(key, value, DEFAULT_TTL);
+    }
+
+    /**
+     * 添加元素，到期后视为不存在，见{@link #setExpireAfterWrite(long, TimeUnit)}
+     * @param key key
+     * @param value value
+     * @param duration 存活时间，0表示不过期
+     * @param unit 时间单位
+     */
+    public void putInt(int key, int value, long duration, TimeUnit unit) {
+
+        putNumber(key, value, ttlOf(duration, unit));
+    }
+
+    /**
+     * key的value加1，见{@link #addAndGet(int, int)}
+     * @param key key
+     * @return 相加后的值
+     */
+    public int increment(int key) {
+
+        return addAndGet(key, 1);
+    }
+
+    /**
+     * key的value加上delta，只探测一次，在节点中原地修改value，不改变过期时间
+     * key不存在（或已过期）时放入delta，过期时间按setExpireAfterWrite设置
+     * @param key key
+     * @param delta 增量
+     * @return 相加后的值
+     */
+    public int addAndGet(int key, int delta) {
+
+        return (int) addNumber(key, delta);
+    }
+
+    /**
+     * key不存在（或已过期）时添加元素，已存在时不修改，只探测一次
+     * @param key key
+     * @param value value
+     * @return 添加返回true，key已存在返回false
+     */
+    public boolean putIfAbsent(int key, int value) {
+
+        return putNumberIfAbsent(key, value);
+    }
+
+    /**
+     * 取得元素
+     * @param key key
+     * @param defaultValue key不存在时的返回值
+     * @return value
+     */
+    public int getInt(int key, int defaultValue) {
+
+        return (int) numberAt(nodeOf(key), defaultValue);
+    }
+
+    /**
+     * 判断容器中是否包含key
+     * @param key key
+     * @return 包含返回true，不包含返回false
+     */
+    public boolean containsKey(int key) {
+
+        return nodeOf(key) >= 0;
+
+    }
+
+    /**
+     * 删除元素
+     * @param key key
+     * @return 存在并删除返回true，不存在返回false
+     */
+    public boolean remove(int key) {
+
+        return removeIfPresent(nodeOf(key));
+    }
+
+    /**
+     * 遍历全部元素，key/value不装箱
+     * @param action 对每个key/value执行的操作
+     */
+    public void forEach(IntEntryConsumer action) {
+
+        Objects.requireNonNull(action);
+
+        LightCursor cursor = cursor();
+
+        while(cursor.next()) {
+            action.accept(cursor.keyInt(), cursor.valueInt());
+        }
+    }
+
+    /**
+     * 遍历时接收int类型的key/value
+     */
+    @FunctionalInterface
+    public interface IntEntryConsumer {
+
+        void accept(int key, int value);
+    }
+}
@@ -0,0 +1,243 @@
+package com.songge.demo;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Path;
+import java.util.Objects;
+import java.util.concurrent.TimeUnit;
+import java.util.function.ObjIntConsumer;
+
+/**
+ * <p>
+ *   value固定为int的低内存消耗容器，读写value不进行装箱
+ * <p/>
+ */
+public class LightIntMap extends AbstractLightMap {
+
+    /**
+     * 构造方法
+     * @param keyLength key长度
+     */
+    public LightIntMap(int keyLength) {
+
+        super(keyLength, 4, 16, 0.8, LightStorage.HEAP);
+
+    }
+
+    /**
+     * 构造方法
+     * @param keyLength key长度
+     * @param maxSize maxSize
+     */
+    public LightIntMap(int keyLength, int maxSize) {
+
+        super(keyLength, 4, maxSize, 0.8, LightStorage.HEAP);
+
+    }
+
+    /**
+     * 构造方法
+     * @param keyLength key长度
+     * @param maxSize maxSize
+     * @param capacity 扩充因子
+     */
+    public LightIntMap(int keyLength, int maxSize, double capacity) {
+
+        super(keyLength, 4, maxSize, capacity, LightStorage.HEAP);
+    }
+
+    /**
+     * 构造方法
+     * @param keyLength key长度
+     * @param maxSize maxSize
+     * @param capacity 扩充因子
+     * @param storage 节点存储方式，堆外存储使用完毕后需要调用close释放
+     */
+    public LightIntMap(int keyLength, int maxSize, double capacity, LightStorage storage) {
+
+        super(keyLength, 4, maxSize, capacity, storage);
+    }
+
+    /**
+     * 构造方法
+     * @param keyLength key最大长度
+     * @param maxSize maxSize
+     * @param capacity 扩充因子
+     * @param storage 节点存储方式，堆外存储使用完毕后需要调用close释放
+     * @param layout 节点布局，key/value长度差异大时使用ARENA按实际长度存放
+     */
+    public LightIntMap(int keyLength, int maxSize, double capacity, LightStorage storage, LightLayout layout) {
+
+        super(keyLength, 4, maxSize, capacity, storage, layout);
+    }
+
+    /**
+     * 构造方法，使用内存映射的LightMap文件
+     */
+    private LightIntMap(LightMapFile file, Path path) {
+
+        super(file, path);
+    }
+
+    /**
+     * 内存映射打开snapshot/flush写出的LightIntMap文件，映射为私有模式，修改不会写回文件，需要持久化时调用flush
+     * @param path 文件路径
+     * @return 容器，使用完毕后需要调用close解除映射
+     */
+    public static LightIntMap open(Path path) throws IOException {
+
+        LightMapFile file = LightMapFile.open(path);
+
+        if(file.type != 2 || file.valueLength != 4) {
+            file.nodes.close();
+            throw new IOException("文件value类型不是int：" + path);
+        }
+
+        return new LightIntMap(file, path);
+    }
+
+    @Override
+    int valueType() {
+
+        return 2;
+
+    }
+
+    /**
+     * 添加元素
+     * @param key key
+     * @param value value
+     */
+    public void putInt(CharSequence key, int value) {
+
+        putNumber(key, value, DEFAULT_TTL);
+    }
+
+    /**
+     * 添加元素，到期后视为不存在，见{@link #setExpireAfterWrite(long, TimeUnit)}
+     * @param key key
+     * @param value value
+     * @param duration 存活时间，0表示不过期
+     * @param unit 时间单位
+     */
+    public void putInt(CharSequence key, int value, long duration, TimeUnit unit) {
+
+        putNumber(key, value, ttlOf(duration, unit));
+    }
+
+    /**
+     * 添加元素，key为UTF-8编码的字节，不创建String
+     * @param key key所在数组
+     * @param offset key在数组中的起始位置
+     * @param length key长度
+     * @param value value
+     */
+    public void putInt(byte[] key, int offset, int length, int value) {
+
+        putNumber(key, offset, length, value);
+    }
+
+    /**
+     * key的value加1，见{@link #addAndGet(CharSequence, int)}
+     * @param key key
+     * @return 相加后的值
+     */
+    public int increment(CharSequence key) {
+
+        return addAndGet(key, 1);
+    }
+
+    /**
+     * key的value加上delta，只探测一次，在节点中原地修改value，不改变过期时间
+     * key不存在（或已过期）时放入delta，过期时间按setExpireAfterWrite设置
+     * @param key key
+     * @param delta 增量
+     * @return 相加后的值
+     */
+    public int addAndGet(CharSequence key, int delta) {
+
+        return (int) addNumber(key, delta);
+    }
+
+    /**
+     * key不存在（或已过期）时添加元素，已存在时不修改，只探测一次
+     * @param key key
+     * @param value value
+     * @return 添加返回true，key已存在返回false
+     */
+    public boolean putIfAbsent(CharSequence key, int value) {
+
+        return putNumberIfAbsent(key, value);
+    }
+
+    /**
+     * 取得元素
+     * @param key key
+     * @param defaultValue key不存在时的返回值
+     * @return value
+     */
+    public int getInt(CharSequence key, int defaultValue) {
+
+        return (int) numberAt(nodeOf(key), defaultValue);
+    }
+
+    /**
+     * 取得元素，key为UTF-8编码的字节
+     * @param key key所在数组
+     * @param offset key在数组中的起始位置
+     * @param length key长度
+     * @param defaultValue key不存在时的返回值
+     * @return value
+     */
+    public int getInt(byte[] key, int offset, int length, int defaultValue) {
+
+        return (int) numberAt(nodeOf(key, offset, length), defaultValue);
+    }
+
+    /**
+     * 取得元素，key为ByteBuffer中[position, limit)的UTF-8编码字节，不改变position
+     * @param key key
+     * @param defaultValue key不存在时的返回值
+     * @return value
+     */
+    public int getInt(ByteBuffer key, int defaultValue) {
+
+        return (int) numberAt(nodeOf(key), defaultValue);
+    }
+
+    /**
+     * 判断容器中是否包含key
+     * @param key key
+     * @return 包含返回true，不包含返回false
+     */
+    public boolean containsKey(CharSequence key) {
+
+        return nodeOf(key) >= 0;
+
+    }
+
+    /**
+     * 删除元素
+     * @param key key
+     * @return 存在并删除返回true，不存在返回false
+     */
+    public boolean remove(CharSequence key) {
+
+        return removeIfPresent(nodeOf(key));
+    }
+
+    /**
+     * 遍历全部元素，value不装箱
+     * @param action 对每个key/value执行的操作
+     */
+    public void forEach(ObjIntConsumer<String> action) {
+
+        Objects.requireNonNull(action);
+
+        LightCursor cursor = cursor();
+
+        while(cursor.next()) {
+            action.accept(cursor.key(), cursor.valueInt());
+        }
+    }
+}
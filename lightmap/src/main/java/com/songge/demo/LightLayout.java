@@ -0,0 +1,53 @@
+package com.songge.demo;
+
+/**
+ * <p>
+ *   LightMap节点布局
+ * <p/>
+ */
+public enum LightLayout {
+
+    /**
+     * 定长布局，key/value直接存放在节点中，每个节点按keyLength + valueLength预留空间，长度上限255字节
+     * key长度(1) + key + value长度(1) + value + hashCode(4)，hashCode为0表示空节点
+     */
+    FIXED {
+        @Override
+        int nodeLength(int keyLength, int valueLength) {
+            return keyLength + valueLength + 2 + 4;
+        }
+
+        @Override
+        int maxLength() {
+            return 0xff;
+        }
+    },
+
+    /**
+     * 变长布局，节点只保存arena中记录的地址，key/value按实际长度追加到arena中，长度上限65535字节
+     * 节点：使用标识(1) + 记录地址(8) + hashCode(4)
+     * 记录：key长度(2) + value长度(2) + key + value
+     * key长度差异大时比FIXED节省内存，被覆盖的value和已删除的记录由compact()回收
+     */
+    ARENA {
+        @Override
+        int nodeLength(int keyLength, int valueLength) {
+            return 1 + 8 + 4;
+        }
+
+        @Override
+        int maxLength() {
+            return 0xffff;
+        }
+    };
+
+    /**
+     * @return 节点长度
+     */
+    abstract int nodeLength(int keyLength, int valueLength);
+
+    /**
+     * @return key/value长度上限
+     */
+    abstract int maxLength();
+}
@@ -0,0 +1,935 @@
+package com.songge.demo;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.util.*;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BiConsumer;
+import java.util.function.BiFunction;
+import java.util.function.Function;
+
+/**
+ * <p>
+ *   低内存消耗的Map容器
+ * <p/>
+ *
+ * @author SongGe
+ * @version V1.0
+ * date 2018/7/26 14:57
+ */
+public class LightMap<K,V> extends AbstractLightMap implements Map<K,V> {
+
+    // value类型不支持时encodeValue的返回值
+    private static final int UNSUPPORTED_TYPE = -2;
+
+    // value数据类型标识（1：String 2：Integer 3：Long）
+    private int type;
+
+    /**
+     * 构造方法
+     * @param keyLength key长度
+     * @param valueLength value长度
+     */
+    public LightMap(int keyLength, int valueLength) {
+
+        super(keyLength, valueLength, 16, 0.8, LightStorage.HEAP);
+
+    }
+
+    /**
+     * 构造方法
+     * @param keyLength key长度
+     * @param valueLength value长度
+     * @param maxSize maxSize
+     */
+    public LightMap(int keyLength, int valueLength, int maxSize) {
+
+        super(keyLength, valueLength, maxSize, 0.8, LightStorage.HEAP);
+
+    }
+
+    /**
+     * 构造方法
+     * @param keyLength key长度
+     * @param valueLength value长度
+     * @param maxSize maxSize
+     * @param capacity 扩充因子
+     */
+    public LightMap(int keyLength, int valueLength, int maxSize, double capacity) {
+
+        super(keyLength, valueLength, maxSize, capacity, LightStorage.HEAP);
+    }
+
+    /**
+     * 构造方法
+     * @param keyLength key长度
+     * @param valueLength value长度
+     * @param maxSize maxSize
+     * @param capacity 扩充因子
+     * @param storage 节点存储方式，堆外存储使用完毕后需要调用close释放
+     */
+    public LightMap(int keyLength, int valueLength, int maxSize, double capacity, LightStorage storage) {
+
+        super(keyLength, valueLength, maxSize, capacity, storage);
+    }
+
+    /**
+     * 构造方法
+     * @param keyLength key最大长度
+     * @param valueLength value最大长度
+     * @param maxSize maxSize
+     * @param capacity 扩充因子
+     * @param storage 节点存储方式，堆外存储使用完毕后需要调用close释放
+     * @param layout 节点布局，key/value长度差异大时使用ARENA按实际长度存放
+     */
+    public LightMap(int keyLength, int valueLength, int maxSize, double capacity, LightStorage storage, LightLayout layout) {
+
+        super(keyLength, valueLength, maxSize, capacity, storage, layout);
+    }
+
+    /**
+     * 构造方法，使用内存映射的LightMap文件
+     */
+    private LightMap(LightMapFile file, Path path) {
+
+        super(file, path);
+        this.type = file.type;
+    }
+
+    /**
+     * 构造方法，创建source的只读快照
+     */
+    private LightMap(LightMap<K,V> source) {
+
+        super(source);
+        this.type = source.type;
+    }
+
+    /**
+     * 内存映射打开snapshot/flush写出的LightMap文件，不需要重建即可直接get，数据页在访问时按需加载
+     * 映射为私有模式，修改不会写回文件，需要持久化时调用flush
+     * @param path 文件路径
+     * @return 容器，使用完毕后需要调用close解除映射
+     */
+    public static <K,V> LightMap<K,V> open(Path path) throws IOException {
+
+        LightMapFile file = LightMapFile.open(path);
+
+        // 0表示尚未放入元素的容器；LightSet（4）、LightLongKeyMap（5）、LightIntKeyMap（6）的节点格式不同，按LightMap读取会得到错误的结果
+        if(file.type < 0 || file.type > 3) {
+            file.nodes.close();
+            throw new IOException("文件不是LightMap，value类型标识为" + file.type + "：" + path);
+        }
+
+        return new LightMap<>(file, path);
+    }
+
+    @Override
+    int valueType() {
+
+        return type;
+
+    }
+
+    /**
+     * 添加元素方法，key支持String及其他CharSequence（按UTF-8编码，不创建String），K/V范型方便后期扩充类型
+     * key不是CharSequence或value不是String/Integer/Long时抛出ClassCastException，编码后超过keyLength/valueLength时抛出IllegalArgumentException
+     * @param keyStr key长度
+     * @param value value长度
+     * @return null
+     */
+    public V put(K keyStr, V value) {
+
+        return put(keyStr, value, DEFAULT_TTL);
+    }
+
+    /**
+     * 添加元素，到期后视为不存在，见{@link #setExpireAfterWrite(long, TimeUnit)}
+     * @param keyStr key
+     * @param value value
+     * @param duration 存活时间，0表示不过期
+     * @param unit 时间单位
+     * @return null
+     */
+    public V put(K keyStr, V value, long duration, TimeUnit unit) {
+
+        return put(keyStr, value, ttlOf(duration, unit));
+    }
+
+    /**
+     * 添加元素
+     * @param ttl 存活秒数，0表示不过期，DEFAULT_TTL表示使用默认存活时间
+     */
+    private V put(K keyStr, V value, int ttl) {
+
+        insert(keyStr, value, ttl, true);
+
+        return null;
+    }
+
+    /**
+     * 编码key/value并放入容器
+     * @param ttl 存活秒数，0表示不过期，DEFAULT_TTL表示使用默认存活时间
+     * @param replace key已存在时是否替换value
+     * @return key已存在时返回节点位置，放入新节点时返回-1
+     */
+    private long insert(K keyStr, V value, int ttl, boolean replace) {
+
+        if(!(keyStr instanceof CharSequence)) {
+            throw new ClassCastException("key需要是CharSequence：" + (keyStr == null ? null : keyStr.getClass().getName()));
+        }
+
+        // key/value先编码到线程私有缓冲区中，key占用[0, keyLength)，value占用[keyLength, keyLength + valueLength)
+        byte[] scratch = scratch();
+
+        int valueLen = encodeCheckedValue(value, scratch);
+        int keyLen = encodeKey((CharSequence) keyStr, scratch);
+
+        // 写入成功后才更新类型，只读快照拒绝写入时保持原类型
+        if(replace) {
+
+            putEncoded(scratch, keyLen, valueLen, ttl);
+            type = typeOf(value);
+
+            return -1;
+        }
+
+        long node = putIfAbsentEncoded(scratch, keyLen, valueLen, ttl);
+
+        // 已有的value按原类型读取，只在放入新节点时更新类型
+        if(node < 0) {
+            type = typeOf(value);
+        }
+
+        return node;
+    }
+
+    /**
+     * 添加元素，key为UTF-8编码的字节，直接与节点中的key比较，不创建String
+     * @param key key所在数组
+     * @param offset key在数组中的起始位置
+     * @param length key长度
+     * @param value value
+     */
+    public void put(byte[] key, int offset, int length, V value) {
+
+        checkKeyLength(length);
+
+        byte[] scratch = scratch();
+
+        int valueLen = encodeCheckedValue(value, scratch);
+
+        putEncoded(key, offset, length, scratch, keyLength, valueLen);
+
+        type = typeOf(value);
+    }
+
+    /**
+     * 取得元素，key支持String及其他CharSequence，CharSequence按内容（UTF-8编码）匹配
+     * @param key key
+     * @return value
+     */
+    public V get(Object key) {
+
+        if(!(key instanceof CharSequence)) {
+            return null;
+        }
+
+        long node = nodeOf((CharSequence) key);
+
+        if(node < 0) {
+            return null;
+        }
+
+        return readValue(node);
+    }
+
+    /**
+     * 取得元素，key为UTF-8编码的字节
+     * @param key key所在数组
+     * @param offset key在数组中的起始位置
+     * @param length key长度
+     * @return value，不存在时返回null
+     */
+    public V get(byte[] key, int offset, int length) {
+
+        long node = nodeOf(key, offset, length);
+
+        return node < 0 ? null : readValue(node);
+    }
+
+    /**
+     * 取得元素，key为ByteBuffer中[position, limit)的UTF-8编码字节，不改变position
+     * @param key key
+     * @return value，不存在时返回null
+     */
+    public V get(ByteBuffer key) {
+
+        long node = nodeOf(key);
+
+        return node < 0 ? null : readValue(node);
+    }
+
+    /**
+     * 按value数据类型读取节点中的value
+     * @param node 节点在存储结构中的起始位置
+     * @return value
+     */
+    @SuppressWarnings("unchecked")
+    V readValue(long node) {
+
+        NodeStorage nodes = tableOf(node);
+        node = offsetOf(node);
+
+        if(type == 1) {
+
+            // value类型为String时
+            byte[] scratch = scratch();
+            int valueLen = readValue(nodes, node, scratch, keyLength);
+
+            return (V) new String(scratch, keyLength, valueLen, StandardCharsets.UTF_8);
+        } else if(type == 2) {
+
+            // value类型为Integer时
+            return (V) Integer.valueOf(readIntValue(nodes, node));
+        } else if(type == 3) {
+
+            // value类型为Long时
+            return (V) Long.valueOf(readLongValue(nodes, node));
+        }
+
+        return null;
+    }
+
+    /**
+     * 判断容器中是否包含key
+     * @param key key
+     * @return 包含返回true，不包含返回false
+     */
+    @Override
+    public boolean containsKey(Object key) {
+
+        return key instanceof CharSequence && nodeOf((CharSequence) key) >= 0;
+
+    }
+
+    /**
+     * 判断容器中是否包含UTF-8编码的key
+     * @param key key所在数组
+     * @param offset key在数组中的起始位置
+     * @param length key长度
+     * @return 包含返回true，不包含返回false
+     */
+    public boolean containsKey(byte[] key, int offset, int length) {
+
+        return nodeOf(key, offset, length) >= 0;
+    }
+
+    /**
+     * 判断容器中是否包含value
+     * @param value value
+     * @return 包含返回true，不包含返回false
+     */
+    @Override
+    public boolean containsValue(Object value) {
+
+        completeRehash();
+
+        byte[] scratch = scratch();
+
+        int valueLen = encodeValue(value, scratch, keyLength);
+
+        if(valueLen < 0 || typeOf(value) != type) {
+            return false;
+        }
+
+        // 需要全量数据循环
+        for(int i = 0; i < maxSize; i++) {
+
+            long node = (long) i * nodeLength;
+
+            // 判断是否存在元素，并与value逐字节比较
+            if(occupied(nodes, node) && sameValue(nodes, node, scratch, keyLength, valueLen) && !expired(nodes, node)) {
+                return true;
+            }
+        }
+
+        return false;
+    }
+
+    @Override
+    public V remove(Object key) {
+
+        // 与containsKey一致，非CharSequence的key不可能存在于容器中
+        if(!(key instanceof CharSequence)) {
+            return null;
+        }
+
+        return removeAt(nodeOf((CharSequence) key));
+
+    }
+
+    /**
+     * 删除UTF-8编码的key
+     * @param key key所在数组
+     * @param offset key在数组中的起始位置
+     * @param length key长度
+     * @return 删除的value，不存在时返回null
+     */
+    public V remove(byte[] key, int offset, int length) {
+
+        return removeAt(nodeOf(key, offset, length));
+    }
+
+    private V removeAt(long node) {
+
+        if(node < 0) {
+            return null;
+        }
+
+        V value = readValue(node);
+        removeNode(node);
+
+        return value;
+    }
+
+    /**
+     * key不存在（或已过期）时添加元素，只探测一次
+     * @param key key
+     * @param value value
+     * @return key已存在时返回原value，不修改；添加时返回null
+     */
+    @Override
+    public V putIfAbsent(K key, V value) {
+
+        long node = insert(key, value, DEFAULT_TTL, false);
+
+        return node < 0 ? null : readValue(node);
+    }
+
+    /**
+     * key存在时直接返回value，不存在时计算并放入
+     * @param key key
+     * @param mappingFunction 计算value，返回null时不放入
+     * @return 已有或新放入的value
+     */
+    @Override
+    public V computeIfAbsent(K key, Function<? super K, ? extends V> mappingFunction) {
+
+        Objects.requireNonNull(mappingFunction);
+
+        long node = key instanceof CharSequence ? nodeOf((CharSequence) key) : -1;
+
+        if(node >= 0) {
+            return readValue(node);
+        }
+
+        V value = mappingFunction.apply(key);
+
+        if(value != null) {
+            put(key, value);
+        }
+
+        return value;
+    }
+
+    /**
+     * 计算新value，key存在时在节点中原地替换value，不改变过期时间
+     * @param key key
+     * @param remappingFunction 根据原value（不存在时为null）计算新value，返回null时删除key
+     * @return 新value
+     */
+    @Override
+    public V compute(K key, BiFunction<? super K, ? super V, ? extends V> remappingFunction) {
+
+        Objects.requireNonNull(remappingFunction);
+
+        long node = key instanceof CharSequence ? nodeOf((CharSequence) key) : -1;
+
+        V oldValue = node < 0 ? null : readValue(node);
+
+        int expectedModCount = modCount;
+        V value = remappingFunction.apply(key, oldValue);
+
+        return update(key, node, expectedModCount, value);
+    }
+
+    /**
+     * key不存在时放入value，存在时按原value和value计算新value并在节点中原地替换，不改变过期时间，只探测一次
+     * 计数器可以使用merge(key, 1L, Long::sum)
+     * @param key key
+     * @param value key不存在时放入的value
+     * @param remappingFunction 根据原value和value计算新value，返回null时删除key
+     * @return 新value
+     */
+    @Override
+    public V merge(K key, V value, BiFunction<? super V, ? super V, ? extends V> remappingFunction) {
+
+        Objects.requireNonNull(value);
+        Objects.requireNonNull(remappingFunction);
+
+        long node = insert(key, value, DEFAULT_TTL, false);
+
+        if(node < 0) {
+            return value;
+        }
+
+        int expectedModCount = modCount;
+        V newValue = remappingFunction.apply(readValue(node), value);
+
+        return update(key, node, expectedModCount, newValue);
+    }
+
+    /**
+     * compute/merge计算出新value后写回
+     * @param key key
+     * @param node 计算前key所在节点，不存在时为-1
+     * @param expectedModCount 计算前的modCount
+     * @param value 新value，null表示删除
+     * @return value
+     */
+    private V update(K key, long node, int expectedModCount, V value) {
+
+        // 计算过程中容器被修改或正在渐进式rehash时节点可能已移动，重新查找
+        if(node >= 0 && (modCount != expectedModCount || oldNodes != null)) {
+            node = nodeOf((CharSequence) key);
+        }
+
+        if(value == null) {
+
+            if(node >= 0) {
+                removeNode(node);
+            }
+
+            return null;
+        }
+
+        if(node >= 0) {
+            writeValue(node, value);
+        } else {
+            put(key, value);
+        }
+
+        return value;
+    }
+
+    /**
+     * 批量放入，先按放入后的元素数一次性扩容，放入过程中不再逐次翻倍rehash
+     * @param m 放入的元素
+     */
+    @Override
+    public void putAll(Map<? extends K, ? extends V> m) {
+
+        ensureCapacity((int) Math.min((long) size() + m.size(), Integer.MAX_VALUE));
+
+        for(Entry<? extends K, ? extends V> entry : m.entrySet()) {
+            put(entry.getKey(), entry.getValue());
+        }
+    }
+
+    /**
+     * 从迭代器流式放入元素，按预计元素数一次性扩容，不需要先把数据整体装入另一个Map
+     * @param entries 放入的元素
+     * @param expectedSize 预计的元素数，超出时按扩容因子正常扩容
+     * @return 放入的元素数
+     */
+    public int loadFrom(Iterator<? extends Entry<? extends K, ? extends V>> entries, int expectedSize) {
+
+        ensureCapacity((int) Math.min((long) size() + expectedSize, Integer.MAX_VALUE));
+
+        int loaded = 0;
+
+        while(entries.hasNext()) {
+
+            Entry<? extends K, ? extends V> entry = entries.next();
+            put(entry.getKey(), entry.getValue());
+            loaded++;
+        }
+
+        return loaded;
+    }
+
+    /**
+     * 批量查找，每16个key一组先并行读取初始节点再逐个比较，多key查询比逐个调用get等待内存的时间短
+     * @param keys 查找的key
+     * @param action 对每个key执行的操作，不存在的key对应的value为null，执行期间不能修改本容器
+     */
+    public void getAll(Collection<String> keys, BiConsumer<String, ? super V> action) {
+
+        LookupBatch batch = new LookupBatch(keyLength);
+        Iterator<String> iterator = keys.iterator();
+
+        while(iterator.hasNext()) {
+
+            batch.size = 0;
+            while(batch.size < LookupBatch.SIZE && iterator.hasNext()) {
+                batch.keys[batch.size++] = iterator.next();
+            }
+
+            nodesOf(batch);
+
+            for(int i = 0; i < batch.size; i++) {
+
+                long node = batch.nodes[i];
+                action.accept(batch.keys[i], node < 0 ? null : readValue(node));
+            }
+        }
+    }
+
+    /**
+     * 创建当前内容的只读快照，之后对本容器的修改不会反映到快照中，修改快照时抛出UnsupportedOperationException
+     * 堆内存储按64KB的块写时复制：创建时只复制块的引用，不复制数据，之后本容器第一次写入某块时才复制该块
+     * 快照不会再被修改，可以交给其他线程遍历、校验或写出文件（snapshot().snapshot(path)），本容器同时继续写入
+     * 堆外存储和open(Path)打开的容器不能共享内存页，创建时复制全部节点
+     * 渐进式rehash中先完成迁移
+     * @return 只读快照，使用完毕后需要调用close释放
+     */
+    public LightMap<K,V> snapshot() {
+
+        return new LightMap<>(this);
+    }
+
+    /**
+     * 由当前内容构建只读的FrozenLightMap，每次查找只访问一个节点，之后对本容器的修改不会反映到返回的容器中
+     * 只读取本容器，不完成渐进式rehash也不删除过期元素，只读快照和遍历中的游标上也可以调用
+     * 已过期的元素不进入返回的容器，返回的容器中元素不再过期
+     * @return 只读容器，使用完毕后需要调用close释放
+     */
+    public FrozenLightMap<K,V> freeze() {
+
+        return FrozenLightMap.build(this, type);
+    }
+
+    /**
+     * key的视图，直接遍历存储结构，不复制元素
+     */
+    @Override
+    public Set<K> keySet() {
+
+        return new AbstractSet<K>() {
+
+            @Override
+            public Iterator<K> iterator() {
+                return new CursorIterator<K>() {
+                    @Override
+                    @SuppressWarnings("unchecked")
+                    K current() {
+                        return (K) cursor.key();
+                    }
+                };
+            }
+
+            @Override
+            public int size() {
+                return LightMap.this.size();
+            }
+
+            @Override
+            public boolean contains(Object o) {
+                return containsKey(o);
+            }
+
+            @Override
+            public boolean remove(Object o) {
+                return LightMap.this.remove(o) != null;
+            }
+
+            @Override
+            public void clear() {
+                LightMap.this.clear();
+            }
+        };
+    }
+
+    /**
+     * value的视图，直接遍历存储结构，不复制元素
+     */
+    @Override
+    public Collection<V> values() {
+
+        return new AbstractCollection<V>() {
+
+            @Override
+            public Iterator<V> iterator() {
+                return new CursorIterator<V>() {
+                    @Override
+                    V current() {
+                        return readValue(cursor.node());
+                    }
+                };
+            }
+
+            @Override
+            public int size() {
+                return LightMap.this.size();
+            }
+
+            @Override
+            public boolean contains(Object o) {
+                return containsValue(o);
+            }
+
+            @Override
+            public void clear() {
+                LightMap.this.clear();
+            }
+        };
+    }
+
+    /**
+     * key/value的视图，迭代器返回同一个Entry对象（flyweight），key/value在调用getKey/getValue时才从存储结构解码
+     * Entry只在下一次next()之前有效，需要保存时请复制key和value
+     */
+    @Override
+    public Set<Entry<K, V>> entrySet() {
+
+        return new AbstractSet<Entry<K, V>>() {
+
+            @Override
+            public Iterator<Entry<K, V>> iterator() {
+                return new CursorIterator<Entry<K, V>>() {
+
+                    private final LightEntry entry = new LightEntry(cursor);
+
+                    @Override
+                    Entry<K, V> current() {
+                        return entry;
+                    }
+                };
+            }
+
+            @Override
+            public int size() {
+                return LightMap.this.size();
+            }
+
+            @Override
+            public boolean contains(Object o) {
+
+                if(!(o instanceof Entry)) {
+                    return false;
+                }
+
+                Entry<?, ?> entry = (Entry<?, ?>) o;
+                Object value = get(entry.getKey());
+
+                return value != null && value.equals(entry.getValue());
+            }
+
+            @Override
+            public boolean remove(Object o) {
+
+                if(!contains(o)) {
+                    return false;
+                }
+
+                LightMap.this.remove(((Entry<?, ?>) o).getKey());
+
+                return true;
+            }
+
+            @Override
+            public void clear() {
+                LightMap.this.clear();
+            }
+        };
+    }
+
+    /**
+     * 遍历全部元素，直接读取存储结构，不创建Entry和迭代器
+     * @param action 对每个key/value执行的操作
+     */
+    @Override
+    @SuppressWarnings("unchecked")
+    public void forEach(BiConsumer<? super K, ? super V> action) {
+
+        Objects.requireNonNull(action);
+
+        LightCursor cursor = cursor();
+
+        while(cursor.next()) {
+            action.accept((K) cursor.key(), readValue(cursor.node()));
+        }
+    }
+
+    /**
+     * 替换节点中的value，不改变容器结构
+     * @param node 节点位置
+     * @param value value
+     */
+    private void writeValue(long node, V value) {
+
+        byte[] scratch = scratch();
+
+        int valueLen = encodeCheckedValue(value, scratch);
+
+        writeValue(tableOf(node), offsetOf(node), scratch, keyLength, valueLen);
+
+        type = typeOf(value);
+    }
+
+    /**
+     * 将value编码写入scratch的[keyLength, keyLength + valueLength)
+     * @param value value
+     * @param scratch 编码缓冲区
+     * @return 编码后的长度
+     * @throws ClassCastException value不是String/Integer/Long
+     * @throws IllegalArgumentException 编码后超过valueLength
+     */
+    private int encodeCheckedValue(Object value, byte[] scratch) {
+
+        int valueLen = encodeValue(value, scratch, keyLength);
+
+        if(valueLen == UNSUPPORTED_TYPE) {
+            throw new ClassCastException("value需要是String/Integer/Long：" + (value == null ? null : value.getClass().getName()));
+        }
+
+        if(valueLen < 0) {
+            throw new IllegalArgumentException("value长度超过" + valueLength + "：" + value);
+        }
+
+        return valueLen;
+    }
+
+    /**
+     * 将value编码写入目标数组
+     * @param value value
+     * @param dst 目标数组
+     * @param offset 写入起始位置
+     * @return 编码后的长度，超出valueLength时返回-1，类型不支持时返回UNSUPPORTED_TYPE
+     */
+    private int encodeValue(Object value, byte[] dst, int offset) {
+
+        if(value instanceof String) {
+
+            return encode((String) value, dst, offset, valueLength);
+        } else if(value instanceof Integer) {
+
+            if(valueLength < 4) {
+                return -1;
+            }
+            writeInt(dst, offset, (Integer) value);
+            return 4;
+        } else if(value instanceof Long) {
+
+            if(valueLength < 8) {
+                return -1;
+            }
+            writeLong(dst, offset, (Long) value);
+            return 8;
+        }
+
+        return UNSUPPORTED_TYPE;
+    }
+
+    /**
+     * value数据类型标识（1：String 2：Integer 3：Long）
+     */
+    private static int typeOf(Object value) {
+
+        if(value instanceof String) {
+            return 1;
+        } else if(value instanceof Integer) {
+            return 2;
+        } else if(value instanceof Long) {
+            return 3;
+        }
+
+        return 0;
+    }
+
+    /**
+     * 基于LightCursor的迭代器，hasNext不移动游标，remove删除当前节点
+     */
+    abstract class CursorIterator<T> implements Iterator<T> {
+
+        final LightCursor cursor = cursor();
+
+        @Override
+        public boolean hasNext() {
+            return cursor.hasNext();
+        }
+
+        @Override
+        public T next() {
+
+            if(!cursor.next()) {
+                throw new NoSuchElementException();
+            }
+
+            return current();
+        }
+
+        @Override
+        public void remove() {
+
+            try {
+                cursor.remove();
+            } catch (NoSuchElementException e) {
+                throw new IllegalStateException(e.getMessage());
+            }
+        }
+
+        /**
+         * @return 游标当前节点对应的元素
+         */
+        abstract T current();
+    }
+
+    /**
+     * entrySet迭代时复用的Entry，读写都直接作用于游标当前节点
+     */
+    final class LightEntry implements Entry<K,V> {
+
+        private final LightCursor cursor;
+
+        LightEntry(LightCursor cursor) {
+            this.cursor = cursor;
+        }
+
+        @Override
+        @SuppressWarnings("unchecked")
+        public K getKey() {
+            return (K) cursor.key();
+        }
+
+        @Override
+        public V getValue() {
+            return readValue(cursor.node());
+        }
+
+        @Override
+        public V setValue(V value) {
+
+            long node = cursor.node();
+            V oldValue = readValue(node);
+            writeValue(node, value);
+
+            return oldValue;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+
+            if(!(o instanceof Entry)) {
+                return false;
+            }
+
+            Entry<?, ?> entry = (Entry<?, ?>) o;
+
+            return getKey().equals(entry.getKey()) && getValue().equals(entry.getValue());
+        }
+
+        @Override
+        public int hashCode() {
+            return getKey().hashCode() ^ getValue().hashCode();
+        }
+
+        @Override
+        public String toString() {
+            return getKey() + "=" + getValue();
+        }
+    }
+}
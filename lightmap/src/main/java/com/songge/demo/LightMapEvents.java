@@ -0,0 +1,90 @@
+package com.songge.demo;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.Timespan;
+
+/**
+ * <p>
+ *   LightMap的JFR事件，只在容器开启统计并且运行环境支持JFR时加载
+ *   事件在操作完成后创建，耗时记录在字段中；没有JFR录制时shouldCommit()为false，不提交
+ * <p/>
+ */
+final class LightMapEvents {
+
+    private LightMapEvents() {
+    }
+
+    static void rehash(long duration, String cause, int oldSize, int newSize, int entries) {
+
+        Rehash event = new Rehash();
+
+        if(event.shouldCommit()) {
+            event.elapsed = duration;
+            event.cause = cause;
+            event.oldSize = oldSize;
+            event.newSize = newSize;
+            event.entries = entries;
+            event.commit();
+        }
+    }
+
+    static void slowLookup(long duration, int keyLength, int tableSize, boolean found) {
+
+        SlowLookup event = new SlowLookup();
+
+        if(event.shouldCommit()) {
+            event.elapsed = duration;
+            event.keyLength = keyLength;
+            event.tableSize = tableSize;
+            event.found = found;
+            event.commit();
+        }
+    }
+
+    @Name("com.songge.demo.Rehash")
+    @Label("LightMap Rehash")
+    @Category("LightMap")
+    @Description("容器重新放置节点（扩容、收缩、预先扩容、替换hash算法）")
+    static final class Rehash extends Event {
+
+        @Label("Elapsed")
+        @Timespan(Timespan.NANOSECONDS)
+        long elapsed;
+
+        @Label("Cause")
+        String cause;
+
+        @Label("Old Size")
+        int oldSize;
+
+        @Label("New Size")
+        int newSize;
+
+        @Label("Entries")
+        int entries;
+    }
+
+    @Name("com.songge.demo.SlowLookup")
+    @Label("LightMap Slow Lookup")
+    @Category("LightMap")
+    @Description("耗时超过阈值的查找")
+    static final class SlowLookup extends Event {
+
+        @Label("Elapsed")
+        @Timespan(Timespan.NANOSECONDS)
+        long elapsed;
+
+        @Label("Key Length")
+        int keyLength;
+
+        @Label("Table Size")
+        int tableSize;
+
+        @Label("Found")
+        boolean found;
+    }
+}
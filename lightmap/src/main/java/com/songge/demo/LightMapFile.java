@@ -0,0 +1,306 @@
+package com.songge.demo;
+
+import java.io.IOException;
+import java.nio.Buffer;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * <p>
+ *   LightMap持久化文件格式，64字节文件头后紧跟节点存储区域，多字节数据统一使用小端序：
+ *   magic(4) + version(4) + keyLength(4) + valueLength(4) + maxSize(4) + count(4) + type(4) + hash seed(8) + capacity(8) + hasher(4) + buckets(4)
+ *   节点存储区域与内存中的布局完全一致，打开时直接内存映射，不需要重建
+ *   FrozenLightMap文件的buckets大于0，节点区域之后紧跟每个桶的位移值(4 * buckets)，LightMap文件的buckets为0
+ * <p/>
+ */
+final class LightMapFile {
+
+    // 文件标识 "LMAP"
+    static final int MAGIC = 0x4C4D4150;
+
+    // 版本2：节点去掉寄居标识和next指针，使用Robin Hood探测
+    // 版本3：使用LightHasher和随机种子计算hashcode，容器大小为2的幂
+    // 版本4：LightLongKeyMap/LightIntKeyMap的节点去掉key/value长度标识，其他类型的节点与版本3相同
+    // 版本5：按hashCode是否为0判断节点是否为空，不再使用key长度标识，节点中的hashCode不为0
+    static final int VERSION = 5;
+
+    static final int HEADER_SIZE = 64;
+
+    int keyLength;
+
+    int valueLength;
+
+    int maxSize;
+
+    int count;
+
+    int type;
+
+    long seed;
+
+    double capacity;
+
+    // 写入文件的容器使用的hash算法
+    LightHasher hasher;
+
+    // 完美hash的桶数，0表示普通LightMap文件
+    int buckets;
+
+    // 映射后的节点存储结构
+    NodeStorage nodes;
+
+    // 映射后的桶位移值，buckets为0时为null
+    NodeStorage displacements;
+
+    // 版本5之前的文件中存在hashCode为0的元素，打开后需要重新计算hashcode
+    boolean rehash;
+
+    LightMapFile() {
+    }
+
+    /**
+     * @return 是否为数值key容器（LightLongKeyMap/LightIntKeyMap）的文件
+     */
+    boolean numericKey() {
+
+        return type == 5 || type == 6;
+    }
+
+    /**
+     * @return 节点长度，数值key容器的节点为 key + value + hashCode(4)，其他容器与FIXED布局相同
+     */
+    int nodeLength() {
+
+        return numericKey() ? keyLength + valueLength + 4 : LightLayout.FIXED.nodeLength(keyLength, valueLength);
+    }
+
+    /**
+     * 将容器写入指定文件，先写入同目录下的临时文件再替换，写入过程中原文件保持完整
+     * @param path 文件路径
+     * @param map 容器
+     * @param type value数据类型标识
+     */
+    static void write(Path path, AbstractLightMap map, int type) throws IOException {
+
+        // 文件只包含节点区域，ARENA布局的key/value不在节点中
+        if(map.arena != null) {
+            throw new IOException("ARENA布局的容器不能写入LightMap文件");
+        }
+
+        // 文件节点格式中没有过期时间
+        if(map.expiring) {
+            throw new IOException("开启过期时间的容器不能写入LightMap文件");
+        }
+
+        LightMapFile file = new LightMapFile();
+        file.keyLength = map.keyLength;
+        file.valueLength = map.valueLength;
+        file.maxSize = map.maxSize;
+        file.count = map.count;
+        file.type = type;
+        file.seed = map.seed;
+        file.capacity = map.capacity;
+        file.hasher = map.hasher();
+        file.nodes = map.nodes;
+
+        write(path, file);
+    }
+
+    /**
+     * 将文件内容写入指定文件，先写入同目录下的临时文件再替换，写入过程中原文件保持完整
+     * @param path 文件路径
+     * @param file 文件内容
+     */
+    static void write(Path path, LightMapFile file) throws IOException {
+
+        int hasherId = LightHashers.idOf(file.hasher);
+        if(hasherId == 0) {
+            throw new IOException("使用自定义LightHasher的容器不能写入LightMap文件");
+        }
+
+        Path target = path.toAbsolutePath();
+        Path temp = Files.createTempFile(target.getParent(), target.getFileName().toString(), ".tmp");
+
+        try {
+            try (FileChannel channel = FileChannel.open(temp, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+
+                ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+                header.putInt(MAGIC);
+                header.putInt(VERSION);
+                header.putInt(file.keyLength);
+                header.putInt(file.valueLength);
+                header.putInt(file.maxSize);
+                header.putInt(file.count);
+                header.putInt(file.type);
+                header.putLong(file.seed);
+                header.putDouble(file.capacity);
+                header.putInt(hasherId);
+                header.putInt(file.buckets);
+                ((Buffer) header).clear();
+
+                while(header.hasRemaining()) {
+                    channel.write(header);
+                }
+
+                file.nodes.writeTo(channel);
+                if(file.displacements != null) {
+                    file.displacements.writeTo(channel);
+                }
+                channel.force(true);
+            }
+
+            Files.move(temp, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } finally {
+            Files.deleteIfExists(temp);
+        }
+    }
+
+    /**
+     * 读取文件头并内存映射节点存储区域，映射为私有模式，修改只存在于内存中，flush时才写回文件
+     * @param path 文件路径
+     * @return 文件内容
+     */
+    static LightMapFile open(Path path) throws IOException {
+
+        return open(path, false);
+    }
+
+    /**
+     * 读取文件头并内存映射节点存储区域，映射为私有模式，修改只存在于内存中，flush时才写回文件
+     * @param path 文件路径
+     * @param frozen 是否为FrozenLightMap文件
+     * @return 文件内容
+     */
+    static LightMapFile open(Path path, boolean frozen) throws IOException {
+
+        // 私有映射要求channel可写，但修改不会写回文件
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+
+            ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+
+            while(header.hasRemaining()) {
+                if(channel.read(header) < 0) {
+                    throw new IOException("LightMap文件头不完整：" + path);
+                }
+            }
+
+            ((Buffer) header).flip();
+
+            if(header.getInt() != MAGIC) {
+                throw new IOException("不是LightMap文件：" + path);
+            }
+
+            int version = header.getInt();
+            if(version < 3 || version > VERSION) {
+                throw new IOException("不支持的LightMap文件版本：" + version);
+            }
+
+            LightMapFile file = new LightMapFile();
+            file.keyLength = header.getInt();
+            file.valueLength = header.getInt();
+            file.maxSize = header.getInt();
+            file.count = header.getInt();
+            file.type = header.getInt();
+            if(version == 3 && file.numericKey()) {
+                throw new IOException("版本3的LightLongKeyMap/LightIntKeyMap文件节点格式不同，需要重新写出：" + path);
+            }
+
+            file.seed = header.getLong();
+            file.capacity = header.getDouble();
+
+            // 节点中保存的hashcode与算法相关，自定义算法无法从文件中恢复
+            int hasherId = header.getInt();
+            file.hasher = LightHashers.of(hasherId);
+            if(file.hasher == null) {
+                throw new IOException("不支持的LightHasher标识：" + hasherId + "，使用自定义LightHasher的容器不能通过open打开");
+            }
+
+            file.buckets = header.getInt();
+            if(frozen != (file.buckets > 0)) {
+                throw new IOException(frozen ? "不是FrozenLightMap文件：" + path : "FrozenLightMap文件请使用FrozenLightMap.open打开：" + path);
+            }
+
+            // 节点区域的大小和位置计算都依赖文件头，映射前先检查，避免损坏的文件头导致错误的映射或查找
+            if(file.keyLength <= 0 || file.keyLength > LightLayout.FIXED.maxLength() || file.valueLength < 0 || file.valueLength > LightLayout.FIXED.maxLength()) {
+                throw new IOException("LightMap文件头中的keyLength/valueLength无效：" + file.keyLength + "/" + file.valueLength + "，" + path);
+            }
+
+            // LightMap按hashCode & (maxSize - 1)定位节点，maxSize必须是2的幂；FrozenLightMap的节点数与元素数相同
+            boolean validSize = frozen ? file.count >= 0 && file.maxSize == file.count
+                    : file.maxSize > 0 && Integer.bitCount(file.maxSize) == 1 && file.count >= 0 && file.count <= file.maxSize;
+            if(!validSize) {
+                throw new IOException("LightMap文件头中的maxSize/count无效：" + file.maxSize + "/" + file.count + "，" + path);
+            }
+
+            long size = (long) file.maxSize * file.nodeLength();
+            long displacementSize = (long) file.buckets * 4;
+
+            if(channel.size() < HEADER_SIZE + size + displacementSize) {
+                throw new IOException("LightMap文件节点区域不完整：" + path);
+            }
+
+            file.nodes = map(channel, HEADER_SIZE, size);
+            if(file.buckets > 0) {
+                file.displacements = map(channel, HEADER_SIZE + size, displacementSize);
+            } else if(version < 5 && !file.numericKey()) {
+                upgrade(file);
+            }
+
+            return file;
+        }
+    }
+
+    /**
+     * 版本5之前的节点按key长度标识判断是否为空，空节点的hashCode不一定为0
+     * 在私有映射中将空节点的hashCode清零，元素的hashCode为0时改为1并标记打开后重新计算，count按实际元素数修正
+     * 需要遍历全部节点，只在打开旧版本文件时执行，flush后文件升级为当前版本
+     * @param file 已映射节点区域的文件
+     */
+    private static void upgrade(LightMapFile file) {
+
+        int nodeLength = file.nodeLength();
+        int count = 0;
+
+        for(int i = 0; i < file.maxSize; i++) {
+
+            long node = (long) i * nodeLength;
+
+            if(file.nodes.get(node) == 0) {
+                file.nodes.putInt(node + nodeLength - 4, 0);
+                continue;
+            }
+
+            if(file.nodes.getInt(node + nodeLength - 4) == 0) {
+                file.nodes.putInt(node + nodeLength - 4, 1);
+                file.rehash = true;
+            }
+
+            count++;
+        }
+
+        file.count = count;
+    }
+
+    /**
+     * 按页私有映射文件的指定区域，页的划分与BufferNodeStorage一致
+     * @param channel 文件
+     * @param offset 区域在文件中的起始位置
+     * @param size 区域长度
+     */
+    private static NodeStorage map(FileChannel channel, long offset, long size) throws IOException {
+
+        ByteBuffer[] pages = new ByteBuffer[(int) ((size + (1L << BufferNodeStorage.PAGE_SHIFT) - 1) >>> BufferNodeStorage.PAGE_SHIFT)];
+        for(int i = 0; i < pages.length; i++) {
+            long position = (long) i << BufferNodeStorage.PAGE_SHIFT;
+            pages[i] = channel.map(FileChannel.MapMode.PRIVATE, offset + position,
+                    Math.min(size - position, 1L << BufferNodeStorage.PAGE_SHIFT));
+        }
+
+        return new BufferNodeStorage(pages, size);
+    }
+}
@@ -0,0 +1,416 @@
+package com.songge.demo;
+
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * <p>
+ *   容器运行状态的快照，通过stats()获取：负载、空置节点、探测距离分布、每个元素占用的字节数、arena失效数据
+ *   rehash次数/耗时、查找次数和慢查找次数只在setStatsEnabled(true)之后记录，默认关闭，关闭时热路径只多一次null判断
+ *   缓存模式（setMaxBytes）下另外记录命中、未命中和淘汰次数
+ *   节点冲突使用Robin Hood线性探测，没有链表，探测距离（节点位置与初始位置的距离）即查找时需要比较的额外节点数
+ * <p/>
+ */
+public final class LightMapStats {
+
+    // 探测距离直方图的长度，最后一项包含所有更长的探测距离
+    static final int HISTOGRAM_SIZE = 32;
+
+    // 元素个数
+    private final int size;
+
+    // 容器的节点总数
+    private final int tableSize;
+
+    // 空置节点数
+    private final int emptySlots;
+
+    // probeHistogram[i]为探测距离等于i的元素个数
+    private final long[] probeHistogram;
+
+    // 所有元素的探测距离之和
+    private final long totalProbe;
+
+    private final int maxProbe;
+
+    // 节点存储结构和arena占用的字节数
+    private final long memoryBytes;
+
+    // arena中失效（被覆盖或已删除）的字节数，FIXED布局时为0
+    private final long garbageBytes;
+
+    private final long rehashCount;
+
+    private final long rehashNanos;
+
+    private final long maxRehashNanos;
+
+    private final long lookups;
+
+    private final long slowLookups;
+
+    private final long hits;
+
+    private final long misses;
+
+    private final long evictions;
+
+    LightMapStats(int size, int tableSize, int emptySlots, long[] probeHistogram, long totalProbe, int maxProbe,
+                  long memoryBytes, long garbageBytes, Recorder recorder, LightClock clock) {
+
+        this.size = size;
+        this.tableSize = tableSize;
+        this.emptySlots = emptySlots;
+        this.probeHistogram = probeHistogram;
+        this.totalProbe = totalProbe;
+        this.maxProbe = maxProbe;
+        this.memoryBytes = memoryBytes;
+        this.garbageBytes = garbageBytes;
+
+        if(recorder != null) {
+            this.rehashCount = recorder.rehashCount;
+            this.rehashNanos = recorder.rehashNanos;
+            this.maxRehashNanos = recorder.maxRehashNanos;
+            this.lookups = recorder.lookups.sum();
+            this.slowLookups = recorder.slowLookups.sum();
+        } else {
+            this.rehashCount = 0;
+            this.rehashNanos = 0;
+            this.maxRehashNanos = 0;
+            this.lookups = 0;
+            this.slowLookups = 0;
+        }
+
+        if(clock != null) {
+            this.hits = clock.hits.sum();
+            this.misses = clock.misses.sum();
+            this.evictions = clock.evictions;
+        } else {
+            this.hits = 0;
+            this.misses = 0;
+            this.evictions = 0;
+        }
+    }
+
+    private LightMapStats(LightMapStats a, LightMapStats b) {
+
+        this.size = a.size + b.size;
+        this.tableSize = a.tableSize + b.tableSize;
+        this.emptySlots = a.emptySlots + b.emptySlots;
+        this.probeHistogram = new long[HISTOGRAM_SIZE];
+        for(int i = 0; i < HISTOGRAM_SIZE; i++) {
+            this.probeHistogram[i] = a.probeHistogram[i] + b.probeHistogram[i];
+        }
+        this.totalProbe = a.totalProbe + b.totalProbe;
+        this.maxProbe = Math.max(a.maxProbe, b.maxProbe);
+        this.memoryBytes = a.memoryBytes + b.memoryBytes;
+        this.garbageBytes = a.garbageBytes + b.garbageBytes;
+        this.rehashCount = a.rehashCount + b.rehashCount;
+        this.rehashNanos = a.rehashNanos + b.rehashNanos;
+        this.maxRehashNanos = Math.max(a.maxRehashNanos, b.maxRehashNanos);
+        this.lookups = a.lookups + b.lookups;
+        this.slowLookups = a.slowLookups + b.slowLookups;
+        this.hits = a.hits + b.hits;
+        this.misses = a.misses + b.misses;
+        this.evictions = a.evictions + b.evictions;
+    }
+
+    /**
+     * 合并两个容器的统计，ConcurrentLightMap汇总各个Segment时使用
+     */
+    static LightMapStats merge(LightMapStats a, LightMapStats b) {
+
+        return a == null ? b : new LightMapStats(a, b);
+    }
+
+    /**
+     * @return 元素个数
+     */
+    public int size() {
+
+        return size;
+    }
+
+    /**
+     * @return 节点总数
+     */
+    public int tableSize() {
+
+        return tableSize;
+    }
+
+    /**
+     * @return 元素个数 / 节点总数
+     */
+    public double loadFactor() {
+
+        return tableSize == 0 ? 0 : (double) size / tableSize;
+    }
+
+    /**
+     * @return 空置节点数
+     */
+    public int emptySlots() {
+
+        return emptySlots;
+    }
+
+    /**
+     * 探测距离分布，下标为探测距离，值为元素个数，最后一项包含所有不小于该距离的元素
+     * @return 直方图的拷贝
+     */
+    public long[] probeHistogram() {
+
+        return probeHistogram.clone();
+    }
+
+    /**
+     * @return 平均探测距离，命中查找平均需要额外比较的节点数
+     */
+    public double averageProbeLength() {
+
+        return size == 0 ? 0 : (double) totalProbe / size;
+    }
+
+    /**
+     * @return 最大探测距离
+     */
+    public int maxProbeLength() {
+
+        return maxProbe;
+    }
+
+    /**
+     * @return 节点存储结构和arena占用的字节数
+     */
+    public long memoryBytes() {
+
+        return memoryBytes;
+    }
+
+    /**
+     * @return 平均每个元素占用的字节数（包括空置节点和arena失效数据）
+     */
+    public double bytesPerEntry() {
+
+        return size == 0 ? 0 : (double) memoryBytes / size;
+    }
+
+    /**
+     * @return arena中失效的字节数，FIXED布局时为0
+     */
+    public long garbageBytes() {
+
+        return garbageBytes;
+    }
+
+    /**
+     * @return 开启统计后的rehash次数（扩容、收缩、预先扩容、替换hash算法）
+     */
+    public long rehashCount() {
+
+        return rehashCount;
+    }
+
+    /**
+     * @return 开启统计后rehash阻塞的总时间，渐进式rehash只计算分配新容器的时间
+     */
+    public long rehashNanos() {
+
+        return rehashNanos;
+    }
+
+    /**
+     * @return 开启统计后单次rehash阻塞的最长时间
+     */
+    public long maxRehashNanos() {
+
+        return maxRehashNanos;
+    }
+
+    /**
+     * @return 开启统计后的查找次数
+     */
+    public long lookups() {
+
+        return lookups;
+    }
+
+    /**
+     * @return 开启统计后耗时超过慢查找阈值的查找次数
+     */
+    public long slowLookups() {
+
+        return slowLookups;
+    }
+
+    /**
+     * @return 缓存模式下查找命中的次数
+     */
+    public long hits() {
+
+        return hits;
+    }
+
+    /**
+     * @return 缓存模式下查找未命中的次数
+     */
+    public long misses() {
+
+        return misses;
+    }
+
+    /**
+     * @return 缓存模式下命中次数 / 查找次数
+     */
+    public double hitRate() {
+
+        long total = hits + misses;
+
+        return total == 0 ? 0 : (double) hits / total;
+    }
+
+    /**
+     * @return 缓存模式下淘汰的元素个数
+     */
+    public long evictions() {
+
+        return evictions;
+    }
+
+    @Override
+    public String toString() {
+
+        StringBuilder builder = new StringBuilder();
+
+        builder.append("\r\n  === 元素个数：").append(size)
+                .append("\r\n  === 总共Node数：").append(tableSize)
+                .append("\r\n  === 空置Node数：").append(emptySlots)
+                .append("\r\n  === 负载：").append(String.format("%.2f", loadFactor()))
+                .append("\r\n  === 平均探测距离：").append(String.format("%.2f", averageProbeLength()))
+                .append("\r\n  === 最大探测距离：").append(maxProbe)
+                .append("\r\n  === 探测距离分布：");
+
+        int last = HISTOGRAM_SIZE - 1;
+        while(last > 0 && probeHistogram[last] == 0) {
+            last--;
+        }
+
+        for(int i = 0; i <= last; i++) {
+            builder.append(i == 0 ? "" : ", ").append(i).append(i == HISTOGRAM_SIZE - 1 ? "+" : "").append('=').append(probeHistogram[i]);
+        }
+
+        builder.append("\r\n  === 占用内存：").append(memoryBytes).append(" 字节")
+                .append("\r\n  === 每个元素：").append(String.format("%.1f", bytesPerEntry())).append(" 字节");
+
+        if(garbageBytes > 0) {
+            builder.append("\r\n  === arena失效数据：").append(garbageBytes).append(" 字节");
+        }
+
+        if(rehashCount > 0 || lookups > 0) {
+            builder.append("\r\n  === rehash次数：").append(rehashCount)
+                    .append("\r\n  === rehash总耗时：").append(rehashNanos / 1000).append(" us")
+                    .append("\r\n  === rehash最长耗时：").append(maxRehashNanos / 1000).append(" us")
+                    .append("\r\n  === 查找次数：").append(lookups)
+                    .append("\r\n  === 慢查找次数：").append(slowLookups);
+        }
+
+        if(hits > 0 || misses > 0 || evictions > 0) {
+            builder.append("\r\n  === 命中次数：").append(hits)
+                    .append("\r\n  === 未命中次数：").append(misses)
+                    .append("\r\n  === 命中率：").append(String.format("%.2f", hitRate() * 100)).append(" %")
+                    .append("\r\n  === 淘汰次数：").append(evictions);
+        }
+
+        return builder.toString();
+    }
+
+    /**
+     * <p>
+     *   开启统计后容器持有的记录器，累计rehash和查找的耗时，并在JFR可用时提交LightMapEvents中的事件
+     *   rehash只在写操作中发生，直接累加；查找可能被ConcurrentLightMap的多个读线程同时执行，使用LongAdder
+     * <p/>
+     */
+    static final class Recorder {
+
+        // 默认慢查找阈值：10微秒
+        static final long DEFAULT_SLOW_LOOKUP_NANOS = 10_000;
+
+        // 运行环境是否支持JFR（jdk8早期版本没有jdk.jfr）
+        private static final boolean JFR = jfrAvailable();
+
+        private final long slowLookupNanos;
+
+        long rehashCount;
+
+        long rehashNanos;
+
+        long maxRehashNanos;
+
+        final LongAdder lookups = new LongAdder();
+
+        final LongAdder slowLookups = new LongAdder();
+
+        /**
+         * @param slowLookupNanos 查找耗时达到该值时记为慢查找
+         */
+        Recorder(long slowLookupNanos) {
+
+            this.slowLookupNanos = slowLookupNanos;
+        }
+
+        /**
+         * 记录一次rehash
+         * @param start 开始时的System.nanoTime()
+         * @param cause 原因
+         * @param oldSize 原容器maxSize
+         * @param newSize 新容器maxSize
+         * @param entries 元素个数
+         */
+        void rehash(long start, String cause, int oldSize, int newSize, int entries) {
+
+            long duration = System.nanoTime() - start;
+
+            rehashCount++;
+            rehashNanos += duration;
+            maxRehashNanos = Math.max(maxRehashNanos, duration);
+
+            if(JFR) {
+                LightMapEvents.rehash(duration, cause, oldSize, newSize, entries);
+            }
+        }
+
+        /**
+         * 记录一次查找
+         * @param start 开始时的System.nanoTime()
+         * @param keyLen key长度
+         * @param tableSize 容器maxSize
+         * @param found 是否找到
+         */
+        void lookup(long start, int keyLen, int tableSize, boolean found) {
+
+            long duration = System.nanoTime() - start;
+
+            lookups.increment();
+
+            if(duration < slowLookupNanos) {
+                return;
+            }
+
+            slowLookups.increment();
+
+            if(JFR) {
+                LightMapEvents.slowLookup(duration, keyLen, tableSize, found);
+            }
+        }
+
+        private static boolean jfrAvailable() {
+
+            try {
+                Class.forName("jdk.jfr.Event", false, Recorder.class.getClassLoader());
+                return true;
+            } catch (ClassNotFoundException | LinkageError e) {
+                return false;
+            }
+        }
+    }
+}
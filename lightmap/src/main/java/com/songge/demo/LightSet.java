@@ -0,0 +1,526 @@
+package com.songge.demo;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Path;
+import java.util.*;
+
+/**
+ * <p>
+ *   只保存key的低内存消耗Set容器，与LightMap使用相同的节点存储结构，valueLength为0，节点不包含value
+ *   hash算法和种子相同的两个LightSet（见{@link #emptyCopy()}）之间求并集/交集时直接使用节点中的hashcode，不重新计算
+ * <p/>
+ */
+public class LightSet extends AbstractLightMap implements Set<String> {
+
+    /**
+     * 构造方法
+     * @param keyLength key长度
+     */
+    public LightSet(int keyLength) {
+
+        super(keyLength, 0, 16, 0.8, LightStorage.HEAP);
+
+    }
+
+    /**
+     * 构造方法
+     * @param keyLength key长度
+     * @param maxSize maxSize
+     */
+    public LightSet(int keyLength, int maxSize) {
+
+        super(keyLength, 0, maxSize, 0.8, LightStorage.HEAP);
+
+    }
+
+    /**
+     * 构造方法
+     * @param keyLength key长度
+     * @param maxSize maxSize
+     * @param capacity 扩充因子
+     */
+    public LightSet(int keyLength, int maxSize, double capacity) {
+
+        super(keyLength, 0, maxSize, capacity, LightStorage.HEAP);
+    }
+
+    /**
+     * 构造方法
+     * @param keyLength key长度
+     * @param maxSize maxSize
+     * @param capacity 扩充因子
+     * @param storage 节点存储方式，堆外存储使用完毕后需要调用close释放
+     */
+    public LightSet(int keyLength, int maxSize, double capacity, LightStorage storage) {
+
+        super(keyLength, 0, maxSize, capacity, storage);
+    }
+
+    /**
+     * 构造方法
+     * @param keyLength key最大长度
+     * @param maxSize maxSize
+     * @param capacity 扩充因子
+     * @param storage 节点存储方式，堆外存储使用完毕后需要调用close释放
+     * @param layout 节点布局，key长度差异大时使用ARENA按实际长度存放
+     */
+    public LightSet(int keyLength, int maxSize, double capacity, LightStorage storage, LightLayout layout) {
+
+        super(keyLength, 0, maxSize, capacity, storage, layout);
+    }
+
+    /**
+     * 构造方法，使用内存映射的LightMap文件
+     */
+    private LightSet(LightMapFile file, Path path) {
+
+        super(file, path);
+    }
+
+    /**
+     * 内存映射打开snapshot/flush写出的LightSet文件，映射为私有模式，修改不会写回文件，需要持久化时调用flush
+     * @param path 文件路径
+     * @return 容器，使用完毕后需要调用close解除映射
+     */
+    public static LightSet open(Path path) throws IOException {
+
+        LightMapFile file = LightMapFile.open(path);
+
+        if(file.type != 4 || file.valueLength != 0) {
+            file.nodes.close();
+            throw new IOException("文件不是LightSet：" + path);
+        }
+
+        return new LightSet(file, path);
+    }
+
+    @Override
+    int valueType() {
+
+        return 4;
+
+    }
+
+    /**
+     * 创建key长度、扩充因子、存储方式、节点布局、hash算法和种子都相同的空集合
+     * 与本集合之间的addAll/retainAll/removeAll/union/intersection直接使用节点中的hashcode
+     * @return 空集合
+     */
+    public LightSet emptyCopy() {
+
+        LightSet copy = new LightSet(keyLength, 16, capacity, storage, arena != null ? LightLayout.ARENA : LightLayout.FIXED);
+        copy.shareHash(this);
+
+        return copy;
+    }
+
+    /**
+     * 添加元素
+     * @param key key
+     * @return 原来不存在返回true
+     */
+    @Override
+    public boolean add(String key) {
+
+        byte[] scratch = scratch();
+
+        int keyLen = encodeKey(key, scratch);
+
+        return putEncoded(scratch, keyLen, 0);
+    }
+
+    /**
+     * 添加元素，key为UTF-8编码的字节，不创建String
+     * @param key key所在数组
+     * @param offset key在数组中的起始位置
+     * @param length key长度
+     * @return 原来不存在返回true
+     */
+    public boolean add(byte[] key, int offset, int length) {
+
+        checkKeyLength(length);
+
+        return putEncoded(key, offset, length, key, offset, 0);
+    }
+
+    @Override
+    public boolean contains(Object key) {
+
+        return key instanceof CharSequence && nodeOf((CharSequence) key) >= 0;
+    }
+
+    /**
+     * 判断集合中是否包含UTF-8编码的key
+     * @param key key所在数组
+     * @param offset key在数组中的起始位置
+     * @param length key长度
+     * @return 包含返回true，不包含返回false
+     */
+    public boolean contains(byte[] key, int offset, int length) {
+
+        return nodeOf(key, offset, length) >= 0;
+    }
+
+    /**
+     * 判断集合中是否包含ByteBuffer中[position, limit)的key，不改变position
+     * @param key key
+     * @return 包含返回true，不包含返回false
+     */
+    public boolean contains(ByteBuffer key) {
+
+        return nodeOf(key) >= 0;
+    }
+
+    @Override
+    public boolean remove(Object key) {
+
+        if(!(key instanceof CharSequence)) {
+            return false;
+        }
+
+        return removeIfPresent(nodeOf((CharSequence) key));
+    }
+
+    /**
+     * 删除UTF-8编码的key
+     * @param key key所在数组
+     * @param offset key在数组中的起始位置
+     * @param length key长度
+     * @return 存在并删除返回true
+     */
+    public boolean remove(byte[] key, int offset, int length) {
+
+        return removeIfPresent(nodeOf(key, offset, length));
+    }
+
+    @Override
+    public int size() {
+
+        return count;
+    }
+
+    @Override
+    public boolean isEmpty() {
+
+        return count == 0;
+    }
+
+    /**
+     * 批量添加，先按添加后的元素数一次性扩容
+     * 参数为hash相同的LightSet时直接复制节点中的key和hashcode，不创建String
+     * @param c 添加的元素
+     * @return 集合发生变化返回true
+     */
+    @Override
+    public boolean addAll(Collection<? extends String> c) {
+
+        if(c == this) {
+            return false;
+        }
+
+        ensureCapacity((int) Math.min((long) count + c.size(), Integer.MAX_VALUE));
+
+        if(c instanceof LightSet) {
+            return addNodes((LightSet) c);
+        }
+
+        boolean changed = false;
+
+        for(String key : c) {
+            changed |= add(key);
+        }
+
+        return changed;
+    }
+
+    /**
+     * 参数为LightSet时按节点中的key字节逐个查找，不创建String
+     * @param c 元素
+     * @return 全部包含返回true
+     */
+    @Override
+    public boolean containsAll(Collection<?> c) {
+
+        if(c instanceof LightSet) {
+
+            LightSet other = (LightSet) c;
+            LightCursor cursor = other.cursor();
+
+            while(cursor.next()) {
+                if(!containsNode(other, cursor)) {
+                    return false;
+                }
+            }
+
+            return true;
+        }
+
+        for(Object key : c) {
+            if(!contains(key)) {
+                return false;
+            }
+        }
+
+        return true;
+    }
+
+    /**
+     * 只保留同时存在于c中的元素，参数为LightSet时不创建String
+     * @param c 元素
+     * @return 集合发生变化返回true
+     */
+    @Override
+    public boolean retainAll(Collection<?> c) {
+
+        Objects.requireNonNull(c);
+
+        LightSet other = c instanceof LightSet ? (LightSet) c : null;
+        boolean changed = false;
+
+        LightCursor cursor = cursor();
+
+        while(cursor.next()) {
+
+            boolean contained = other != null ? other.containsNode(this, cursor) : c.contains(cursor.key());
+
+            if(!contained) {
+                cursor.remove();
+                changed = true;
+            }
+        }
+
+        return changed;
+    }
+
+    /**
+     * 删除同时存在于c中的元素，参数为LightSet时不创建String
+     * @param c 元素
+     * @return 集合发生变化返回true
+     */
+    @Override
+    public boolean removeAll(Collection<?> c) {
+
+        Objects.requireNonNull(c);
+
+        if(!(c instanceof LightSet)) {
+
+            boolean changed = false;
+
+            for(Object key : c) {
+                changed |= remove(key);
+            }
+
+            return changed;
+        }
+
+        LightSet other = (LightSet) c;
+        boolean changed = false;
+
+        LightCursor cursor = cursor();
+
+        while(cursor.next()) {
+            if(other.containsNode(this, cursor)) {
+                cursor.remove();
+                changed = true;
+            }
+        }
+
+        return changed;
+    }
+
+    /**
+     * 并集，返回与本集合hash相同的新集合，两个集合都不修改
+     * @param other 集合
+     * @return 新集合，堆外存储时使用完毕后需要调用close释放
+     */
+    public LightSet union(LightSet other) {
+
+        LightSet result = emptyCopy();
+        result.ensureCapacity((int) Math.min((long) count + other.count, Integer.MAX_VALUE));
+        result.addNodes(this);
+        result.addNodes(other);
+
+        return result;
+    }
+
+    /**
+     * 交集，遍历较小的集合并在较大的集合中查找，返回与本集合hash相同的新集合，两个集合都不修改
+     * @param other 集合
+     * @return 新集合，堆外存储时使用完毕后需要调用close释放
+     */
+    public LightSet intersection(LightSet other) {
+
+        LightSet small = count <= other.count ? this : other;
+        LightSet large = small == this ? other : this;
+
+        LightSet result = emptyCopy();
+        result.ensureCapacity(small.count);
+
+        byte[] buffer = new byte[small.keyLength];
+        LightCursor cursor = small.cursor();
+
+        while(cursor.next()) {
+
+            if(!large.containsNode(small, cursor)) {
+                continue;
+            }
+
+            long node = cursor.node();
+            int keyLen = small.readKey(small.nodes, node, buffer, 0);
+
+            result.putEncoded(buffer, 0, keyLen, buffer, 0, 0, DEFAULT_TTL, result.hashOf(small, node, buffer, keyLen));
+        }
+
+        return result;
+    }
+
+    /**
+     * 添加source中的全部元素
+     * @return 集合发生变化返回true
+     */
+    private boolean addNodes(LightSet source) {
+
+        byte[] buffer = new byte[source.keyLength];
+        boolean changed = false;
+
+        LightCursor cursor = source.cursor();
+
+        while(cursor.next()) {
+
+            long node = cursor.node();
+            int keyLen = source.readKey(source.nodes, node, buffer, 0);
+
+            checkKeyLength(keyLen);
+
+            changed |= putEncoded(buffer, 0, keyLen, buffer, 0, 0, DEFAULT_TTL, hashOf(source, node, buffer, keyLen));
+        }
+
+        return changed;
+    }
+
+    /**
+     * 判断本集合是否包含source游标当前节点的key
+     */
+    private boolean containsNode(LightSet source, LightCursor cursor) {
+
+        long node = cursor.node();
+        byte[] key = cursor.keyBytes();
+        int keyLen = cursor.keyLength();
+
+        if(keyLen > keyLength) {
+            return false;
+        }
+
+        return lookup(key, 0, keyLen, hashOf(source, node, key, keyLen)) >= 0;
+    }
+
+    /**
+     * @return source中节点的key在本集合中的hashcode，hash相同时直接读取节点中保存的值
+     */
+    private int hashOf(LightSet source, long node, byte[] key, int keyLen) {
+
+        return sameHash(source) ? source.nodes.getInt(node + source.nodeLength - 4) : hash(key, 0, keyLen);
+    }
+
+    @Override
+    public Iterator<String> iterator() {
+
+        LightCursor cursor = cursor();
+
+        return new Iterator<String>() {
+
+            @Override
+            public boolean hasNext() {
+                return cursor.hasNext();
+            }
+
+            @Override
+            public String next() {
+
+                if(!cursor.next()) {
+                    throw new NoSuchElementException();
+                }
+
+                return cursor.key();
+            }
+
+            @Override
+            public void remove() {
+
+                try {
+                    cursor.remove();
+                } catch (NoSuchElementException e) {
+                    throw new IllegalStateException(e.getMessage());
+                }
+            }
+        };
+    }
+
+    @Override
+    public Object[] toArray() {
+
+        return toList().toArray();
+    }
+
+    @Override
+    public <T> T[] toArray(T[] a) {
+
+        return toList().toArray(a);
+    }
+
+    private List<String> toList() {
+
+        List<String> list = new ArrayList<>(count);
+
+        LightCursor cursor = cursor();
+
+        while(cursor.next()) {
+            list.add(cursor.key());
+        }
+
+        return list;
+    }
+
+    /**
+     * 与其他Set元素相同时相等，与java.util.Set的约定一致
+     */
+    @Override
+    public boolean equals(Object o) {
+
+        if(o == this) {
+            return true;
+        }
+
+        if(!(o instanceof Set)) {
+            return false;
+        }
+
+        Set<?> other = (Set<?>) o;
+
+        return other.size() == size() && containsAll(other);
+    }
+
+    /**
+     * 各元素hashCode之和，与java.util.Set的约定一致
+     */
+    @Override
+    public int hashCode() {
+
+        int hashCode = 0;
+
+        LightCursor cursor = cursor();
+
+        while(cursor.next()) {
+            hashCode += cursor.key().hashCode();
+        }
+
+        return hashCode;
+    }
+
+    @Override
+    public String toString() {
+
+        return toList().toString();
+    }
+}
@@ -0,0 +1,192 @@
+package com.songge.demo;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ConcurrentModificationException;
+
+/**
+ * <p>
+ *   按key顺序遍历LightSortedMap的游标，直接读取页中的记录，除key()/valueString()外不产生临时对象
+ *   由cursor/floor/ceiling/subMap/prefixScan创建，遍历到结束key或第一个不匹配前缀的key时停止
+ *   遍历过程中修改容器会导致ConcurrentModificationException
+ * <p/>
+ */
+public final class LightSortedCursor {
+
+    private final LightSortedMap map;
+
+    // 下一条记录的位置
+    private int page;
+
+    private int index;
+
+    // 当前记录的位置，没有当前记录时currentPage为-1
+    private int currentPage = -1;
+
+    private int currentIndex;
+
+    // 结束key，null表示不限制
+    private final byte[] end;
+
+    private final boolean endInclusive;
+
+    // key前缀，null表示不限制
+    private final byte[] prefix;
+
+    private boolean finished;
+
+    private final int expectedModCount;
+
+    // 复用的key/value缓冲区
+    private final byte[] keyBuffer;
+    private final byte[] valueBuffer;
+
+    LightSortedCursor(LightSortedMap map, int page, int index, byte[] end, boolean endInclusive, byte[] prefix) {
+
+        this.map = map;
+        this.page = page;
+        this.index = index;
+        this.end = end;
+        this.endInclusive = endInclusive;
+        this.prefix = prefix;
+        this.expectedModCount = map.modCount;
+        this.keyBuffer = new byte[map.keyLength];
+        this.valueBuffer = new byte[map.valueLength];
+    }
+
+    /**
+     * 移动到下一条记录
+     * @return 存在下一条记录时返回true
+     */
+    public boolean next() {
+
+        if(map.modCount != expectedModCount) {
+            throw new ConcurrentModificationException();
+        }
+
+        if(finished) {
+            return false;
+        }
+
+        while(page < map.pageCount && index >= LightSortedMap.countOf(map.pages[page])) {
+            page++;
+            index = 0;
+        }
+
+        if(page >= map.pageCount) {
+            return finish();
+        }
+
+        byte[] records = map.pages[page];
+
+        if(end != null) {
+
+            int cmp = map.compare(records, index, end, 0, end.length);
+
+            if(cmp > 0 || cmp == 0 && !endInclusive) {
+                return finish();
+            }
+        }
+
+        if(prefix != null && !map.startsWith(records, index, prefix)) {
+            return finish();
+        }
+
+        currentPage = page;
+        currentIndex = index;
+        index++;
+
+        return true;
+    }
+
+    private boolean finish() {
+
+        finished = true;
+        currentPage = -1;
+
+        return false;
+    }
+
+    /**
+     * @return 当前key的UTF-8编码长度
+     */
+    public int keyLength() {
+
+        return map.pages[current()][offset()] & 0xff;
+    }
+
+    /**
+     * 当前key的UTF-8编码，返回的数组由游标复用，[0, keyLength())有效，下一次调用时被覆盖
+     * @return key字节
+     */
+    public byte[] keyBytes() {
+
+        int length = keyLength();
+
+        System.arraycopy(map.pages[currentPage], offset() + 1, keyBuffer, 0, length);
+
+        return keyBuffer;
+    }
+
+    /**
+     * @return 当前key，每次调用创建新的String
+     */
+    public String key() {
+
+        return new String(map.pages[current()], offset() + 1, keyLength(), StandardCharsets.UTF_8);
+    }
+
+    /**
+     * @return 当前value的编码长度
+     */
+    public int valueLength() {
+
+        return map.pages[current()][offset() + map.keyLength + 1] & 0xff;
+    }
+
+    /**
+     * 当前value的编码，返回的数组由游标复用，[0, valueLength())有效，下一次调用时被覆盖
+     * @return value字节
+     */
+    public byte[] valueBytes() {
+
+        int length = valueLength();
+
+        System.arraycopy(map.pages[currentPage], offset() + map.keyLength + 2, valueBuffer, 0, length);
+
+        return valueBuffer;
+    }
+
+    /**
+     * @return 当前value按String解码，每次调用创建新的String
+     */
+    public String valueString() {
+
+        return new String(map.pages[current()], offset() + map.keyLength + 2, valueLength(), StandardCharsets.UTF_8);
+    }
+
+    /**
+     * @return 当前value按long读取（putLong放入的元素）
+     */
+    public long valueLong() {
+
+        return AbstractLightMap.readLong(map.pages[current()], offset() + map.keyLength + 2);
+    }
+
+    private int current() {
+
+        if(map.modCount != expectedModCount) {
+            throw new ConcurrentModificationException();
+        }
+
+        if(currentPage < 0) {
+            throw new IllegalStateException("没有当前记录，需要先调用next()");
+        }
+
+        return currentPage;
+    }
+
+    private int offset() {
+
+        return LightSortedMap.PAGE_HEADER + currentIndex * map.recordLength;
+    }
+}
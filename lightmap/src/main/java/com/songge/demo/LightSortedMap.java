@@ -0,0 +1,606 @@
+package com.songge.demo;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+/**
+ * <p>
+ *   按key有序的低内存消耗容器，支持floor/ceiling/subMap和前缀范围查询
+ *   元素以定长记录 key长度(1) + key + value长度(1) + value 按key顺序存放在约4KB的byte数组页中，页头4字节为记录数
+ *   页目录按每页第一个key有序：查找时先在页目录中二分定位页，再在页内二分定位记录，相当于两层的B+树
+ *   页满时从中间分裂，在页尾插入（按顺序写入）时直接开新页，删除后相邻两页合计不超过半页时合并
+ *   每个元素除记录本身外只有页内的空闲空间，没有TreeMap的节点对象和String对象
+ *   key按UTF-8编码字节无符号比较，与Unicode code point顺序一致
+ *   范围查询返回{@link LightSortedCursor}，直接读取页中的记录，遍历时不为每个元素创建对象
+ * <p/>
+ */
+public class LightSortedMap {
+
+    // 每页的目标字节数
+    static final int PAGE_BYTES = 4096;
+
+    // 页头：记录数(4)
+    static final int PAGE_HEADER = 4;
+
+    // key的数据长度
+    final int keyLength;
+
+    // value的数据长度
+    final int valueLength;
+
+    // 记录长度：key + value + 2[key长度标识，value长度标识]
+    final int recordLength;
+
+    // 每页最多的记录数
+    final int pageCapacity;
+
+    // 页目录，[0, pageCount)有效
+    byte[][] pages = new byte[16][];
+
+    int pageCount;
+
+    private int count;
+
+    // 结构修改次数（新增、删除），LightSortedCursor据此检测遍历过程中的并发修改
+    int modCount;
+
+    /**
+     * 构造方法
+     * @param keyLength key长度
+     * @param valueLength value长度
+     */
+    public LightSortedMap(int keyLength, int valueLength) {
+
+        if(keyLength <= 0 || keyLength > 255 || valueLength < 0 || valueLength > 255) {
+            throw new IllegalArgumentException("keyLength需要在[1, 255]之间，valueLength需要在[0, 255]之间：" + keyLength + "/" + valueLength);
+        }
+
+        this.keyLength = keyLength;
+        this.valueLength = valueLength;
+        this.recordLength = keyLength + valueLength + 2;
+        this.pageCapacity = Math.max(4, (PAGE_BYTES - PAGE_HEADER) / recordLength);
+    }
+
+    /**
+     * 添加元素，key已存在时替换value，key/value编码后超过keyLength/valueLength时抛出IllegalArgumentException
+     * @param key key
+     * @param value value
+     */
+    public void put(CharSequence key, CharSequence value) {
+
+        byte[] scratch = AbstractLightMap.scratch(keyLength + valueLength);
+
+        int keyLen = encodeKey(key, scratch);
+        int valueLen = AbstractLightMap.encode(value, scratch, keyLength, valueLength);
+
+        if(valueLen < 0) {
+            throw new IllegalArgumentException("value长度超过" + valueLength + "：" + value);
+        }
+
+        putEncoded(scratch, 0, keyLen, scratch, keyLength, valueLen);
+    }
+
+    /**
+     * 添加元素，value按8字节long保存，valueLength小于8时抛出IllegalArgumentException
+     * @param key key
+     * @param value value
+     */
+    public void putLong(CharSequence key, long value) {
+
+        if(valueLength < 8) {
+            throw new IllegalArgumentException("valueLength小于8，不能保存long：" + valueLength);
+        }
+
+        byte[] scratch = AbstractLightMap.scratch(keyLength + 8);
+
+        int keyLen = encodeKey(key, scratch);
+
+        AbstractLightMap.writeLong(scratch, keyLength, value);
+
+        putEncoded(scratch, 0, keyLen, scratch, keyLength, 8);
+    }
+
+    /**
+     * 添加元素，key/value为已编码的字节
+     * @param key key所在数组
+     * @param keyOffset key在数组中的起始位置
+     * @param keyLen key长度
+     * @param value value所在数组
+     * @param valueOffset value在数组中的起始位置
+     * @param valueLen value长度
+     */
+    public void put(byte[] key, int keyOffset, int keyLen, byte[] value, int valueOffset, int valueLen) {
+
+        if(keyLen > keyLength) {
+            throw new IllegalArgumentException("key长度超过" + keyLength + "：" + keyLen);
+        }
+
+        if(valueLen > valueLength) {
+            throw new IllegalArgumentException("value长度超过" + valueLength + "：" + valueLen);
+        }
+
+        putEncoded(key, keyOffset, keyLen, value, valueOffset, valueLen);
+    }
+
+    /**
+     * 将key按UTF-8编码写入dst的起始位置
+     * @return 编码后的长度
+     * @throws IllegalArgumentException 编码后超过keyLength
+     */
+    private int encodeKey(CharSequence key, byte[] dst) {
+
+        int keyLen = AbstractLightMap.encode(key, dst, 0, keyLength);
+
+        if(keyLen < 0) {
+            throw new IllegalArgumentException("key长度超过" + keyLength + "：" + key);
+        }
+
+        return keyLen;
+    }
+
+    private void putEncoded(byte[] key, int keyOffset, int keyLen, byte[] value, int valueOffset, int valueLen) {
+
+        if(pageCount == 0) {
+            insertPage(0);
+        }
+
+        int pageIndex = pageFor(key, keyOffset, keyLen);
+        byte[] page = pages[pageIndex];
+        int index = search(page, key, keyOffset, keyLen);
+
+        // key已存在时替换value
+        if(index >= 0) {
+            writeValue(page, index, value, valueOffset, valueLen);
+            return;
+        }
+
+        index = ~index;
+
+        if(countOf(page) == pageCapacity) {
+
+            if(index == pageCapacity) {
+
+                // 插入位置在页尾（按顺序写入时总是如此），直接开新页，原页保持满页
+                pageIndex++;
+                insertPage(pageIndex);
+                index = 0;
+
+            } else {
+
+                // 从中间分裂，后半部分移入新页
+                int left = pageCapacity >>> 1;
+                split(pageIndex, left);
+
+                if(index > left) {
+                    pageIndex++;
+                    index -= left;
+                }
+            }
+
+            page = pages[pageIndex];
+        }
+
+        int records = countOf(page);
+        int offset = PAGE_HEADER + index * recordLength;
+
+        System.arraycopy(page, offset, page, offset + recordLength, (records - index) * recordLength);
+
+        page[offset] = (byte) keyLen;
+        System.arraycopy(key, keyOffset, page, offset + 1, keyLen);
+        writeValue(page, index, value, valueOffset, valueLen);
+
+        AbstractLightMap.writeInt(page, 0, records + 1);
+
+        count++;
+        modCount++;
+    }
+
+    /**
+     * 取得元素
+     * @param key key
+     * @return value按String解码，不存在时返回null
+     */
+    public String get(CharSequence key) {
+
+        long position = positionOf(key);
+
+        if(position < 0) {
+            return null;
+        }
+
+        byte[] page = pages[(int) (position >>> 32)];
+        int offset = PAGE_HEADER + (int) position * recordLength + keyLength + 1;
+
+        return new String(page, offset + 1, page[offset] & 0xff, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * 取得putLong放入的元素
+     * @param key key
+     * @param defaultValue key不存在时的返回值
+     * @return value
+     */
+    public long getLong(CharSequence key, long defaultValue) {
+
+        long position = positionOf(key);
+
+        if(position < 0) {
+            return defaultValue;
+        }
+
+        return AbstractLightMap.readLong(pages[(int) (position >>> 32)], PAGE_HEADER + (int) position * recordLength + keyLength + 2);
+    }
+
+    /**
+     * 判断容器中是否包含key
+     * @param key key
+     * @return 包含返回true，不包含返回false
+     */
+    public boolean containsKey(CharSequence key) {
+
+        return positionOf(key) >= 0;
+    }
+
+    /**
+     * 删除元素，删除后与相邻页合计不超过半页时合并
+     * @param key key
+     * @return 存在并删除返回true，不存在返回false
+     */
+    public boolean remove(CharSequence key) {
+
+        long position = positionOf(key);
+
+        if(position < 0) {
+            return false;
+        }
+
+        int pageIndex = (int) (position >>> 32);
+        int index = (int) position;
+        byte[] page = pages[pageIndex];
+        int records = countOf(page) - 1;
+        int offset = PAGE_HEADER + index * recordLength;
+
+        System.arraycopy(page, offset + recordLength, page, offset, (records - index) * recordLength);
+        AbstractLightMap.writeInt(page, 0, records);
+
+        count--;
+        modCount++;
+
+        if(records == 0) {
+            removePage(pageIndex);
+        } else if(pageIndex + 1 < pageCount && records + countOf(pages[pageIndex + 1]) <= pageCapacity >>> 1) {
+            merge(pageIndex);
+        } else if(pageIndex > 0 && records + countOf(pages[pageIndex - 1]) <= pageCapacity >>> 1) {
+            merge(pageIndex - 1);
+        }
+
+        return true;
+    }
+
+    public int size() {
+
+        return count;
+    }
+
+    public boolean isEmpty() {
+
+        return count == 0;
+    }
+
+    public void clear() {
+
+        pages = new byte[16][];
+        pageCount = 0;
+        count = 0;
+        modCount++;
+    }
+
+    /**
+     * @return 页和页目录占用的字节数
+     */
+    public long memoryBytes() {
+
+        return (long) pageCount * (PAGE_HEADER + (long) pageCapacity * recordLength) + (long) pages.length * 8;
+    }
+
+    /**
+     * 按key顺序遍历全部元素
+     * @return 游标
+     */
+    public LightSortedCursor cursor() {
+
+        return new LightSortedCursor(this, 0, 0, null, false, null);
+    }
+
+    /**
+     * 从不小于key的最小key开始按顺序遍历
+     * @param key key
+     * @return 游标
+     */
+    public LightSortedCursor ceiling(CharSequence key) {
+
+        byte[] bytes = bytesOf(key);
+
+        return from(bytes, true, null, false);
+    }
+
+    /**
+     * 从不大于key的最大key开始按顺序遍历，没有不大于key的元素时游标为空
+     * @param key key
+     * @return 游标
+     */
+    public LightSortedCursor floor(CharSequence key) {
+
+        byte[] bytes = bytesOf(key);
+
+        if(pageCount == 0) {
+            return new LightSortedCursor(this, 0, 0, null, false, null);
+        }
+
+        int pageIndex = pageFor(bytes, 0, bytes.length);
+        int index = search(pages[pageIndex], bytes, 0, bytes.length);
+
+        if(index < 0) {
+
+            // pageFor返回第一个key不大于key的页，只有key小于全部元素时插入位置才为0
+            index = ~index - 1;
+
+            if(index < 0) {
+                return new LightSortedCursor(this, pageCount, 0, null, false, null);
+            }
+        }
+
+        return new LightSortedCursor(this, pageIndex, index, null, false, null);
+    }
+
+    /**
+     * 按顺序遍历[fromKey, toKey]范围内的元素
+     * @param fromKey 起始key
+     * @param fromInclusive 是否包含fromKey
+     * @param toKey 结束key
+     * @param toInclusive 是否包含toKey
+     * @return 游标
+     */
+    public LightSortedCursor subMap(CharSequence fromKey, boolean fromInclusive, CharSequence toKey, boolean toInclusive) {
+
+        return from(bytesOf(fromKey), fromInclusive, bytesOf(toKey), toInclusive);
+    }
+
+    /**
+     * 按顺序遍历以prefix开头的全部key
+     * @param prefix key前缀
+     * @return 游标
+     */
+    public LightSortedCursor prefixScan(CharSequence prefix) {
+
+        return prefixScan(bytesOf(prefix));
+    }
+
+    /**
+     * 按顺序遍历以prefix开头的全部key，以prefix开头的key在有序存储中是连续的一段，从ceiling(prefix)开始到第一个不匹配的key结束
+     * @param prefix UTF-8编码的key前缀，游标创建时复制
+     * @return 游标
+     */
+    public LightSortedCursor prefixScan(byte[] prefix) {
+
+        byte[] copy = prefix.clone();
+
+        if(pageCount == 0) {
+            return new LightSortedCursor(this, 0, 0, null, false, copy);
+        }
+
+        int pageIndex = pageFor(copy, 0, copy.length);
+        int index = search(pages[pageIndex], copy, 0, copy.length);
+
+        return new LightSortedCursor(this, pageIndex, index < 0 ? ~index : index, null, false, copy);
+    }
+
+    private LightSortedCursor from(byte[] fromKey, boolean fromInclusive, byte[] toKey, boolean toInclusive) {
+
+        if(pageCount == 0) {
+            return new LightSortedCursor(this, 0, 0, toKey, toInclusive, null);
+        }
+
+        int pageIndex = pageFor(fromKey, 0, fromKey.length);
+        int index = search(pages[pageIndex], fromKey, 0, fromKey.length);
+
+        if(index < 0) {
+            index = ~index;
+        } else if(!fromInclusive) {
+            index++;
+        }
+
+        // index等于页内记录数时由游标移到下一页
+        return new LightSortedCursor(this, pageIndex, index, toKey, toInclusive, null);
+    }
+
+    /**
+     * @return key所在位置：页序号 << 32 | 页内序号，不存在时返回-1
+     */
+    private long positionOf(CharSequence key) {
+
+        if(pageCount == 0) {
+            return -1;
+        }
+
+        byte[] scratch = AbstractLightMap.scratch(keyLength);
+
+        int keyLen = AbstractLightMap.encode(key, scratch, 0, keyLength);
+
+        // key长度超出限制时不可能存在于容器中
+        if(keyLen < 0) {
+            return -1;
+        }
+
+        int pageIndex = pageFor(scratch, 0, keyLen);
+        int index = search(pages[pageIndex], scratch, 0, keyLen);
+
+        return index < 0 ? -1 : (long) pageIndex << 32 | index;
+    }
+
+    /**
+     * 在页目录中二分查找第一个key不大于key的最后一页，key小于全部元素时返回0
+     */
+    private int pageFor(byte[] key, int keyOffset, int keyLen) {
+
+        int low = 1;
+        int high = pageCount - 1;
+        int result = 0;
+
+        while(low <= high) {
+
+            int mid = (low + high) >>> 1;
+
+            if(compare(pages[mid], 0, key, keyOffset, keyLen) <= 0) {
+                result = mid;
+                low = mid + 1;
+            } else {
+                high = mid - 1;
+            }
+        }
+
+        return result;
+    }
+
+    /**
+     * 页内二分查找
+     * @return 记录序号，不存在时返回-(插入位置 + 1)
+     */
+    private int search(byte[] page, byte[] key, int keyOffset, int keyLen) {
+
+        int low = 0;
+        int high = countOf(page) - 1;
+
+        while(low <= high) {
+
+            int mid = (low + high) >>> 1;
+            int cmp = compare(page, mid, key, keyOffset, keyLen);
+
+            if(cmp < 0) {
+                low = mid + 1;
+            } else if(cmp > 0) {
+                high = mid - 1;
+            } else {
+                return mid;
+            }
+        }
+
+        return ~low;
+    }
+
+    /**
+     * 按无符号字节比较页中记录的key与指定区间
+     * @return 记录的key较小时为负数，相同时为0，较大时为正数
+     */
+    int compare(byte[] page, int index, byte[] key, int keyOffset, int keyLen) {
+
+        int offset = PAGE_HEADER + index * recordLength;
+        int length = page[offset] & 0xff;
+        int common = Math.min(length, keyLen);
+
+        for(int i = 0; i < common; i++) {
+
+            int cmp = (page[offset + 1 + i] & 0xff) - (key[keyOffset + i] & 0xff);
+
+            if(cmp != 0) {
+                return cmp;
+            }
+        }
+
+        return length - keyLen;
+    }
+
+    /**
+     * @return 页中记录的key是否以prefix开头
+     */
+    boolean startsWith(byte[] page, int index, byte[] prefix) {
+
+        int offset = PAGE_HEADER + index * recordLength;
+
+        if((page[offset] & 0xff) < prefix.length) {
+            return false;
+        }
+
+        for(int i = 0; i < prefix.length; i++) {
+            if(page[offset + 1 + i] != prefix[i]) {
+                return false;
+            }
+        }
+
+        return true;
+    }
+
+    static int countOf(byte[] page) {
+
+        return AbstractLightMap.readInt(page, 0);
+    }
+
+    private void writeValue(byte[] page, int index, byte[] value, int valueOffset, int valueLen) {
+
+        int offset = PAGE_HEADER + index * recordLength + keyLength + 1;
+
+        page[offset] = (byte) valueLen;
+        System.arraycopy(value, valueOffset, page, offset + 1, valueLen);
+    }
+
+    /**
+     * 在页目录的指定位置插入空页
+     */
+    private void insertPage(int pageIndex) {
+
+        if(pageCount == pages.length) {
+            pages = Arrays.copyOf(pages, pages.length * 2);
+        }
+
+        System.arraycopy(pages, pageIndex, pages, pageIndex + 1, pageCount - pageIndex);
+        pages[pageIndex] = new byte[PAGE_HEADER + pageCapacity * recordLength];
+        pageCount++;
+    }
+
+    private void removePage(int pageIndex) {
+
+        System.arraycopy(pages, pageIndex + 1, pages, pageIndex, pageCount - pageIndex - 1);
+        pages[--pageCount] = null;
+    }
+
+    /**
+     * 将页中left之后的记录移入紧随其后的新页
+     */
+    private void split(int pageIndex, int left) {
+
+        insertPage(pageIndex + 1);
+
+        byte[] page = pages[pageIndex];
+        byte[] next = pages[pageIndex + 1];
+        int right = countOf(page) - left;
+
+        System.arraycopy(page, PAGE_HEADER + left * recordLength, next, PAGE_HEADER, right * recordLength);
+
+        AbstractLightMap.writeInt(page, 0, left);
+        AbstractLightMap.writeInt(next, 0, right);
+    }
+
+    /**
+     * 将下一页的记录并入指定页，删除下一页
+     */
+    private void merge(int pageIndex) {
+
+        byte[] page = pages[pageIndex];
+        byte[] next = pages[pageIndex + 1];
+        int records = countOf(page);
+        int moved = countOf(next);
+
+        System.arraycopy(next, PAGE_HEADER, page, PAGE_HEADER + records * recordLength, moved * recordLength);
+        AbstractLightMap.writeInt(page, 0, records + moved);
+
+        removePage(pageIndex + 1);
+    }
+
+    /**
+     * 范围查询的边界key按UTF-8编码，不受keyLength限制
+     */
+    private static byte[] bytesOf(CharSequence key) {
+
+        return key.toString().getBytes(StandardCharsets.UTF_8);
+    }
+}
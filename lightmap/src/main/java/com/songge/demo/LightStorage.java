@@ -0,0 +1,34 @@
+package com.songge.demo;
+
+/**
+ * <p>
+ *   LightMap节点存储方式
+ * <p/>
+ */
+public enum LightStorage {
+
+    /**
+     * 堆内存储，节点分块存放在byte数组中，总大小不受单个数组2GB的限制
+     */
+    HEAP {
+        @Override
+        NodeStorage allocate(long size) {
+            return new HeapNodeStorage(size);
+        }
+    },
+
+    /**
+     * 堆外存储，节点存放在DirectByteBuffer中，不参与GC扫描，close时立即释放
+     */
+    OFF_HEAP {
+        @Override
+        NodeStorage allocate(long size) {
+            return new BufferNodeStorage(size);
+        }
+    };
+
+    /**
+     * 分配指定字节数的存储结构，内容初始为0
+     */
+    abstract NodeStorage allocate(long size);
+}
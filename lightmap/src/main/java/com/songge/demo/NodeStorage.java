@@ -0,0 +1,68 @@
+package com.songge.demo;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.channels.WritableByteChannel;
+
+/**
+ * <p>
+ *   节点存储结构，按long偏移量读写字节，多字节数据统一使用小端序
+ * <p/>
+ */
+abstract class NodeStorage implements Closeable {
+
+    /**
+     * @return 存储结构的字节数
+     */
+    abstract long size();
+
+    abstract byte get(long offset);
+
+    abstract void put(long offset, byte value);
+
+    abstract int getInt(long offset);
+
+    abstract void putInt(long offset, int value);
+
+    abstract long getLong(long offset);
+
+    abstract void putLong(long offset, long value);
+
+    /**
+     * 将指定区间读取到byte数组中
+     */
+    abstract void getBytes(long offset, byte[] dst, int dstOffset, int length);
+
+    /**
+     * 将byte数组写入指定区间
+     */
+    abstract void putBytes(long offset, byte[] src, int srcOffset, int length);
+
+    /**
+     * 在存储结构内部拷贝指定区间，源区间与目标区间可以重叠
+     */
+    abstract void copy(long srcOffset, long dstOffset, int length);
+
+    /**
+     * 比较指定区间与byte数组是否相同
+     */
+    abstract boolean matches(long offset, byte[] src, int srcOffset, int length);
+
+    /**
+     * 创建内容相同的存储结构供只读快照使用，之后两边的写入互不影响
+     * @return 与当前内容相同的存储结构
+     */
+    abstract NodeStorage share();
+
+    /**
+     * 将全部内容按顺序写入channel
+     */
+    abstract void writeTo(WritableByteChannel channel) throws IOException;
+
+    /**
+     * 释放存储结构占用的内存，释放后不能再读写
+     */
+    @Override
+    public void close() {
+    }
+}
@@ -0,0 +1,228 @@
+package com.songge.demo;
+
+import com.sun.management.ThreadMXBean;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+
+import java.lang.management.ManagementFactory;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+
+/**
+ * <p>
+ *   分配率测试，校验稳定状态下get/put/遍历不产生堆内存分配
+ *   允许测量本身带来的少量分配，但平均每次操作必须低于1 byte
+ * <p/>
+ */
+class AllocationTest {
+
+    private static final int COUNT = 150000;
+
+    private static String[] keys;
+    private static String[] missKeys;
+    private static byte[][] keyBytes;
+    private static ByteBuffer keyBuffer;
+    private static Long[] values;
+
+    private static LightMap<String, Long> lightMap;
+    private static LightLongMap lightLongMap;
+    private static LightLongKeyMap longKeyMap;
+    private static ConcurrentLightMap<String, Long> concurrentMap;
+
+    private static ThreadMXBean threadMXBean;
+
+    @BeforeAll
+    static void setUp() {
+
+        threadMXBean = (ThreadMXBean) ManagementFactory.getThreadMXBean();
+        assumeTrue(threadMXBean.isThreadAllocatedMemorySupported(), "JVM不支持统计线程分配的内存");
+
+        // key提前生成，避免把RandomString的分配计入测试区间
+        keys = new String[COUNT];
+        missKeys = new String[COUNT];
+        for(int i = 0; i < COUNT; i++) {
+            keys[i] = RandomString.getRandomString(20);
+            missKeys[i] = RandomString.getRandomString(19);
+        }
+
+        // UTF-8编码的key，模拟从网络缓冲区直接查找，RandomString生成的key为ASCII，每个20字节
+        keyBytes = new byte[COUNT][];
+        keyBuffer = ByteBuffer.allocateDirect(COUNT * 20);
+        for(int i = 0; i < COUNT; i++) {
+            keyBytes[i] = keys[i].getBytes(StandardCharsets.UTF_8);
+            keyBuffer.put(keyBytes[i]);
+        }
+
+        values = new Long[COUNT];
+        for(int i = 0; i < COUNT; i++) {
+            values[i] = (long) i;
+        }
+
+        lightMap = new LightMap<>(20, 8);
+        lightLongMap = new LightLongMap(20);
+        longKeyMap = new LightLongKeyMap();
+        concurrentMap = new ConcurrentLightMap<>(20, 8);
+        for(int i = 0; i < COUNT; i++) {
+            lightMap.put(keys[i], values[i]);
+            lightLongMap.putLong(keys[i], i);
+            longKeyMap.putLong(i, i);
+            concurrentMap.put(keys[i], values[i]);
+        }
+
+        // 预热，等待JIT编译完成
+        for(int round = 0; round < 10; round++) {
+            lookup();
+            update();
+            sum();
+            scan();
+            sumBytes();
+            sumLongKeys();
+            iterateSegments();
+        }
+    }
+
+    @Test
+    void containsKeyDoesNotAllocate() {
+
+        assertNoAllocation(AllocationTest::lookup, COUNT * 2, "LightMap containsKey");
+    }
+
+    @Test
+    void putDoesNotAllocate() {
+
+        assertNoAllocation(AllocationTest::update, COUNT, "LightMap put");
+    }
+
+    @Test
+    void getLongDoesNotAllocate() {
+
+        assertNoAllocation(AllocationTest::sum, COUNT * 2, "LightLongMap getLong");
+    }
+
+    @Test
+    void cursorDoesNotAllocate() {
+
+        assertNoAllocation(AllocationTest::scan, COUNT, "LightCursor遍历");
+    }
+
+    @Test
+    void byteKeysDoNotAllocate() {
+
+        assertNoAllocation(AllocationTest::sumBytes, COUNT * 2, "LightLongMap byte[]/ByteBuffer getLong");
+    }
+
+    @Test
+    void longKeysDoNotAllocate() {
+
+        assertNoAllocation(AllocationTest::sumLongKeys, COUNT * 2, "LightLongKeyMap put/getLong");
+    }
+
+    @Test
+    void concurrentIterationDoesNotAllocatePerEntry() {
+
+        assertNoAllocation(AllocationTest::iterateSegments, COUNT, "ConcurrentLightMap entrySet遍历");
+    }
+
+    private static void assertNoAllocation(Runnable action, int operations, String name) {
+
+        long threadId = Thread.currentThread().getId();
+
+        long start = threadMXBean.getThreadAllocatedBytes(threadId);
+        action.run();
+        long bytes = threadMXBean.getThreadAllocatedBytes(threadId) - start;
+
+        assertTrue(bytes < operations, name + "分配：" + bytes + " byte，" + (double) bytes / operations + " byte/op。");
+    }
+
+    private static void lookup() {
+
+        int hit = 0;
+        for(int i = 0; i < keys.length; i++) {
+            if(lightMap.containsKey(keys[i])) {
+                hit++;
+            }
+            if(lightMap.containsKey(missKeys[i])) {
+                hit++;
+            }
+        }
+
+        assertEquals(keys.length, hit, "LightMap命中数");
+    }
+
+    private static void sum() {
+
+        long sum = 0;
+        for(int i = 0; i < keys.length; i++) {
+            sum += lightLongMap.getLong(keys[i], 0L);
+            sum += lightLongMap.getLong(missKeys[i], 0L);
+        }
+
+        assertEquals((long) keys.length * (keys.length - 1) / 2, sum, "LightLongMap合计值");
+    }
+
+    private static void sumBytes() {
+
+        long sum = 0;
+        for(int i = 0; i < keyBytes.length; i++) {
+
+            sum += lightLongMap.getLong(keyBytes[i], 0, keyBytes[i].length, 0L);
+
+            keyBuffer.limit(i * 20 + 20).position(i * 20);
+            sum += lightLongMap.getLong(keyBuffer, 0L);
+            keyBuffer.limit(keyBuffer.capacity());
+        }
+
+        assertEquals((long) keyBytes.length * (keyBytes.length - 1), sum, "LightLongMap byte[]/ByteBuffer合计值");
+    }
+
+    private static void sumLongKeys() {
+
+        long sum = 0;
+        for(int i = 0; i < COUNT; i++) {
+            longKeyMap.putLong(i, i);
+            sum += longKeyMap.getLong(i, 0L) + longKeyMap.getLong(-1 - i, 0L);
+        }
+
+        assertEquals((long) COUNT * (COUNT - 1) / 2, sum, "LightLongKeyMap合计值");
+    }
+
+    private static void scan() {
+
+        // 游标本身和复用缓冲区只分配一次，不随元素数增长
+        LightCursor cursor = lightLongMap.cursor();
+
+        long sum = 0;
+        int entries = 0;
+        while(cursor.next()) {
+            sum += cursor.valueLong() + cursor.keyBytes()[0];
+            entries++;
+        }
+
+        assertEquals(COUNT, entries, "LightCursor遍历元素数");
+        assertTrue(sum != 0);
+    }
+
+    private static void iterateSegments() {
+
+        // 每个Segment只创建一次快照和迭代器，不为元素创建Entry、key和value
+        int entries = 0;
+        for(Object entry : concurrentMap.entrySet()) {
+            if(entry != null) {
+                entries++;
+            }
+        }
+
+        assertEquals(COUNT, entries, "ConcurrentLightMap遍历元素数");
+    }
+
+    private static void update() {
+
+        for(int i = 0; i < keys.length; i++) {
+            lightMap.put(keys[i], values[i]);
+        }
+    }
+}
@@ -0,0 +1,141 @@
+package com.songge.demo;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.EnumSource;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * <p>
+ *   ARENA布局按实际长度存放key/value，以HashMap作为参照；被覆盖和删除的记录由整理回收
+ * <p/>
+ */
+class ArenaTest {
+
+    private static String text(Random random, int length) {
+
+        char[] chars = new char[length];
+        Arrays.fill(chars, (char) ('a' + random.nextInt(26)));
+
+        return new String(chars);
+    }
+
+    @ParameterizedTest
+    @EnumSource(LightStorage.class)
+    void variableLengthsMatchHashMap(LightStorage storage) {
+
+        LightMap<String, String> map = new LightMap<>(4000, 0xffff, 16, 0.8, storage, LightLayout.ARENA);
+        Map<String, String> expected = new HashMap<>();
+        Random random = new Random(121);
+
+        for(int i = 0; i < 50000; i++) {
+
+            // 少量长value使记录跨过chunk的剩余空间，新chunk从头开始
+            String key = "k" + random.nextInt(3000) + text(random, random.nextInt(10) == 0 ? random.nextInt(3000) : 0);
+            int op = random.nextInt(10);
+
+            if(op < 6) {
+                String value = text(random, random.nextInt(50) == 0 ? 30000 + random.nextInt(35535) : random.nextInt(100));
+                map.put(key, value);
+                expected.put(key, value);
+            } else if(op < 8) {
+                assertEquals(expected.remove(key), map.remove(key));
+            } else {
+                assertEquals(expected.get(key), map.get(key));
+            }
+        }
+
+        LightMapTest.assertSameContent(expected, map);
+
+        // 整理后只剩仍被引用的记录，garbage只包括chunk尾部放不下记录而跳过的空间
+        map.compact();
+        long live = 0;
+        for(Map.Entry<String, String> entry : expected.entrySet()) {
+            live += 4 + entry.getKey().length() + entry.getValue().length();
+        }
+        assertEquals(live, map.arena.live());
+        assertTrue(map.arena.garbage() < live, String.valueOf(map.arena.garbage()));
+        LightMapTest.assertSameContent(expected, map);
+
+        map.close();
+    }
+
+    @Test
+    void overwritesAreReclaimed() {
+
+        LightMap<String, String> map = new LightMap<>(16, 1000, 16, 0.8, LightStorage.HEAP, LightLayout.ARENA);
+        Random random = new Random(122);
+
+        for(int i = 0; i < 100; i++) {
+            map.put("k" + i, text(random, 500));
+        }
+
+        // 反复覆盖，失效记录超过有效记录时自动整理，arena不随覆盖次数增长
+        for(int round = 0; round < 1000; round++) {
+            for(int i = 0; i < 100; i++) {
+                map.put("k" + i, text(random, 1 + random.nextInt(999)));
+            }
+            assertTrue(map.arena.garbage() <= 2 * map.arena.live() + LightArena.MIN_CHUNK, String.valueOf(map.arena.garbage()));
+        }
+
+        assertTrue(map.arena.capacity() < 1 << 20, String.valueOf(map.arena.capacity()));
+
+        for(int i = 0; i < 100; i++) {
+            map.remove("k" + i);
+        }
+        map.compact();
+        assertEquals(0, map.arena.live());
+        assertEquals(0, map.arena.garbage());
+    }
+
+    @Test
+    void lengthLimits() {
+
+        LightMap<String, String> map = new LightMap<>(0xffff, 0xffff, 16, 0.8, LightStorage.HEAP, LightLayout.ARENA);
+
+        char[] longest = new char[0xffff];
+        Arrays.fill(longest, 'x');
+        map.put(new String(longest), new String(longest));
+        assertEquals(new String(longest), map.get(new String(longest)));
+
+        // 空value与不存在的key可以区分
+        map.put("empty", "");
+        assertEquals("", map.get("empty"));
+
+        assertThrows(IllegalArgumentException.class, () -> map.put(new String(longest) + "x", "v"));
+        assertThrows(IllegalArgumentException.class, () -> map.put("k", new String(longest) + "x"));
+
+        assertThrows(IllegalArgumentException.class, () -> new LightMap<String, String>(0x10000, 16, 16, 0.8, LightStorage.HEAP, LightLayout.ARENA));
+        assertThrows(IllegalArgumentException.class, () -> new LightMap<String, String>(256, 16, 16, 0.8, LightStorage.HEAP, LightLayout.FIXED));
+    }
+
+    /**
+     * key长度差异大时ARENA布局的节点和记录总大小远小于FIXED布局按最大长度预留的空间
+     */
+    @Test
+    void arenaSavesMemoryForSkewedLengths() {
+
+        LightMap<String, String> fixed = new LightMap<>(255, 8, 16, 0.8, LightStorage.HEAP, LightLayout.FIXED);
+        LightMap<String, String> arena = new LightMap<>(255, 8, 16, 0.8, LightStorage.HEAP, LightLayout.ARENA);
+        Random random = new Random(123);
+
+        for(int i = 0; i < 10000; i++) {
+            String key = "k" + i + (i % 100 == 0 ? text(random, 200) : "");
+            fixed.put(key, "v");
+            arena.put(key, "v");
+        }
+
+        long fixedBytes = fixed.nodes.size();
+        long arenaBytes = arena.nodes.size() + arena.arena.capacity();
+
+        assertTrue(arenaBytes * 5 < fixedBytes, arenaBytes + " / " + fixedBytes);
+    }
+}
@@ -0,0 +1,171 @@
+package com.songge.demo;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.function.BiFunction;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * <p>
+ *   increment/addAndGet/putIfAbsent以及Map的merge/compute/computeIfAbsent
+ * <p/>
+ */
+class AtomicUpdateTest {
+
+    @Test
+    void numericCounters() {
+
+        LightLongMap longs = new LightLongMap(16);
+        LightIntMap ints = new LightIntMap(16);
+        LightLongKeyMap longKeys = new LightLongKeyMap();
+        LightIntKeyMap intKeys = new LightIntKeyMap();
+
+        for(int round = 0; round < 3; round++) {
+            for(int i = 0; i < 10000; i++) {
+                longs.increment("k" + i);
+                ints.addAndGet("k" + i, 2);
+                longKeys.addAndGet(i, -1);
+                intKeys.increment(i);
+            }
+        }
+
+        for(int i = 0; i < 10000; i++) {
+            assertEquals(3, longs.getLong("k" + i, 0));
+            assertEquals(6, ints.getInt("k" + i, 0));
+            assertEquals(-3, longKeys.getLong(i, 0));
+            assertEquals(3, intKeys.getInt(i, 0));
+        }
+
+        assertEquals(10000, longs.size());
+        assertEquals(10000, intKeys.size());
+    }
+
+    @Test
+    void intCountersWrapAround() {
+
+        LightIntMap ints = new LightIntMap(16);
+
+        ints.putInt("max", Integer.MAX_VALUE);
+
+        assertEquals(Integer.MIN_VALUE, ints.increment("max"));
+        assertEquals(Integer.MIN_VALUE, ints.getInt("max", 0));
+    }
+
+    @Test
+    void putIfAbsentKeepsExistingValue() {
+
+        LightLongMap longs = new LightLongMap(16);
+        LightIntKeyMap intKeys = new LightIntKeyMap();
+
+        assertTrue(longs.putIfAbsent("k", 1));
+        assertFalse(longs.putIfAbsent("k", 2));
+        assertEquals(1, longs.getLong("k", 0));
+
+        assertTrue(intKeys.putIfAbsent(7, 1));
+        assertFalse(intKeys.putIfAbsent(7, 2));
+        assertEquals(1, intKeys.getInt(7, 0));
+    }
+
+    @Test
+    void mapUpdatesMatchHashMap() {
+
+        LightMap<String, String> map = new LightMap<>(16, 24);
+        Map<String, String> expected = new HashMap<>();
+        Random random = new Random(5);
+
+        // 长度到上限时返回null，对应的key被删除
+        BiFunction<String, String, String> append = (a, b) -> a.length() + b.length() > 24 ? null : a + b;
+
+        for(int i = 0; i < 100000; i++) {
+
+            String key = "k" + random.nextInt(2000);
+            String value = "v" + random.nextInt(10);
+
+            switch(random.nextInt(5)) {
+                case 0:
+                    assertEquals(expected.merge(key, value, append), map.merge(key, value, append));
+                    break;
+                case 1:
+                    assertEquals(expected.compute(key, (k, v) -> v == null ? value : null), map.compute(key, (k, v) -> v == null ? value : null));
+                    break;
+                case 2:
+                    assertEquals(expected.computeIfAbsent(key, k -> value), map.computeIfAbsent(key, k -> value));
+                    break;
+                case 3:
+                    assertEquals(expected.putIfAbsent(key, value), map.putIfAbsent(key, value));
+                    break;
+                default:
+                    assertEquals(expected.remove(key), map.remove(key));
+            }
+        }
+
+        LightMapTest.assertSameContent(expected, map);
+    }
+
+    @Test
+    void concurrentMergeCountsEveryUpdate() throws Exception {
+
+        ConcurrentLightMap<String, Long> map = new ConcurrentLightMap<>(16, 8, 4);
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+
+        try {
+
+            List<Future<?>> futures = new ArrayList<>();
+            for(int t = 0; t < 4; t++) {
+                futures.add(executor.submit(() -> {
+                    for(int i = 0; i < 20000; i++) {
+                        map.merge("k" + (i % 500), 1L, Long::sum);
+                    }
+                }));
+            }
+
+            for(Future<?> future : futures) {
+                future.get();
+            }
+        } finally {
+            executor.shutdown();
+        }
+
+        for(int i = 0; i < 500; i++) {
+            assertEquals(Long.valueOf(160), map.get("k" + i));
+        }
+    }
+
+    @Test
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    void concurrentMapRejectsNonStringKeys() {
+
+        Map raw = new ConcurrentLightMap<String, String>(16, 16);
+
+        assertThrows(ClassCastException.class, () -> raw.put(new StringBuilder("k"), "v"));
+        assertThrows(ClassCastException.class, () -> raw.putIfAbsent(1, "v"));
+        assertThrows(ClassCastException.class, () -> raw.computeIfAbsent(1, k -> "v"));
+        assertThrows(ClassCastException.class, () -> raw.compute(1, (k, v) -> "v"));
+        assertThrows(ClassCastException.class, () -> raw.merge(1, "v", (a, b) -> b));
+        assertTrue(raw.isEmpty());
+        assertNull(raw.get("k"));
+    }
+
+    @Test
+    void oversizedCounterKeysAreRejected() {
+
+        LightLongMap longs = new LightLongMap(4);
+
+        assertThrows(IllegalArgumentException.class, () -> longs.addAndGet("12345", 1));
+        assertThrows(IllegalArgumentException.class, () -> longs.putIfAbsent("12345", 1));
+        assertTrue(longs.isEmpty());
+    }
+}
@@ -0,0 +1,133 @@
+package com.songge.demo;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.EnumSource;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * <p>
+ *   putAll/loadFrom预先扩容后批量放入，getAll按组查找，结果与逐个put/get一致
+ * <p/>
+ */
+class BulkTest {
+
+    private static Map<String, String> entries(String prefix, int count) {
+
+        Map<String, String> entries = new HashMap<>();
+        for(int i = 0; i < count; i++) {
+            entries.put(prefix + i, "v" + i);
+        }
+
+        return entries;
+    }
+
+    @Test
+    void putAllRehashesOnce() {
+
+        LightMap<String, String> map = new LightMap<>(16, 16);
+        Map<String, String> expected = LightMapTest.randomOperations(map, 1000, 5000, 131);
+
+        map.setStatsEnabled(true);
+        long rehashes = map.stats().rehashCount();
+
+        // 与已有key部分重叠
+        Map<String, String> more = entries("k", 100000);
+        map.putAll(more);
+        expected.putAll(more);
+
+        assertEquals(rehashes + 1, map.stats().rehashCount());
+        LightMapTest.assertSameContent(expected, map);
+    }
+
+    @Test
+    void loadFromStreamsEntries() {
+
+        LightMap<String, String> map = new LightMap<>(16, 16);
+        map.setStatsEnabled(true);
+
+        Map<String, String> expected = entries("k", 100000);
+        assertEquals(100000, map.loadFrom(expected.entrySet().iterator(), expected.size()));
+        assertEquals(1, map.stats().rehashCount());
+        LightMapTest.assertSameContent(expected, map);
+
+        // 预计元素数偏小时按扩容因子正常扩容
+        Map<String, String> more = entries("n", 50000);
+        assertEquals(50000, map.loadFrom(more.entrySet().iterator(), 10));
+        expected.putAll(more);
+        LightMapTest.assertSameContent(expected, map);
+
+        assertEquals(0, map.loadFrom(Collections.<Map.Entry<String, String>>emptyIterator(), 0));
+    }
+
+    @ParameterizedTest
+    @EnumSource(LightLayout.class)
+    void getAllMatchesGet(LightLayout layout) {
+
+        LightMap<String, String> map = new LightMap<>(16, 16, 16, 0.8, LightStorage.HEAP, layout);
+        Map<String, String> expected = LightMapTest.randomOperations(map, 20000, 100000, 132);
+
+        // 不足一组、恰好一组、多组，包括不存在的key、重复的key和超过keyLength的key
+        List<String> keys = new ArrayList<>();
+        for(int i = 0; i < 20000; i += 7) {
+            keys.add("k" + i);
+        }
+        keys.add("k1");
+        keys.add("k1");
+        keys.add("a key longer than keyLength");
+        keys.add("键");
+
+        for(int size : new int[]{0, 1, 15, 16, 17, 32, keys.size()}) {
+            assertGetAll(map, keys.subList(0, size));
+        }
+
+        assertEquals(expected.size(), map.size());
+    }
+
+    @Test
+    void getAllDuringIncrementalRehashAndExpiry() throws InterruptedException {
+
+        LightMap<String, String> map = new LightMap<>(16, 16, 4096);
+        map.setIncrementalRehash(1);
+        map.setExpireAfterWrite(1, TimeUnit.HOURS);
+
+        List<String> keys = new ArrayList<>();
+        for(int i = 0; map.oldNodes == null; i++) {
+            map.put("k" + i, "v" + i);
+            keys.add("k" + i);
+        }
+        map.put("short", "v", 1, TimeUnit.SECONDS);
+        keys.add("short");
+        keys.add("missing");
+
+        assertTrue(map.oldNodes != null);
+        assertGetAll(map, keys);
+
+        // 过期时间按秒计算，等待超过两秒确保跨过边界
+        Thread.sleep(2100);
+
+        List<String> expired = new ArrayList<>();
+        map.getAll(Collections.singletonList("short"), (key, value) -> expired.add(value));
+        assertEquals(Collections.singletonList(null), expired);
+    }
+
+    private static void assertGetAll(LightMap<String, String> map, List<String> keys) {
+
+        List<String> found = new ArrayList<>();
+        map.getAll(keys, (key, value) -> {
+            found.add(key);
+            assertEquals(map.get(key), value, key);
+        });
+
+        assertEquals(keys, found);
+    }
+}
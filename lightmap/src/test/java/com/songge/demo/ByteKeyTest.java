@@ -0,0 +1,170 @@
+package com.songge.demo;
+
+import org.junit.jupiter.api.Test;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * <p>
+ *   byte[]/ByteBuffer/CharSequence形式的key与String key访问同一个节点，超出长度限制时抛出异常且不修改容器
+ * <p/>
+ */
+class ByteKeyTest {
+
+    @Test
+    void byteKeysMatchStringKeys() {
+
+        LightMap<String, String> map = new LightMap<>(16, 16);
+        byte[] buffer = new byte[64];
+
+        for(int i = 0; i < 5000; i++) {
+
+            byte[] key = ("键" + i).getBytes(StandardCharsets.UTF_8);
+            System.arraycopy(key, 0, buffer, 7, key.length);
+
+            map.put(buffer, 7, key.length, "v" + i);
+        }
+
+        for(int i = 0; i < 5000; i++) {
+
+            String key = "键" + i;
+            byte[] bytes = key.getBytes(StandardCharsets.UTF_8);
+
+            assertEquals("v" + i, map.get(key));
+            assertEquals("v" + i, map.get(bytes, 0, bytes.length));
+            assertEquals("v" + i, map.get(ByteBuffer.wrap(bytes)));
+            assertEquals("v" + i, map.get(new StringBuilder(key)));
+            assertTrue(map.containsKey(bytes, 0, bytes.length));
+        }
+
+        byte[] removed = "键0".getBytes(StandardCharsets.UTF_8);
+        assertEquals("v0", map.remove(removed, 0, removed.length));
+        assertNull(map.get("键0"));
+        assertEquals(4999, map.size());
+    }
+
+    @Test
+    void byteBufferKeyKeepsPosition() {
+
+        LightLongMap map = new LightLongMap(16);
+        map.putLong("abc", 42);
+
+        ByteBuffer direct = ByteBuffer.allocateDirect(16);
+        direct.put("xxabcxx".getBytes(StandardCharsets.UTF_8));
+        direct.position(2).limit(5);
+
+        assertEquals(42, map.getLong(direct, -1));
+        assertEquals(2, direct.position());
+        assertEquals(5, direct.limit());
+    }
+
+    /**
+     * 长度为0的key是合法的key，经各个入口放入接近满的容器后，空key和之前的key都能找到
+     */
+    @Test
+    void emptyKeysThroughEveryEntryPoint() {
+
+        byte[] bytes = "xx".getBytes(StandardCharsets.UTF_8);
+
+        LightSet set = new LightSet(16, 1024, 0.9);
+        for(int i = 0; i < 900; i++) {
+            set.add("k" + i);
+        }
+        assertTrue(set.add(bytes, 1, 0));
+        assertFalse(set.add(""));
+        assertTrue(set.contains(new StringBuilder()));
+        assertTrue(set.contains(ByteBuffer.allocateDirect(0)));
+        assertTrue(set.contains(bytes, 2, 0));
+        assertEquals(901, set.size());
+        for(int i = 0; i < 900; i++) {
+            assertTrue(set.contains("k" + i), "k" + i);
+        }
+        assertTrue(set.remove(bytes, 0, 0));
+        assertFalse(set.contains(""));
+
+        LightMap<String, String> map = new LightMap<>(16, 16, 1024, 0.9);
+        for(int i = 0; i < 900; i++) {
+            map.put("k" + i, "v" + i);
+        }
+        map.put(bytes, 0, 0, "e");
+        assertEquals("e", map.get(""));
+        assertEquals("e", map.get(ByteBuffer.wrap(bytes, 1, 0)));
+        assertEquals("e", map.get(new StringBuilder()));
+        for(int i = 0; i < 900; i++) {
+            assertEquals("v" + i, map.get("k" + i));
+        }
+
+        LightLongMap longMap = new LightLongMap(16, 1024, 0.9);
+        for(int i = 0; i < 900; i++) {
+            longMap.putLong("k" + i, i);
+        }
+        longMap.putLong(new StringBuilder(), -1);
+        assertEquals(-1, longMap.getLong(bytes, 0, 0, 0));
+        assertEquals(-1, longMap.getLong(ByteBuffer.allocateDirect(0), 0));
+        for(int i = 0; i < 900; i++) {
+            assertEquals(i, longMap.getLong("k" + i, -1));
+        }
+
+        ConcurrentLightMap<String, String> concurrent = new ConcurrentLightMap<>(16, 16, 4, 256);
+        for(int i = 0; i < 3000; i++) {
+            concurrent.put("k" + i, "v" + i);
+        }
+        assertNull(concurrent.put("", "e"));
+        assertEquals("e", concurrent.get(""));
+        assertEquals(3001, concurrent.size());
+        for(int i = 0; i < 3000; i++) {
+            assertEquals("v" + i, concurrent.get("k" + i));
+        }
+        assertEquals("e", concurrent.remove(""));
+        assertNull(concurrent.get(""));
+    }
+
+    @Test
+    void oversizedKeysAndValuesAreRejected() {
+
+        LightMap<String, String> map = new LightMap<>(4, 4);
+        byte[] longKey = new byte[5];
+
+        assertThrows(IllegalArgumentException.class, () -> map.put("12345", "v"));
+        assertThrows(IllegalArgumentException.class, () -> map.put("k", "12345"));
+        assertThrows(IllegalArgumentException.class, () -> map.put(longKey, 0, 5, "v"));
+        assertThrows(IllegalArgumentException.class, () -> map.put(longKey, 0, 1, "12345"));
+        assertTrue(map.isEmpty());
+
+        // 多字节字符按UTF-8长度计算：2个汉字6字节
+        assertThrows(IllegalArgumentException.class, () -> map.put("汉字", "v"));
+
+        LightLongMap longMap = new LightLongMap(4);
+        assertThrows(IllegalArgumentException.class, () -> longMap.putLong("12345", 1));
+        assertThrows(IllegalArgumentException.class, () -> longMap.putLong(longKey, 0, 5, 1));
+        assertTrue(longMap.isEmpty());
+
+        LightSet set = new LightSet(4);
+        assertThrows(IllegalArgumentException.class, () -> set.add("12345"));
+        assertThrows(IllegalArgumentException.class, () -> set.add(longKey, 0, 5));
+        assertTrue(set.isEmpty());
+    }
+
+    @Test
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    void unsupportedTypesAreRejected() {
+
+        Map raw = new LightMap<String, String>(16, 16);
+
+        assertThrows(ClassCastException.class, () -> raw.put(1, "v"));
+        assertThrows(ClassCastException.class, () -> raw.put("k", 1.5));
+        assertTrue(raw.isEmpty());
+
+        // 不可能存在的key按不存在处理
+        assertNull(raw.get(1));
+        assertFalse(raw.containsKey(1));
+    }
+}
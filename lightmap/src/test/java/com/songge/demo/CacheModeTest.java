@@ -0,0 +1,152 @@
+package com.songge.demo;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.EnumSource;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * <p>
+ *   缓存模式下节点存储结构不超过字节上限，容器中的元素都是参照HashMap中的元素，CLOCK淘汰保留常用的key
+ * <p/>
+ */
+class CacheModeTest {
+
+    /**
+     * 容器中的元素都存在于参照中且value相同，元素数不超过上限
+     */
+    private static void assertCached(Map<String, String> expected, LightMap<String, String> map) {
+
+        assertTrue(map.size() <= map.clock.limit, String.valueOf(map.size()));
+
+        int entries = 0;
+        for(Map.Entry<String, String> entry : map.entrySet()) {
+            assertEquals(expected.get(entry.getKey()), entry.getValue(), entry.getKey());
+            entries++;
+        }
+
+        assertEquals(map.size(), entries);
+    }
+
+    @ParameterizedTest
+    @EnumSource(LightLayout.class)
+    void randomOperationsStayWithinLimit(LightLayout layout) {
+
+        LightMap<String, String> map = new LightMap<>(16, 16, 16, 0.8, LightStorage.HEAP, layout);
+        map.setMaxBytes(64 * 1024);
+
+        Map<String, String> expected = new HashMap<>();
+        Random random = new Random(181);
+
+        for(int i = 0; i < 200000; i++) {
+
+            String key = "k" + random.nextInt(20000);
+            int op = random.nextInt(10);
+
+            if(op < 5) {
+                String value = "v" + random.nextInt();
+                map.put(key, value);
+                expected.put(key, value);
+            } else if(op < 6) {
+                String removed = map.remove(key);
+                String old = expected.remove(key);
+                assertTrue(removed == null || removed.equals(old), key);
+            } else {
+                String value = map.get(key);
+                assertTrue(value == null || value.equals(expected.get(key)), key);
+            }
+        }
+
+        assertTrue(map.nodes.size() <= 64 * 1024);
+        assertCached(expected, map);
+
+        LightMapStats stats = map.stats();
+        assertTrue(stats.evictions() > 0);
+        assertTrue(stats.hits() > 0 && stats.misses() > 0);
+    }
+
+    @Test
+    void evictionCountMatchesInserts() {
+
+        LightMap<String, String> map = new LightMap<>(16, 16);
+        map.setMaxBytes(32 * 1024);
+
+        for(int i = 0; i < 100000; i++) {
+            map.put("k" + i, "v" + i);
+        }
+
+        assertEquals(map.clock.limit, map.size());
+        assertEquals(100000 - map.size(), map.stats().evictions());
+    }
+
+    /**
+     * 每放入少量新key就访问一遍常用key，常用key的访问位总在指针经过前被置位，不会被淘汰
+     */
+    @Test
+    void hotKeysSurvive() {
+
+        LightMap<String, String> map = new LightMap<>(16, 16);
+        map.setMaxBytes(64 * 1024);
+
+        for(int i = 0; i < 100; i++) {
+            map.put("hot" + i, "h" + i);
+        }
+
+        for(int round = 0; round < 5000; round++) {
+
+            for(int i = 0; i < 10; i++) {
+                map.put("cold" + round + "_" + i, "c");
+            }
+
+            for(int i = 0; i < 100; i++) {
+                assertNotNull(map.get("hot" + i), "round " + round + " hot" + i);
+            }
+        }
+
+        assertTrue(map.stats().evictions() > 40000);
+    }
+
+    @Test
+    void enableAndDisable() {
+
+        LightMap<String, String> map = new LightMap<>(16, 16);
+        Map<String, String> expected = new HashMap<>();
+        for(int i = 0; i < 50000; i++) {
+            map.put("k" + i, "v" + i);
+            expected.put("k" + i, "v" + i);
+        }
+
+        // 已有元素超过上限时立即淘汰并收缩容器
+        map.setMaxBytes(16 * 1024);
+        assertTrue(map.nodes.size() <= 16 * 1024);
+        assertCached(expected, map);
+
+        // 关闭后按需扩容，不再淘汰
+        map.setMaxBytes(0);
+        for(int i = 50000; i < 100000; i++) {
+            map.put("k" + i, "v" + i);
+            expected.put("k" + i, "v" + i);
+        }
+        for(int i = 50000; i < 100000; i++) {
+            assertEquals("v" + i, map.get("k" + i));
+        }
+
+        // 清空后保持缓存模式的容器大小
+        map.setMaxBytes(16 * 1024);
+        long bytes = map.nodes.size();
+        map.clear();
+        assertEquals(bytes, map.nodes.size());
+        map.put("k", "v");
+        assertEquals("v", map.get("k"));
+
+        assertThrows(IllegalArgumentException.class, () -> map.setMaxBytes(3 * map.nodeLength));
+    }
+}
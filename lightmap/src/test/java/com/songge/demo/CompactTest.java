@@ -0,0 +1,164 @@
+package com.songge.demo;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * <p>
+ *   删除不留下删除标记，反复放入删除时容器不增长；大量删除后compact()或自动收缩释放空置节点
+ * <p/>
+ */
+class CompactTest {
+
+    @Test
+    void churnDoesNotGrowTable() {
+
+        LightMap<String, String> map = new LightMap<>(16, 16);
+        Map<String, String> expected = new HashMap<>();
+
+        // 同时存在的元素不超过1000个，key不断更换
+        for(int i = 0; i < 1000000; i++) {
+
+            String key = "k" + i;
+            map.put(key, "v" + i);
+            expected.put(key, "v" + i);
+
+            if(i >= 1000) {
+                String old = "k" + (i - 1000);
+                assertEquals(expected.remove(old), map.remove(old));
+            }
+        }
+
+        assertTrue(map.maxSize <= 2048, String.valueOf(map.maxSize));
+        LightMapTest.assertSameContent(expected, map);
+    }
+
+    @Test
+    void compactShrinksTable() {
+
+        LightMap<String, String> map = new LightMap<>(16, 16);
+        Map<String, String> expected = new HashMap<>();
+
+        for(int i = 0; i < 100000; i++) {
+            map.put("k" + i, "v" + i);
+            expected.put("k" + i, "v" + i);
+        }
+
+        for(int i = 0; i < 100000; i++) {
+            if(i % 100 != 0) {
+                assertEquals(expected.remove("k" + i), map.remove("k" + i));
+            }
+        }
+
+        int before = map.maxSize;
+        map.compact();
+
+        // 1000个元素按0.8的扩容因子需要2048个节点
+        assertEquals(2048, map.maxSize);
+        assertTrue(map.maxSize < before);
+        LightMapTest.assertSameContent(expected, map);
+
+        for(int i = 1; i < 100000; i += 100) {
+            assertNull(map.get("k" + i));
+        }
+
+        // 收缩后继续放入，按需扩容
+        for(int i = 0; i < 50000; i++) {
+            map.put("n" + i, "v" + i);
+            expected.put("n" + i, "v" + i);
+        }
+        LightMapTest.assertSameContent(expected, map);
+
+        map.clear();
+        map.compact();
+        assertTrue(map.isEmpty());
+    }
+
+    @Test
+    void removalsShrinkAutomatically() {
+
+        LightMap<String, String> map = new LightMap<>(16, 16);
+        map.setCompactRatio(0.1);
+
+        Map<String, String> expected = new HashMap<>();
+        for(int i = 0; i < 100000; i++) {
+            map.put("k" + i, "v" + i);
+            expected.put("k" + i, "v" + i);
+        }
+
+        int grown = map.maxSize;
+        for(int i = 0; i < 99000; i++) {
+            assertEquals(expected.remove("k" + i), map.remove("k" + i));
+        }
+
+        assertTrue(map.maxSize < grown / 8, String.valueOf(map.maxSize));
+        LightMapTest.assertSameContent(expected, map);
+
+        assertThrows(IllegalArgumentException.class, () -> map.setCompactRatio(-0.1));
+        assertThrows(IllegalArgumentException.class, () -> map.setCompactRatio(0.4));
+    }
+
+    /**
+     * 游标遍历中删除不触发自动收缩，遍历结束前不会改变节点位置
+     */
+    @Test
+    void cursorRemoveDoesNotShrink() {
+
+        LightMap<String, String> map = new LightMap<>(16, 16);
+        map.setCompactRatio(0.1);
+
+        for(int i = 0; i < 10000; i++) {
+            map.put("k" + i, "v" + i);
+        }
+
+        int size = map.maxSize;
+        int seen = 0;
+
+        LightCursor cursor = map.cursor();
+        while(cursor.next()) {
+            seen++;
+            if(!cursor.key().endsWith("7")) {
+                cursor.remove();
+            }
+        }
+
+        assertEquals(10000, seen);
+        assertEquals(1000, map.size());
+        assertEquals(size, map.maxSize);
+
+        // 之后的删除按阈值收缩
+        map.remove("k7");
+        assertTrue(map.maxSize < size);
+        assertEquals("v17", map.get("k17"));
+    }
+
+    @Test
+    void compactDuringIncrementalRehash() {
+
+        LightMap<String, String> map = new LightMap<>(16, 16, 4096);
+        map.setIncrementalRehash(1);
+
+        Map<String, String> expected = new HashMap<>();
+        for(int i = 0; map.oldNodes == null; i++) {
+            map.put("k" + i, "v" + i);
+            expected.put("k" + i, "v" + i);
+        }
+
+        for(int i = 0; i < 3000; i++) {
+            expected.remove("k" + i);
+            map.remove("k" + i);
+        }
+
+        map.compact();
+
+        assertNull(map.oldNodes);
+        LightMapTest.assertSameContent(expected, map);
+    }
+}
@@ -0,0 +1,349 @@
+package com.songge.demo;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * <p>
+ *   ConcurrentLightMap以HashMap作为参照，视图的读写直接作用于容器
+ * <p/>
+ */
+class ConcurrentLightMapTest {
+
+    @Test
+    void randomOperationsMatchHashMap() {
+
+        LightMapTest.randomOperations(new ConcurrentLightMap<>(16, 16, 8, 16), 20000, 200000, 61);
+    }
+
+    /**
+     * 多个写线程各自负责一段key，同时put/remove并触发各Segment扩容和收缩，结束后内容与各线程的参照合并结果一致
+     */
+    @Test
+    @SuppressWarnings("unchecked")
+    void concurrentWritersMatchHashMap() throws InterruptedException {
+
+        ConcurrentLightMap<String, String> map = new ConcurrentLightMap<>(16, 16, 4, 16);
+        AtomicReference<Throwable> failure = new AtomicReference<>();
+
+        Thread[] writers = new Thread[8];
+        Map<String, String>[] expected = new Map[writers.length];
+        for(int t = 0; t < writers.length; t++) {
+
+            int id = t;
+            expected[t] = new HashMap<>();
+            writers[t] = new Thread(() -> {
+                try {
+                    Random random = new Random(id);
+                    for(int i = 0; i < 100000; i++) {
+
+                        String key = "t" + id + "k" + random.nextInt(5000);
+                        if(random.nextInt(3) == 0) {
+                            assertEquals(expected[id].remove(key), map.remove(key), key);
+                        } else {
+                            String value = "v" + i;
+                            map.put(key, value);
+                            expected[id].put(key, value);
+                        }
+
+                        if(i % 20000 == 0) {
+                            map.compact();
+                        }
+                    }
+                } catch (Throwable e) {
+                    failure.set(e);
+                }
+            });
+        }
+
+        for(Thread writer : writers) {
+            writer.start();
+        }
+        for(Thread writer : writers) {
+            writer.join();
+        }
+
+        assertNull(failure.get());
+
+        Map<String, String> all = new HashMap<>();
+        for(Map<String, String> part : expected) {
+            all.putAll(part);
+        }
+        LightMapTest.assertSameContent(all, map);
+    }
+
+    /**
+     * 写线程反复覆盖同一批key并触发扩容，读线程的乐观读不能返回拼接了新旧数据的值
+     */
+    @Test
+    void readersNeverSeeTornValues() throws InterruptedException {
+
+        ConcurrentLightMap<String, String> map = new ConcurrentLightMap<>(16, 16, 2, 16);
+        for(int i = 0; i < 100; i++) {
+            map.put("k" + i, "aaaaaaaaaaaaaaaa");
+        }
+
+        AtomicBoolean running = new AtomicBoolean(true);
+        AtomicReference<Throwable> failure = new AtomicReference<>();
+
+        Thread writer = new Thread(() -> {
+            String[] values = {"aaaaaaaaaaaaaaaa", "bbbbbbbbbbbbbbbb"};
+            for(int i = 0; running.get(); i++) {
+                map.put("k" + (i % 100), values[(i / 100) % 2]);
+                // 新key使Segment不断扩容，旧key的节点随之移动
+                map.put("grow" + i, "g");
+                if(i % 50000 == 0) {
+                    map.clear();
+                }
+            }
+        });
+
+        Thread[] readers = new Thread[4];
+        for(int t = 0; t < readers.length; t++) {
+            readers[t] = new Thread(() -> {
+                try {
+                    for(int i = 0; i < 200000; i++) {
+                        String value = map.get("k" + (i % 100));
+                        if(value != null) {
+                            assertTrue(value.equals("aaaaaaaaaaaaaaaa") || value.equals("bbbbbbbbbbbbbbbb"), value);
+                        }
+                    }
+                } catch (Throwable e) {
+                    failure.set(e);
+                }
+            });
+        }
+
+        writer.start();
+        for(Thread reader : readers) {
+            reader.start();
+        }
+        for(Thread reader : readers) {
+            reader.join();
+        }
+        running.set(false);
+        writer.join();
+
+        assertNull(failure.get());
+    }
+
+    @Test
+    void viewsAreLive() {
+
+        ConcurrentLightMap<String, String> map = new ConcurrentLightMap<>(16, 16, 4);
+        Set<String> keys = map.keySet();
+
+        for(int i = 0; i < 1000; i++) {
+            map.put("k" + i, "v" + i);
+        }
+
+        // 视图创建之后的修改可以被看到
+        assertEquals(1000, keys.size());
+        assertTrue(keys.contains("k5"));
+        assertTrue(map.values().contains("v5"));
+
+        assertTrue(keys.remove("k5"));
+        assertFalse(map.containsKey("k5"));
+        assertFalse(keys.remove("k5"));
+
+        assertFalse(map.entrySet().remove(new HashMap.SimpleEntry<>("k6", "other")));
+        assertTrue(map.entrySet().remove(new HashMap.SimpleEntry<>("k6", "v6")));
+        assertNull(map.get("k6"));
+
+        for(Map.Entry<String, String> entry : map.entrySet()) {
+            if(entry.getKey().equals("k7")) {
+                entry.setValue("changed");
+            }
+        }
+        assertEquals("changed", map.get("k7"));
+
+        Iterator<String> iterator = map.values().iterator();
+        while(iterator.hasNext()) {
+            if(iterator.next().startsWith("v1")) {
+                iterator.remove();
+            }
+        }
+
+        for(String key : keys) {
+            assertFalse(map.get(key).startsWith("v1"), key);
+        }
+
+        keys.clear();
+        assertTrue(map.isEmpty());
+    }
+
+    /**
+     * 读取和删除接受任意CharSequence，按内容选择Segment；null和其他类型的key按不存在处理，写入只接受String
+     */
+    @Test
+    void charSequenceAndNullKeys() {
+
+        ConcurrentLightMap<String, String> map = new ConcurrentLightMap<>(16, 16, 16);
+        for(int i = 0; i < 1000; i++) {
+            map.put("k" + i, "v" + i);
+        }
+
+        assertNull(map.get(null));
+        assertFalse(map.containsKey(null));
+        assertNull(map.remove(null));
+        assertFalse(map.remove(null, "v1"));
+        assertFalse(map.keySet().remove(null));
+        assertNull(map.remove(1));
+        assertThrows(ClassCastException.class, () -> map.put(null, "v"));
+
+        // StringBuilder的hashCode()按对象标识计算，不能用于选择Segment
+        for(int i = 0; i < 1000; i++) {
+            StringBuilder key = new StringBuilder("k").append(i);
+            assertEquals("v" + i, map.get(key), key.toString());
+            assertTrue(map.containsKey(key), key.toString());
+        }
+
+        assertEquals("v1", map.remove(new StringBuilder("k1")));
+        assertTrue(map.remove(new StringBuilder("k2"), "v2"));
+        assertTrue(map.keySet().remove(new StringBuilder("k3")));
+        assertEquals(997, map.size());
+        assertFalse(map.containsKey("k1") || map.containsKey("k2") || map.containsKey("k3"));
+    }
+
+    @Test
+    void iterationDuringWrites() throws InterruptedException {
+
+        ConcurrentLightMap<String, String> map = new ConcurrentLightMap<>(16, 16, 8);
+
+        // stable开头的key不被修改，每次遍历都应恰好出现一次
+        for(int i = 0; i < 20000; i++) {
+            map.put("stable" + i, "v" + i);
+        }
+
+        AtomicBoolean running = new AtomicBoolean(true);
+        Thread writer = new Thread(() -> {
+            for(int i = 0; running.get(); i++) {
+                map.put("moving" + (i % 50000), "v");
+                map.remove("moving" + ((i + 25000) % 50000));
+            }
+        });
+        writer.start();
+
+        try {
+            for(int round = 0; round < 20; round++) {
+
+                Set<String> seen = new HashSet<>();
+                for(Map.Entry<String, String> entry : map.entrySet()) {
+                    if(entry.getKey().startsWith("stable")) {
+                        assertTrue(seen.add(entry.getKey()), entry.getKey());
+                        assertEquals("v" + entry.getKey().substring(6), entry.getValue());
+                    }
+                }
+
+                assertEquals(20000, seen.size());
+            }
+        } finally {
+            running.set(false);
+            writer.join();
+        }
+    }
+
+    /**
+     * 写线程持续修改时读线程的乐观读会失败重试，每次get/containsKey仍只计入一次查找
+     */
+    @Test
+    void optimisticRetriesAreCountedOnce() throws InterruptedException {
+
+        ConcurrentLightMap<String, String> map = new ConcurrentLightMap<>(16, 16, 2);
+        map.setStatsEnabled(true, Long.MAX_VALUE);
+
+        for(int i = 0; i < 1000; i++) {
+            map.put("k" + i, "v" + i);
+        }
+
+        AtomicBoolean running = new AtomicBoolean(true);
+        Thread writer = new Thread(() -> {
+            for(int i = 0; running.get(); i++) {
+                map.put("w" + (i % 100000), "v");
+            }
+        });
+        writer.start();
+
+        int reads = 200000;
+        try {
+            for(int i = 0; i < reads / 2; i++) {
+                assertEquals("v" + (i % 1000), map.get("k" + (i % 1000)));
+                assertTrue(map.containsKey("k" + (i % 1000)));
+            }
+        } finally {
+            running.set(false);
+            writer.join();
+        }
+
+        assertEquals(reads, map.stats().lookups());
+    }
+
+    /**
+     * 缓存模式下多个读线程与写线程同时访问，命中和未命中之和等于查找次数，元素数不超过上限
+     */
+    @Test
+    void cacheModeUnderConcurrentAccess() throws InterruptedException {
+
+        ConcurrentLightMap<String, String> map = new ConcurrentLightMap<>(16, 16, 4);
+        map.setMaxBytes(4 * 64 * 1024);
+
+        AtomicBoolean running = new AtomicBoolean(true);
+        AtomicReference<Throwable> failure = new AtomicReference<>();
+
+        Thread writer = new Thread(() -> {
+            for(int i = 0; running.get(); i++) {
+                map.put("k" + (i % 200000), "v" + (i % 200000));
+            }
+        });
+
+        Thread[] readers = new Thread[4];
+        int readsPerThread = 100000;
+        for(int t = 0; t < readers.length; t++) {
+            int seed = t;
+            readers[t] = new Thread(() -> {
+                try {
+                    for(int i = 0; i < readsPerThread; i++) {
+                        String key = "k" + ((i * 31 + seed) % 200000);
+                        String value = map.get(key);
+                        if(value != null) {
+                            assertEquals("v" + key.substring(1), value);
+                        }
+                    }
+                } catch (Throwable e) {
+                    failure.set(e);
+                }
+            });
+        }
+
+        writer.start();
+        for(Thread reader : readers) {
+            reader.start();
+        }
+        for(Thread reader : readers) {
+            reader.join();
+        }
+        running.set(false);
+        writer.join();
+
+        assertNull(failure.get());
+
+        LightMapStats stats = map.stats();
+        assertEquals((long) readers.length * readsPerThread, stats.hits() + stats.misses());
+        assertTrue(stats.evictions() > 0);
+        assertTrue(stats.memoryBytes() <= 4 * 64 * 1024, String.valueOf(stats.memoryBytes()));
+    }
+}
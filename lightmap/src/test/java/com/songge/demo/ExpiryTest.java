@@ -0,0 +1,150 @@
+package com.songge.demo;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * <p>
+ *   过期的元素在查找和遍历中视为不存在，由put时的增量清理或expire(int)回收
+ *   过期时间按秒计算，等待超过两秒确保跨过边界
+ * <p/>
+ */
+class ExpiryTest {
+
+    @Test
+    void ttlIsRoundedUpToSeconds() {
+
+        LightMap<String, String> map = new LightMap<>(16, 16);
+
+        assertEquals(0, map.ttlOf(0, TimeUnit.SECONDS));
+        assertEquals(0, map.ttlOf(-5, TimeUnit.SECONDS));
+        assertEquals(1, map.ttlOf(1, TimeUnit.MILLISECONDS));
+        assertEquals(2, map.ttlOf(1001, TimeUnit.MILLISECONDS));
+        assertEquals(3600, map.ttlOf(1, TimeUnit.HOURS));
+        assertEquals(Integer.MAX_VALUE / 2, map.ttlOf(Long.MAX_VALUE / 2, TimeUnit.DAYS));
+    }
+
+    @Test
+    void enablingExpiryKeepsContent() {
+
+        LightMap<String, String> map = new LightMap<>(16, 16);
+        Map<String, String> expected = LightMapTest.randomOperations(map, 20000, 50000, 191);
+
+        int nodeLength = map.nodeLength;
+        map.setExpireAfterWrite(1, TimeUnit.HOURS);
+
+        // 已有元素不过期
+        assertEquals(nodeLength + 4, map.nodeLength);
+        LightMapTest.assertSameContent(expected, map);
+    }
+
+    @Test
+    void expiredEntriesAreInvisibleAndSwept() throws InterruptedException {
+
+        LightMap<String, String> map = new LightMap<>(16, 16);
+        map.setExpireAfterWrite(1, TimeUnit.HOURS);
+
+        LightLongMap longs = new LightLongMap(16);
+        LightLongKeyMap longKeys = new LightLongKeyMap();
+        ConcurrentLightMap<String, String> concurrent = new ConcurrentLightMap<>(16, 16);
+
+        Map<String, String> expected = new HashMap<>();
+        for(int i = 0; i < 3000; i++) {
+
+            map.put("short" + i, "v", 1, TimeUnit.SECONDS);
+            map.put("long" + i, "v" + i);
+            map.put("forever" + i, "v" + i, 0, TimeUnit.SECONDS);
+            expected.put("long" + i, "v" + i);
+            expected.put("forever" + i, "v" + i);
+
+            longs.putLong("short" + i, i, 1, TimeUnit.SECONDS);
+            longs.putLong("forever" + i, i);
+            longKeys.putLong(i, i, 1, TimeUnit.SECONDS);
+            longKeys.putLong(-i - 1, i);
+            concurrent.put("short" + i, "v", 1, TimeUnit.SECONDS);
+        }
+
+        assertEquals("v", map.get("short7"));
+        assertEquals(9000, map.size());
+
+        Thread.sleep(2100);
+
+        // 回收前查找、遍历和批量查找都不返回过期的元素，size()仍包括它们
+        assertNull(map.get("short7"));
+        assertFalse(map.containsKey("short7"));
+        assertFalse(map.containsKey("short7".getBytes(), 0, 6));
+        assertEquals(9000, map.size());
+
+        Set<String> seen = new HashSet<>();
+        LightCursor cursor = map.cursor();
+        while(cursor.next()) {
+            assertTrue(seen.add(cursor.key()));
+        }
+        assertEquals(expected.keySet(), seen);
+
+        map.getAll(Arrays.asList("short1", "long1"), (key, value) -> assertEquals(expected.get(key), value));
+
+        // 重新放入已过期的key视为新元素
+        assertNull(map.putIfAbsent("short1", "again"));
+        assertEquals("again", map.get("short1"));
+        expected.put("short1", "again");
+
+        // 分批回收，每批检查64个节点位置，一整圈后全部回收
+        // put时已顺带回收了少量过期元素
+        int before = map.size();
+        int removed = 0;
+        for(int i = 0; i < map.maxSize; i += 64) {
+            removed += map.expire(64);
+        }
+
+        assertEquals(before - expected.size(), removed);
+        LightMapTest.assertSameContent(expected, map);
+
+        // 数值容器和并发容器同样不返回过期的元素
+        assertEquals(-1, longs.getLong("short5", -1));
+        assertEquals(5, longs.getLong("forever5", -1));
+        assertFalse(longKeys.containsKey(5));
+        assertEquals(5, longKeys.getLong(-6, -1));
+        assertNull(concurrent.get("short5"));
+        assertEquals(3000, concurrent.expire(Integer.MAX_VALUE));
+        assertTrue(concurrent.isEmpty());
+    }
+
+    /**
+     * put时每次清理少量节点，只写入不读取时过期的元素也会被逐步回收，容器不会因此扩容
+     */
+    @Test
+    void putsSweepIncrementally() throws InterruptedException {
+
+        LightMap<String, String> map = new LightMap<>(16, 16);
+        map.setExpireAfterWrite(1, TimeUnit.SECONDS);
+
+        for(int i = 0; i < 20000; i++) {
+            map.put("old" + i, "v");
+        }
+        int size = map.maxSize;
+
+        Thread.sleep(2100);
+
+        for(int i = 0; i < 20000; i++) {
+            map.put("new" + i, "v", 0, TimeUnit.SECONDS);
+        }
+
+        assertEquals(size, map.maxSize);
+        assertTrue(map.size() < 40000, String.valueOf(map.size()));
+
+        map.expire(map.maxSize);
+        assertEquals(20000, map.size());
+    }
+}
@@ -0,0 +1,190 @@
+package com.songge.demo;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * <p>
+ *   FrozenLightMap与原容器内容一致，构建时不修改原容器
+ * <p/>
+ */
+class FrozenLightMapTest {
+
+    private static void assertFrozen(Map<String, String> expected, FrozenLightMap<String, String> frozen) {
+
+        assertEquals(expected.size(), frozen.size());
+
+        for(Map.Entry<String, String> entry : expected.entrySet()) {
+            assertEquals(entry.getValue(), frozen.get(entry.getKey()), entry.getKey());
+        }
+
+        for(int i = 0; i < 1000; i++) {
+            assertFalse(frozen.containsKey("missing" + i));
+        }
+
+        assertEquals(expected, new HashMap<>(frozen));
+    }
+
+    @Test
+    void frozenMatchesHashMap() {
+
+        LightMap<String, String> map = new LightMap<>(16, 16);
+        Map<String, String> expected = LightMapTest.randomOperations(map, 50000, 200000, 31);
+
+        FrozenLightMap<String, String> frozen = map.freeze();
+        assertFrozen(expected, frozen);
+
+        // 之后对原容器的修改不影响只读容器
+        map.clear();
+        assertFrozen(expected, frozen);
+
+        frozen.close();
+    }
+
+    @Test
+    void emptyAndSingleElement() {
+
+        LightMap<String, String> map = new LightMap<>(16, 16);
+        FrozenLightMap<String, String> empty = map.freeze();
+        assertTrue(empty.isEmpty());
+        assertNull(empty.get("k"));
+
+        map.put("k", "v");
+        FrozenLightMap<String, String> single = map.freeze();
+        assertEquals("v", single.get("k"));
+        assertNull(single.get("x"));
+    }
+
+    @Test
+    void freezeDuringIncrementalRehash() {
+
+        LightMap<String, String> map = new LightMap<>(16, 16);
+        map.setIncrementalRehash(1);
+
+        Map<String, String> expected = new HashMap<>();
+        for(int i = 0; i < 30000; i++) {
+            map.put("k" + i, "v" + i);
+            expected.put("k" + i, "v" + i);
+        }
+
+        assertTrue(map.oldNodes != null, "迁移应尚未完成");
+
+        FrozenLightMap<String, String> frozen = map.freeze();
+        assertFrozen(expected, frozen);
+
+        // 迁移没有被强制完成
+        assertTrue(map.oldNodes != null);
+    }
+
+    @Test
+    void freezeDoesNotInvalidateCursor() {
+
+        LightMap<String, String> map = new LightMap<>(16, 16);
+        map.setExpireAfterWrite(1, TimeUnit.HOURS);
+
+        for(int i = 0; i < 1000; i++) {
+            map.put("k" + i, "v" + i);
+        }
+
+        LightCursor cursor = map.cursor();
+        assertTrue(cursor.next());
+
+        map.freeze();
+
+        int remaining = 0;
+        while(cursor.next()) {
+            remaining++;
+        }
+
+        assertEquals(999, remaining);
+    }
+
+    @Test
+    void expiredElementsAreSkipped() throws InterruptedException {
+
+        LightMap<String, String> map = new LightMap<>(16, 16);
+        map.setExpireAfterWrite(1, TimeUnit.HOURS);
+
+        for(int i = 0; i < 100; i++) {
+            map.put("short" + i, "v", 1, TimeUnit.SECONDS);
+            map.put("long" + i, "v");
+        }
+
+        LightMap<String, String> snapshot = map.snapshot();
+
+        // 过期时间按秒计算，等待超过两秒确保跨过边界
+        Thread.sleep(2100);
+
+        // 只读快照上也可以freeze，不删除快照中的元素
+        FrozenLightMap<String, String> frozen = snapshot.freeze();
+
+        assertEquals(100, frozen.size());
+        assertEquals("v", frozen.get("long7"));
+        assertNull(frozen.get("short7"));
+
+        snapshot.close();
+    }
+
+    @Test
+    void buildRetriesWithAnotherSeed() {
+
+        AtomicBoolean collide = new AtomicBoolean();
+        long[] firstSeed = new long[1];
+        LightMap<String, String> map = new LightMap<>(16, 16);
+
+        // 第一次构建使用原容器的种子，全部key的指纹相同，只能更换种子重试
+        map.setHasher((key, offset, length, seed) -> collide.get() && seed == firstSeed[0] ? 1 : LightHashers.WYHASH.hash(key, offset, length, seed));
+        firstSeed[0] = map.seed;
+
+        Map<String, String> expected = new HashMap<>();
+        for(int i = 0; i < 5000; i++) {
+            map.put("k" + i, "v" + i);
+            expected.put("k" + i, "v" + i);
+        }
+
+        collide.set(true);
+        FrozenLightMap<String, String> frozen = map.freeze();
+        collide.set(false);
+
+        assertFrozen(expected, frozen);
+    }
+
+    @Test
+    void buildFailsWhenFingerprintsCollide() {
+
+        LightMap<String, String> map = new LightMap<>(16, 16);
+        map.setHasher((key, offset, length, seed) -> 1);
+
+        map.put("a", "1");
+        map.put("b", "2");
+
+        assertThrows(IllegalStateException.class, map::freeze);
+    }
+
+    @Test
+    void fileRoundTrip(@TempDir Path dir) throws IOException {
+
+        LightMap<String, String> map = new LightMap<>(16, 16);
+        Map<String, String> expected = LightMapTest.randomOperations(map, 20000, 50000, 32);
+
+        Path path = dir.resolve("frozen.lmap");
+        map.freeze().snapshot(path);
+
+        FrozenLightMap<String, String> opened = FrozenLightMap.open(path);
+        assertFrozen(expected, opened);
+        opened.close();
+    }
+}
@@ -0,0 +1,173 @@
+package com.songge.demo;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.EnumSource;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.util.Map;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * <p>
+ *   内置hash算法只读取指定区间、结果随种子变化且分布均匀；容器替换算法后内容不变
+ * <p/>
+ */
+class HasherTest {
+
+    @ParameterizedTest
+    @EnumSource(LightHashers.class)
+    void onlyTheGivenRangeIsRead(LightHashers hasher) {
+
+        Random random = new Random(91);
+
+        // 覆盖短key、4~16字节、16字节以上和32字节以上的各个分支
+        for(int length = 0; length <= 100; length++) {
+
+            byte[] key = new byte[length];
+            random.nextBytes(key);
+
+            byte[] padded = new byte[length + 20];
+            random.nextBytes(padded);
+            System.arraycopy(key, 0, padded, 7, length);
+
+            long seed = random.nextLong();
+            assertEquals(hasher.hash(key, 0, length, seed), hasher.hash(padded, 7, length, seed), "length " + length);
+        }
+    }
+
+    @ParameterizedTest
+    @EnumSource(LightHashers.class)
+    void seedChangesHash(LightHashers hasher) {
+
+        byte[] key = "key".getBytes(StandardCharsets.UTF_8);
+
+        int same = 0;
+        for(long seed = 0; seed < 1000; seed++) {
+            if(hasher.hash(key, 0, key.length, seed) == hasher.hash(key, 0, key.length, seed + 1)) {
+                same++;
+            }
+        }
+
+        assertTrue(same <= 1, String.valueOf(same));
+    }
+
+    /**
+     * 改变输入的任意一位，输出平均约有一半的位发生变化
+     */
+    @ParameterizedTest
+    @EnumSource(LightHashers.class)
+    void avalanche(LightHashers hasher) {
+
+        Random random = new Random(92);
+        long changed = 0;
+        long samples = 0;
+
+        for(int length : new int[]{1, 3, 8, 12, 16, 24, 40, 70}) {
+            for(int round = 0; round < 50; round++) {
+
+                byte[] key = new byte[length];
+                random.nextBytes(key);
+                long seed = random.nextLong();
+                int hash = hasher.hash(key, 0, length, seed);
+
+                for(int bit = 0; bit < length * 8; bit++) {
+                    key[bit >> 3] ^= (byte) (1 << (bit & 7));
+                    changed += Integer.bitCount(hash ^ hasher.hash(key, 0, length, seed));
+                    samples++;
+                    key[bit >> 3] ^= (byte) (1 << (bit & 7));
+                }
+            }
+        }
+
+        double average = (double) changed / samples;
+        assertTrue(average > 15 && average < 17, String.valueOf(average));
+    }
+
+    /**
+     * 连续的key按低位分桶，最大的桶不超过平均值的两倍
+     */
+    @ParameterizedTest
+    @EnumSource(LightHashers.class)
+    void sequentialKeysSpreadEvenly(LightHashers hasher) {
+
+        int buckets = 1 << 12;
+        int[] counts = new int[buckets];
+        int keys = buckets * 64;
+
+        for(int i = 0; i < keys; i++) {
+            byte[] key = ("user:" + i).getBytes(StandardCharsets.UTF_8);
+            counts[hasher.hash(key, 0, key.length, 1) & (buckets - 1)]++;
+        }
+
+        int[] longCounts = new int[buckets];
+        for(int i = 0; i < keys; i++) {
+            longCounts[LightHashers.mixKey(i * 1024L, 1) & (buckets - 1)]++;
+        }
+
+        for(int i = 0; i < buckets; i++) {
+            assertTrue(counts[i] < 128, "bucket " + i + ": " + counts[i]);
+            assertTrue(longCounts[i] < 128, "long bucket " + i + ": " + longCounts[i]);
+        }
+    }
+
+    @Test
+    void eachMapHasItsOwnSeed() {
+
+        assertNotEquals(new LightMap<>(16, 16).seed, new LightMap<>(16, 16).seed);
+    }
+
+    @Test
+    void setHasherKeepsContent() {
+
+        LightMap<String, String> map = new LightMap<>(16, 16);
+        Map<String, String> expected = LightMapTest.randomOperations(map, 20000, 100000, 93);
+
+        long seed = map.seed;
+        map.setHasher(LightHashers.XXHASH);
+        assertNotEquals(seed, map.seed);
+        assertSame(LightHashers.XXHASH, map.hasher());
+        LightMapTest.assertSameContent(expected, map);
+
+        // 自定义算法，只使用长度，全部key冲突也能正确放置
+        map.setHasher((key, offset, length, s) -> length);
+        LightMapTest.assertSameContent(expected, map);
+
+        map.setHasher(LightHashers.WYHASH);
+        LightMapTest.assertSameContent(expected, map);
+    }
+
+    @Test
+    void fileKeepsHasherAndSeed(@TempDir Path dir) throws IOException {
+
+        for(LightHashers hasher : LightHashers.values()) {
+
+            assertSame(hasher, LightHashers.of(LightHashers.idOf(hasher)));
+
+            LightMap<String, String> map = new LightMap<>(16, 16);
+            map.setHasher(hasher);
+            for(int i = 0; i < 1000; i++) {
+                map.put("k" + i, "v" + i);
+            }
+
+            Path path = dir.resolve(hasher + ".lmap");
+            map.snapshot(path);
+
+            LightMap<String, String> opened = LightMap.open(path);
+            assertSame(hasher, opened.hasher());
+            assertEquals(map.seed, opened.seed);
+            assertEquals("v500", opened.get("k500"));
+            opened.close();
+        }
+
+        assertEquals(0, LightHashers.idOf((key, offset, length, seed) -> 0));
+    }
+}
@@ -0,0 +1,185 @@
+package com.songge.demo;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.EnumSource;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ConcurrentModificationException;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * <p>
+ *   LightCursor和基于游标的视图每个元素恰好遍历一次，遍历中删除不跳过也不重复
+ * <p/>
+ */
+class LightCursorTest {
+
+    @ParameterizedTest
+    @EnumSource(LightLayout.class)
+    void cursorVisitsEachEntryOnce(LightLayout layout) {
+
+        LightMap<String, String> map = new LightMap<>(16, 16, 16, 0.8, LightStorage.HEAP, layout);
+        Map<String, String> expected = LightMapTest.randomOperations(map, 20000, 100000, 111);
+
+        Map<String, String> seen = new HashMap<>();
+        LightCursor cursor = map.cursor();
+        while(cursor.next()) {
+
+            String key = new String(cursor.keyBytes(), 0, cursor.keyLength(), StandardCharsets.UTF_8);
+            assertEquals(key, cursor.key());
+
+            String value = new String(cursor.valueBytes(), 0, cursor.valueLength(), StandardCharsets.UTF_8);
+            assertEquals(value, cursor.valueString());
+
+            assertEquals(null, seen.put(key, value), key);
+        }
+
+        assertEquals(expected, seen);
+        assertFalse(cursor.hasNext());
+        assertFalse(cursor.next());
+    }
+
+    @Test
+    void numericKeysAndValues() {
+
+        LightLongMap longs = new LightLongMap(16);
+        LightIntMap ints = new LightIntMap(16);
+        LightLongKeyMap longKeys = new LightLongKeyMap();
+        LightIntKeyMap intKeys = new LightIntKeyMap();
+
+        for(int i = -500; i < 500; i++) {
+            longs.putLong("k" + i, i * 1000003L);
+            ints.putInt("k" + i, i);
+            longKeys.putLong(i * 1000003L, i);
+            intKeys.putInt(i, -i);
+        }
+
+        int count = 0;
+        LightCursor cursor = longs.cursor();
+        while(cursor.next()) {
+            assertEquals(Long.parseLong(cursor.key().substring(1)) * 1000003L, cursor.valueLong());
+            count++;
+        }
+
+        cursor = ints.cursor();
+        while(cursor.next()) {
+            assertEquals(Integer.parseInt(cursor.key().substring(1)), cursor.valueInt());
+            count++;
+        }
+
+        cursor = longKeys.cursor();
+        while(cursor.next()) {
+            assertEquals(cursor.keyLong(), cursor.valueLong() * 1000003L);
+            count++;
+        }
+
+        cursor = intKeys.cursor();
+        while(cursor.next()) {
+            assertEquals(cursor.keyInt(), -cursor.valueInt());
+            count++;
+        }
+
+        assertEquals(4000, count);
+    }
+
+    /**
+     * 全部key冲突时删除引起整个簇前移，被移到当前位置的节点在下一次next()时访问
+     */
+    @ParameterizedTest
+    @EnumSource(LightLayout.class)
+    void removeWhileIterating(LightLayout layout) {
+
+        LightMap<String, String> map = new LightMap<>(16, 16, 16, 0.8, LightStorage.HEAP, layout);
+        map.setHasher((key, offset, length, seed) -> 0x7FFFFFF0 | (key[offset + length - 1] & 0x3));
+
+        Map<String, String> expected = new HashMap<>();
+        for(int i = 0; i < 2000; i++) {
+            map.put("k" + i, "v" + i);
+            expected.put("k" + i, "v" + i);
+        }
+
+        Set<String> seen = new HashSet<>();
+        LightCursor cursor = map.cursor();
+        while(cursor.next()) {
+
+            String key = cursor.key();
+            assertTrue(seen.add(key), key);
+
+            if(key.hashCode() % 3 != 0) {
+                cursor.remove();
+                expected.remove(key);
+                assertThrows(NoSuchElementException.class, cursor::key);
+            }
+        }
+
+        assertEquals(2000, seen.size());
+        LightMapTest.assertSameContent(expected, map);
+    }
+
+    @Test
+    void viewsReadAndWriteThroughCursor() {
+
+        LightMap<String, String> map = new LightMap<>(16, 16);
+        Map<String, String> expected = LightMapTest.randomOperations(map, 5000, 20000, 112);
+
+        assertEquals(new HashSet<>(expected.values()), new HashSet<>(map.values()));
+        assertEquals(expected.keySet(), new HashSet<>(map.keySet()));
+
+        for(Map.Entry<String, String> entry : map.entrySet()) {
+            if(entry.getKey().endsWith("1")) {
+                assertEquals(expected.get(entry.getKey()), entry.setValue("x"));
+                expected.put(entry.getKey(), "x");
+            }
+        }
+
+        Iterator<String> keys = map.keySet().iterator();
+        assertThrows(IllegalStateException.class, keys::remove);
+        while(keys.hasNext()) {
+            String key = keys.next();
+            if(key.endsWith("2")) {
+                keys.remove();
+                expected.remove(key);
+            }
+        }
+        assertThrows(NoSuchElementException.class, keys::next);
+
+        LightMapTest.assertSameContent(expected, map);
+    }
+
+    @Test
+    void structuralChangesInvalidateCursor() {
+
+        LightMap<String, String> map = new LightMap<>(16, 16);
+        for(int i = 0; i < 100; i++) {
+            map.put("k" + i, "v" + i);
+        }
+
+        LightCursor cursor = map.cursor();
+        assertThrows(NoSuchElementException.class, cursor::key);
+        assertTrue(cursor.next());
+
+        map.put("new", "v");
+        assertThrows(ConcurrentModificationException.class, cursor::next);
+
+        cursor = map.cursor();
+        assertTrue(cursor.next());
+        map.remove("k1");
+        assertThrows(ConcurrentModificationException.class, cursor::key);
+
+        Iterator<String> values = map.values().iterator();
+        values.next();
+        map.clear();
+        assertThrows(ConcurrentModificationException.class, values::hasNext);
+    }
+}
@@ -0,0 +1,266 @@
+package com.songge.demo;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+/**
+ * <p>
+ *   LightMap文件写出后内存映射打开，内容与写出前一致；修改只在flush后写回文件
+ * <p/>
+ */
+class LightMapFileTest {
+
+    @Test
+    void openMatchesSnapshot(@TempDir Path dir) throws IOException {
+
+        LightMap<String, String> map = new LightMap<>(16, 16);
+        map.setHasher(LightHashers.WYHASH);
+        Map<String, String> expected = LightMapTest.randomOperations(map, 20000, 100000, 71);
+
+        Path path = dir.resolve("map.lmap");
+        map.snapshot(path);
+
+        LightMap<String, String> opened = LightMap.open(path);
+        LightMapTest.assertSameContent(expected, opened);
+        assertEquals(map.seed, opened.seed);
+
+        // 打开后继续修改直到扩容，内容仍与参照一致
+        for(int i = 0; i < 50000; i++) {
+            opened.put("n" + i, "v" + i);
+            expected.put("n" + i, "v" + i);
+            if(i % 3 == 0) {
+                assertEquals(expected.remove("k" + i), opened.remove("k" + i));
+            }
+        }
+        LightMapTest.assertSameContent(expected, opened);
+
+        opened.close();
+    }
+
+    @Test
+    void numericValues(@TempDir Path dir) throws IOException {
+
+        LightMap<String, Integer> ints = new LightMap<>(16, 4);
+        LightMap<String, Long> longs = new LightMap<>(16, 8);
+
+        for(int i = 0; i < 5000; i++) {
+            ints.put("k" + i, -i);
+            longs.put("k" + i, i * 0x1234_5678_9abL);
+        }
+
+        Path intPath = dir.resolve("int.lmap");
+        Path longPath = dir.resolve("long.lmap");
+        ints.snapshot(intPath);
+        longs.snapshot(longPath);
+
+        LightMap<String, Integer> openedInts = LightMap.open(intPath);
+        LightMap<String, Long> openedLongs = LightMap.open(longPath);
+
+        for(int i = 0; i < 5000; i++) {
+            assertEquals(Integer.valueOf(-i), openedInts.get("k" + i));
+            assertEquals(Long.valueOf(i * 0x1234_5678_9abL), openedLongs.get("k" + i));
+        }
+
+        openedInts.close();
+        openedLongs.close();
+    }
+
+    @Test
+    void changesAreWrittenOnlyOnFlush(@TempDir Path dir) throws IOException {
+
+        LightMap<String, String> map = new LightMap<>(16, 16);
+        for(int i = 0; i < 1000; i++) {
+            map.put("k" + i, "v" + i);
+        }
+
+        Path path = dir.resolve("map.lmap");
+        map.snapshot(path);
+
+        LightMap<String, String> opened = LightMap.open(path);
+        opened.put("k1", "changed");
+        opened.remove("k2");
+
+        // 私有映射，修改不影响文件
+        LightMap<String, String> before = LightMap.open(path);
+        assertEquals("v1", before.get("k1"));
+        assertEquals("v2", before.get("k2"));
+        before.close();
+
+        opened.flush();
+
+        LightMap<String, String> after = LightMap.open(path);
+        assertEquals("changed", after.get("k1"));
+        assertNull(after.get("k2"));
+        assertEquals(999, after.size());
+        after.close();
+
+        // flush之后原容器可以继续使用
+        assertEquals("v3", opened.get("k3"));
+        opened.close();
+
+        assertThrows(IllegalStateException.class, map::flush);
+    }
+
+    @Test
+    void unsupportedMapsAreNotWritten(@TempDir Path dir) {
+
+        Path path = dir.resolve("map.lmap");
+
+        LightMap<String, String> arena = new LightMap<>(16, 16, 16, 0.8, LightStorage.HEAP, LightLayout.ARENA);
+        arena.put("k", "v");
+        assertThrows(IOException.class, () -> arena.snapshot(path));
+
+        LightMap<String, String> expiring = new LightMap<>(16, 16);
+        expiring.setExpireAfterWrite(1, TimeUnit.HOURS);
+        assertThrows(IOException.class, () -> expiring.snapshot(path));
+
+        LightMap<String, String> custom = new LightMap<>(16, 16);
+        custom.setHasher((key, offset, length, seed) -> length);
+        assertThrows(IOException.class, () -> custom.snapshot(path));
+
+        // 写出失败时不留下文件
+        assertEquals(false, Files.exists(path));
+    }
+
+    @Test
+    void damagedFilesAreRejected(@TempDir Path dir) throws IOException {
+
+        LightMap<String, String> map = new LightMap<>(16, 16);
+        for(int i = 0; i < 1000; i++) {
+            map.put("k" + i, "v" + i);
+        }
+
+        Path path = dir.resolve("map.lmap");
+        map.snapshot(path);
+
+        Path truncated = dir.resolve("truncated.lmap");
+        Files.write(truncated, Files.readAllBytes(path));
+        try (FileChannel channel = FileChannel.open(truncated, StandardOpenOption.WRITE)) {
+            channel.truncate(channel.size() - 1);
+        }
+        assertThrows(IOException.class, () -> LightMap.open(truncated));
+
+        Path header = dir.resolve("header.lmap");
+        Files.write(header, new byte[10]);
+        assertThrows(IOException.class, () -> LightMap.open(header));
+
+        Path magic = dir.resolve("magic.lmap");
+        Files.write(magic, Files.readAllBytes(path));
+        writeInt(magic, 0, 0x12345678);
+        assertThrows(IOException.class, () -> LightMap.open(magic));
+
+        Path version = dir.resolve("version.lmap");
+        Files.write(version, Files.readAllBytes(path));
+        writeInt(version, 4, LightMapFile.VERSION + 1);
+        assertThrows(IOException.class, () -> LightMap.open(version));
+    }
+
+    /**
+     * 文件头中的长度和大小在映射前检查，损坏时抛出IOException，不会映射出错误的节点区域
+     * keyLength/valueLength/maxSize/count分别位于文件头的8/12/16/20字节
+     */
+    @Test
+    void corruptedHeaderSizesAreRejected(@TempDir Path dir) throws IOException {
+
+        LightMap<String, String> map = new LightMap<>(16, 16);
+        for(int i = 0; i < 1000; i++) {
+            map.put("k" + i, "v" + i);
+        }
+        assertEquals(2048, map.maxSize);
+
+        Path path = dir.resolve("map.lmap");
+        map.snapshot(path);
+
+        int[][] corruptions = {
+                {16, 0}, {16, -4096}, {16, 1536}, {16, Integer.MIN_VALUE},
+                {20, -1}, {20, 2049},
+                {8, 0}, {8, -1}, {8, 256}, {12, -1}
+        };
+
+        for(int[] corruption : corruptions) {
+
+            Path damaged = dir.resolve("damaged" + corruption[0] + "_" + corruption[1] + ".lmap");
+            Files.write(damaged, Files.readAllBytes(path));
+            writeInt(damaged, corruption[0], corruption[1]);
+
+            assertThrows(IOException.class, () -> LightMap.open(damaged), corruption[0] + "=" + corruption[1]);
+        }
+
+        // FrozenLightMap文件的节点数与元素数相同
+        Path frozen = dir.resolve("frozen.lmap");
+        FrozenLightMap<String, String> frozenMap = map.freeze();
+        frozenMap.snapshot(frozen);
+        frozenMap.close();
+
+        writeInt(frozen, 16, 999);
+        assertThrows(IOException.class, () -> FrozenLightMap.open(frozen));
+    }
+
+    /**
+     * 版本5之前按key长度标识判断空节点，空节点中可能残留hashCode，元素的hashCode可能为0
+     */
+    @Test
+    void olderVersionsAreUpgraded(@TempDir Path dir) throws IOException {
+
+        LightMap<String, String> map = new LightMap<>(16, 16);
+        Map<String, String> expected = new HashMap<>();
+        for(int i = 0; i < 1000; i++) {
+            map.put("k" + i, "v" + i);
+            expected.put("k" + i, "v" + i);
+        }
+
+        Path path = dir.resolve("old.lmap");
+        map.snapshot(path);
+        writeInt(path, 4, 4);
+
+        // 第一个空节点残留hashCode，第一个元素的hashCode为0
+        int empty = -1;
+        int live = -1;
+        for(int i = 0; empty < 0 || live < 0; i++) {
+            if(map.occupied(map.nodes, (long) i * map.nodeLength)) {
+                live = live < 0 ? i : live;
+            } else {
+                empty = empty < 0 ? i : empty;
+            }
+        }
+        writeInt(path, LightMapFile.HEADER_SIZE + (long) (empty + 1) * map.nodeLength - 4, 0x12345);
+        writeInt(path, LightMapFile.HEADER_SIZE + (long) (live + 1) * map.nodeLength - 4, 0);
+
+        LightMap<String, String> opened = LightMap.open(path);
+        LightMapTest.assertSameContent(expected, opened);
+
+        opened.put("", "e");
+        expected.put("", "e");
+        opened.flush();
+        opened.close();
+
+        LightMap<String, String> reopened = LightMap.open(path);
+        LightMapTest.assertSameContent(expected, reopened);
+        reopened.close();
+    }
+
+    private static void writeInt(Path path, long position, int value) throws IOException {
+
+        ByteBuffer buffer = ByteBuffer.allocate(4).order(ByteOrder.LITTLE_ENDIAN);
+        buffer.putInt(0, value);
+
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.WRITE)) {
+            channel.write(buffer, position);
+        }
+    }
+}
@@ -0,0 +1,142 @@
+package com.songge.demo;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * <p>
+ *   LightMap基本读写，以HashMap作为参照
+ * <p/>
+ */
+class LightMapTest {
+
+    /**
+     * 随机put/get/remove，每一步之后与HashMap的结果一致
+     * @param map 被测容器
+     * @param keySpace key的取值范围，较小时覆盖和删除更频繁
+     * @param operations 操作次数
+     * @param seed 随机种子
+     * @return 参照的HashMap，供调用方继续比较
+     */
+    static Map<String, String> randomOperations(Map<String, String> map, int keySpace, int operations, long seed) {
+
+        Map<String, String> expected = new HashMap<>();
+        Random random = new Random(seed);
+
+        for(int i = 0; i < operations; i++) {
+
+            String key = "k" + random.nextInt(keySpace);
+            int op = random.nextInt(10);
+
+            if(op < 5) {
+                String value = "v" + random.nextInt();
+                map.put(key, value);
+                expected.put(key, value);
+            } else if(op < 8) {
+                assertEquals(expected.remove(key), map.remove(key), key);
+            } else {
+                assertEquals(expected.get(key), map.get(key), key);
+                assertEquals(expected.containsKey(key), map.containsKey(key), key);
+            }
+        }
+
+        assertSameContent(expected, map);
+
+        return expected;
+    }
+
+    /**
+     * 逐个key比较，并通过entrySet确认容器中没有多余的元素
+     */
+    static void assertSameContent(Map<String, String> expected, Map<String, String> map) {
+
+        assertEquals(expected.size(), map.size());
+
+        for(Map.Entry<String, String> entry : expected.entrySet()) {
+            assertEquals(entry.getValue(), map.get(entry.getKey()), entry.getKey());
+        }
+
+        int entries = 0;
+        for(Map.Entry<String, String> entry : map.entrySet()) {
+            assertEquals(expected.get(entry.getKey()), entry.getValue(), entry.getKey());
+            entries++;
+        }
+
+        assertEquals(expected.size(), entries);
+    }
+
+    @Test
+    void randomOperationsMatchHashMap() {
+
+        randomOperations(new LightMap<>(16, 16), 20000, 200000, 1);
+    }
+
+    @Test
+    void denseKeysMatchHashMap() {
+
+        // key范围小，覆盖、删除后再放入的比例高
+        randomOperations(new LightMap<>(16, 16), 300, 100000, 2);
+    }
+
+    @Test
+    void integerAndLongValues() {
+
+        LightMap<String, Integer> ints = new LightMap<>(16, 4);
+        LightMap<String, Long> longs = new LightMap<>(16, 8);
+
+        for(int i = -5000; i < 5000; i++) {
+            ints.put("k" + i, i * 7919);
+            longs.put("k" + i, i * 0x1234_5678_9abL);
+        }
+
+        for(int i = -5000; i < 5000; i++) {
+            assertEquals(Integer.valueOf(i * 7919), ints.get("k" + i));
+            assertEquals(Long.valueOf(i * 0x1234_5678_9abL), longs.get("k" + i));
+        }
+
+        assertNull(ints.get("missing"));
+        assertEquals(10000, longs.size());
+    }
+
+    @Test
+    void charSequenceAndUtf8Keys() {
+
+        LightMap<String, String> map = new LightMap<>(32, 16);
+
+        map.put("键值", "中文");
+        map.put("key", "ascii");
+
+        assertEquals("中文", map.get(new StringBuilder("键").append("值")));
+        assertEquals("ascii", map.get(new StringBuilder("key")));
+        assertTrue(map.containsKey("键值"));
+        assertFalse(map.containsKey("键"));
+        assertNull(map.get(1));
+    }
+
+    @Test
+    void clearRemovesEverything() {
+
+        LightMap<String, String> map = new LightMap<>(16, 16);
+
+        for(int i = 0; i < 1000; i++) {
+            map.put("k" + i, "v" + i);
+        }
+
+        map.clear();
+
+        assertTrue(map.isEmpty());
+        assertNull(map.get("k1"));
+
+        map.put("k1", "again");
+        assertEquals("again", map.get("k1"));
+        assertEquals(1, map.size());
+    }
+}
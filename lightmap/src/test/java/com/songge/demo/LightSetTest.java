@@ -0,0 +1,150 @@
+package com.songge.demo;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.Random;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * <p>
+ *   LightSet以HashSet作为参照
+ * <p/>
+ */
+class LightSetTest {
+
+    private static LightSet randomSet(Set<String> expected, int size, long seed) {
+
+        LightSet set = new LightSet(16);
+        Random random = new Random(seed);
+
+        for(int i = 0; i < size; i++) {
+            String key = "k" + random.nextInt(size * 2);
+            assertEquals(expected.add(key), set.add(key));
+        }
+
+        return set;
+    }
+
+    @Test
+    void randomOperationsMatchHashSet() {
+
+        Set<String> expected = new HashSet<>();
+        LightSet set = randomSet(expected, 50000, 1);
+        Random random = new Random(2);
+
+        for(int i = 0; i < 50000; i++) {
+            String key = "k" + random.nextInt(100000);
+            assertEquals(expected.remove(key), set.remove(key));
+            assertEquals(expected.contains("k" + i), set.contains("k" + i));
+        }
+
+        assertEquals(expected, set);
+        assertEquals(set, expected);
+        assertEquals(expected.hashCode(), set.hashCode());
+    }
+
+    @Test
+    void bulkOperationsMatchHashSet() {
+
+        Set<String> a = new HashSet<>();
+        Set<String> b = new HashSet<>();
+        LightSet left = randomSet(a, 20000, 3);
+        LightSet right = randomSet(b, 20000, 4);
+
+        Set<String> union = new HashSet<>(a);
+        union.addAll(b);
+        Set<String> intersection = new HashSet<>(a);
+        intersection.retainAll(b);
+
+        assertEquals(union, left.union(right));
+        assertEquals(intersection, left.intersection(right));
+        assertTrue(left.containsAll(intersection));
+
+        LightSet removed = left.union(right);
+        removed.removeAll(right);
+        Set<String> difference = new HashSet<>(a);
+        difference.removeAll(b);
+        assertEquals(difference, removed);
+
+        LightSet retained = left.union(right);
+        retained.retainAll(b);
+        assertEquals(b, retained);
+    }
+
+    @Test
+    void iteratorRemove() {
+
+        Set<String> expected = new HashSet<>();
+        LightSet set = randomSet(expected, 10000, 5);
+
+        Iterator<String> iterator = set.iterator();
+        while(iterator.hasNext()) {
+            String key = iterator.next();
+            if(key.hashCode() % 3 == 0) {
+                iterator.remove();
+                expected.remove(key);
+            }
+        }
+
+        assertEquals(expected, set);
+    }
+
+    @Test
+    void fileRoundTrip(@TempDir Path dir) throws IOException {
+
+        Set<String> expected = new HashSet<>();
+        LightSet set = randomSet(expected, 10000, 6);
+        Path path = dir.resolve("set.lmap");
+
+        set.snapshot(path);
+
+        LightSet opened = LightSet.open(path);
+        assertEquals(expected, opened);
+        opened.close();
+    }
+
+    @Test
+    void otherFileTypesAreRejected(@TempDir Path dir) throws IOException {
+
+        Path setPath = dir.resolve("set.lmap");
+        LightSet set = new LightSet(16);
+        set.add("k");
+        set.snapshot(setPath);
+
+        Path longKeyPath = dir.resolve("long.lmap");
+        LightLongKeyMap longKeys = new LightLongKeyMap();
+        longKeys.putLong(1, 1);
+        longKeys.snapshot(longKeyPath);
+
+        Path intKeyPath = dir.resolve("int.lmap");
+        LightIntKeyMap intKeys = new LightIntKeyMap();
+        intKeys.putInt(1, 1);
+        intKeys.snapshot(intKeyPath);
+
+        Path mapPath = dir.resolve("map.lmap");
+        LightMap<String, String> map = new LightMap<>(16, 16);
+        map.put("k", "v");
+        map.snapshot(mapPath);
+
+        assertThrows(IOException.class, () -> LightMap.open(setPath));
+        assertThrows(IOException.class, () -> LightMap.open(longKeyPath));
+        assertThrows(IOException.class, () -> LightMap.open(intKeyPath));
+        assertThrows(IOException.class, () -> LightSet.open(mapPath));
+        assertThrows(IOException.class, () -> LightSet.open(longKeyPath));
+
+        LightMap<String, String> opened = LightMap.open(mapPath);
+        assertEquals("v", opened.get("k"));
+        assertFalse(opened.containsKey("x"));
+        opened.close();
+    }
+}
@@ -0,0 +1,227 @@
+package com.songge.demo;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.ConcurrentModificationException;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.Random;
+import java.util.TreeMap;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * <p>
+ *   LightSortedMap以TreeMap作为参照，key只使用ASCII字符，UTF-8字节顺序与String顺序一致
+ *   元素数远大于一页，覆盖页的拆分、尾部追加新页和删除后的合并
+ * <p/>
+ */
+class LightSortedMapTest {
+
+    private static String key(int i) {
+
+        return String.format("k%07d", i);
+    }
+
+    private static List<String> keys(LightSortedCursor cursor) {
+
+        List<String> keys = new ArrayList<>();
+        while(cursor.next()) {
+            keys.add(cursor.key());
+        }
+
+        return keys;
+    }
+
+    private static void assertSameContent(NavigableMap<String, String> expected, LightSortedMap map) {
+
+        assertEquals(expected.size(), map.size());
+
+        LightSortedCursor cursor = map.cursor();
+        for(Map.Entry<String, String> entry : expected.entrySet()) {
+            assertTrue(cursor.next());
+            assertEquals(entry.getKey(), cursor.key());
+            assertEquals(entry.getValue(), cursor.valueString());
+        }
+
+        assertFalse(cursor.next());
+    }
+
+    @Test
+    void randomOperationsMatchTreeMap() {
+
+        LightSortedMap map = new LightSortedMap(16, 8);
+        NavigableMap<String, String> expected = new TreeMap<>();
+        Random random = new Random(11);
+
+        for(int i = 0; i < 200000; i++) {
+
+            String key = key(random.nextInt(30000));
+
+            if(random.nextInt(3) < 2) {
+                String value = "v" + random.nextInt(1000);
+                map.put(key, value);
+                expected.put(key, value);
+            } else {
+                assertEquals(expected.remove(key) != null, map.remove(key));
+            }
+        }
+
+        assertSameContent(expected, map);
+
+        for(int i = 0; i < 30000; i += 7) {
+            assertEquals(expected.get(key(i)), map.get(key(i)));
+        }
+    }
+
+    @Test
+    void ascendingAndDescendingInserts() {
+
+        LightSortedMap ascending = new LightSortedMap(16, 8);
+        LightSortedMap descending = new LightSortedMap(16, 8);
+        NavigableMap<String, String> expected = new TreeMap<>();
+
+        for(int i = 0; i < 50000; i++) {
+            ascending.put(key(i), "v" + i);
+            descending.put(key(49999 - i), "v" + (49999 - i));
+            expected.put(key(i), "v" + i);
+        }
+
+        assertSameContent(expected, ascending);
+        assertSameContent(expected, descending);
+
+        // 顺序放入时尾部页写满后直接开新页，页基本是满的
+        assertTrue(ascending.memoryBytes() < descending.memoryBytes());
+    }
+
+    @Test
+    void removalsMergePages() {
+
+        LightSortedMap map = new LightSortedMap(16, 8);
+        NavigableMap<String, String> expected = new TreeMap<>();
+
+        for(int i = 0; i < 50000; i++) {
+            map.put(key(i), "v" + i);
+            expected.put(key(i), "v" + i);
+        }
+
+        long full = map.memoryBytes();
+
+        // 每10个保留1个，相邻的页逐步合并
+        for(int i = 0; i < 50000; i++) {
+            if(i % 10 != 0) {
+                assertTrue(map.remove(key(i)));
+                expected.remove(key(i));
+            }
+        }
+
+        assertSameContent(expected, map);
+        assertTrue(map.memoryBytes() < full / 4, map.memoryBytes() + " / " + full);
+
+        for(int i = 0; i < 50000; i += 10) {
+            assertTrue(map.remove(key(i)));
+        }
+
+        assertTrue(map.isEmpty());
+        assertFalse(map.cursor().next());
+    }
+
+    @Test
+    void rangeCursorsMatchTreeMap() {
+
+        LightSortedMap map = new LightSortedMap(16, 8);
+        NavigableMap<String, String> expected = new TreeMap<>();
+
+        // 只放入偶数，查找奇数时覆盖key不存在的情况
+        for(int i = 0; i < 20000; i += 2) {
+            map.put(key(i), "v" + i);
+            expected.put(key(i), "v" + i);
+        }
+
+        Random random = new Random(3);
+
+        for(int i = 0; i < 200; i++) {
+
+            int from = random.nextInt(20100) - 50;
+            int to = from + random.nextInt(500);
+            boolean fromInclusive = random.nextBoolean();
+            boolean toInclusive = random.nextBoolean();
+
+            assertEquals(new ArrayList<>(expected.subMap(key(from), fromInclusive, key(to), toInclusive).keySet()),
+                    keys(map.subMap(key(from), fromInclusive, key(to), toInclusive)));
+
+            assertEquals(new ArrayList<>(expected.tailMap(key(from), true).keySet()), keys(map.ceiling(key(from))));
+
+            String floor = expected.floorKey(key(from));
+            List<String> floorKeys = keys(map.floor(key(from)));
+            if(floor == null) {
+                assertTrue(floorKeys.isEmpty());
+            } else {
+                assertEquals(new ArrayList<>(expected.tailMap(floor, true).keySet()), floorKeys);
+            }
+        }
+
+        // k00012xx：12000到12098之间的偶数
+        List<String> prefixed = keys(map.prefixScan("k00120"));
+        assertEquals(50, prefixed.size());
+        assertEquals(key(12000), prefixed.get(0));
+        assertEquals(key(12098), prefixed.get(49));
+        assertTrue(keys(map.prefixScan("x")).isEmpty());
+    }
+
+    @Test
+    void longValues() {
+
+        LightSortedMap map = new LightSortedMap(16, 8);
+
+        for(int i = 0; i < 1000; i++) {
+            map.putLong(key(i), -i * 1000003L);
+        }
+
+        LightSortedCursor cursor = map.cursor();
+        for(int i = 0; i < 1000; i++) {
+            assertTrue(cursor.next());
+            assertEquals(-i * 1000003L, cursor.valueLong());
+            assertEquals(-i * 1000003L, map.getLong(key(i), 0));
+        }
+
+        assertEquals(7, map.getLong("missing", 7));
+    }
+
+    @Test
+    void modificationDuringIterationFails() {
+
+        LightSortedMap map = new LightSortedMap(16, 8);
+        map.put("a", "1");
+        map.put("b", "2");
+
+        LightSortedCursor cursor = map.cursor();
+        assertTrue(cursor.next());
+
+        map.put("c", "3");
+
+        assertThrows(ConcurrentModificationException.class, cursor::next);
+    }
+
+    @Test
+    void invalidInputIsRejected() {
+
+        LightSortedMap map = new LightSortedMap(4, 4);
+
+        assertThrows(IllegalArgumentException.class, () -> map.put("12345", "v"));
+        assertThrows(IllegalArgumentException.class, () -> map.put("k", "12345"));
+        assertThrows(IllegalArgumentException.class, () -> map.put(new byte[5], 0, 5, new byte[1], 0, 1));
+        assertThrows(IllegalArgumentException.class, () -> map.put(new byte[1], 0, 1, new byte[5], 0, 5));
+        assertThrows(IllegalArgumentException.class, () -> map.putLong("k", 1));
+        assertThrows(IllegalArgumentException.class, () -> new LightSortedMap(0, 4));
+
+        assertTrue(map.isEmpty());
+        assertNull(map.get("k"));
+    }
+}
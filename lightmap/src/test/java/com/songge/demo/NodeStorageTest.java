@@ -0,0 +1,208 @@
+package com.songge.demo;
+
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.EnumSource;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.channels.Channels;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * <p>
+ *   NodeStorage的读写以byte数组作为参照，小端字节序
+ * <p/>
+ */
+class NodeStorageTest {
+
+    /**
+     * 在[from, to)范围内随机写入，同时修改参照数组
+     */
+    static void randomWrites(NodeStorage storage, byte[] model, Random random, int operations, long from, long to) {
+
+        for(int i = 0; i < operations; i++) {
+
+            long offset = from + (long) (random.nextDouble() * (to - from - 40));
+
+            switch(random.nextInt(5)) {
+                case 0: {
+                    long value = random.nextLong();
+                    storage.putLong(offset, value);
+                    for(int j = 0; j < 8; j++) {
+                        model[(int) offset + j] = (byte) (value >> (8 * j));
+                    }
+                    break;
+                }
+                case 1: {
+                    int value = random.nextInt();
+                    storage.putInt(offset, value);
+                    for(int j = 0; j < 4; j++) {
+                        model[(int) offset + j] = (byte) (value >> (8 * j));
+                    }
+                    break;
+                }
+                case 2: {
+                    byte[] bytes = new byte[random.nextInt(30)];
+                    random.nextBytes(bytes);
+                    storage.putBytes(offset, bytes, 0, bytes.length);
+                    System.arraycopy(bytes, 0, model, (int) offset, bytes.length);
+                    break;
+                }
+                case 3: {
+                    // 源区间与目标区间可能重叠
+                    long target = Math.max(0, offset + random.nextInt(20) - 10);
+                    int length = random.nextInt(25);
+                    storage.copy(offset, target, length);
+                    System.arraycopy(model, (int) offset, model, (int) target, length);
+                    break;
+                }
+                default: {
+                    byte value = (byte) random.nextInt();
+                    storage.put(offset, value);
+                    model[(int) offset] = value;
+                }
+            }
+        }
+    }
+
+    /**
+     * 逐字节、按int/long和getBytes/matches读取，结果都与参照数组一致
+     */
+    static void assertSameBytes(byte[] model, NodeStorage storage) {
+
+        assertEquals(model.length, storage.size());
+
+        byte[] bytes = new byte[model.length];
+        for(int i = 0; i < model.length; i++) {
+            bytes[i] = storage.get(i);
+        }
+        assertArrayEquals(model, bytes);
+
+        byte[] range = new byte[64];
+        for(int i = 0; i + 64 <= model.length; i += 61) {
+
+            assertEquals(AbstractLightMap.readLong(model, i), storage.getLong(i));
+            assertEquals(AbstractLightMap.readInt(model, i + 3), storage.getInt(i + 3));
+
+            storage.getBytes(i, range, 0, 64);
+            for(int j = 0; j < 64; j++) {
+                assertEquals(model[i + j], range[j]);
+            }
+
+            assertEquals(true, storage.matches(i, model, i, 64));
+        }
+    }
+
+    static byte[] written(NodeStorage storage) throws IOException {
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        storage.writeTo(Channels.newChannel(out));
+
+        return out.toByteArray();
+    }
+
+    @ParameterizedTest
+    @EnumSource(LightStorage.class)
+    void readsMatchWrites(LightStorage type) throws IOException {
+
+        int size = 300000;
+        NodeStorage storage = type.allocate(size);
+        byte[] model = new byte[size];
+
+        randomWrites(storage, model, new Random(1), 100000, 0, size);
+
+        assertSameBytes(model, storage);
+        assertArrayEquals(model, written(storage));
+
+        storage.close();
+    }
+
+    /**
+     * 在每个块边界前后逐字节移动读写位置，多字节数据依次覆盖跨块的每一种拆分方式
+     */
+    @ParameterizedTest
+    @EnumSource(LightStorage.class)
+    void accessAcrossChunkBoundaries(LightStorage type) throws IOException {
+
+        int chunk = 1 << HeapNodeStorage.CHUNK_SHIFT;
+        int size = chunk * 3 + 100;
+        NodeStorage storage = type.allocate(size);
+        byte[] model = new byte[size];
+        Random random = new Random(2);
+
+        for(int boundary = chunk; boundary < size; boundary += chunk) {
+            for(int offset = boundary - 40; offset <= boundary; offset++) {
+
+                long value = random.nextLong();
+                storage.putLong(offset, value);
+                assertEquals(value, storage.getLong(offset));
+                assertEquals((int) value, storage.getInt(offset));
+                assertEquals((byte) value, storage.get(offset));
+
+                storage.putInt(offset + 4, (int) value);
+                assertEquals((int) value, storage.getInt(offset + 4));
+
+                byte[] bytes = new byte[40];
+                random.nextBytes(bytes);
+                storage.putBytes(offset, bytes, 0, bytes.length);
+                System.arraycopy(bytes, 0, model, offset, bytes.length);
+
+                byte[] read = new byte[40];
+                storage.getBytes(offset, read, 0, read.length);
+                assertArrayEquals(bytes, read);
+                assertEquals(true, storage.matches(offset, bytes, 0, bytes.length));
+
+                bytes[39] ^= 1;
+                assertEquals(false, storage.matches(offset, bytes, 0, bytes.length));
+            }
+
+            // 源区间和目标区间都跨块，向前和向后重叠复制
+            storage.copy(boundary - 30, boundary - 20, 50);
+            System.arraycopy(model, boundary - 30, model, boundary - 20, 50);
+            storage.copy(boundary - 10, boundary - 25, 50);
+            System.arraycopy(model, boundary - 10, model, boundary - 25, 50);
+        }
+
+        assertSameBytes(model, storage);
+        assertArrayEquals(model, written(storage));
+
+        storage.close();
+    }
+
+    @ParameterizedTest
+    @EnumSource(LightStorage.class)
+    void sizesAroundChunkSize(LightStorage type) {
+
+        int chunk = 1 << HeapNodeStorage.CHUNK_SHIFT;
+
+        for(int size : new int[]{1, 8, chunk - 1, chunk, chunk + 1, chunk * 2, chunk * 2 + 7}) {
+
+            NodeStorage storage = type.allocate(size);
+            assertEquals(size, storage.size());
+
+            storage.put(size - 1, (byte) 7);
+            assertEquals(7, storage.get(size - 1));
+
+            if(size >= 8) {
+                storage.putLong(size - 8, -2);
+                assertEquals(-2, storage.getLong(size - 8));
+            }
+
+            storage.close();
+        }
+    }
+
+    @ParameterizedTest
+    @EnumSource(LightStorage.class)
+    void allocatedStorageIsZeroed(LightStorage type) {
+
+        NodeStorage storage = type.allocate(100000);
+
+        assertSameBytes(new byte[100000], storage);
+
+        storage.close();
+    }
+}
@@ -0,0 +1,172 @@
+package com.songge.demo;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.EnumSource;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * <p>
+ *   LightLongMap/LightIntMap以HashMap作为参照，int的加法按int溢出
+ * <p/>
+ */
+class NumberMapTest {
+
+    @ParameterizedTest
+    @EnumSource(LightLayout.class)
+    void longMapMatchesHashMap(LightLayout layout) {
+
+        LightLongMap map = new LightLongMap(16, 16, 0.8, LightStorage.HEAP, layout);
+        Map<String, Long> expected = new HashMap<>();
+        Random random = new Random(41);
+
+        for(int i = 0; i < 200000; i++) {
+
+            String key = "k" + random.nextInt(20000);
+            long value = random.nextLong();
+
+            switch(random.nextInt(6)) {
+                case 0:
+                    map.putLong(key, value);
+                    expected.put(key, value);
+                    break;
+                case 1:
+                    assertEquals(expected.merge(key, value, Long::sum).longValue(), map.addAndGet(key, value));
+                    break;
+                case 2:
+                    assertEquals(!expected.containsKey(key), map.putIfAbsent(key, value));
+                    expected.putIfAbsent(key, value);
+                    break;
+                case 3:
+                    assertEquals(expected.remove(key) != null, map.remove(key));
+                    break;
+                case 4:
+                    byte[] bytes = key.getBytes(StandardCharsets.UTF_8);
+                    map.putLong(bytes, 0, bytes.length, value);
+                    expected.put(key, value);
+                    break;
+                default:
+                    assertEquals(expected.getOrDefault(key, -1L).longValue(), map.getLong(key, -1));
+                    assertEquals(expected.containsKey(key), map.containsKey(key));
+            }
+        }
+
+        assertEquals(expected.size(), map.size());
+
+        Map<String, Long> actual = new HashMap<>();
+        map.forEach(actual::put);
+        assertEquals(expected, actual);
+
+        for(Map.Entry<String, Long> entry : expected.entrySet()) {
+            byte[] bytes = entry.getKey().getBytes(StandardCharsets.UTF_8);
+            assertEquals(entry.getValue().longValue(), map.getLong(bytes, 0, bytes.length, -1));
+            assertEquals(entry.getValue().longValue(), map.getLong(ByteBuffer.wrap(bytes), -1));
+        }
+    }
+
+    @ParameterizedTest
+    @EnumSource(LightLayout.class)
+    void intMapMatchesHashMap(LightLayout layout) {
+
+        LightIntMap map = new LightIntMap(16, 16, 0.8, LightStorage.HEAP, layout);
+        Map<String, Integer> expected = new HashMap<>();
+        Random random = new Random(42);
+
+        for(int i = 0; i < 200000; i++) {
+
+            String key = "k" + random.nextInt(20000);
+            int value = random.nextInt();
+
+            switch(random.nextInt(6)) {
+                case 0:
+                    map.putInt(key, value);
+                    expected.put(key, value);
+                    break;
+                case 1:
+                    assertEquals(expected.merge(key, value, Integer::sum).intValue(), map.addAndGet(key, value));
+                    break;
+                case 2:
+                    assertEquals(!expected.containsKey(key), map.putIfAbsent(key, value));
+                    expected.putIfAbsent(key, value);
+                    break;
+                case 3:
+                    assertEquals(expected.remove(key) != null, map.remove(key));
+                    break;
+                case 4:
+                    byte[] bytes = key.getBytes(StandardCharsets.UTF_8);
+                    map.putInt(bytes, 0, bytes.length, value);
+                    expected.put(key, value);
+                    break;
+                default:
+                    assertEquals(expected.getOrDefault(key, -1).intValue(), map.getInt(key, -1));
+                    assertEquals(expected.containsKey(key), map.containsKey(key));
+            }
+        }
+
+        assertEquals(expected.size(), map.size());
+
+        Map<String, Integer> actual = new HashMap<>();
+        map.forEach(actual::put);
+        assertEquals(expected, actual);
+    }
+
+    @Test
+    void intAdditionOverflows() {
+
+        LightIntMap map = new LightIntMap(16);
+
+        assertEquals(Integer.MAX_VALUE, map.addAndGet("k", Integer.MAX_VALUE));
+        assertEquals(Integer.MIN_VALUE, map.increment("k"));
+        assertEquals(Integer.MIN_VALUE, map.getInt("k", 0));
+
+        assertEquals(-1, map.addAndGet("n", -1));
+        assertEquals(-1, map.getInt("n", 0));
+    }
+
+    @Test
+    void fileRoundTrip(@TempDir Path dir) throws IOException {
+
+        LightLongMap longs = new LightLongMap(16);
+        LightIntMap ints = new LightIntMap(16);
+
+        for(int i = 0; i < 10000; i++) {
+            longs.putLong("k" + i, -i * 1000003L);
+            ints.putInt("k" + i, -i);
+        }
+
+        Path longPath = dir.resolve("long.lmap");
+        Path intPath = dir.resolve("int.lmap");
+        longs.snapshot(longPath);
+        ints.snapshot(intPath);
+
+        LightLongMap openedLongs = LightLongMap.open(longPath);
+        LightIntMap openedInts = LightIntMap.open(intPath);
+
+        for(int i = 0; i < 10000; i++) {
+            assertEquals(-i * 1000003L, openedLongs.getLong("k" + i, 1));
+            assertEquals(-i, openedInts.getInt("k" + i, 1));
+        }
+
+        assertFalse(openedLongs.containsKey("missing"));
+        assertTrue(openedInts.containsKey("k0"));
+
+        assertThrows(IOException.class, () -> LightLongMap.open(intPath));
+        assertThrows(IOException.class, () -> LightIntMap.open(longPath));
+
+        openedLongs.close();
+        openedInts.close();
+    }
+}
@@ -0,0 +1,220 @@
+package com.songge.demo;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.EnumSource;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * <p>
+ *   LightLongKeyMap/LightIntKeyMap以HashMap作为参照
+ *   节点中不保存长度标识，key和value全为0的元素也要与空节点区分
+ * <p/>
+ */
+class NumericKeyMapTest {
+
+    /**
+     * 随机put/addAndGet/putIfAbsent/remove/get，key范围包含0、负数和边界值
+     */
+    private static Map<Long, Long> randomOperations(LightLongKeyMap map, int operations, long seed) {
+
+        Map<Long, Long> expected = new HashMap<>();
+        Random random = new Random(seed);
+        long[] special = {0, -1, 1, Long.MIN_VALUE, Long.MAX_VALUE};
+
+        for(int i = 0; i < operations; i++) {
+
+            long key = random.nextInt(20) == 0 ? special[random.nextInt(special.length)] : random.nextInt(20000) - 10000;
+            long value = random.nextInt(4) == 0 ? 0 : random.nextLong();
+
+            switch(random.nextInt(5)) {
+                case 0:
+                    map.putLong(key, value);
+                    expected.put(key, value);
+                    break;
+                case 1:
+                    assertEquals(expected.merge(key, value, Long::sum).longValue(), map.addAndGet(key, value));
+                    break;
+                case 2:
+                    assertEquals(!expected.containsKey(key), map.putIfAbsent(key, value));
+                    expected.putIfAbsent(key, value);
+                    break;
+                case 3:
+                    assertEquals(expected.remove(key) != null, map.remove(key));
+                    break;
+                default:
+                    assertEquals(expected.getOrDefault(key, 7L).longValue(), map.getLong(key, 7));
+                    assertEquals(expected.containsKey(key), map.containsKey(key));
+            }
+        }
+
+        assertSameContent(expected, map);
+
+        return expected;
+    }
+
+    private static void assertSameContent(Map<Long, Long> expected, LightLongKeyMap map) {
+
+        assertEquals(expected.size(), map.size());
+
+        for(Map.Entry<Long, Long> entry : expected.entrySet()) {
+            assertEquals(entry.getValue().longValue(), map.getLong(entry.getKey(), 7), String.valueOf(entry.getKey()));
+        }
+
+        Map<Long, Long> actual = new HashMap<>();
+        map.forEach(actual::put);
+        assertEquals(expected, actual);
+    }
+
+    @Test
+    void nodesHaveNoLengthBytes() {
+
+        assertEquals(20, new LightLongKeyMap().nodeLength);
+        assertEquals(12, new LightIntKeyMap().nodeLength);
+
+        LightLongKeyMap map = new LightLongKeyMap();
+        map.setExpireAfterWrite(1, TimeUnit.HOURS);
+        assertEquals(24, map.nodeLength);
+    }
+
+    @Test
+    void zeroKeyAndValue() {
+
+        LightLongKeyMap map = new LightLongKeyMap();
+
+        assertFalse(map.containsKey(0));
+
+        map.putLong(0, 0);
+        assertTrue(map.containsKey(0));
+        assertEquals(0, map.getLong(0, 7));
+        assertEquals(1, map.size());
+
+        assertTrue(map.remove(0));
+        assertFalse(map.containsKey(0));
+
+        LightIntKeyMap ints = new LightIntKeyMap();
+        ints.putInt(0, 0);
+        assertTrue(ints.containsKey(0));
+        assertEquals(0, ints.getInt(0, 7));
+    }
+
+    @ParameterizedTest
+    @EnumSource(LightStorage.class)
+    void longKeysMatchHashMap(LightStorage storage) {
+
+        LightLongKeyMap map = new LightLongKeyMap(16, 0.8, storage);
+
+        randomOperations(map, 200000, 51);
+
+        map.close();
+    }
+
+    @Test
+    void intKeysMatchHashMap() {
+
+        LightIntKeyMap map = new LightIntKeyMap();
+        Map<Integer, Integer> expected = new HashMap<>();
+        Random random = new Random(52);
+
+        for(int i = 0; i < 200000; i++) {
+
+            int key = random.nextInt(20000) - 10000;
+            int value = random.nextInt(4) == 0 ? 0 : random.nextInt();
+
+            switch(random.nextInt(5)) {
+                case 0:
+                    map.putInt(key, value);
+                    expected.put(key, value);
+                    break;
+                case 1:
+                    assertEquals(expected.merge(key, value, Integer::sum).intValue(), map.addAndGet(key, value));
+                    break;
+                case 2:
+                    assertEquals(!expected.containsKey(key), map.putIfAbsent(key, value));
+                    expected.putIfAbsent(key, value);
+                    break;
+                case 3:
+                    assertEquals(expected.remove(key) != null, map.remove(key));
+                    break;
+                default:
+                    assertEquals(expected.getOrDefault(key, 7).intValue(), map.getInt(key, 7));
+            }
+        }
+
+        assertEquals(expected.size(), map.size());
+
+        Map<Integer, Integer> actual = new HashMap<>();
+        map.forEach(actual::put);
+        assertEquals(expected, actual);
+    }
+
+    @Test
+    void incrementalRehashExpiryAndReseed() {
+
+        LightLongKeyMap map = new LightLongKeyMap();
+        map.setIncrementalRehash(4);
+
+        Map<Long, Long> expected = randomOperations(map, 100000, 53);
+
+        // 开启过期时间后节点变长，内容不变
+        map.setExpireAfterWrite(1, TimeUnit.HOURS);
+        assertSameContent(expected, map);
+
+        map.setHasher(LightHashers.WYHASH);
+        assertSameContent(expected, map);
+
+        map.compact();
+        assertSameContent(expected, map);
+    }
+
+    @Test
+    void fileRoundTrip(@TempDir Path dir) throws IOException {
+
+        LightLongKeyMap longs = new LightLongKeyMap();
+        Map<Long, Long> expected = randomOperations(longs, 50000, 54);
+
+        LightIntKeyMap ints = new LightIntKeyMap();
+        for(int i = -5000; i < 5000; i++) {
+            ints.putInt(i, i * 3);
+        }
+
+        Path longPath = dir.resolve("long.lmap");
+        Path intPath = dir.resolve("int.lmap");
+        longs.snapshot(longPath);
+        ints.snapshot(intPath);
+
+        LightLongKeyMap openedLongs = LightLongKeyMap.open(longPath);
+        assertSameContent(expected, openedLongs);
+
+        // 打开后继续修改，扩容后的新容器不再映射文件
+        for(long i = 0; i < 50000; i++) {
+            openedLongs.putLong(i * 1000003, i);
+            expected.put(i * 1000003, i);
+        }
+        assertSameContent(expected, openedLongs);
+
+        LightIntKeyMap openedInts = LightIntKeyMap.open(intPath);
+        for(int i = -5000; i < 5000; i++) {
+            assertEquals(i * 3, openedInts.getInt(i, 7));
+        }
+        assertEquals(10000, openedInts.size());
+
+        assertThrows(IOException.class, () -> LightLongKeyMap.open(intPath));
+        assertThrows(IOException.class, () -> LightIntKeyMap.open(longPath));
+
+        openedLongs.close();
+        openedInts.close();
+    }
+}
@@ -0,0 +1,44 @@
+package com.songge.demo;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * <p>
+ *   堆外存储的容器与堆内存储行为一致
+ * <p/>
+ */
+class OffHeapTest {
+
+    @Test
+    void offHeapMapMatchesHashMap() {
+
+        LightMap<String, String> map = new LightMap<>(16, 16, 16, 0.8, LightStorage.OFF_HEAP);
+
+        Map<String, String> expected = LightMapTest.randomOperations(map, 20000, 200000, 3);
+
+        map.compact();
+        LightMapTest.assertSameContent(expected, map);
+
+        map.close();
+    }
+
+    @Test
+    void offHeapLongMap() {
+
+        LightLongMap map = new LightLongMap(16, 16, 0.8, LightStorage.OFF_HEAP);
+
+        for(int i = 0; i < 50000; i++) {
+            map.putLong("k" + i, i * 31L);
+        }
+
+        for(int i = 0; i < 50000; i++) {
+            assertEquals(i * 31L, map.getLong("k" + i, -1));
+        }
+
+        map.close();
+    }
+}
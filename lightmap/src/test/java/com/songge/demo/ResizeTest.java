@@ -0,0 +1,124 @@
+package com.songge.demo;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * <p>
+ *   扩容过程中容器内容不变，以HashMap作为参照
+ * <p/>
+ */
+class ResizeTest {
+
+    private final int parallelThreshold = AbstractLightMap.parallelThreshold;
+
+    @AfterEach
+    void restoreThreshold() {
+
+        AbstractLightMap.parallelThreshold = parallelThreshold;
+    }
+
+    @Test
+    void incrementalRehashMatchesHashMap() {
+
+        // 每次只迁移一个节点，上一次迁移尚未完成时再次扩容
+        LightMap<String, String> single = new LightMap<>(16, 16);
+        single.setIncrementalRehash(1);
+        LightMapTest.randomOperations(single, 50000, 300000, 22);
+
+        LightMap<String, String> batched = new LightMap<>(16, 16, 16, 0.8, LightStorage.OFF_HEAP);
+        batched.setIncrementalRehash(8);
+        LightMapTest.randomOperations(batched, 20000, 200000, 23);
+        batched.close();
+    }
+
+    /**
+     * 迁移进行中时旧容器的key仍然可以读取、覆盖和删除，不会在新旧容器中各出现一次
+     */
+    @Test
+    void operationsDuringMigration() {
+
+        // 旧容器的节点数多于之后的操作数，检查时迁移一定未完成
+        LightMap<String, String> map = new LightMap<>(16, 16, 4096);
+        map.setIncrementalRehash(1);
+
+        Map<String, String> expected = new HashMap<>();
+        int i = 0;
+        while(map.oldNodes == null) {
+            map.put("k" + i, "v" + i);
+            expected.put("k" + i, "v" + i);
+            i++;
+        }
+
+        // 迁移刚开始，绝大部分key还在旧容器中；遍历会先完成迁移，这里只通过get检查
+        assertSameLookups(expected, map);
+
+        for(int j = 0; j < i; j += 3) {
+            map.put("k" + j, "changed" + j);
+            expected.put("k" + j, "changed" + j);
+        }
+        for(int j = 1; j < i; j += 3) {
+            assertEquals(expected.remove("k" + j), map.remove("k" + j));
+            assertNull(map.get("k" + j));
+        }
+
+        assertTrue(map.oldNodes != null, "迁移应尚未完成");
+        assertSameLookups(expected, map);
+
+        // 关闭渐进式rehash时立即完成迁移
+        map.setIncrementalRehash(0);
+        assertNull(map.oldNodes);
+        LightMapTest.assertSameContent(expected, map);
+    }
+
+    private static void assertSameLookups(Map<String, String> expected, LightMap<String, String> map) {
+
+        assertEquals(expected.size(), map.size());
+
+        for(Map.Entry<String, String> entry : expected.entrySet()) {
+            assertEquals(entry.getValue(), map.get(entry.getKey()), entry.getKey());
+        }
+    }
+
+    @Test
+    void parallelTransferMatchesHashMap() {
+
+        // 降低阈值，小容器扩容也走并行放置，覆盖跨段和超出区域末尾的节点
+        AbstractLightMap.parallelThreshold = 1 << 10;
+
+        LightMap<String, String> map = new LightMap<>(16, 16);
+        Map<String, String> expected = LightMapTest.randomOperations(map, 400000, 600000, 21);
+
+        // 一次扩大数倍，每个段的节点分散到多个区域
+        map.ensureCapacity(map.size() * 8);
+        LightMapTest.assertSameContent(expected, map);
+    }
+
+    @Test
+    void parallelTransferOffHeap() {
+
+        AbstractLightMap.parallelThreshold = 1 << 10;
+
+        LightLongMap map = new LightLongMap(16, 16, 0.8, LightStorage.OFF_HEAP);
+        Map<String, Long> expected = new HashMap<>();
+
+        for(int i = 0; i < 300000; i++) {
+            map.putLong("k" + i, i * 7L);
+            expected.put("k" + i, i * 7L);
+        }
+
+        assertEquals(expected.size(), map.size());
+        for(Map.Entry<String, Long> entry : expected.entrySet()) {
+            assertEquals(entry.getValue().longValue(), map.getLong(entry.getKey(), -1));
+        }
+
+        map.close();
+    }
+}
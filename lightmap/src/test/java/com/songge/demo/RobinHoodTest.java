@@ -0,0 +1,154 @@
+package com.songge.demo;
+
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.EnumSource;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * <p>
+ *   hash冲突严重时Robin Hood探测和删除后节点前移仍然正确，以HashMap作为参照
+ *   每次操作后节点到初始位置的距离满足：前一个节点为空时距离为0，否则不超过前一个节点的距离加1
+ * <p/>
+ */
+class RobinHoodTest {
+
+    /**
+     * 检查全部节点满足Robin Hood的距离约束
+     */
+    private static void assertProbeInvariant(AbstractLightMap map) {
+
+        int size = map.maxSize;
+        int nodeLength = map.nodeLength;
+
+        for(int i = 0; i < size; i++) {
+
+            long node = (long) i * nodeLength;
+            if(!map.occupied(map.nodes, node)) {
+                continue;
+            }
+
+            int previous = (i - 1) & (size - 1);
+            long previousNode = (long) previous * nodeLength;
+
+            int distance = distance(map, node, i);
+            if(!map.occupied(map.nodes, previousNode)) {
+                assertTrue(distance == 0, "节点" + i + "前为空节点，距离为" + distance);
+            } else {
+                assertTrue(distance <= distance(map, previousNode, previous) + 1, "节点" + i + "距离为" + distance);
+            }
+        }
+    }
+
+    private static int distance(AbstractLightMap map, long node, int index) {
+
+        int hashCode = map.nodes.getInt(node + map.nodeLength - 4);
+
+        return (index - hashCode) & (map.maxSize - 1);
+    }
+
+    @ParameterizedTest
+    @EnumSource(LightLayout.class)
+    void allKeysCollide(LightLayout layout) {
+
+        LightMap<String, String> map = new LightMap<>(16, 16, 16, 0.8, LightStorage.HEAP, layout);
+        map.setHasher((key, offset, length, seed) -> 5);
+
+        // 全部key在同一个簇中，删除后的前移覆盖簇的任意位置
+        LightMapTest.randomOperations(map, 300, 30000, 81);
+        assertProbeInvariant(map);
+    }
+
+    @ParameterizedTest
+    @EnumSource(LightLayout.class)
+    void clustersWrapAround(LightLayout layout) {
+
+        LightMap<String, String> map = new LightMap<>(16, 16, 16, 0.8, LightStorage.HEAP, layout);
+
+        // 初始位置都在容器末尾的16个节点，簇跨过末尾回到开头
+        map.setHasher((key, offset, length, seed) -> 0x7FFFFFF0 | (key[offset + length - 1] & 0xF));
+
+        LightMapTest.randomOperations(map, 1000, 50000, 82);
+        assertProbeInvariant(map);
+    }
+
+    @ParameterizedTest
+    @EnumSource(LightLayout.class)
+    void fewDistinctHashes(LightLayout layout) {
+
+        LightMap<String, String> map = new LightMap<>(16, 16, 16, 0.8, LightStorage.HEAP, layout);
+        map.setHasher((key, offset, length, seed) -> LightHashers.WYHASH.hash(key, offset, length, seed) & 0x3F0F);
+
+        Map<String, String> expected = LightMapTest.randomOperations(map, 20000, 100000, 83);
+        assertProbeInvariant(map);
+
+        // 删除到只剩少量元素后收缩，重新放置时同样满足约束
+        for(int i = 0; i < 20000; i++) {
+            if(i % 50 != 0) {
+                assertEquals(expected.remove("k" + i), map.remove("k" + i));
+            }
+        }
+        map.compact();
+        assertProbeInvariant(map);
+        LightMapTest.assertSameContent(expected, map);
+    }
+
+    /**
+     * 空key的key长度为0，节点仍视为已使用，不会在簇中间形成空洞
+     */
+    @ParameterizedTest
+    @EnumSource(LightLayout.class)
+    void emptyKeyInNearlyFullTable(LightLayout layout) {
+
+        LightMap<String, String> map = new LightMap<>(16, 16, 1024, 0.9, LightStorage.HEAP, layout);
+
+        Map<String, String> expected = new HashMap<>();
+        for(int i = 0; i < 900; i++) {
+            map.put("k" + i, "v" + i);
+            expected.put("k" + i, "v" + i);
+        }
+
+        assertNull(map.put("", "e"));
+        expected.put("", "e");
+        assertEquals(1024, map.maxSize);
+        assertProbeInvariant(map);
+        LightMapTest.assertSameContent(expected, map);
+
+        // 删除其他key时空key随簇前移，删除空key后其余key仍可找到
+        for(int i = 0; i < 900; i += 3) {
+            assertEquals(expected.remove("k" + i), map.remove("k" + i));
+        }
+        assertEquals("e", map.get(""));
+        assertEquals("e", map.remove(""));
+        expected.remove("");
+        assertNull(map.get(""));
+        assertProbeInvariant(map);
+        LightMapTest.assertSameContent(expected, map);
+    }
+
+    @ParameterizedTest
+    @EnumSource(LightLayout.class)
+    void emptyKeyInCollidingCluster(LightLayout layout) {
+
+        LightMap<String, String> map = new LightMap<>(16, 16, 16, 0.8, LightStorage.HEAP, layout);
+        map.setHasher((key, offset, length, seed) -> 7);
+
+        Map<String, String> expected = new HashMap<>();
+        for(int i = 0; i < 100; i++) {
+            map.put("k" + i, "v" + i);
+            expected.put("k" + i, "v" + i);
+            if(i == 50) {
+                map.put("", "e");
+                expected.put("", "e");
+            }
+        }
+
+        assertProbeInvariant(map);
+        LightMapTest.assertSameContent(expected, map);
+    }
+}
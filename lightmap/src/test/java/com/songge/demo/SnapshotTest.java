@@ -0,0 +1,153 @@
+package com.songge.demo;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.EnumSource;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+/**
+ * <p>
+ *   snapshot()创建的只读快照不受原容器之后修改的影响，修改快照时抛出UnsupportedOperationException
+ * <p/>
+ */
+class SnapshotTest {
+
+    @ParameterizedTest
+    @EnumSource(LightStorage.class)
+    void snapshotsAreIsolated(LightStorage storage) {
+
+        for(LightLayout layout : LightLayout.values()) {
+
+            LightMap<String, String> map = new LightMap<>(16, 16, 16, 0.8, storage, layout);
+            Map<String, String> first = LightMapTest.randomOperations(map, 20000, 50000, 251);
+            LightMap<String, String> firstSnapshot = map.snapshot();
+
+            // 之后的修改覆盖、删除快照中的元素并触发扩容和收缩
+            Map<String, String> second = new HashMap<>(first);
+            for(int i = 0; i < 60000; i++) {
+                if(i % 3 == 0) {
+                    map.remove("k" + (i % 20000));
+                    second.remove("k" + (i % 20000));
+                } else {
+                    map.put("k" + i, "n" + i);
+                    second.put("k" + i, "n" + i);
+                }
+            }
+            LightMap<String, String> secondSnapshot = map.snapshot();
+
+            map.clear();
+            map.compact();
+
+            LightMapTest.assertSameContent(first, firstSnapshot);
+            LightMapTest.assertSameContent(second, secondSnapshot);
+
+            // 快照的快照
+            LightMap<String, String> copy = secondSnapshot.snapshot();
+            secondSnapshot.close();
+            LightMapTest.assertSameContent(second, copy);
+
+            firstSnapshot.close();
+            copy.close();
+            map.close();
+        }
+    }
+
+    @Test
+    void snapshotsAreReadOnly() {
+
+        LightMap<String, String> map = new LightMap<>(16, 16);
+        map.put("k", "v");
+        LightMap<String, String> snapshot = map.snapshot();
+
+        assertThrows(UnsupportedOperationException.class, () -> snapshot.put("k", "x"));
+        assertThrows(UnsupportedOperationException.class, () -> snapshot.put("n", "x", 1, TimeUnit.SECONDS));
+        assertThrows(UnsupportedOperationException.class, () -> snapshot.putIfAbsent("n", "x"));
+        assertThrows(UnsupportedOperationException.class, () -> snapshot.merge("k", "x", String::concat));
+        assertThrows(UnsupportedOperationException.class, () -> snapshot.remove("k"));
+        assertThrows(UnsupportedOperationException.class, snapshot::clear);
+        assertThrows(UnsupportedOperationException.class, snapshot::compact);
+        assertThrows(UnsupportedOperationException.class, () -> snapshot.setHasher(LightHashers.XXHASH));
+        assertThrows(UnsupportedOperationException.class, () -> snapshot.setMaxBytes(1 << 20));
+        assertThrows(UnsupportedOperationException.class, () -> snapshot.setExpireAfterWrite(1, TimeUnit.SECONDS));
+        assertThrows(UnsupportedOperationException.class, () -> snapshot.entrySet().iterator().next().setValue("x"));
+
+        Iterator<String> keys = snapshot.keySet().iterator();
+        keys.next();
+        assertThrows(UnsupportedOperationException.class, keys::remove);
+
+        // 被拒绝的写入不改变快照的value类型
+        @SuppressWarnings({"unchecked", "rawtypes"})
+        Map<String, Object> raw = (Map) snapshot;
+        assertThrows(UnsupportedOperationException.class, () -> raw.put("k", 5));
+        assertThrows(UnsupportedOperationException.class, () -> raw.entrySet().iterator().next().setValue(5L));
+
+        assertEquals("v", snapshot.get("k"));
+        assertEquals(1, snapshot.size());
+    }
+
+    /**
+     * 快照交给其他线程遍历和写出文件，原容器同时继续写入
+     */
+    @Test
+    void snapshotReadByAnotherThread(@TempDir Path dir) throws Exception {
+
+        LightMap<String, String> map = new LightMap<>(16, 16);
+        Map<String, String> expected = LightMapTest.randomOperations(map, 50000, 100000, 252);
+
+        LightMap<String, String> snapshot = map.snapshot();
+        Path path = dir.resolve("snapshot.lmap");
+        AtomicReference<Throwable> failure = new AtomicReference<>();
+
+        Thread reader = new Thread(() -> {
+            try {
+                for(int round = 0; round < 5; round++) {
+                    LightMapTest.assertSameContent(expected, snapshot);
+                }
+                snapshot.snapshot(path);
+            } catch (Throwable e) {
+                failure.set(e);
+            }
+        });
+        reader.start();
+
+        for(int i = 0; i < 200000; i++) {
+            map.put("k" + (i % 60000), "w" + i);
+            if(i % 5 == 0) {
+                map.remove("k" + (i % 50000));
+            }
+        }
+
+        reader.join();
+        assertNull(failure.get());
+
+        LightMap<String, String> opened = LightMap.open(path);
+        LightMapTest.assertSameContent(expected, opened);
+        opened.close();
+    }
+
+    @Test
+    void concurrentMapSnapshot() {
+
+        ConcurrentLightMap<String, String> map = new ConcurrentLightMap<>(16, 16, 4);
+        Map<String, String> expected = LightMapTest.randomOperations(map, 20000, 50000, 253);
+
+        ConcurrentLightMap<String, String> snapshot = map.snapshot();
+        map.clear();
+
+        LightMapTest.assertSameContent(expected, snapshot);
+        assertThrows(UnsupportedOperationException.class, () -> snapshot.put("k", "v"));
+        assertThrows(UnsupportedOperationException.class, () -> snapshot.remove(expected.keySet().iterator().next()));
+    }
+}
@@ -0,0 +1,166 @@
+package com.songge.demo;
+
+import jdk.jfr.Recording;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordingFile;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * <p>
+ *   stats()的负载、探测距离分布和内存统计与容器结构一致；开启统计后记录rehash和查找，并提交JFR事件
+ * <p/>
+ */
+class StatsTest {
+
+    @Test
+    void probeHistogramOfCollidingKeys() {
+
+        LightMap<String, String> map = new LightMap<>(16, 16, 128);
+        map.setHasher((key, offset, length, seed) -> 3);
+
+        // 全部key的初始位置相同，探测距离依次为0到39
+        for(int i = 0; i < 40; i++) {
+            map.put("k" + i, "v");
+        }
+
+        LightMapStats stats = map.stats();
+
+        long[] histogram = new long[LightMapStats.HISTOGRAM_SIZE];
+        for(int i = 0; i < histogram.length - 1; i++) {
+            histogram[i] = 1;
+        }
+        histogram[histogram.length - 1] = 40 - (histogram.length - 1);
+
+        assertArrayEquals(histogram, stats.probeHistogram());
+        assertEquals(39, stats.maxProbeLength());
+        assertEquals(19.5, stats.averageProbeLength(), 1e-9);
+
+        assertEquals(40, stats.size());
+        assertEquals(128, stats.tableSize());
+        assertEquals(128 - 40, stats.emptySlots());
+        assertEquals(40 / 128.0, stats.loadFactor(), 1e-9);
+        assertEquals(128L * map.nodeLength, stats.memoryBytes());
+        assertEquals(128.0 * map.nodeLength / 40, stats.bytesPerEntry(), 1e-9);
+        assertEquals(0, stats.garbageBytes());
+    }
+
+    @Test
+    void recorderCountsRehashesAndLookups() {
+
+        LightMap<String, String> map = new LightMap<>(16, 16);
+
+        // 未开启时不记录
+        map.put("a", "v");
+        map.get("a");
+        assertEquals(0, map.stats().lookups());
+
+        map.setStatsEnabled(true, 0);
+
+        // 16个节点按0.8的扩容因子，放入100000个元素需要扩容13次
+        for(int i = 0; i < 100000; i++) {
+            map.put("k" + i, "v");
+        }
+
+        for(int i = 0; i < 1000; i++) {
+            map.get("k" + i);
+            map.containsKey("missing" + i);
+        }
+
+        LightMapStats stats = map.stats();
+        assertEquals(13, stats.rehashCount());
+        assertTrue(stats.rehashNanos() >= stats.maxRehashNanos() && stats.maxRehashNanos() > 0);
+        assertEquals(2000, stats.lookups());
+
+        // 阈值为0时每次查找都是慢查找
+        assertEquals(2000, stats.slowLookups());
+
+        // 重新开启时从0开始
+        map.setStatsEnabled(true);
+        map.get("k1");
+        assertEquals(1, map.stats().lookups());
+        assertEquals(0, map.stats().rehashCount());
+
+        map.setStatsEnabled(false);
+        map.get("k1");
+        assertEquals(0, map.stats().lookups());
+    }
+
+    @Test
+    void concurrentMapMergesSegments() {
+
+        ConcurrentLightMap<String, String> map = new ConcurrentLightMap<>(16, 16, 4);
+        map.setStatsEnabled(true, Long.MAX_VALUE);
+
+        for(int i = 0; i < 10000; i++) {
+            map.put("k" + i, "v");
+        }
+        for(int i = 0; i < 500; i++) {
+            map.get("k" + i);
+        }
+
+        LightMapStats stats = map.stats();
+        assertEquals(10000, stats.size());
+        assertEquals(500, stats.lookups());
+        assertEquals(0, stats.slowLookups());
+
+        long histogramTotal = 0;
+        for(long count : stats.probeHistogram()) {
+            histogramTotal += count;
+        }
+        assertEquals(10000, histogramTotal);
+        assertEquals(stats.tableSize() - 10000, stats.emptySlots());
+    }
+
+    @Test
+    void eventsAreCommittedWhileRecording(@TempDir Path dir) throws IOException {
+
+        Path path = dir.resolve("events.jfr");
+
+        try (Recording recording = new Recording()) {
+
+            recording.enable("com.songge.demo.Rehash");
+            recording.enable("com.songge.demo.SlowLookup");
+            recording.start();
+
+            LightMap<String, String> map = new LightMap<>(16, 16);
+            map.setStatsEnabled(true, 0);
+
+            // 放入100个元素，从16扩容到128
+            for(int i = 0; i < 100; i++) {
+                map.put("k" + i, "v");
+            }
+            map.get("k1");
+            map.get("missing");
+
+            recording.stop();
+            recording.dump(path);
+        }
+
+        List<RecordedEvent> events = RecordingFile.readAllEvents(path);
+
+        int rehashes = 0;
+        int slowLookups = 0;
+        for(RecordedEvent event : events) {
+            if(event.getEventType().getName().equals("com.songge.demo.Rehash")) {
+                assertEquals("grow", event.getString("cause"));
+                assertEquals(event.getInt("oldSize") * 2, event.getInt("newSize"));
+                rehashes++;
+            } else if(event.getEventType().getName().equals("com.songge.demo.SlowLookup")) {
+                assertEquals(event.getInt("keyLength") == 2, event.getBoolean("found"));
+                slowLookups++;
+            }
+        }
+
+        assertEquals(3, rehashes);
+        assertEquals(2, slowLookups);
+    }
+}